@@ -0,0 +1,97 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import javax.servlet.ServletContext;
+import javax.validation.Validation;
+
+import com.boylesoftware.web.impl.RequestUserLocaleFinder;
+import com.boylesoftware.web.impl.auth.NopAuthenticationService;
+
+
+/**
+ * Helpers used by the benchmarks to set up the framework components outside
+ * of a servlet container.
+ *
+ * @author Lev Himmelfarb
+ */
+public final class BenchmarkSupport {
+
+	/**
+	 * All methods are static.
+	 */
+	private BenchmarkSupport() {}
+
+
+	/**
+	 * Create servlet context stub. The context has empty context path and
+	 * all other methods return {@code null}, zero or {@code false}.
+	 *
+	 * @return The servlet context.
+	 */
+	public static ServletContext createServletContext() {
+
+		return (ServletContext) Proxy.newProxyInstance(
+				BenchmarkSupport.class.getClassLoader(),
+				new Class<?>[] { ServletContext.class },
+				new InvocationHandler() {
+
+					@Override
+					public Object invoke(final Object proxy,
+							final Method method, final Object[] args) {
+
+						if (method.getName().equals("getContextPath"))
+							return "";
+
+						final Class<?> returnType = method.getReturnType();
+						if (returnType.equals(Boolean.TYPE))
+							return Boolean.FALSE;
+						if (returnType.equals(Integer.TYPE))
+							return Integer.valueOf(0);
+						if (returnType.equals(Long.TYPE))
+							return Long.valueOf(0);
+
+						return null;
+					}
+				});
+	}
+
+	/**
+	 * Create application services with the default Bean Validation
+	 * implementation, locale finder that uses the request locale and no
+	 * authentication.
+	 *
+	 * @return The application services.
+	 */
+	public static ApplicationServices createApplicationServices() {
+
+		final AbstractWebApplication webapp = new AbstractWebApplication() {
+			// nothing to override
+		};
+
+		final ApplicationServices services = webapp.services;
+		services.setValidatorFactory(
+				Validation.buildDefaultValidatorFactory());
+		services.setUserLocaleFinder(new RequestUserLocaleFinder());
+		services.setAuthenticationService(new NopAuthenticationService());
+
+		return services;
+	}
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.impl;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequestWrapper;
+
+
+/**
+ * HTTP request stub used by the benchmarks in place of the servlet container's
+ * request. Based on {@link DummyHttpServletRequest}, it adds settable request
+ * URI, method, cookies and parameters and keeps request attributes in a map.
+ *
+ * @author Lev Himmelfarb
+ */
+public class BenchmarkHttpServletRequest
+	extends HttpServletRequestWrapper {
+
+	/**
+	 * Request method.
+	 */
+	private String method = "GET";
+
+	/**
+	 * Request URI.
+	 */
+	private String requestURI = "/";
+
+	/**
+	 * Cookies.
+	 */
+	private Cookie[] cookies;
+
+	/**
+	 * Request parameters.
+	 */
+	private final Map<String, String[]> parameters = new HashMap<>();
+
+	/**
+	 * Request attributes.
+	 */
+	private final Map<String, Object> attributes = new HashMap<>();
+
+
+	/**
+	 * Create new request.
+	 */
+	public BenchmarkHttpServletRequest() {
+		super(new DummyHttpServletRequest());
+	}
+
+
+	/**
+	 * Set request method.
+	 *
+	 * @param method The method.
+	 */
+	public void setMethod(final String method) {
+
+		this.method = method;
+	}
+
+	/**
+	 * Set request URI.
+	 *
+	 * @param requestURI The URI.
+	 */
+	public void setRequestURI(final String requestURI) {
+
+		this.requestURI = requestURI;
+	}
+
+	/**
+	 * Set cookies.
+	 *
+	 * @param cookies The cookies.
+	 */
+	public void setCookies(final Cookie... cookies) {
+
+		this.cookies = cookies;
+	}
+
+	/**
+	 * Set request parameter.
+	 *
+	 * @param name Parameter name.
+	 * @param value Parameter value.
+	 */
+	public void setParameter(final String name, final String value) {
+
+		this.parameters.put(name, new String[] { value });
+	}
+
+
+	/* (non-Javadoc)
+	 * @see javax.servlet.http.HttpServletRequestWrapper#getMethod()
+	 */
+	@Override
+	public String getMethod() {
+
+		return this.method;
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.servlet.http.HttpServletRequestWrapper#getRequestURI()
+	 */
+	@Override
+	public String getRequestURI() {
+
+		return this.requestURI;
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.servlet.http.HttpServletRequestWrapper#getContextPath()
+	 */
+	@Override
+	public String getContextPath() {
+
+		return "";
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.servlet.http.HttpServletRequestWrapper#getCookies()
+	 */
+	@Override
+	public Cookie[] getCookies() {
+
+		return this.cookies;
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.servlet.ServletRequestWrapper#getLocale()
+	 */
+	@Override
+	public Locale getLocale() {
+
+		return Locale.US;
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.servlet.ServletRequestWrapper#getParameter(java.lang.String)
+	 */
+	@Override
+	public String getParameter(final String name) {
+
+		final String[] values = this.parameters.get(name);
+
+		return (values != null ? values[0] : null);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.servlet.ServletRequestWrapper#getParameterValues(java.lang.String)
+	 */
+	@Override
+	public String[] getParameterValues(final String name) {
+
+		return this.parameters.get(name);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.servlet.ServletRequestWrapper#getParameterMap()
+	 */
+	@Override
+	public Map<String, String[]> getParameterMap() {
+
+		return Collections.unmodifiableMap(this.parameters);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.servlet.ServletRequestWrapper#getParameterNames()
+	 */
+	@Override
+	public Enumeration<String> getParameterNames() {
+
+		return Collections.enumeration(this.parameters.keySet());
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.servlet.ServletRequestWrapper#getAttribute(java.lang.String)
+	 */
+	@Override
+	public Object getAttribute(final String name) {
+
+		return this.attributes.get(name);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.servlet.ServletRequestWrapper#getAttributeNames()
+	 */
+	@Override
+	public Enumeration<String> getAttributeNames() {
+
+		return Collections.enumeration(this.attributes.keySet());
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.servlet.ServletRequestWrapper#setAttribute(java.lang.String, java.lang.Object)
+	 */
+	@Override
+	public void setAttribute(final String name, final Object o) {
+
+		if (o == null)
+			this.attributes.remove(name);
+		else
+			this.attributes.put(name, o);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.servlet.ServletRequestWrapper#removeAttribute(java.lang.String)
+	 */
+	@Override
+	public void removeAttribute(final String name) {
+
+		this.attributes.remove(name);
+	}
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.impl;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletContext;
+import javax.servlet.UnavailableException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.boylesoftware.web.BenchmarkSupport;
+import com.boylesoftware.web.spi.Route.SecurityMode;
+import com.boylesoftware.web.spi.RouterRequest;
+
+
+/**
+ * Benchmark for {@link AbstractRouterConfiguration#findRoute}, which matches
+ * the request URI against the route mappings and wraps the request. Half of
+ * the routes have static URIs and half have a numeric URI parameter. The
+ * requests are spread evenly over all routes in random order.
+ *
+ * @author Lev Himmelfarb
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FindRouteBenchmark {
+
+	/**
+	 * Number of route mappings.
+	 */
+	@Param({ "10", "100", "1000" })
+	public int numRoutes;
+
+	/**
+	 * The router configuration.
+	 */
+	private AbstractRouterConfiguration routerConfig;
+
+	/**
+	 * Requests that match the routes.
+	 */
+	private BenchmarkHttpServletRequest[] requests;
+
+	/**
+	 * Request that does not match any route.
+	 */
+	private BenchmarkHttpServletRequest unmatchedRequest;
+
+	/**
+	 * Index of the next request to use.
+	 */
+	private int nextRequest;
+
+
+	/**
+	 * Build the routes and the requests.
+	 *
+	 * @throws UnavailableException If an error happens.
+	 */
+	@Setup
+	public void setup()
+		throws UnavailableException {
+
+		final int n = this.numRoutes;
+		this.routerConfig = new AbstractRouterConfiguration(
+				BenchmarkSupport.createServletContext(),
+				BenchmarkSupport.createApplicationServices(), null, null) {
+
+			@Override
+			protected void buildRoutes(final ServletContext sc,
+					final RoutesBuilder routes)
+				throws UnavailableException {
+
+				for (int i = 0; i < n; i++) {
+					if (i % 2 == 0)
+						routes.addRoute(null, "/section" + i + "/list",
+								SecurityMode.DEFAULT, null, null,
+								"/WEB-INF/jsp/list.jsp", null);
+					else
+						routes.addRoute(null,
+								"/section" + i + "/items/{id:\\d+}",
+								SecurityMode.DEFAULT, null, null,
+								"/WEB-INF/jsp/item.jsp", null);
+				}
+			}
+		};
+
+		final Random rand = new Random(1);
+		this.requests = new BenchmarkHttpServletRequest[n];
+		for (int i = 0; i < n; i++) {
+			final BenchmarkHttpServletRequest request =
+				new BenchmarkHttpServletRequest();
+			request.setRequestURI(i % 2 == 0 ? "/section" + i + "/list" :
+				"/section" + i + "/items/" + rand.nextInt(100000));
+			this.requests[i] = request;
+		}
+		for (int i = n - 1; i > 0; i--) {
+			final int j = rand.nextInt(i + 1);
+			final BenchmarkHttpServletRequest tmp = this.requests[i];
+			this.requests[i] = this.requests[j];
+			this.requests[j] = tmp;
+		}
+
+		this.unmatchedRequest = new BenchmarkHttpServletRequest();
+		this.unmatchedRequest.setRequestURI("/favicon.ico");
+	}
+
+
+	/**
+	 * Find route for a request that matches one of the routes.
+	 *
+	 * @return The router request.
+	 *
+	 * @throws Exception If an error happens.
+	 */
+	@Benchmark
+	public RouterRequest findRoute()
+		throws Exception {
+
+		final int ind = this.nextRequest;
+		this.nextRequest = (ind + 1 == this.requests.length ? 0 : ind + 1);
+
+		final RouterRequest routerReq =
+			this.routerConfig.findRoute(this.requests[ind], null);
+		routerReq.recycle();
+
+		return routerReq;
+	}
+
+	/**
+	 * Find route for a request that does not match any route.
+	 *
+	 * @return {@code null}.
+	 *
+	 * @throws Exception If an error happens.
+	 */
+	@Benchmark
+	public RouterRequest findRouteNoMatch()
+		throws Exception {
+
+		return this.routerConfig.findRoute(this.unmatchedRequest, null);
+	}
+}
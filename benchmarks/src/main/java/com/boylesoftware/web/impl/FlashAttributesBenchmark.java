@@ -0,0 +1,119 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.impl;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Benchmark for parsing the flash attributes cookie in
+ * {@link FlashAttributesImpl#flashCookieToAttributes}.
+ *
+ * @author Lev Himmelfarb
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FlashAttributesBenchmark {
+
+	/**
+	 * Flash attributes.
+	 */
+	private FlashAttributesImpl flashAttributes;
+
+	/**
+	 * Request with the flash attributes cookie.
+	 */
+	private BenchmarkHttpServletRequest request;
+
+	/**
+	 * Request without the flash attributes cookie.
+	 */
+	private BenchmarkHttpServletRequest requestNoCookie;
+
+
+	/**
+	 * Create the requests.
+	 */
+	@Setup
+	public void setup() {
+
+		this.flashAttributes = new FlashAttributesImpl();
+
+		this.request = new BenchmarkHttpServletRequest();
+		this.request.setCookies(
+				new Cookie("BSWEBAT", "c2Vzc2lvbg=="),
+				new Cookie("BSWEBFL",
+						"message=Your changes have been saved" +
+						"&status=ok&query=a=1\\&b=2"));
+
+		this.requestNoCookie = new BenchmarkHttpServletRequest();
+		this.requestNoCookie.setCookies(
+				new Cookie("BSWEBAT", "c2Vzc2lvbg=="));
+	}
+
+
+	/**
+	 * Parse the flash attributes cookie.
+	 *
+	 * @return The request.
+	 *
+	 * @throws ServletException If the cookie is invalid.
+	 */
+	@Benchmark
+	public BenchmarkHttpServletRequest parseCookie()
+		throws ServletException {
+
+		this.flashAttributes.flashCookieToAttributes(this.request);
+		this.flashAttributes.clear();
+
+		return this.request;
+	}
+
+	/**
+	 * Look for the flash attributes cookie in a request that does not have it.
+	 *
+	 * @return The request.
+	 *
+	 * @throws ServletException If the cookie is invalid.
+	 */
+	@Benchmark
+	public BenchmarkHttpServletRequest noCookie()
+		throws ServletException {
+
+		this.flashAttributes.flashCookieToAttributes(this.requestNoCookie);
+		this.flashAttributes.clear();
+
+		return this.requestNoCookie;
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.impl;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletContext;
+import javax.servlet.UnavailableException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.boylesoftware.web.ApplicationServices;
+import com.boylesoftware.web.BenchmarkSupport;
+import com.boylesoftware.web.spi.Route.SecurityMode;
+import com.boylesoftware.web.spi.RouterRequest;
+
+
+/**
+ * Benchmark for {@link UserInputControllerMethodArgHandler#prepareUserInput},
+ * which binds the request parameters to a pooled user input bean and validates
+ * it, with valid and invalid input.
+ *
+ * @author Lev Himmelfarb
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PrepareUserInputBenchmark {
+
+	/**
+	 * Tells if the submitted input is valid.
+	 */
+	@Param({ "true", "false" })
+	public boolean valid;
+
+	/**
+	 * The handler.
+	 */
+	private UserInputControllerMethodArgHandler handler;
+
+	/**
+	 * Router request with the submitted form parameters.
+	 */
+	private RouterRequest routerReq;
+
+
+	/**
+	 * Create the handler and the request.
+	 *
+	 * @throws Exception If an error happens.
+	 */
+	@Setup
+	public void setup()
+		throws Exception {
+
+		final ApplicationServices services =
+			BenchmarkSupport.createApplicationServices();
+
+		this.handler = new UserInputControllerMethodArgHandler(
+				services.getValidatorFactory(), SampleUserInput.class,
+				new Class<?>[0]);
+
+		final AbstractRouterConfiguration routerConfig =
+			new AbstractRouterConfiguration(
+					BenchmarkSupport.createServletContext(), services, null,
+					null) {
+
+				@Override
+				protected void buildRoutes(final ServletContext sc,
+						final RoutesBuilder routes)
+					throws UnavailableException {
+
+					routes.addRoute(null, "/signup", SecurityMode.DEFAULT,
+							null, null, "/WEB-INF/jsp/signup.jsp", null);
+				}
+			};
+
+		final BenchmarkHttpServletRequest request =
+			new BenchmarkHttpServletRequest();
+		request.setRequestURI("/signup");
+		if (this.valid) {
+			request.setParameter("email", " john.smith@example.com ");
+			request.setParameter("name", "John Smith");
+			request.setParameter("age", "42");
+			request.setParameter("subscribe", "true");
+		} else {
+			request.setParameter("email", "john.smith");
+			request.setParameter("age", "forty two");
+		}
+
+		this.routerReq = routerConfig.findRoute(request, null);
+	}
+
+	/**
+	 * Recycle the request.
+	 */
+	@TearDown
+	public void tearDown() {
+
+		this.routerReq.recycle();
+	}
+
+
+	/**
+	 * Bind and validate the user input.
+	 *
+	 * @return {@code true} if the input is valid.
+	 *
+	 * @throws Exception If an error happens.
+	 */
+	@Benchmark
+	public boolean prepareUserInput()
+		throws Exception {
+
+		final boolean res = this.handler.prepareUserInput(this.routerReq);
+
+		this.handler.onComplete(this.routerReq);
+		((UserInputErrorsImpl) this.routerReq.getUserInputErrors()).clear();
+
+		return res;
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.impl;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
+import javax.validation.constraints.Size;
+
+
+/**
+ * User input bean used by {@link PrepareUserInputBenchmark}.
+ *
+ * @author Lev Himmelfarb
+ */
+public class SampleUserInput {
+
+	/**
+	 * E-mail.
+	 */
+	@NotNull
+	@Size(max = 100)
+	@Pattern(regexp = "[^@\\s]+@[^@\\s]+")
+	private String email;
+
+	/**
+	 * Name.
+	 */
+	@NotNull
+	@Size(max = 50)
+	private String name;
+
+	/**
+	 * Age.
+	 */
+	@NotNull
+	@Min(18)
+	private Integer age;
+
+	/**
+	 * Newsletter subscription flag.
+	 */
+	private boolean subscribe;
+
+
+	/**
+	 * Get e-mail.
+	 *
+	 * @return E-mail.
+	 */
+	public String getEmail() {
+
+		return this.email;
+	}
+
+	/**
+	 * Set e-mail.
+	 *
+	 * @param email E-mail.
+	 */
+	public void setEmail(final String email) {
+
+		this.email = email;
+	}
+
+	/**
+	 * Get name.
+	 *
+	 * @return Name.
+	 */
+	public String getName() {
+
+		return this.name;
+	}
+
+	/**
+	 * Set name.
+	 *
+	 * @param name Name.
+	 */
+	public void setName(final String name) {
+
+		this.name = name;
+	}
+
+	/**
+	 * Get age.
+	 *
+	 * @return Age.
+	 */
+	public Integer getAge() {
+
+		return this.age;
+	}
+
+	/**
+	 * Set age.
+	 *
+	 * @param age Age.
+	 */
+	public void setAge(final Integer age) {
+
+		this.age = age;
+	}
+
+	/**
+	 * Get newsletter subscription flag.
+	 *
+	 * @return The flag.
+	 */
+	public boolean isSubscribe() {
+
+		return this.subscribe;
+	}
+
+	/**
+	 * Set newsletter subscription flag.
+	 *
+	 * @param subscribe The flag.
+	 */
+	public void setSubscribe(final boolean subscribe) {
+
+		this.subscribe = subscribe;
+	}
+}
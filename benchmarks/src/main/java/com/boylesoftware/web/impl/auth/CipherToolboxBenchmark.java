@@ -0,0 +1,121 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.impl.auth;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.boylesoftware.web.util.pool.FastPool;
+import com.boylesoftware.web.util.pool.PoolableObjectFactory;
+
+
+/**
+ * Benchmark for the authentication cookie encryption and decryption in
+ * {@link CipherToolbox}. Run with "-prof gc" to see the bytes allocated per
+ * operation.
+ *
+ * @author Lev Himmelfarb
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CipherToolboxBenchmark {
+
+	/**
+	 * The toolbox.
+	 */
+	private CipherToolbox cipher;
+
+	/**
+	 * Encrypted cookie value.
+	 */
+	private String cookieValue;
+
+	/**
+	 * Counter used to vary the user id.
+	 */
+	private int counter;
+
+
+	/**
+	 * Create the toolbox and the cookie value.
+	 */
+	@Setup
+	public void setup() {
+
+		final SecretKeySpec secretKey = new SecretKeySpec(
+				new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15,
+						16 },
+				CipherToolbox.ALGORITHM);
+
+		final FastPool<CipherToolbox> pool = new FastPool<>(
+				new PoolableObjectFactory<CipherToolbox>() {
+
+					@Override
+					public CipherToolbox makeNew(
+							final FastPool<CipherToolbox> pool,
+							final int pooledObjectId) {
+
+						return new CipherToolbox(pool, pooledObjectId,
+								secretKey);
+					}
+				}, "BenchmarkCiphersPool");
+
+		this.cipher = pool.getSync();
+		this.cookieValue = this.cipher.encrypt(12345, 67890);
+	}
+
+
+	/**
+	 * Encrypt authentication cookie value.
+	 *
+	 * @return The cookie value.
+	 */
+	@Benchmark
+	public String encrypt() {
+
+		return this.cipher.encrypt(this.counter++, 67890);
+	}
+
+	/**
+	 * Decrypt authentication cookie value.
+	 *
+	 * @return The user id.
+	 */
+	@Benchmark
+	public int decrypt() {
+
+		if (!this.cipher.decrypt(this.cookieValue))
+			throw new IllegalStateException("Could not decrypt.");
+
+		return this.cipher.getUserId();
+	}
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.util;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Benchmark for {@link Base64} encoding and decoding of an authentication
+ * cookie sized value.
+ *
+ * @author Lev Himmelfarb
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class Base64Benchmark {
+
+	/**
+	 * Bytes to encode.
+	 */
+	private ByteBuffer bytes;
+
+	/**
+	 * Buffer for the encoded characters.
+	 */
+	private CharBuffer chars;
+
+	/**
+	 * Encoded value as a string.
+	 */
+	private String encoded;
+
+	/**
+	 * Buffer for the decoded bytes.
+	 */
+	private ByteBuffer decoded;
+
+
+	/**
+	 * Create the buffers.
+	 */
+	@Setup
+	public void setup() {
+
+		final byte[] data = new byte[44];
+		(new Random(1)).nextBytes(data);
+		this.bytes = ByteBuffer.wrap(data);
+		this.chars = CharBuffer.allocate(64);
+		this.decoded = ByteBuffer.allocate(64);
+
+		Base64.encode(this.bytes, this.chars);
+		this.chars.flip();
+		this.encoded = this.chars.toString();
+	}
+
+
+	/**
+	 * Encode bytes.
+	 *
+	 * @return Number of characters.
+	 */
+	@Benchmark
+	public int encode() {
+
+		this.bytes.clear();
+		this.chars.clear();
+
+		return Base64.encode(this.bytes, this.chars);
+	}
+
+	/**
+	 * Decode characters from a character buffer.
+	 *
+	 * @return Number of bytes.
+	 */
+	@Benchmark
+	public int decodeCharBuffer() {
+
+		this.chars.clear();
+		this.chars.limit(this.encoded.length());
+		this.decoded.clear();
+
+		return Base64.decode(this.chars, this.decoded);
+	}
+
+	/**
+	 * Decode characters from a string.
+	 *
+	 * @return Number of bytes.
+	 */
+	@Benchmark
+	public int decodeString() {
+
+		this.decoded.clear();
+
+		return Base64.decode(this.encoded, this.decoded);
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.util.pool;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Benchmark for borrowing and returning objects with
+ * {@link FastPool#getSync()} and {@link FastPool#recycleSync}, uncontended and
+ * under contention, for both {@link FastPool} and {@link ConcurrentFastPool}.
+ *
+ * @author Lev Himmelfarb
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FastPoolBenchmark {
+
+	/**
+	 * Pooled object used in the benchmark.
+	 */
+	static final class PooledObject
+		extends AbstractPoolable {
+
+		/**
+		 * Create new object.
+		 *
+		 * @param pool The pool.
+		 * @param pooledObjectId Pooled object id.
+		 */
+		PooledObject(final FastPool<PooledObject> pool,
+				final int pooledObjectId) {
+			super(pool, pooledObjectId);
+		}
+	}
+
+
+	/**
+	 * Pool implementation.
+	 */
+	@Param({ "FastPool", "ConcurrentFastPool" })
+	public String poolType;
+
+	/**
+	 * The pool shared by all benchmark threads.
+	 */
+	private FastPool<PooledObject> pool;
+
+
+	/**
+	 * Create the pool.
+	 */
+	@Setup
+	public void setup() {
+
+		final PoolableObjectFactory<PooledObject> factory =
+			new PoolableObjectFactory<PooledObject>() {
+
+				@Override
+				public PooledObject makeNew(final FastPool<PooledObject> pool,
+						final int pooledObjectId) {
+
+					return new PooledObject(pool, pooledObjectId);
+				}
+			};
+
+		this.pool = (this.poolType.equals("ConcurrentFastPool") ?
+				new ConcurrentFastPool<>(factory, "BenchmarkPool") :
+					new FastPool<>(factory, "BenchmarkPool"));
+	}
+
+
+	/**
+	 * Borrow and return an object in a single thread.
+	 *
+	 * @return The object.
+	 */
+	@Benchmark
+	@Threads(1)
+	public PooledObject getRecycleUncontended() {
+
+		final PooledObject obj = this.pool.getSync();
+		this.pool.recycleSync(obj);
+
+		return obj;
+	}
+
+	/**
+	 * Borrow and return an object in 4 concurrent threads.
+	 *
+	 * @return The object.
+	 */
+	@Benchmark
+	@Threads(4)
+	public PooledObject getRecycleContended() {
+
+		final PooledObject obj = this.pool.getSync();
+		this.pool.recycleSync(obj);
+
+		return obj;
+	}
+}
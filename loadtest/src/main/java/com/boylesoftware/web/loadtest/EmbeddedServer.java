@@ -0,0 +1,277 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.SecureRandom;
+import java.util.Map;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.servlets.DefaultServlet;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.tomcat.util.descriptor.web.ContextEnvironment;
+import org.apache.tomcat.util.descriptor.web.FilterDef;
+import org.apache.tomcat.util.descriptor.web.FilterMap;
+
+import com.boylesoftware.web.RouterFilter;
+import com.boylesoftware.web.impl.routes.RoutesRouterConfiguration;
+import com.boylesoftware.web.loadtest.app.LoadTestApplication;
+import com.boylesoftware.web.loadtest.app.ViewServlet;
+import com.boylesoftware.web.util.Hex;
+
+
+/**
+ * Embedded Tomcat that hosts instances of the {@link LoadTestApplication}. Each
+ * instance is deployed in its own context with its own configuration and
+ * generated routes file.
+ *
+ * <p>The connector is marked as secure, so that the framework treats all
+ * requests as received over HTTPS and processes the authentication cookie,
+ * while the load generator talks plain HTTP to it and the measurements do not
+ * include the TLS overhead.
+ *
+ * @author Lev Himmelfarb
+ */
+final class EmbeddedServer {
+
+	/**
+	 * Routes file deployed with each application instance.
+	 */
+	static final String ROUTES =
+		"controllerPackages:\n" +
+		"    com.boylesoftware.web.loadtest.app,\n" +
+		"    com.boylesoftware.web.stk\n" +
+		"viewsBase: /WEB-INF/views/\n" +
+		"\n" +
+		"/login.html +L\n" +
+		"    LoginController => login" + ViewServlet.VIEW_EXTENSION + "\n" +
+		"\n" +
+		"/items/{itemId:[1-9][0-9]*}.html\n" +
+		"    ItemController => item" + ViewServlet.VIEW_EXTENSION + "\n" +
+		"\n" +
+		"/secure/account.html +U\n" +
+		"    AccountController => account" + ViewServlet.VIEW_EXTENSION +
+			"\n" +
+		"\n" +
+		"/secure/items/new.html +U\n" +
+		"    NewItemController => newItem" + ViewServlet.VIEW_EXTENSION +
+			"\n";
+
+
+	/**
+	 * The container.
+	 */
+	private final Tomcat tomcat;
+
+	/**
+	 * Container base directory.
+	 */
+	private final Path baseDir;
+
+	/**
+	 * HTTP port.
+	 */
+	private final int port;
+
+	/**
+	 * Authentication cookie secret key in hexadecimal encoding.
+	 */
+	private final String secretKey;
+
+
+	/**
+	 * Create new server.
+	 *
+	 * @param port HTTP port, or zero to use any free port.
+	 *
+	 * @throws IOException If an I/O error happens creating the base directory
+	 * or finding a free port.
+	 */
+	EmbeddedServer(final int port)
+		throws IOException {
+
+		if (port > 0) {
+			this.port = port;
+		} else {
+			try (final ServerSocket ss = new ServerSocket(0)) {
+				this.port = ss.getLocalPort();
+			}
+		}
+
+		final byte[] key = new byte[16];
+		new SecureRandom().nextBytes(key);
+		this.secretKey = Hex.encode(key);
+
+		this.baseDir = Files.createTempDirectory("thyme-loadtest");
+
+		this.tomcat = new Tomcat();
+		this.tomcat.setBaseDir(this.baseDir.toString());
+		this.tomcat.enableNaming();
+
+		final Connector connector =
+			new Connector("org.apache.coyote.http11.Http11NioProtocol");
+		connector.setPort(this.port);
+		connector.setSecure(true);
+		connector.setScheme("https");
+		connector.setProperty("maxKeepAliveRequests", "-1");
+		this.tomcat.setConnector(connector);
+	}
+
+
+	/**
+	 * Add application instance.
+	 *
+	 * @param name Context name, which is also the context path without the
+	 * leading slash.
+	 * @param config Application configuration properties, passed to the
+	 * application as the context initialization parameters.
+	 *
+	 * @throws IOException If an I/O error happens writing the routes file.
+	 */
+	void addApplication(final String name, final Map<String, String> config)
+		throws IOException {
+
+		final File docBase = this.baseDir.resolve(name).toFile();
+		final File routesFile = new File(docBase,
+				RoutesRouterConfiguration.ROUTES_PATH.substring(1));
+		if (!routesFile.getParentFile().mkdirs())
+			throw new IOException("Could not create " +
+					routesFile.getParentFile() + ".");
+		try (final Writer out = Files.newBufferedWriter(routesFile.toPath(),
+				StandardCharsets.UTF_8)) {
+			out.write(ROUTES);
+		}
+
+		final Context ctx =
+			this.tomcat.addContext("/" + name, docBase.getAbsolutePath());
+
+		for (final Map.Entry<String, String> entry : config.entrySet())
+			ctx.addParameter(entry.getKey(), entry.getValue());
+
+		final ContextEnvironment secretKeyEnv = new ContextEnvironment();
+		secretKeyEnv.setName("secretKey");
+		secretKeyEnv.setType(String.class.getName());
+		secretKeyEnv.setValue(this.secretKey);
+		ctx.getNamingResources().addEnvironment(secretKeyEnv);
+		final ContextEnvironment httpsPortEnv = new ContextEnvironment();
+		httpsPortEnv.setName("httpsPort");
+		httpsPortEnv.setType(Integer.class.getName());
+		httpsPortEnv.setValue(String.valueOf(this.port));
+		ctx.getNamingResources().addEnvironment(httpsPortEnv);
+
+		ctx.addApplicationListener(LoadTestApplication.class.getName());
+
+		final FilterDef routerFilterDef = new FilterDef();
+		routerFilterDef.setFilterName("RouterFilter");
+		routerFilterDef.setFilterClass(RouterFilter.class.getName());
+		routerFilterDef.setAsyncSupported("true");
+		ctx.addFilterDef(routerFilterDef);
+		final FilterMap routerFilterMap = new FilterMap();
+		routerFilterMap.setFilterName("RouterFilter");
+		routerFilterMap.addURLPattern("/*");
+		routerFilterMap.setDispatcher("REQUEST");
+		routerFilterMap.setDispatcher("ASYNC");
+		ctx.addFilterMap(routerFilterMap);
+
+		final Wrapper viewServlet = Tomcat.addServlet(ctx, "ViewServlet",
+				ViewServlet.class.getName());
+		viewServlet.setAsyncSupported(true);
+		ctx.addServletMappingDecoded("*" + ViewServlet.VIEW_EXTENSION,
+				"ViewServlet");
+
+		// requests not taken by the router need a servlet at the end of chain
+		final Wrapper defaultServlet = Tomcat.addServlet(ctx, "default",
+				DefaultServlet.class.getName());
+		defaultServlet.setAsyncSupported(true);
+		ctx.addServletMappingDecoded("/", "default");
+	}
+
+	/**
+	 * Start the server.
+	 *
+	 * @throws LifecycleException If the server cannot be started.
+	 */
+	void start()
+		throws LifecycleException {
+
+		this.tomcat.start();
+	}
+
+	/**
+	 * Get base URL of an application instance.
+	 *
+	 * @param name Application context name.
+	 *
+	 * @return The base URL without trailing slash.
+	 */
+	String getBaseURL(final String name) {
+
+		return "http://localhost:" + this.port + "/" + name;
+	}
+
+	/**
+	 * Stop the server and delete its base directory.
+	 *
+	 * @throws LifecycleException If an error happens stopping the server.
+	 * @throws IOException If an I/O error happens deleting the base directory.
+	 */
+	void stop()
+		throws LifecycleException, IOException {
+
+		try {
+			this.tomcat.stop();
+			this.tomcat.destroy();
+		} finally {
+			Files.walkFileTree(this.baseDir, new SimpleFileVisitor<Path>() {
+
+				@Override
+				public FileVisitResult visitFile(final Path file,
+						final BasicFileAttributes attrs)
+					throws IOException {
+
+					Files.delete(file);
+
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult postVisitDirectory(final Path dir,
+						final IOException e)
+					throws IOException {
+
+					if (e != null)
+						throw e;
+
+					Files.delete(dir);
+
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		}
+	}
+}
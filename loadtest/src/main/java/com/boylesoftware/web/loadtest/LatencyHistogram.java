@@ -0,0 +1,179 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.loadtest;
+
+
+/**
+ * Histogram of request latencies in microseconds. Values below
+ * {@value #LINEAR_RANGE} are counted exactly, larger values are counted in
+ * buckets with the width of 1/{@value #SUB_BUCKETS} of the value, which gives
+ * the percentiles with precision better than 2%. The histogram is not
+ * thread-safe, each load generator thread records into its own histogram and
+ * the histograms are merged at the end.
+ *
+ * @author Lev Himmelfarb
+ */
+final class LatencyHistogram {
+
+	/**
+	 * Number of sub-buckets in each power of two range.
+	 */
+	private static final int SUB_BUCKETS = 64;
+
+	/**
+	 * Number of bits in the sub-bucket index.
+	 */
+	private static final int SUB_BUCKET_BITS = 6;
+
+	/**
+	 * Values below this are counted exactly.
+	 */
+	private static final int LINEAR_RANGE = 2 * SUB_BUCKETS;
+
+	/**
+	 * Maximum supported shift, which covers latencies of over a day.
+	 */
+	private static final int MAX_SHIFT = 31;
+
+
+	/**
+	 * Bucket counts.
+	 */
+	private final long[] counts =
+		new long[LINEAR_RANGE + MAX_SHIFT * SUB_BUCKETS];
+
+	/**
+	 * Total number of recorded values.
+	 */
+	private long totalCount;
+
+	/**
+	 * Maximum recorded value.
+	 */
+	private long maxValue;
+
+
+	/**
+	 * Record value.
+	 *
+	 * @param micros Latency in microseconds.
+	 */
+	void record(final long micros) {
+
+		final long v = (micros < 0 ? 0 : micros);
+		this.counts[bucketIndex(v)]++;
+		this.totalCount++;
+		if (v > this.maxValue)
+			this.maxValue = v;
+	}
+
+	/**
+	 * Add all values recorded in another histogram to this one.
+	 *
+	 * @param other The other histogram.
+	 */
+	void add(final LatencyHistogram other) {
+
+		for (int i = 0; i < this.counts.length; i++)
+			this.counts[i] += other.counts[i];
+		this.totalCount += other.totalCount;
+		if (other.maxValue > this.maxValue)
+			this.maxValue = other.maxValue;
+	}
+
+	/**
+	 * Get total number of recorded values.
+	 *
+	 * @return Number of values.
+	 */
+	long getTotalCount() {
+
+		return this.totalCount;
+	}
+
+	/**
+	 * Get maximum recorded value.
+	 *
+	 * @return Maximum latency in microseconds.
+	 */
+	long getMaxValue() {
+
+		return this.maxValue;
+	}
+
+	/**
+	 * Get value at the specified percentile.
+	 *
+	 * @param percentile The percentile, from 0 to 100.
+	 *
+	 * @return Latency in microseconds, at or below which the specified
+	 * percentage of the recorded values falls. Zero if the histogram is empty.
+	 */
+	long getValueAtPercentile(final double percentile) {
+
+		if (this.totalCount == 0)
+			return 0;
+
+		final long rank = Math.max(1,
+				(long) Math.ceil(this.totalCount * percentile / 100));
+		long count = 0;
+		for (int i = 0; i < this.counts.length; i++) {
+			count += this.counts[i];
+			if (count >= rank)
+				return Math.min(bucketUpperBound(i), this.maxValue);
+		}
+
+		return this.maxValue;
+	}
+
+
+	/**
+	 * Get bucket index for a value.
+	 *
+	 * @param v The value.
+	 *
+	 * @return The bucket index.
+	 */
+	private static int bucketIndex(final long v) {
+
+		if (v < LINEAR_RANGE)
+			return (int) v;
+
+		final int shift = Math.min(
+				63 - Long.numberOfLeadingZeros(v) - SUB_BUCKET_BITS, MAX_SHIFT);
+
+		return LINEAR_RANGE + (shift - 1) * SUB_BUCKETS +
+				(int) Math.min((v >>> shift) - SUB_BUCKETS, SUB_BUCKETS - 1);
+	}
+
+	/**
+	 * Get largest value counted in a bucket.
+	 *
+	 * @param index The bucket index.
+	 *
+	 * @return The value.
+	 */
+	private static long bucketUpperBound(final int index) {
+
+		if (index < LINEAR_RANGE)
+			return index;
+
+		final int shift = (index - LINEAR_RANGE) / SUB_BUCKETS + 1;
+		final long sub = (index - LINEAR_RANGE) % SUB_BUCKETS + SUB_BUCKETS;
+
+		return ((sub + 1) << shift) - 1;
+	}
+}
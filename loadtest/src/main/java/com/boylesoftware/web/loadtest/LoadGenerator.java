@@ -0,0 +1,192 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.loadtest;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Closed-loop load generator. A fixed number of client threads send requests
+ * of the same scenario back to back for the specified time, each thread
+ * waiting for the response before sending the next request.
+ *
+ * @author Lev Himmelfarb
+ */
+final class LoadGenerator {
+
+	/**
+	 * Result of a load generator run.
+	 */
+	static final class Result {
+
+		/**
+		 * Latencies of the successful requests.
+		 */
+		final LatencyHistogram latencies = new LatencyHistogram();
+
+		/**
+		 * Number of failed requests.
+		 */
+		long errors;
+
+		/**
+		 * Run duration in nanoseconds.
+		 */
+		long elapsedNanos;
+
+
+		/**
+		 * Get number of successful requests per second.
+		 *
+		 * @return Throughput.
+		 */
+		double getThroughput() {
+
+			return (this.elapsedNanos > 0 ?
+					this.latencies.getTotalCount() * 1e9 / this.elapsedNanos :
+						0);
+		}
+	}
+
+
+	/**
+	 * Application base URL.
+	 */
+	private final String baseURL;
+
+	/**
+	 * Authentication cookie.
+	 */
+	private final String authCookie;
+
+	/**
+	 * Number of client threads.
+	 */
+	private final int concurrency;
+
+
+	/**
+	 * Create new load generator.
+	 *
+	 * @param baseURL Application base URL without trailing slash.
+	 * @param authCookie Authentication cookie in "name=value" form.
+	 * @param concurrency Number of client threads.
+	 */
+	LoadGenerator(final String baseURL, final String authCookie,
+			final int concurrency) {
+
+		this.baseURL = baseURL;
+		this.authCookie = authCookie;
+		this.concurrency = concurrency;
+	}
+
+
+	/**
+	 * Run scenario.
+	 *
+	 * @param scenario The scenario.
+	 * @param durationMillis Run duration in milliseconds.
+	 *
+	 * @return The result.
+	 *
+	 * @throws InterruptedException If interrupted waiting for the client
+	 * threads.
+	 */
+	Result run(final Scenario scenario, final long durationMillis)
+		throws InterruptedException {
+
+		final Result result = new Result();
+		final LatencyHistogram[] threadLatencies =
+			new LatencyHistogram[this.concurrency];
+		final long[] threadErrors = new long[this.concurrency];
+		final AtomicInteger seq = new AtomicInteger();
+		final CountDownLatch startSignal = new CountDownLatch(1);
+		final CountDownLatch doneSignal = new CountDownLatch(this.concurrency);
+		final long[] deadline = new long[1];
+
+		for (int i = 0; i < this.concurrency; i++) {
+			final int threadInd = i;
+			threadLatencies[i] = new LatencyHistogram();
+			final Thread thread = new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+
+					try {
+						startSignal.await();
+						LoadGenerator.this.runClient(scenario, deadline[0],
+								seq, threadLatencies[threadInd],
+								threadErrors, threadInd);
+					} catch (final InterruptedException e) {
+						Thread.currentThread().interrupt();
+					} finally {
+						doneSignal.countDown();
+					}
+				}
+			}, "loadtest-client-" + i);
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		final long startTime = System.nanoTime();
+		deadline[0] = startTime + durationMillis * 1000000;
+		startSignal.countDown();
+		doneSignal.await();
+		result.elapsedNanos = System.nanoTime() - startTime;
+
+		for (int i = 0; i < this.concurrency; i++) {
+			result.latencies.add(threadLatencies[i]);
+			result.errors += threadErrors[i];
+		}
+
+		return result;
+	}
+
+	/**
+	 * Send requests until the deadline.
+	 *
+	 * @param scenario The scenario.
+	 * @param deadline Deadline in {@link System#nanoTime()} terms.
+	 * @param seq Request sequence number generator.
+	 * @param latencies Histogram for the successful requests latencies.
+	 * @param errors Failed requests counters by client thread.
+	 * @param threadInd Client thread index.
+	 */
+	void runClient(final Scenario scenario, final long deadline,
+			final AtomicInteger seq, final LatencyHistogram latencies,
+			final long[] errors, final int threadInd) {
+
+		final int expectedStatus = scenario.getExpectedStatus();
+		long now = System.nanoTime();
+		while (now - deadline < 0) {
+			final long start = now;
+			int status;
+			try {
+				status = scenario.send(this.baseURL, this.authCookie,
+						seq.getAndIncrement());
+			} catch (final IOException e) {
+				status = -1;
+			}
+			now = System.nanoTime();
+			if (status == expectedStatus)
+				latencies.record((now - start) / 1000);
+			else
+				errors[threadInd]++;
+		}
+	}
+}
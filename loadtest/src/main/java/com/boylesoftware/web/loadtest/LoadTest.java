@@ -0,0 +1,273 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.boylesoftware.web.ApplicationConfiguration;
+import com.boylesoftware.web.api.Authenticator;
+import com.boylesoftware.web.loadtest.app.LoadTestApplication;
+
+
+/**
+ * End-to-end load test. Deploys two instances of the
+ * {@link LoadTestApplication} in an embedded container, one with fused
+ * authentication, in which the authenticated user is looked up by the
+ * request transaction executor, and one without, in which the lookup is
+ * performed by the separate authenticator executor. Then each
+ * {@link Scenario} is run against each instance and the throughput and the
+ * latency percentiles are reported.
+ *
+ * <p>The following options are recognized:
+ *
+ * <dl>
+ * <dt>--concurrency=N</dt><dd>Number of load generator threads, 32 by
+ * default.</dd>
+ * <dt>--warmup=S</dt><dd>Warm-up time in seconds before each measurement, 10
+ * by default.</dd>
+ * <dt>--duration=S</dt><dd>Measurement time in seconds, 30 by default.</dd>
+ * <dt>--port=N</dt><dd>HTTP port, any free port by default.</dd>
+ * </dl>
+ *
+ * <p>Any system property with the framework's application configuration
+ * property name (for example, "com.boylesoftware.web.async.threads") is passed
+ * to both application instances.
+ *
+ * @author Lev Himmelfarb
+ */
+public final class LoadTest {
+
+	/**
+	 * Prefix of the application configuration property names.
+	 */
+	private static final String CONFIG_PROPS_PREFIX = "com.boylesoftware.web.";
+
+	/**
+	 * Name of the application instance with fused authentication.
+	 */
+	private static final String FUSED_APP = "fused";
+
+	/**
+	 * Name of the application instance with separate authentication.
+	 */
+	private static final String SPLIT_APP = "split";
+
+
+	/**
+	 * All methods are static.
+	 */
+	private LoadTest() {}
+
+
+	/**
+	 * Run the load test.
+	 *
+	 * @param args Command line arguments.
+	 *
+	 * @throws Exception If an error happens.
+	 */
+	public static void main(final String[] args)
+		throws Exception {
+
+		int concurrency = 32;
+		int warmup = 10;
+		int duration = 30;
+		int port = 0;
+		for (final String arg : args) {
+			final int eqInd = arg.indexOf('=');
+			final String optName = (eqInd > 0 ? arg.substring(0, eqInd) : arg);
+			final String optVal = (eqInd > 0 ? arg.substring(eqInd + 1) : "");
+			try {
+				switch (optName) {
+				case "--concurrency":
+					concurrency = Integer.parseInt(optVal);
+					break;
+				case "--warmup":
+					warmup = Integer.parseInt(optVal);
+					break;
+				case "--duration":
+					duration = Integer.parseInt(optVal);
+					break;
+				case "--port":
+					port = Integer.parseInt(optVal);
+					break;
+				default:
+					usage("unknown option " + arg);
+				}
+			} catch (final NumberFormatException e) {
+				usage("invalid value of " + optName);
+			}
+		}
+		if ((concurrency < 1) || (warmup < 0) || (duration < 1))
+			usage("invalid options");
+
+		// keep a connection per client thread alive between requests
+		System.setProperty("http.maxConnections",
+				String.valueOf(concurrency));
+
+		// configure the applications
+		final Map<String, String> commonConfig = new LinkedHashMap<>();
+		for (final String propName : System.getProperties()
+				.stringPropertyNames())
+			if (propName.startsWith(CONFIG_PROPS_PREFIX))
+				commonConfig.put(propName, System.getProperty(propName));
+		final Map<String, String> fusedConfig =
+			new LinkedHashMap<>(commonConfig);
+		fusedConfig.put(ApplicationConfiguration.ASYNC_FUSED_AUTHENTICATION,
+				"true");
+		final Map<String, String> splitConfig =
+			new LinkedHashMap<>(commonConfig);
+		splitConfig.put(ApplicationConfiguration.ASYNC_FUSED_AUTHENTICATION,
+				"false");
+
+		// start the server
+		final EmbeddedServer server = new EmbeddedServer(port);
+		server.addApplication(FUSED_APP, fusedConfig);
+		server.addApplication(SPLIT_APP, splitConfig);
+		server.start();
+		try {
+
+			// run the scenarios
+			final List<String> report = new ArrayList<>();
+			for (final String app : new String[] { FUSED_APP, SPLIT_APP }) {
+				final String baseURL = server.getBaseURL(app);
+				final LoadGenerator generator = new LoadGenerator(baseURL,
+						login(baseURL), concurrency);
+				for (final Scenario scenario : Scenario.values()) {
+					if (warmup > 0) {
+						System.out.println("warming up " + app + " " +
+								scenario.getDescription() + "...");
+						generator.run(scenario, warmup * 1000L);
+					}
+					System.out.println("measuring " + app + " " +
+							scenario.getDescription() + "...");
+					report.add(formatResult(app, scenario,
+							generator.run(scenario, duration * 1000L)));
+				}
+			}
+
+			// print the report
+			final PrintStream out = System.out;
+			out.println();
+			out.println("concurrency: " + concurrency + ", duration: " +
+					duration + "s, application configuration: " +
+					commonConfig);
+			out.println();
+			out.println(String.format("%-6s %-18s %10s %8s %10s %9s %9s %9s",
+					"app", "scenario", "requests", "errors", "req/s",
+					"p50 ms", "p99 ms", "p99.9 ms"));
+			for (final String line : report)
+				out.println(line);
+
+		} finally {
+			server.stop();
+		}
+	}
+
+	/**
+	 * Log in the load test user.
+	 *
+	 * @param baseURL Application base URL.
+	 *
+	 * @return The cookies set by the login page in "Cookie" request header
+	 * format.
+	 *
+	 * @throws IOException If an I/O error happens or the login fails.
+	 */
+	private static String login(final String baseURL)
+		throws IOException {
+
+		final String contextPath = new URL(baseURL).getPath();
+		final HttpURLConnection con = Scenario.sendForm(
+				new URL(baseURL + "/login.html?" + Authenticator.TARGET_URI +
+						"=" + URLEncoder.encode(
+								contextPath + "/secure/account.html", "UTF-8")),
+				null, "loginName=" +
+				URLEncoder.encode(LoadTestApplication.LOGIN_NAME, "UTF-8") +
+				"&password=" +
+				URLEncoder.encode(LoadTestApplication.PASSWORD, "UTF-8"));
+		final int status = Scenario.readResponse(con);
+		if (status != HttpURLConnection.HTTP_SEE_OTHER)
+			throw new IOException("Login at " + baseURL +
+					" failed with status " + status + ".");
+
+		final StringBuilder cookies = new StringBuilder();
+		final List<String> setCookies = con.getHeaderFields().get("Set-Cookie");
+		if (setCookies != null) {
+			for (final String setCookie : setCookies) {
+				final int semiInd = setCookie.indexOf(';');
+				final String cookie = (semiInd >= 0 ?
+						setCookie.substring(0, semiInd) : setCookie).trim();
+				if (cookie.indexOf('=') == cookie.length() - 1)
+					continue; // deleted cookie
+				if (cookies.length() > 0)
+					cookies.append("; ");
+				cookies.append(cookie);
+			}
+		}
+		if (cookies.length() == 0)
+			throw new IOException("Login at " + baseURL +
+					" did not set the authentication cookie.");
+
+		return cookies.toString();
+	}
+
+	/**
+	 * Format scenario result report line.
+	 *
+	 * @param app Application instance name.
+	 * @param scenario The scenario.
+	 * @param result The result.
+	 *
+	 * @return The report line.
+	 */
+	private static String formatResult(final String app,
+			final Scenario scenario, final LoadGenerator.Result result) {
+
+		final LatencyHistogram latencies = result.latencies;
+
+		return String.format("%-6s %-18s %10d %8d %10.1f %9.2f %9.2f %9.2f",
+				app, scenario.getDescription(),
+				Long.valueOf(latencies.getTotalCount()),
+				Long.valueOf(result.errors),
+				Double.valueOf(result.getThroughput()),
+				Double.valueOf(latencies.getValueAtPercentile(50) / 1000.0),
+				Double.valueOf(latencies.getValueAtPercentile(99) / 1000.0),
+				Double.valueOf(latencies.getValueAtPercentile(99.9) / 1000.0));
+	}
+
+	/**
+	 * Print usage and exit.
+	 *
+	 * @param error Error message.
+	 */
+	private static void usage(final String error) {
+
+		System.err.println("error: " + error);
+		System.err.println("usage: java [-Dcom.boylesoftware.web.<property>=" +
+				"<value> ...] -jar loadtest.jar [--concurrency=N]" +
+				" [--warmup=S] [--duration=S] [--port=N]");
+		System.exit(1);
+	}
+}
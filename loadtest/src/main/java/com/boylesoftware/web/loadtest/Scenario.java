@@ -0,0 +1,266 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import com.boylesoftware.web.loadtest.app.LoadTestApplication;
+
+
+/**
+ * Load test scenarios. Each scenario sends one type of request to the load
+ * test application and tells the response status code expected if the request
+ * is processed successfully.
+ *
+ * @author Lev Himmelfarb
+ */
+enum Scenario {
+
+	/**
+	 * Anonymous "GET" of a public page with a controller that loads an entity
+	 * in the request transaction.
+	 */
+	ANONYMOUS_GET("anonymous GET", HttpURLConnection.HTTP_OK) {
+
+		@Override
+		int send(final String baseURL, final String authCookie, final int seq)
+			throws IOException {
+
+			return get(new URL(baseURL + "/items/" +
+					(1 + seq % LoadTestApplication.NUM_ITEMS) + ".html"),
+					null);
+		}
+	},
+
+	/**
+	 * Authenticated "GET" of a protected page with a controller that runs a
+	 * query in the request transaction.
+	 */
+	AUTHENTICATED_GET("authenticated GET", HttpURLConnection.HTTP_OK) {
+
+		@Override
+		int send(final String baseURL, final String authCookie, final int seq)
+			throws IOException {
+
+			return get(new URL(baseURL + "/secure/account.html"), authCookie);
+		}
+	},
+
+	/**
+	 * Authenticated form "POST" with user input bean that creates a new
+	 * entity.
+	 */
+	FORM_POST("form POST", HttpURLConnection.HTTP_SEE_OTHER) {
+
+		@Override
+		int send(final String baseURL, final String authCookie, final int seq)
+			throws IOException {
+
+			return post(new URL(baseURL + "/secure/items/new.html"),
+					authCookie, "name=Load+Test+Item+" + seq + "&quantity=" +
+							(1 + seq % 1000));
+		}
+	};
+
+
+	/**
+	 * Size of the buffer used to read response bodies.
+	 */
+	private static final int BUFFER_SIZE = 4096;
+
+
+	/**
+	 * Scenario description.
+	 */
+	private final String description;
+
+	/**
+	 * Expected response status code.
+	 */
+	private final int expectedStatus;
+
+
+	/**
+	 * Create scenario.
+	 *
+	 * @param description Scenario description.
+	 * @param expectedStatus Expected response status code.
+	 */
+	private Scenario(final String description, final int expectedStatus) {
+
+		this.description = description;
+		this.expectedStatus = expectedStatus;
+	}
+
+
+	/**
+	 * Get scenario description.
+	 *
+	 * @return The description.
+	 */
+	String getDescription() {
+
+		return this.description;
+	}
+
+	/**
+	 * Get expected response status code.
+	 *
+	 * @return The status code.
+	 */
+	int getExpectedStatus() {
+
+		return this.expectedStatus;
+	}
+
+	/**
+	 * Send the scenario's request and read the response.
+	 *
+	 * @param baseURL Application base URL without trailing slash.
+	 * @param authCookie Authentication cookie in "name=value" form.
+	 * @param seq Request sequence number, used to vary the requests.
+	 *
+	 * @return Response status code.
+	 *
+	 * @throws IOException If an I/O error happens.
+	 */
+	abstract int send(String baseURL, String authCookie, int seq)
+		throws IOException;
+
+
+	/**
+	 * Send "GET" request.
+	 *
+	 * @param url Request URL.
+	 * @param cookie Cookie header value, or {@code null}.
+	 *
+	 * @return Response status code.
+	 *
+	 * @throws IOException If an I/O error happens.
+	 */
+	static int get(final URL url, final String cookie)
+		throws IOException {
+
+		final HttpURLConnection con = openConnection(url, cookie);
+
+		return readResponse(con);
+	}
+
+	/**
+	 * Send "POST" request with URL-encoded form data.
+	 *
+	 * @param url Request URL.
+	 * @param cookie Cookie header value, or {@code null}.
+	 * @param formData URL-encoded form data.
+	 *
+	 * @return Response status code.
+	 *
+	 * @throws IOException If an I/O error happens.
+	 */
+	static int post(final URL url, final String cookie,
+			final String formData)
+		throws IOException {
+
+		return readResponse(sendForm(url, cookie, formData));
+	}
+
+	/**
+	 * Send "POST" request with URL-encoded form data without reading the
+	 * response.
+	 *
+	 * @param url Request URL.
+	 * @param cookie Cookie header value, or {@code null}.
+	 * @param formData URL-encoded form data.
+	 *
+	 * @return The connection.
+	 *
+	 * @throws IOException If an I/O error happens.
+	 */
+	static HttpURLConnection sendForm(final URL url, final String cookie,
+			final String formData)
+		throws IOException {
+
+		final HttpURLConnection con = openConnection(url, cookie);
+		final byte[] body = formData.getBytes(StandardCharsets.UTF_8);
+		con.setRequestMethod("POST");
+		con.setDoOutput(true);
+		con.setFixedLengthStreamingMode(body.length);
+		con.setRequestProperty("Content-Type",
+				"application/x-www-form-urlencoded; charset=UTF-8");
+		try (final OutputStream out = con.getOutputStream()) {
+			out.write(body);
+		}
+
+		return con;
+	}
+
+	/**
+	 * Open connection that does not follow redirects.
+	 *
+	 * @param url Request URL.
+	 * @param cookie Cookie header value, or {@code null}.
+	 *
+	 * @return The connection.
+	 *
+	 * @throws IOException If an I/O error happens.
+	 */
+	static HttpURLConnection openConnection(final URL url,
+			final String cookie)
+		throws IOException {
+
+		final HttpURLConnection con = (HttpURLConnection) url.openConnection();
+		con.setInstanceFollowRedirects(false);
+		con.setUseCaches(false);
+		if (cookie != null)
+			con.setRequestProperty("Cookie", cookie);
+
+		return con;
+	}
+
+	/**
+	 * Read the response body to the end, so that the connection can be reused.
+	 *
+	 * @param con The connection.
+	 *
+	 * @return Response status code.
+	 *
+	 * @throws IOException If an I/O error happens.
+	 */
+	static int readResponse(final HttpURLConnection con)
+		throws IOException {
+
+		final int status = con.getResponseCode();
+		final InputStream in = (status < HttpURLConnection.HTTP_BAD_REQUEST ?
+				con.getInputStream() : con.getErrorStream());
+		if (in != null) {
+			try {
+				final byte[] buf = new byte[BUFFER_SIZE];
+				while (in.read(buf) >= 0) {
+					// discard
+				}
+			} finally {
+				in.close();
+			}
+		}
+
+		return status;
+	}
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.loadtest.app;
+
+import javax.persistence.EntityManager;
+import javax.servlet.http.HttpServletRequest;
+
+import com.boylesoftware.web.api.Attributes;
+import com.boylesoftware.web.api.Model;
+
+
+/**
+ * Controller of the protected account page.
+ *
+ * @author Lev Himmelfarb
+ */
+public class AccountController {
+
+	/**
+	 * Count items created by the authenticated user.
+	 *
+	 * @param request The request.
+	 * @param em Entity manager.
+	 * @param user Authenticated user.
+	 */
+	void get(final HttpServletRequest request, final EntityManager em,
+			@Model(Attributes.AUTHED_USER) final User user) {
+
+		request.setAttribute("itemsCount", em
+				.createQuery("SELECT COUNT(i) FROM Item i" +
+						" WHERE i.owner.id = :userId", Long.class)
+				.setParameter("userId", Integer.valueOf(user.getId()))
+				.getSingleResult());
+	}
+}
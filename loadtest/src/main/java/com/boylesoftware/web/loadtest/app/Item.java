@@ -0,0 +1,135 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.loadtest.app;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+
+
+/**
+ * Load test application item, the resource displayed and created by the load
+ * test requests.
+ *
+ * @author Lev Himmelfarb
+ */
+@Entity
+@Table(name="items")
+public class Item {
+
+	/**
+	 * Item id.
+	 */
+	@Id
+	@GeneratedValue(strategy=GenerationType.IDENTITY)
+	private int id;
+
+	/**
+	 * User that created the item.
+	 */
+	@ManyToOne(fetch=FetchType.LAZY)
+	@JoinColumn(nullable=false, updatable=false)
+	private User owner;
+
+	/**
+	 * Item name.
+	 */
+	@Column(length=100, nullable=false)
+	private String name;
+
+	/**
+	 * Item quantity.
+	 */
+	@Column(nullable=false)
+	private int quantity;
+
+
+	/**
+	 * Get item id.
+	 *
+	 * @return Item id.
+	 */
+	public int getId() {
+
+		return this.id;
+	}
+
+	/**
+	 * Get user that created the item.
+	 *
+	 * @return The user.
+	 */
+	public User getOwner() {
+
+		return this.owner;
+	}
+
+	/**
+	 * Set user that created the item.
+	 *
+	 * @param owner The user.
+	 */
+	public void setOwner(final User owner) {
+
+		this.owner = owner;
+	}
+
+	/**
+	 * Get item name.
+	 *
+	 * @return Item name.
+	 */
+	public String getName() {
+
+		return this.name;
+	}
+
+	/**
+	 * Set item name.
+	 *
+	 * @param name Item name.
+	 */
+	public void setName(final String name) {
+
+		this.name = name;
+	}
+
+	/**
+	 * Get item quantity.
+	 *
+	 * @return Item quantity.
+	 */
+	public int getQuantity() {
+
+		return this.quantity;
+	}
+
+	/**
+	 * Set item quantity.
+	 *
+	 * @param quantity Item quantity.
+	 */
+	public void setQuantity(final int quantity) {
+
+		this.quantity = quantity;
+	}
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.loadtest.app;
+
+import javax.persistence.EntityManager;
+import javax.servlet.http.HttpServletRequest;
+
+import com.boylesoftware.web.NotFoundException;
+import com.boylesoftware.web.api.RequestParam;
+
+
+/**
+ * Controller of the public item page. Loads the item in the request
+ * transaction, which makes anonymous requests go through the request
+ * transaction executor.
+ *
+ * @author Lev Himmelfarb
+ */
+public class ItemController {
+
+	/**
+	 * Load the item.
+	 *
+	 * @param request The request.
+	 * @param em Entity manager.
+	 * @param itemId Item id from the URI.
+	 *
+	 * @throws NotFoundException If there is no such item.
+	 */
+	void get(final HttpServletRequest request, final EntityManager em,
+			@RequestParam("itemId") final String itemId)
+		throws NotFoundException {
+
+		final Item item = em.find(Item.class, Integer.valueOf(itemId));
+		if (item == null)
+			throw new NotFoundException();
+
+		request.setAttribute("item", item);
+	}
+}
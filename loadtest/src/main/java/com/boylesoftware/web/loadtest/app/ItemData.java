@@ -0,0 +1,85 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.loadtest.app;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+
+
+/**
+ * User input for the new item form.
+ *
+ * @author Lev Himmelfarb
+ */
+public class ItemData {
+
+	/**
+	 * Item name.
+	 */
+	@NotNull
+	@Size(max=100)
+	private String name;
+
+	/**
+	 * Item quantity.
+	 */
+	@Min(1)
+	@Max(1000)
+	private int quantity;
+
+
+	/**
+	 * Get item name.
+	 *
+	 * @return Item name.
+	 */
+	public String getName() {
+
+		return this.name;
+	}
+
+	/**
+	 * Set item name.
+	 *
+	 * @param name Item name.
+	 */
+	public void setName(final String name) {
+
+		this.name = name;
+	}
+
+	/**
+	 * Get item quantity.
+	 *
+	 * @return Item quantity.
+	 */
+	public int getQuantity() {
+
+		return this.quantity;
+	}
+
+	/**
+	 * Set item quantity.
+	 *
+	 * @param quantity Item quantity.
+	 */
+	public void setQuantity(final int quantity) {
+
+		this.quantity = quantity;
+	}
+}
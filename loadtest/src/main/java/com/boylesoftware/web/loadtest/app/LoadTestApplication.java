@@ -0,0 +1,230 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.loadtest.app;
+
+import java.security.SecureRandom;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.NoResultException;
+import javax.persistence.Persistence;
+import javax.servlet.ServletContext;
+import javax.servlet.UnavailableException;
+
+import com.boylesoftware.web.AbstractWebApplication;
+import com.boylesoftware.web.ApplicationConfiguration;
+import com.boylesoftware.web.ApplicationServices;
+import com.boylesoftware.web.impl.auth.AbstractUserRecordHandler;
+import com.boylesoftware.web.impl.view.DispatchViewSender;
+import com.boylesoftware.web.impl.view.MultiplexViewSender;
+import com.boylesoftware.web.spi.UserRecordHandler;
+import com.boylesoftware.web.spi.ViewSender;
+
+
+/**
+ * The load test application. The application is configured with the servlet
+ * context initialization parameters that have names of the framework
+ * application configuration properties, uses a separate in-memory H2 database
+ * for each deployed context and populates it with a user account and a number
+ * of items on startup. The views are dispatched to the {@link ViewServlet}.
+ *
+ * @author Lev Himmelfarb
+ */
+public class LoadTestApplication
+	extends AbstractWebApplication {
+
+	/**
+	 * Login name of the load test user.
+	 */
+	public static final String LOGIN_NAME = "loadtest@example.com";
+
+	/**
+	 * Password of the load test user.
+	 */
+	public static final String PASSWORD = "loadtest";
+
+	/**
+	 * Number of items created on startup.
+	 */
+	public static final int NUM_ITEMS = 100;
+
+	/**
+	 * Prefix of the application configuration property names.
+	 */
+	private static final String CONFIG_PROPS_PREFIX = "com.boylesoftware.web.";
+
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.AbstractWebApplication#configure(java.util.Map)
+	 */
+	@Override
+	protected void configure(final Map<String, Object> config) {
+
+		final Enumeration<String> paramNames =
+			this.servletContext.getInitParameterNames();
+		while (paramNames.hasMoreElements()) {
+			final String paramName = paramNames.nextElement();
+			if (paramName.startsWith(CONFIG_PROPS_PREFIX))
+				config.put(paramName,
+						this.servletContext.getInitParameter(paramName));
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.AbstractWebApplication#init()
+	 */
+	@Override
+	protected void init() {
+
+		final EntityManager em =
+			this.services.getEntityManagerFactory().createEntityManager();
+		try {
+			em.getTransaction().begin();
+
+			final User user = new User();
+			user.setSalt(new SecureRandom().nextInt());
+			user.setEmail(LOGIN_NAME);
+			user.setPasswordDigest(new UserHandler().digestPassword(PASSWORD));
+			em.persist(user);
+
+			final Random random = new Random(0);
+			for (int i = 1; i <= NUM_ITEMS; i++) {
+				final Item item = new Item();
+				item.setOwner(user);
+				item.setName("Item " + i);
+				item.setQuantity(1 + random.nextInt(1000));
+				em.persist(item);
+			}
+
+			em.getTransaction().commit();
+
+		} finally {
+			if (em.getTransaction().isActive())
+				em.getTransaction().rollback();
+			em.close();
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.AbstractWebApplication#getUserRecordHandler(javax.servlet.ServletContext, com.boylesoftware.web.ApplicationConfiguration)
+	 */
+	@Override
+	protected UserRecordHandler<?> getUserRecordHandler(
+			final ServletContext sc, final ApplicationConfiguration config) {
+
+		return new UserHandler();
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.AbstractWebApplication#getEntityManagerFactory(javax.servlet.ServletContext, com.boylesoftware.web.ApplicationConfiguration)
+	 */
+	@Override
+	protected EntityManagerFactory getEntityManagerFactory(
+			final ServletContext sc, final ApplicationConfiguration config) {
+
+		final Map<String, Object> props = new HashMap<>();
+		props.put("hibernate.connection.url", "jdbc:h2:mem:loadtest" +
+				sc.getContextPath().replace('/', '_') + ";DB_CLOSE_DELAY=-1");
+
+		return Persistence.createEntityManagerFactory(
+				config.getConfigProperty(ApplicationConfiguration.PU_NAME,
+						String.class, DEFAULT_PU_NAME), props);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.AbstractWebApplication#getViewSender(javax.servlet.ServletContext, com.boylesoftware.web.ApplicationConfiguration, com.boylesoftware.web.ApplicationServices)
+	 */
+	@Override
+	protected ViewSender getViewSender(final ServletContext sc,
+			final ApplicationConfiguration config,
+			final ApplicationServices appServices)
+		throws UnavailableException {
+
+		return new MultiplexViewSender()
+			.addPattern(".*\\" + ViewServlet.VIEW_EXTENSION,
+					new DispatchViewSender());
+	}
+
+
+	/**
+	 * User record handler of the load test application.
+	 */
+	private static final class UserHandler
+		extends AbstractUserRecordHandler<User> {
+
+		/**
+		 * Create new handler.
+		 */
+		UserHandler() {
+			super(User.class);
+		}
+
+
+		/**
+		 * Digest password the way it is stored in the user record.
+		 *
+		 * @param password The password.
+		 *
+		 * @return The password digest.
+		 */
+		String digestPassword(final String password) {
+
+			return this.digestPassword(password, "SHA-1");
+		}
+
+		/* (non-Javadoc)
+		 * @see com.boylesoftware.web.spi.UserRecordHandler#getUserByLoginNameAndPassword(javax.persistence.EntityManager, java.lang.String, java.lang.String)
+		 */
+		@Override
+		public User getUserByLoginNameAndPassword(final EntityManager em,
+				final String loginName, final String password) {
+
+			try {
+				return em
+					.createNamedQuery("User.findByEmailAndPasswordDigest",
+							User.class)
+					.setParameter("email", loginName.toLowerCase())
+					.setParameter("passwordDigest",
+							this.digestPassword(password))
+					.getSingleResult();
+			} catch (final NoResultException e) {
+				return null;
+			}
+		}
+
+		/* (non-Javadoc)
+		 * @see com.boylesoftware.web.spi.UserRecordHandler#getUserId(java.lang.Object)
+		 */
+		@Override
+		public int getUserId(final User user) {
+
+			return user.getId();
+		}
+
+		/* (non-Javadoc)
+		 * @see com.boylesoftware.web.spi.UserRecordHandler#getUserSalt(java.lang.Object)
+		 */
+		@Override
+		public int getUserSalt(final User user) {
+
+			return user.getSalt();
+		}
+	}
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.loadtest.app;
+
+import javax.persistence.EntityManager;
+import javax.servlet.http.HttpServletRequest;
+
+import com.boylesoftware.web.api.Attributes;
+import com.boylesoftware.web.api.Model;
+import com.boylesoftware.web.api.UserInput;
+
+
+/**
+ * Controller of the protected new item form.
+ *
+ * @author Lev Himmelfarb
+ */
+public class NewItemController {
+
+	/**
+	 * Save new item.
+	 *
+	 * @param request The request.
+	 * @param itemData Submitted item data.
+	 * @param em Entity manager.
+	 * @param user Authenticated user.
+	 *
+	 * @return URI of the new item page.
+	 */
+	String post(final HttpServletRequest request,
+			@UserInput final ItemData itemData, final EntityManager em,
+			@Model(Attributes.AUTHED_USER) final User user) {
+
+		final Item item = new Item();
+		item.setOwner(em.getReference(User.class,
+				Integer.valueOf(user.getId())));
+		item.setName(itemData.getName());
+		item.setQuantity(itemData.getQuantity());
+		em.persist(item);
+
+		return request.getContextPath() + "/items/" + item.getId() + ".html";
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.loadtest.app;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+
+
+/**
+ * Load test application user account record.
+ *
+ * @author Lev Himmelfarb
+ */
+@Entity
+@Table(name="users")
+@NamedQueries({
+	@NamedQuery(name="User.findByEmailAndPasswordDigest",
+		query="SELECT u FROM User u WHERE u.email = :email" +
+				" AND u.passwordDigest = :passwordDigest")
+})
+public class User {
+
+	/**
+	 * User id.
+	 */
+	@Id
+	@GeneratedValue(strategy=GenerationType.IDENTITY)
+	private int id;
+
+	/**
+	 * User secret "salt".
+	 */
+	@Column(nullable=false)
+	private int salt;
+
+	/**
+	 * E-mail address used as the login name.
+	 */
+	@Column(length=50, nullable=false, unique=true, updatable=false)
+	private String email;
+
+	/**
+	 * SHA-1 digest of the password as a hexadecimal string.
+	 */
+	@Column(length=40, nullable=false)
+	private String passwordDigest;
+
+
+	/**
+	 * Get user id.
+	 *
+	 * @return User id.
+	 */
+	public int getId() {
+
+		return this.id;
+	}
+
+	/**
+	 * Get user secret "salt".
+	 *
+	 * @return The salt.
+	 */
+	public int getSalt() {
+
+		return this.salt;
+	}
+
+	/**
+	 * Set user secret "salt".
+	 *
+	 * @param salt The salt.
+	 */
+	public void setSalt(final int salt) {
+
+		this.salt = salt;
+	}
+
+	/**
+	 * Get e-mail address.
+	 *
+	 * @return E-mail address.
+	 */
+	public String getEmail() {
+
+		return this.email;
+	}
+
+	/**
+	 * Set e-mail address.
+	 *
+	 * @param email E-mail address.
+	 */
+	public void setEmail(final String email) {
+
+		this.email = email;
+	}
+
+	/**
+	 * Get password digest.
+	 *
+	 * @return SHA-1 digest of the password as a hexadecimal string.
+	 */
+	public String getPasswordDigest() {
+
+		return this.passwordDigest;
+	}
+
+	/**
+	 * Set password digest.
+	 *
+	 * @param passwordDigest SHA-1 digest of the password as a hexadecimal
+	 * string.
+	 */
+	public void setPasswordDigest(final String passwordDigest) {
+
+		this.passwordDigest = passwordDigest;
+	}
+}
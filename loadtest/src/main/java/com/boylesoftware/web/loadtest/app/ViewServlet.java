@@ -0,0 +1,78 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.loadtest.app;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+
+/**
+ * Servlet that renders the load test application views. The views are
+ * minimal HTML pages, so that the measured times reflect the framework's
+ * request processing rather than the templates.
+ *
+ * @author Lev Himmelfarb
+ */
+public class ViewServlet
+	extends HttpServlet {
+
+	/**
+	 * Serial version id.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Extension of the view ids handled by the servlet.
+	 */
+	public static final String VIEW_EXTENSION = ".view";
+
+
+	/* (non-Javadoc)
+	 * @see javax.servlet.http.HttpServlet#service(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse)
+	 */
+	@Override
+	protected void service(final HttpServletRequest request,
+			final HttpServletResponse response)
+		throws IOException {
+
+		response.setContentType("text/html");
+		response.setCharacterEncoding("UTF-8");
+
+		final PrintWriter out = response.getWriter();
+		out.print("<!DOCTYPE html><html><body><h1>");
+		out.print(request.getServletPath());
+		out.print("</h1>");
+		final Item item = (Item) request.getAttribute("item");
+		if (item != null) {
+			out.print("<p>");
+			out.print(item.getName());
+			out.print(": ");
+			out.print(item.getQuantity());
+			out.print("</p>");
+		}
+		final Object itemsCount = request.getAttribute("itemsCount");
+		if (itemsCount != null) {
+			out.print("<p>Items: ");
+			out.print(itemsCount);
+			out.print("</p>");
+		}
+		out.print("</body></html>");
+	}
+}
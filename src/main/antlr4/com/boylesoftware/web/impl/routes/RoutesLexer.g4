@@ -58,6 +58,11 @@ MAPPING_COMMENT: '#' .*? '\r'? '\n' -> skip ;
 MAPPING_IWS: [ \t\r\n]+ -> skip ;
 
 MAPPING_MODE: '+' [LSU] ;
+MAPPING_PRIORITY: '!' [HNL] ;
+MAPPING_READ_ONLY: '~R' ;
+MAPPING_RESPONSE_CACHE: '~C'
+	('(' [0-9]* (';' MAPPING_PARAM_NAME (',' MAPPING_PARAM_NAME)*)? ')')? ;
+fragment MAPPING_PARAM_NAME: [a-zA-Z_$0-9.\-]+ ;
 MAPPING_CONTROLLER_NAME: MAPPING_JAVA_NAME ('.' MAPPING_JAVA_NAME)* ;
 fragment MAPPING_JAVA_NAME: [a-zA-Z_$] [a-zA-Z_$0-9]* ;
 MAPPING_LPAREN: '(' -> pushMode(CTRL_ARGS) ;
@@ -100,6 +105,7 @@ SCRIPT_KW_ELSE: 'else' ;
 SCRIPT_KW_UNLESS: 'unless' ;
 SCRIPT_KW_ABORT: 'abort' ;
 SCRIPT_KW_FORBID: 'forbid' ;
+SCRIPT_KW_VALIDATE: 'validate' ;
 SCRIPT_KW_NEW: 'new' ;
 SCRIPT_KW_REF: 'ref' ;
 
@@ -116,6 +122,7 @@ SCRIPT_COND_DELETE: 'DELETE' ;
 SCRIPT_QOP_MAXRESULTS: 'maxResults' ;
 SCRIPT_QOP_FIRSTRESULT: 'firstResult' ;
 SCRIPT_QOP_LIST: 'list' ;
+SCRIPT_QOP_CACHED: 'cached' ;
 
 SCRIPT_LPAREN: '(' ;
 SCRIPT_RPAREN: ')' ;
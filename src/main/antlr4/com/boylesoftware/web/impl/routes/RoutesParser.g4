@@ -23,6 +23,7 @@ parser grammar RoutesParser;
 import java.lang.reflect.Constructor;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
@@ -30,7 +31,9 @@ import java.util.Set;
 
 import javax.servlet.UnavailableException;
 
+import com.boylesoftware.web.impl.RouteOptions;
 import com.boylesoftware.web.impl.RoutesBuilder;
+import com.boylesoftware.web.spi.Route.Priority;
 import com.boylesoftware.web.spi.Route.SecurityMode;
 }
 
@@ -275,8 +278,8 @@ viewsBaseDeclaration
 
 mapping
 locals [String viewIdPattern, Object controllerObj]
-	: ROUTE_ID? URI_PATTERN MAPPING_MODE?
-		controller? routeScript=script[true]?
+	: ROUTE_ID? URI_PATTERN MAPPING_MODE? MAPPING_PRIORITY? MAPPING_READ_ONLY?
+		MAPPING_RESPONSE_CACHE? controller? routeScript=script[true]?
 		MAPPING_ARROW view viewScript=script[false]? {
 
 		SecurityMode mappingMode = SecurityMode.DEFAULT;
@@ -296,15 +299,51 @@ locals [String viewIdPattern, Object controllerObj]
 			}
 		}
 
+		final RouteOptions options = new RouteOptions();
+		if ($MAPPING_PRIORITY != null) {
+			switch ($MAPPING_PRIORITY.text.charAt(1)) {
+			case 'H':
+				options.setPriority(Priority.HIGH);
+				break;
+			case 'L':
+				options.setPriority(Priority.LOW);
+			}
+		}
+
+		options.setReadOnly($MAPPING_READ_ONLY != null);
+
+		if ($MAPPING_RESPONSE_CACHE != null) {
+			final String spec = $MAPPING_RESPONSE_CACHE.text;
+			long responseCacheTTL = 0;
+			List<String> responseCacheParams = null;
+			if (spec.length() > 2) {
+				final String[] parts =
+					spec.substring(3, spec.length() - 1).split(";");
+				if (parts[0].length() > 0) {
+					responseCacheTTL = Long.parseLong(parts[0]) * 1000;
+					if (responseCacheTTL <= 0)
+						throw new InvalidRoutesException(
+							"Invalid response cache time to live at line " +
+							$start.getLine() + ".");
+				}
+				if (parts.length > 1)
+					responseCacheParams = Arrays.asList(parts[1].split(","));
+			}
+			options.setResponseCache(responseCacheTTL, responseCacheParams);
+		}
+
 		try {
 			this.routes.addRoute(
 				($ROUTE_ID != null ? $ROUTE_ID.text.substring(1) : null),
 				$URI_PATTERN.text,
 				mappingMode,
-				($ctx.routeScript != null ? $routeScript.scriptObj : null),
+				options,
+				($ctx.routeScript != null ?
+					$routeScript.scriptObj.compile() : null),
 				$controllerObj,
 				$viewIdPattern,
-				($ctx.viewScript != null ? $viewScript.scriptObj : null));
+				($ctx.viewScript != null ?
+					$viewScript.scriptObj.compile() : null));
 		} catch (final UnavailableException e) {
 			throw new InvalidRoutesException(
 				"Invalid route definition at line " + $start.getLine() + ".",
@@ -340,7 +379,7 @@ locals [List<Class<?>> argTypes, List<Object> argValues]
 		}
 
 		try {
-			$mapping::controllerObj = constr.newInstance(
+			$mapping::controllerObj = this.routes.getController(constr,
 				$argValues.toArray(new Object[$argValues.size()]));
 		} catch (final ReflectiveOperationException e) {
 			throw new InvalidRoutesException(
@@ -406,6 +445,7 @@ scriptStatement[boolean routeScript]
 	| scriptAssignStatement
 	| {$routeScript}? scriptAbortStatement
 	| {$routeScript}? scriptForbidStatement
+	| {$routeScript}? scriptValidateStatement
 	;
 
 scriptConditionalConstruct[boolean routeScript]
@@ -446,6 +486,17 @@ scriptForbidStatement
 	}
 	;
 
+scriptValidateStatement
+	: SCRIPT_KW_VALIDATE scriptValueExpr {
+
+		$script::scriptObj.addSubscript(
+			new ValidateStatement(
+				$scriptValueExpr.valueExprObj
+			)
+		);
+	}
+	;
+
 scriptAssignStatement
 	: SCRIPT_NAME SCRIPT_ASSIGN scriptValueExpr {
 
@@ -523,9 +574,14 @@ returns [ValueExpression valueExprObj]
 		$valueExprObj =
 			new EntityRefValueExpression($e2.entityClass, $v2.valueExprObj);
 	}
-	| e3=scriptEntity SCRIPT_LPAREN v3=scriptValueExpr SCRIPT_RPAREN {
-		$valueExprObj =
-			new EntityValueExpression($e3.entityClass, $v3.valueExprObj);
+	| e3=scriptEntity SCRIPT_LPAREN v3=scriptValueExpr SCRIPT_RPAREN
+		c3=scriptCacheOp? {
+		$valueExprObj = new EntityValueExpression(
+			$e3.entityClass,
+			$v3.valueExprObj,
+			($ctx.c3 != null ? this.routes.getQueryResultsCache() : null),
+			($ctx.c3 != null ? $c3.ttl : 0)
+		);
 	}
 	| scriptQuery {
 		$valueExprObj = $scriptQuery.valueExprObj;
@@ -540,13 +596,15 @@ locals [List<EntityQueryTweak> tweaks]
 }
 	: scriptEntity SCRIPT_COLON scriptQueryName=scriptQName
 		SCRIPT_LPAREN scriptQueryParams SCRIPT_RPAREN
-		scriptQueryOp* (SCRIPT_DOT SCRIPT_QOP_LIST)? {
+		scriptQueryOp* (SCRIPT_DOT SCRIPT_QOP_LIST)? c=scriptCacheOp? {
 
 		$valueExprObj = new EntityQueryValueExpression(
 			$scriptEntity.entityClass,
 			$scriptQueryName.text,
 			$tweaks.toArray(new EntityQueryTweak[$tweaks.size()]),
-			($SCRIPT_QOP_LIST != null)
+			($SCRIPT_QOP_LIST != null),
+			($ctx.c != null ? this.routes.getQueryResultsCache() : null),
+			($ctx.c != null ? $c.ttl : 0)
 		);
 	}
 	;
@@ -611,6 +669,22 @@ scriptQueryOp
 	}
 	;
 
+scriptCacheOp
+returns [long ttl]
+	: SCRIPT_DOT SCRIPT_QOP_CACHED
+		(SCRIPT_LPAREN SCRIPT_LIT_INT SCRIPT_RPAREN)? {
+
+		$ttl = 0;
+		if ($SCRIPT_LIT_INT != null) {
+			$ttl = Long.parseLong($SCRIPT_LIT_INT.text) * 1000;
+			if ($ttl <= 0)
+				throw new InvalidRoutesException(
+					"Invalid cache time to live at line " + $start.getLine() +
+					".");
+		}
+	}
+	;
+
 scriptEntity
 returns [Class<?> entityClass]
 	: scriptQName {
@@ -15,15 +15,28 @@
  */
 package com.boylesoftware.web;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Resource;
 import javax.mail.Session;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import javax.naming.InitialContext;
 import javax.naming.NameNotFoundException;
 import javax.naming.NamingException;
@@ -33,6 +46,7 @@ import javax.servlet.ServletContext;
 import javax.servlet.ServletContextEvent;
 import javax.servlet.ServletContextListener;
 import javax.servlet.UnavailableException;
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.MessageInterpolator;
 import javax.validation.Validation;
 import javax.validation.ValidatorFactory;
@@ -41,20 +55,32 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import com.boylesoftware.web.api.Routes;
+import com.boylesoftware.web.impl.AbstractRouterConfiguration;
 import com.boylesoftware.web.impl.RequestUserLocaleFinder;
 import com.boylesoftware.web.impl.StandardControllerMethodArgHandlerProvider;
+import com.boylesoftware.web.impl.auth.BoundedUserRecordsCache;
+import com.boylesoftware.web.impl.auth.ClusteredUserRecordsCache;
+import com.boylesoftware.web.impl.auth.LoopbackInvalidationTransport;
+import com.boylesoftware.web.impl.auth.MulticastInvalidationTransport;
 import com.boylesoftware.web.impl.auth.NopUserRecordsCache;
 import com.boylesoftware.web.impl.auth.SessionlessAuthenticationService;
+import com.boylesoftware.web.impl.auth.TcpInvalidationTransport;
+import com.boylesoftware.web.impl.metrics.HistogramRequestMetrics;
+import com.boylesoftware.web.impl.routes.BoundedQueryResultsCache;
 import com.boylesoftware.web.impl.routes.RoutesRouterConfiguration;
 import com.boylesoftware.web.impl.view.DispatchViewSender;
 import com.boylesoftware.web.impl.view.MultiplexViewSender;
 import com.boylesoftware.web.spi.AuthenticationService;
 import com.boylesoftware.web.spi.ControllerMethodArgHandlerProvider;
+import com.boylesoftware.web.spi.QueryResultsCache;
+import com.boylesoftware.web.spi.RequestMetrics;
 import com.boylesoftware.web.spi.RouterConfiguration;
 import com.boylesoftware.web.spi.UserLocaleFinder;
 import com.boylesoftware.web.spi.UserRecordHandler;
 import com.boylesoftware.web.spi.UserRecordsCache;
+import com.boylesoftware.web.spi.UserRecordsCacheInvalidationTransport;
 import com.boylesoftware.web.spi.ViewSender;
+import com.boylesoftware.web.util.pool.FastPoolMBeans;
 
 
 /**
@@ -72,11 +98,84 @@ public abstract class AbstractWebApplication
 	 */
 	public static final int DEFAULT_ASYNC_THREADS = 10;
 
+	/**
+	 * Default maximum number of concurrently processed asynchronous requests
+	 * when virtual threads are used.
+	 */
+	public static final int DEFAULT_ASYNC_MAX_CONCURRENCY = 200;
+
+	/**
+	 * Default maximum number of requests waiting for a thread.
+	 */
+	public static final int DEFAULT_ASYNC_QUEUE_CAPACITY = 1000;
+
 	/**
 	 * Default persistence unit name.
 	 */
 	public static final String DEFAULT_PU_NAME = "pu";
 
+	/**
+	 * Default time in milliseconds, for which read-only requests fall back to
+	 * the primary persistence unit after an error using the read persistence
+	 * unit.
+	 */
+	public static final long DEFAULT_READ_PU_RETRY_INTERVAL = 30000;
+
+	/**
+	 * Default maximum number of results in the query results cache.
+	 */
+	public static final int DEFAULT_QUERY_CACHE_SIZE = 1000;
+
+	/**
+	 * Default time to live in milliseconds of a result in the query results
+	 * cache.
+	 */
+	public static final long DEFAULT_QUERY_CACHE_TTL = 60000;
+
+	/**
+	 * Time to live in milliseconds of a record in the user records cache used
+	 * when the evictions are broadcast to the other nodes in a cluster, but
+	 * the time to live is not configured. The evictions may be lost, so in a
+	 * cluster the cached records must always expire.
+	 */
+	public static final long DEFAULT_CLUSTERED_USER_CACHE_TTL = 300000;
+
+	/**
+	 * Default maximum total size in bytes of the cached response bodies.
+	 */
+	public static final long DEFAULT_RESPONSE_CACHE_SIZE = 16 * 1024 * 1024;
+
+	/**
+	 * Default time to live in milliseconds of a cached response.
+	 */
+	public static final long DEFAULT_RESPONSE_CACHE_TTL = 60000;
+
+	/**
+	 * Requests that use the read persistence unit.
+	 */
+	private enum ReadRouting {
+
+		/**
+		 * None.
+		 */
+		NONE,
+
+		/**
+		 * Read-only GET requests.
+		 */
+		GET,
+
+		/**
+		 * All read-only requests.
+		 */
+		READ_ONLY
+	}
+
+	/**
+	 * Domain of the statistics MBean names.
+	 */
+	private static final String MBEANS_DOMAIN = "com.boylesoftware.web";
+
 	/**
 	 * Name of servlet context attribute used to store the web application
 	 * object.
@@ -124,6 +223,58 @@ public abstract class AbstractWebApplication
 	 */
 	private ExecutorService executors;
 
+	/**
+	 * Tells if authenticated user lookup is fused with the request processing
+	 * transaction.
+	 */
+	private boolean fusedAuthentication;
+
+	/**
+	 * Clustered user records cache created by the default
+	 * {@link #getUserRecordsCache} implementation, or {@code null}.
+	 */
+	private ClusteredUserRecordsCache<?> clusteredUserRecordsCache;
+
+	/**
+	 * Request processing metrics, or {@code null} if disabled.
+	 */
+	private RequestMetrics requestMetrics;
+
+	/**
+	 * Requests that use the read persistence unit.
+	 */
+	private ReadRouting readRouting;
+
+	/**
+	 * Time in milliseconds, for which read-only requests fall back to the
+	 * primary persistence unit after an error using the read persistence unit.
+	 */
+	private long readRetryInterval;
+
+	/**
+	 * Time until which read-only requests fall back to the primary persistence
+	 * unit, or zero if the read persistence unit is available.
+	 */
+	private volatile long readSuspendedUntil;
+
+	/**
+	 * Cache of responses to the anonymous requests, or {@code null} if
+	 * disabled.
+	 */
+	private ResponseCache responseCache;
+
+	/**
+	 * Executor that periodically checks if the routes need to be reloaded, or
+	 * {@code null} if the routes are not reloaded.
+	 */
+	private ScheduledExecutorService routesReloader;
+
+	/**
+	 * Names of the MBeans registered by the application, other than the object
+	 * pools and the request processing metrics MBeans.
+	 */
+	private final List<ObjectName> registeredMBeans = new ArrayList<>();
+
 
 	/* (non-Javadoc)
 	 * @see javax.servlet.ServletContextListener#contextInitialized(javax.servlet.ServletContextEvent)
@@ -170,8 +321,21 @@ public abstract class AbstractWebApplication
 			log.debug("creating configuration");
 			this.configure(this.configProperties);
 
-			// get the authenticator
+			// register object pools statistics MBeans
 			final ServletContext sc = this.servletContext;
+			if (this.getConfigProperty(POOLS_JMX, Boolean.class,
+					Boolean.TRUE).booleanValue()) {
+				log.debug("registering object pools statistics MBeans");
+				final String contextPath = sc.getContextPath();
+				FastPoolMBeans.enable(
+						contextPath.length() > 0 ? contextPath : "/");
+			}
+
+			// get request processing metrics
+			log.debug("creating request processing metrics");
+			this.requestMetrics = this.getRequestMetrics(sc, this);
+
+			// get the authenticator
 			log.debug("creating authenticator");
 			this.services.setAuthenticationService(
 					this.getAuthenticationService(sc, this));
@@ -191,6 +355,21 @@ public abstract class AbstractWebApplication
 			this.services.setEntityManagerFactory(
 					this.getEntityManagerFactory(sc, this));
 
+			// create read entity manager factory
+			log.debug("creating read persistence manager factory");
+			this.services.setReadEntityManagerFactory(
+					this.getReadEntityManagerFactory(sc, this));
+			this.configureReadRouting();
+
+			// create query results cache
+			log.debug("creating query results cache");
+			this.services.setQueryResultsCache(
+					this.getQueryResultsCache(sc, this));
+
+			// create response cache
+			log.debug("creating response cache");
+			this.configureResponseCache();
+
 			// get JavaMail session from the JNDI
 			log.debug("attempting to find JavaMail session in the JNDI");
 			try {
@@ -213,6 +392,7 @@ public abstract class AbstractWebApplication
 			log.debug("creating routes configuration");
 			this.routerConfiguration =
 				this.getRouterConfiguration(sc, this, this.services);
+			this.configureRoutesReload();
 
 			// initialize custom application
 			log.debug("initializing custom application");
@@ -221,6 +401,9 @@ public abstract class AbstractWebApplication
 			// get the executor service
 			log.debug("creating request processing executor service");
 			this.executors = this.getExecutorService(sc, this);
+			this.fusedAuthentication = this.getConfigProperty(
+					ASYNC_FUSED_AUTHENTICATION, Boolean.class,
+					Boolean.TRUE).booleanValue();
 
 			// done
 			log.debug("initialized successfully");
@@ -252,6 +435,13 @@ public abstract class AbstractWebApplication
 		final Log log = LogFactory.getLog(AbstractWebApplication.class);
 		log.debug("destroying the web-application");
 
+		// stop reloading the routes
+		if (this.routesReloader != null) {
+			log.debug("stopping the routes reloader");
+			this.routesReloader.shutdownNow();
+			this.routesReloader = null;
+		}
+
 		// shutdown the executors
 		if (this.executors != null) {
 			log.debug("shutting down the request processing executors...");
@@ -293,6 +483,33 @@ public abstract class AbstractWebApplication
 		// forget the router configuration
 		this.routerConfiguration = null;
 
+		// clear and forget the query results cache
+		final QueryResultsCache queryResultsCache =
+			this.services.getQueryResultsCache();
+		if (queryResultsCache != null) {
+			this.services.setQueryResultsCache(null);
+			queryResultsCache.clear();
+		}
+
+		// clear and forget the response cache
+		if (this.responseCache != null) {
+			this.responseCache.clear();
+			this.responseCache = null;
+		}
+
+		// close and forget the read entity manager factory
+		final EntityManagerFactory readEmf =
+			this.services.getReadEntityManagerFactory();
+		if (readEmf != null) {
+			this.services.setReadEntityManagerFactory(null);
+			try {
+				log.debug("closing read persistence manager factory");
+				readEmf.close();
+			} catch (final Exception e) {
+				log.error("error shutting down the application", e);
+			}
+		}
+
 		// close and forget the entity manager factory
 		final EntityManagerFactory emf =
 			this.services.getEntityManagerFactory();
@@ -323,6 +540,80 @@ public abstract class AbstractWebApplication
 
 		// forget the authentication service
 		this.services.setAuthenticationService(null);
+
+		// stop user records cache invalidation transport
+		if (this.clusteredUserRecordsCache != null) {
+			log.debug("closing user records cache invalidation transport");
+			try {
+				this.clusteredUserRecordsCache.close();
+			} catch (final Exception e) {
+				log.error("error shutting down the application", e);
+			} finally {
+				this.clusteredUserRecordsCache = null;
+			}
+		}
+
+		// unregister statistics MBeans
+		this.unregisterMBeans();
+
+		// close and forget request processing metrics
+		if (this.requestMetrics instanceof AutoCloseable) {
+			log.debug("closing request processing metrics");
+			try {
+				((AutoCloseable) this.requestMetrics).close();
+			} catch (final Exception e) {
+				log.error("error shutting down the application", e);
+			}
+		}
+		this.requestMetrics = null;
+
+		// unregister object pools statistics MBeans
+		FastPoolMBeans.disable();
+	}
+
+	/**
+	 * Register statistics MBean with the platform MBean server under
+	 * {@code com.boylesoftware.web:type=<type>,application=<app>} name. The
+	 * MBean is unregistered by the framework when the application goes down.
+	 * Registration errors are logged and otherwise ignored.
+	 *
+	 * @param sc Servlet context.
+	 * @param mbean The MBean.
+	 * @param type MBean type used in the name.
+	 */
+	private void registerMBean(final ServletContext sc, final Object mbean,
+			final String type) {
+
+		final String contextPath = sc.getContextPath();
+		try {
+			final ObjectName name = new ObjectName(MBEANS_DOMAIN + ":type=" +
+					type + ",application=" + ObjectName.quote(
+							contextPath.length() > 0 ? contextPath : "/"));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(mbean,
+					name);
+			this.registeredMBeans.add(name);
+		} catch (final JMException e) {
+			LogFactory.getLog(AbstractWebApplication.class).warn(
+					"error registering " + type + " MBean", e);
+		}
+	}
+
+	/**
+	 * Unregister all statistics MBeans registered with
+	 * {@link #registerMBean}.
+	 */
+	private void unregisterMBeans() {
+
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		for (final ObjectName name : this.registeredMBeans) {
+			try {
+				server.unregisterMBean(name);
+			} catch (final JMException e) {
+				LogFactory.getLog(AbstractWebApplication.class).warn(
+						"error unregistering MBean " + name, e);
+			}
+		}
+		this.registeredMBeans.clear();
 	}
 
 	/**
@@ -484,6 +775,183 @@ public abstract class AbstractWebApplication
 		return this.services.getEntityManagerFactory();
 	}
 
+	/**
+	 * Get entity manager factory to use for processing the specified request.
+	 *
+	 * @param request The request.
+	 * @param readOnly {@code true} if processing of the request only reads
+	 * persistent data.
+	 *
+	 * @return The read entity manager factory if the request should use it
+	 * and the read persistence unit is available, otherwise the primary
+	 * entity manager factory.
+	 */
+	EntityManagerFactory getEntityManagerFactory(
+			final HttpServletRequest request, final boolean readOnly) {
+
+		final EntityManagerFactory readEmf =
+			this.services.getReadEntityManagerFactory();
+		if ((readEmf == null) || !readOnly ||
+				!this.useReadEntityManagerFactory(request))
+			return this.services.getEntityManagerFactory();
+
+		final long suspendedUntil = this.readSuspendedUntil;
+		if (suspendedUntil != 0) {
+			if (System.currentTimeMillis() < suspendedUntil)
+				return this.services.getEntityManagerFactory();
+			this.readSuspendedUntil = 0;
+		}
+
+		return readEmf;
+	}
+
+	/**
+	 * Make read-only requests fall back to the primary persistence unit for a
+	 * while, because an error happened using the read persistence unit.
+	 *
+	 * @param e The error.
+	 */
+	void readEntityManagerFactoryFailed(final Exception e) {
+
+		if (this.readSuspendedUntil == 0)
+			LogFactory.getLog(AbstractWebApplication.class).warn(
+					"error using read persistence unit, falling back to the" +
+					" primary persistence unit for " +
+					this.readRetryInterval + "ms", e);
+
+		this.readSuspendedUntil =
+			System.currentTimeMillis() + this.readRetryInterval;
+	}
+
+	/**
+	 * Configure routing of the read-only requests to the read persistence
+	 * unit.
+	 *
+	 * @throws UnavailableException If the configuration is invalid.
+	 */
+	private void configureReadRouting()
+		throws UnavailableException {
+
+		final String routing = this.getConfigProperty(READ_PU_ROUTING,
+				String.class, "get");
+		switch (routing) {
+		case "get":
+			this.readRouting = ReadRouting.GET;
+			break;
+		case "readOnly":
+			this.readRouting = ReadRouting.READ_ONLY;
+			break;
+		case "none":
+			this.readRouting = ReadRouting.NONE;
+			break;
+		default:
+			throw new UnavailableException("Invalid read persistence unit" +
+					" routing " + routing + ".");
+		}
+
+		this.readRetryInterval = this.getConfigProperty(READ_PU_RETRY_INTERVAL,
+				Long.class, Long.valueOf(DEFAULT_READ_PU_RETRY_INTERVAL))
+				.longValue();
+		this.readSuspendedUntil = 0;
+	}
+
+	/**
+	 * Create the cache of responses to the anonymous requests.
+	 *
+	 * @throws UnavailableException If the configuration is invalid.
+	 */
+	private void configureResponseCache()
+		throws UnavailableException {
+
+		final long size = this.getConfigProperty(RESPONSE_CACHE_SIZE,
+				Long.class, Long.valueOf(DEFAULT_RESPONSE_CACHE_SIZE))
+				.longValue();
+		if (size < 0)
+			throw new UnavailableException("Invalid response cache size.");
+		if (size == 0) {
+			this.responseCache = null;
+			return;
+		}
+
+		final long ttl = this.getConfigProperty(RESPONSE_CACHE_TTL,
+				Long.class, Long.valueOf(DEFAULT_RESPONSE_CACHE_TTL))
+				.longValue();
+		if (ttl <= 0)
+			throw new UnavailableException("Invalid response cache time to" +
+					" live.");
+
+		this.responseCache = new ResponseCache(size, ttl);
+	}
+
+	/**
+	 * Start periodic check if the routes need to be reloaded, if enabled.
+	 *
+	 * @throws UnavailableException If the configuration is invalid.
+	 */
+	private void configureRoutesReload()
+		throws UnavailableException {
+
+		final long interval = this.getConfigProperty(ROUTER_RELOAD_INTERVAL,
+				Long.class, Long.valueOf(0)).longValue();
+		if (interval < 0)
+			throw new UnavailableException("Invalid routes reload interval.");
+		if (interval == 0)
+			return;
+
+		final Log log = LogFactory.getLog(AbstractWebApplication.class);
+		if (!(this.routerConfiguration instanceof
+				AbstractRouterConfiguration)) {
+			log.warn("the router configuration does not support reloading" +
+					" the routes");
+			return;
+		}
+		final AbstractRouterConfiguration routerConfig =
+			(AbstractRouterConfiguration) this.routerConfiguration;
+
+		this.routesReloader = Executors.newSingleThreadScheduledExecutor(
+				new ThreadFactory() {
+
+					@Override
+					public Thread newThread(final Runnable r) {
+
+						final Thread thread = new Thread(r, "routes-reloader");
+						thread.setDaemon(true);
+
+						return thread;
+					}
+				});
+		this.routesReloader.scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+
+				AbstractWebApplication.this.reloadRoutes(routerConfig);
+			}
+		}, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Reload the routes if they have been modified. Called periodically by
+	 * the routes reloader.
+	 *
+	 * @param routerConfig The router configuration.
+	 */
+	void reloadRoutes(final AbstractRouterConfiguration routerConfig) {
+
+		final Log log = LogFactory.getLog(AbstractWebApplication.class);
+		try {
+			if (routerConfig.reloadIfModified()) {
+				log.debug("reloaded the routes");
+				final ResponseCache rc = this.responseCache;
+				if (rc != null)
+					rc.clear();
+			}
+		} catch (final UnavailableException | RuntimeException e) {
+			log.error("error reloading the routes, the previously loaded" +
+					" routes remain in use", e);
+		}
+	}
+
 	/**
 	 * Get authentication service.
 	 *
@@ -514,6 +982,49 @@ public abstract class AbstractWebApplication
 		return this.executors;
 	}
 
+	/**
+	 * Tell if authenticated user lookup is performed by the same asynchronous
+	 * executor as the request processing transaction.
+	 *
+	 * @return {@code true} if fused.
+	 *
+	 * @see ApplicationConfiguration#ASYNC_FUSED_AUTHENTICATION
+	 */
+	boolean isFusedAuthentication() {
+
+		return this.fusedAuthentication;
+	}
+
+	/**
+	 * Get request processing metrics.
+	 *
+	 * @return The metrics, or {@code null} if disabled.
+	 */
+	RequestMetrics getRequestMetrics() {
+
+		return this.requestMetrics;
+	}
+
+	/**
+	 * Get query results cache.
+	 *
+	 * @return The cache, or {@code null} if disabled.
+	 */
+	QueryResultsCache getQueryResultsCache() {
+
+		return this.services.getQueryResultsCache();
+	}
+
+	/**
+	 * Get cache of responses to the anonymous requests.
+	 *
+	 * @return The cache, or {@code null} if disabled.
+	 */
+	ResponseCache getResponseCache() {
+
+		return this.responseCache;
+	}
+
 
 	/**
 	 * Get executor service. This method is called once during the application
@@ -524,7 +1035,25 @@ public abstract class AbstractWebApplication
 	 * of threads specified by the
 	 * {@link ApplicationConfiguration#ASYNC_THREADS} application configuration
 	 * property. If the application configuration property is undefined, default
-	 * number of threads is {@value #DEFAULT_ASYNC_THREADS}.
+	 * number of threads is {@value #DEFAULT_ASYNC_THREADS}. The requests
+	 * waiting for a thread are queued according to their routes' priorities.
+	 * The queue is bounded by the
+	 * {@link ApplicationConfiguration#ASYNC_QUEUE_CAPACITY} application
+	 * configuration property, which defaults to
+	 * {@value #DEFAULT_ASYNC_QUEUE_CAPACITY}, and requests that cannot be
+	 * processed within the time specified by the
+	 * {@link ApplicationConfiguration#ASYNC_MAX_QUEUE_WAIT} application
+	 * configuration property are rejected with HTTP 503 (Service Unavailable)
+	 * response.
+	 *
+	 * <p>If the {@link ApplicationConfiguration#ASYNC_VIRTUAL_THREADS}
+	 * application configuration property is {@code true} and the Java runtime
+	 * supports virtual threads, the default implementation instead returns an
+	 * executor service that runs each task in a new virtual thread. The number
+	 * of concurrently running tasks is then limited by the
+	 * {@link ApplicationConfiguration#ASYNC_MAX_CONCURRENCY} application
+	 * configuration property, which defaults to
+	 * {@value #DEFAULT_ASYNC_MAX_CONCURRENCY}.
 	 *
 	 * @param sc Servlet context.
 	 * @param config Application configuration.
@@ -539,29 +1068,150 @@ public abstract class AbstractWebApplication
 			final ApplicationConfiguration config)
 		throws UnavailableException {
 
+		if (config.getConfigProperty(
+				ApplicationConfiguration.ASYNC_VIRTUAL_THREADS, Boolean.class,
+				Boolean.FALSE).booleanValue()) {
+			final Log log = LogFactory.getLog(AbstractWebApplication.class);
+			if (VirtualThreadsExecutorService.isSupported()) {
+				final int maxConcurrency = config.getConfigProperty(
+						ApplicationConfiguration.ASYNC_MAX_CONCURRENCY,
+						Integer.class,
+						Integer.valueOf(DEFAULT_ASYNC_MAX_CONCURRENCY))
+						.intValue();
+				log.debug("using virtual threads for asynchronous request" +
+						" processing, maximum concurrency " + maxConcurrency);
+				return new VirtualThreadsExecutorService(maxConcurrency);
+			}
+			log.warn("virtual threads are not supported by the Java runtime," +
+					" using fixed size thread pool for asynchronous request" +
+					" processing");
+		}
+
 		final ThreadGroup threadGroup = new ThreadGroup("AsyncExecutors");
 
 		final int numThreads = config.getConfigProperty(
 				ApplicationConfiguration.ASYNC_THREADS, Integer.class,
 				Integer.valueOf(DEFAULT_ASYNC_THREADS)).intValue();
 
-		return Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+		final int queueCapacity = config.getConfigProperty(
+				ApplicationConfiguration.ASYNC_QUEUE_CAPACITY, Integer.class,
+				Integer.valueOf(DEFAULT_ASYNC_QUEUE_CAPACITY)).intValue();
 
-			private int nextThreadNum = 0;
+		final long maxQueueWait = config.getConfigProperty(
+				ApplicationConfiguration.ASYNC_MAX_QUEUE_WAIT, Long.class,
+				Long.valueOf(config.getConfigProperty(
+						ApplicationConfiguration.ASYNC_TIMEOUT, Long.class,
+						AsynchronousExecutor.DEFAULT_TIMEOUT).longValue() / 2))
+				.longValue();
 
-			@Override
-			public Thread newThread(final Runnable r) {
+		if ((numThreads <= 0) || (queueCapacity <= 0) || (maxQueueWait <= 0))
+			throw new UnavailableException("Invalid asynchronous request" +
+					" processing thread pool configuration.");
 
-				final String threadName =
-					"async-executor-" + (this.nextThreadNum++);
+		return new RequestScheduler(numThreads, queueCapacity, maxQueueWait,
+				new ThreadFactory() {
 
-				LogFactory.getLog(this.getClass()).debug(
-						"starting asynchronous request processing thread " +
-								threadName);
+					private int nextThreadNum = 0;
 
-				return new Thread(threadGroup, r, threadName);
-			}
-		});
+					@Override
+					public Thread newThread(final Runnable r) {
+
+						final String threadName =
+							"async-executor-" + (this.nextThreadNum++);
+
+						LogFactory.getLog(this.getClass()).debug(
+								"starting asynchronous request processing" +
+										" thread " + threadName);
+
+						return new Thread(threadGroup, r, threadName);
+					}
+				});
+	}
+
+	/**
+	 * Get request processing metrics. This method is called once during the
+	 * application initialization. If the returned object implements
+	 * {@link AutoCloseable}, it is closed by the framework when the
+	 * application goes down.
+	 *
+	 * <p>Default implementation returns {@code null}, which disables the
+	 * metrics, unless the {@link ApplicationConfiguration#METRICS_ENABLED}
+	 * application configuration property is {@code true}, in which case it
+	 * returns a {@link HistogramRequestMetrics}. The per-route metrics MBeans
+	 * are registered unless disabled by the
+	 * {@link ApplicationConfiguration#METRICS_JMX} application configuration
+	 * property.
+	 *
+	 * @param sc Servlet context.
+	 * @param config Application configuration.
+	 *
+	 * @return The metrics, or {@code null} to disable the metrics.
+	 *
+	 * @throws UnavailableException If the metrics are unavailable. Throwing
+	 * this exception makes the web-application fail to start.
+	 */
+	@SuppressWarnings("unused")
+	protected RequestMetrics getRequestMetrics(final ServletContext sc,
+			final ApplicationConfiguration config)
+		throws UnavailableException {
+
+		if (!config.getConfigProperty(ApplicationConfiguration.METRICS_ENABLED,
+				Boolean.class, Boolean.FALSE).booleanValue())
+			return null;
+
+		String application = null;
+		if (config.getConfigProperty(ApplicationConfiguration.METRICS_JMX,
+				Boolean.class, Boolean.TRUE).booleanValue()) {
+			final String contextPath = sc.getContextPath();
+			application = (contextPath.length() > 0 ? contextPath : "/");
+		}
+
+		return new HistogramRequestMetrics(application);
+	}
+
+	/**
+	 * Get cache for the results of the entity queries and lookups marked as
+	 * cached in the router configuration. This method is called once during
+	 * the application initialization, before the router configuration is
+	 * created.
+	 *
+	 * <p>Default implementation returns a {@link BoundedQueryResultsCache}
+	 * configured with the {@link ApplicationConfiguration#QUERY_CACHE_SIZE}
+	 * and {@link ApplicationConfiguration#QUERY_CACHE_TTL} application
+	 * configuration properties, or {@code null} if the cache size is zero.
+	 *
+	 * @param sc Servlet context.
+	 * @param config Application configuration.
+	 *
+	 * @return The cache, or {@code null} to disable caching of the query
+	 * results, in which case the router configuration scripts execute all
+	 * queries and lookups.
+	 *
+	 * @throws UnavailableException If the cache is unavailable. Throwing this
+	 * exception makes the web-application fail to start.
+	 */
+	@SuppressWarnings("unused")
+	protected QueryResultsCache getQueryResultsCache(final ServletContext sc,
+			final ApplicationConfiguration config)
+		throws UnavailableException {
+
+		final int size = config.getConfigProperty(
+				ApplicationConfiguration.QUERY_CACHE_SIZE, Integer.class,
+				Integer.valueOf(DEFAULT_QUERY_CACHE_SIZE)).intValue();
+		if (size < 0)
+			throw new UnavailableException("Invalid query results cache" +
+					" size.");
+		if (size == 0)
+			return null;
+
+		final long ttl = config.getConfigProperty(
+				ApplicationConfiguration.QUERY_CACHE_TTL, Long.class,
+				Long.valueOf(DEFAULT_QUERY_CACHE_TTL)).longValue();
+		if (ttl <= 0)
+			throw new UnavailableException("Invalid query results cache" +
+					" time to live.");
+
+		return new BoundedQueryResultsCache(size, ttl);
 	}
 
 	/**
@@ -569,7 +1219,12 @@ public abstract class AbstractWebApplication
 	 * application initialization.
 	 *
 	 * <p>Default implementation returns a
-	 * {@link SessionlessAuthenticationService}.
+	 * {@link SessionlessAuthenticationService} configured with the
+	 * {@link ApplicationConfiguration#AUTH_COOKIE_CACHE_SIZE} and
+	 * {@link ApplicationConfiguration#AUTH_COOKIE_CACHE_TTL} application
+	 * configuration properties. The service's statistics MBean is registered
+	 * unless disabled by the {@link ApplicationConfiguration#AUTH_JMX}
+	 * application configuration property.
 	 *
 	 * @param sc Servlet context.
 	 * @param config Application configuration.
@@ -584,9 +1239,28 @@ public abstract class AbstractWebApplication
 			final ServletContext sc, final ApplicationConfiguration config)
 		throws UnavailableException {
 
-		return new SessionlessAuthenticationService(
-				this.getUserRecordHandler(sc, config),
-				this.getUserRecordsCache(sc, config));
+		final int cookieCacheSize = config.getConfigProperty(
+				ApplicationConfiguration.AUTH_COOKIE_CACHE_SIZE, Integer.class,
+				Integer.valueOf(SessionlessAuthenticationService
+						.DEFAULT_COOKIE_CACHE_SIZE)).intValue();
+		final long cookieCacheTTL = config.getConfigProperty(
+				ApplicationConfiguration.AUTH_COOKIE_CACHE_TTL, Long.class,
+				Long.valueOf(SessionlessAuthenticationService
+						.DEFAULT_COOKIE_CACHE_TTL)).longValue();
+		if ((cookieCacheSize < 0) || (cookieCacheTTL < 0))
+			throw new UnavailableException("Invalid authentication cookie" +
+					" cache configuration.");
+
+		final SessionlessAuthenticationService<?> authService =
+			new SessionlessAuthenticationService(
+					this.getUserRecordHandler(sc, config),
+					this.getUserRecordsCache(sc, config), cookieCacheSize,
+					cookieCacheTTL);
+		if (config.getConfigProperty(ApplicationConfiguration.AUTH_JMX,
+				Boolean.class, Boolean.TRUE).booleanValue())
+			this.registerMBean(sc, authService, "AuthenticationService");
+
+		return authService;
 	}
 
 	/**
@@ -621,7 +1295,19 @@ public abstract class AbstractWebApplication
 	 * Get user records cache implementation used by the authentication service.
 	 * This method is called once during the application initialization.
 	 *
-	 * <p>Default implementation returns a {@link NopUserRecordsCache}.
+	 * <p>Default implementation returns a {@link BoundedUserRecordsCache} if
+	 * the {@link ApplicationConfiguration#AUTH_USER_CACHE_SIZE} application
+	 * configuration property is positive, using the
+	 * {@link ApplicationConfiguration#AUTH_USER_CACHE_TTL} application
+	 * configuration property for the records time to live. If
+	 * {@link #getUserRecordsCacheInvalidationTransport} returns a transport,
+	 * the bounded cache is wrapped in a {@link ClusteredUserRecordsCache}, in
+	 * which case, if the time to live is not configured,
+	 * {@link #DEFAULT_CLUSTERED_USER_CACHE_TTL} is used.
+	 * Otherwise, it returns a {@link NopUserRecordsCache}. The bounded cache's
+	 * statistics MBean is registered unless disabled by the
+	 * {@link ApplicationConfiguration#AUTH_JMX} application configuration
+	 * property.
 	 *
 	 * @param sc Servlet context.
 	 * @param config Application configuration.
@@ -632,12 +1318,130 @@ public abstract class AbstractWebApplication
 	 * unavailable. Throwing this exception makes the web-application fail to
 	 * start.
 	 */
-	@SuppressWarnings("unused")
 	protected UserRecordsCache<?> getUserRecordsCache(final ServletContext sc,
 			final ApplicationConfiguration config)
 		throws UnavailableException {
 
-		return new NopUserRecordsCache<>();
+		final int cacheSize = config.getConfigProperty(
+				ApplicationConfiguration.AUTH_USER_CACHE_SIZE, Integer.class,
+				Integer.valueOf(0)).intValue();
+		if (cacheSize <= 0)
+			return new NopUserRecordsCache<>();
+
+		long ttl = config.getConfigProperty(
+				ApplicationConfiguration.AUTH_USER_CACHE_TTL, Long.class,
+				Long.valueOf(0)).longValue();
+		if (ttl < 0)
+			throw new UnavailableException("Invalid user records cache time" +
+					" to live.");
+
+		// evictions broadcast in a cluster may be lost, records must expire
+		final UserRecordsCacheInvalidationTransport transport =
+			this.getUserRecordsCacheInvalidationTransport(sc, config);
+		if ((transport != null) && (ttl == 0)) {
+			LogFactory.getLog(AbstractWebApplication.class).warn(
+					"user records cache time to live is not configured," +
+					" using " + DEFAULT_CLUSTERED_USER_CACHE_TTL +
+					" milliseconds, because the cache is clustered");
+			ttl = DEFAULT_CLUSTERED_USER_CACHE_TTL;
+		}
+
+		final BoundedUserRecordsCache<Object> localCache =
+			new BoundedUserRecordsCache<>(cacheSize, ttl);
+		if (config.getConfigProperty(ApplicationConfiguration.AUTH_JMX,
+				Boolean.class, Boolean.TRUE).booleanValue())
+			this.registerMBean(sc, localCache, "UserRecordsCache");
+
+		if (transport == null)
+			return localCache;
+
+		try {
+			this.clusteredUserRecordsCache =
+				new ClusteredUserRecordsCache<>(localCache, transport);
+		} catch (final IOException e) {
+			transport.close();
+			LogFactory.getLog(AbstractWebApplication.class).error(
+					"error starting user records cache invalidation" +
+					" transport", e);
+			throw new UnavailableException("Could not start user records" +
+					" cache invalidation transport: " + e);
+		}
+
+		return this.clusteredUserRecordsCache;
+	}
+
+	/**
+	 * Get transport used to broadcast evictions from the user records cache to
+	 * the other nodes in a cluster. This method is called once during the
+	 * application initialization by the default {@link #getUserRecordsCache}
+	 * implementation if the user records cache is enabled.
+	 *
+	 * <p>Default implementation creates the transport specified by the
+	 * {@link ApplicationConfiguration#AUTH_USER_CACHE_INVALIDATION}
+	 * application configuration property, or returns {@code null} if the
+	 * property is undefined.
+	 *
+	 * @param sc Servlet context.
+	 * @param config Application configuration.
+	 *
+	 * @return The transport, which has not been started yet, or {@code null}
+	 * to not broadcast the evictions.
+	 *
+	 * @throws UnavailableException If the transport is unavailable. Throwing
+	 * this exception makes the web-application fail to start.
+	 */
+	@SuppressWarnings("unused")
+	protected UserRecordsCacheInvalidationTransport
+	getUserRecordsCacheInvalidationTransport(final ServletContext sc,
+			final ApplicationConfiguration config)
+		throws UnavailableException {
+
+		final String spec = config.getConfigProperty(
+				ApplicationConfiguration.AUTH_USER_CACHE_INVALIDATION,
+				String.class, null);
+		if (spec == null)
+			return null;
+
+		try {
+			final URI uri = new URI(spec);
+			final String scheme = uri.getScheme();
+			if ("loopback".equals(scheme))
+				return new LoopbackInvalidationTransport(uri.getAuthority());
+			if ((uri.getHost() == null) || (uri.getPort() < 0))
+				throw new UnavailableException("User records cache" +
+						" invalidation transport URI " + spec +
+						" must include host and port.");
+			if ("multicast".equals(scheme))
+				return new MulticastInvalidationTransport(
+						InetAddress.getByName(uri.getHost()), uri.getPort());
+			if ("tcp".equals(scheme)) {
+				final List<InetSocketAddress> peers = new ArrayList<>();
+				final String query = uri.getQuery();
+				if ((query != null) && query.startsWith("peers="))
+					for (final String peer :
+							query.substring("peers=".length()).split(",")) {
+						final int colonInd = peer.lastIndexOf(':');
+						if (colonInd <= 0)
+							throw new UnavailableException("Invalid peer " +
+									peer + " in user records cache" +
+									" invalidation transport URI " + spec +
+									".");
+						peers.add(new InetSocketAddress(
+								peer.substring(0, colonInd),
+								Integer.parseInt(
+										peer.substring(colonInd + 1))));
+					}
+				return new TcpInvalidationTransport(
+						new InetSocketAddress(uri.getHost(), uri.getPort()),
+						peers);
+			}
+			throw new UnavailableException("Unsupported user records cache" +
+					" invalidation transport " + scheme + ".");
+		} catch (final URISyntaxException | UnknownHostException |
+				IllegalArgumentException e) {
+			throw new UnavailableException("Invalid user records cache" +
+					" invalidation transport URI " + spec + ": " + e);
+		}
 	}
 
 	/**
@@ -669,6 +1473,69 @@ public abstract class AbstractWebApplication
 						String.class, DEFAULT_PU_NAME));
 	}
 
+	/**
+	 * Get entity manager factory for the secondary persistence unit used by
+	 * the requests that only read persistent data. This method is called once
+	 * during the application initialization. The entity manager factory is
+	 * automatically closed by the framework when the application shuts down.
+	 *
+	 * <p>Default implementation uses
+	 * {@link Persistence#createEntityManagerFactory(String)} method to create
+	 * the entity manager factory if the
+	 * {@link ApplicationConfiguration#READ_PU_NAME} application configuration
+	 * property specifies the persistence unit name. Otherwise, it returns
+	 * {@code null}.
+	 *
+	 * @param sc Servlet context.
+	 * @param config Application configuration.
+	 *
+	 * @return Read entity manager factory, or {@code null} if all requests use
+	 * the primary entity manager factory.
+	 *
+	 * @throws UnavailableException If entity manager factory is unavailable.
+	 * Throwing this exception makes the web-application fail to start.
+	 */
+	@SuppressWarnings("unused")
+	protected EntityManagerFactory getReadEntityManagerFactory(
+			final ServletContext sc, final ApplicationConfiguration config)
+		throws UnavailableException {
+
+		final String puName = config.getConfigProperty(
+				ApplicationConfiguration.READ_PU_NAME, String.class, null);
+
+		return (puName != null ?
+				Persistence.createEntityManagerFactory(puName) : null);
+	}
+
+	/**
+	 * Tell if the specified read-only request should use the read entity
+	 * manager factory. The method is called for each request that only reads
+	 * persistent data and needs an entity manager if the application has a
+	 * read entity manager factory.
+	 *
+	 * <p>Default implementation applies the policy specified by the
+	 * {@link ApplicationConfiguration#READ_PU_ROUTING} application
+	 * configuration property. The subclass can override it, for example, to
+	 * keep sending requests of a user who has just submitted a change to the
+	 * primary persistence unit until the change reaches the read replica.
+	 *
+	 * @param request The request.
+	 *
+	 * @return {@code true} to use the read entity manager factory.
+	 */
+	protected boolean useReadEntityManagerFactory(
+			final HttpServletRequest request) {
+
+		switch (this.readRouting) {
+		case GET:
+			return "GET".equals(request.getMethod());
+		case READ_ONLY:
+			return true;
+		default:
+			return false;
+		}
+	}
+
 	/**
 	 * Get validator factory used for validating user input (such as submitted
 	 * HTML forms). This method is called once during the application
@@ -38,12 +38,227 @@ public interface ApplicationConfiguration {
 	 */
 	String ASYNC_THREADS = "com.boylesoftware.web.async.threads";
 
+	/**
+	 * Standard name of application configuration property used to make the
+	 * asynchronous request processing run each request in its own virtual
+	 * thread instead of using a fixed size thread pool. The value is expected
+	 * to be of type {@link Boolean}. The default is {@code false}. The setting
+	 * is ignored if the Java runtime does not support virtual threads.
+	 */
+	String ASYNC_VIRTUAL_THREADS = "com.boylesoftware.web.async.virtualThreads";
+
+	/**
+	 * Standard name of application configuration property used to configure the
+	 * maximum number of requests processed asynchronously at the same time
+	 * when virtual threads are used. The value is expected to be of type
+	 * {@link Integer}.
+	 */
+	String ASYNC_MAX_CONCURRENCY = "com.boylesoftware.web.async.maxConcurrency";
+
+	/**
+	 * Standard name of application configuration property used to configure the
+	 * maximum number of requests waiting for a thread in the thread pool used
+	 * to asynchronously process requests. The value is expected to be of type
+	 * {@link Integer}. Requests in excess of the limit are rejected with HTTP
+	 * 503 (Service Unavailable) response. The default is 1000.
+	 */
+	String ASYNC_QUEUE_CAPACITY = "com.boylesoftware.web.async.queueCapacity";
+
+	/**
+	 * Standard name of application configuration property used to configure the
+	 * maximum time a request may wait for a thread in the thread pool used to
+	 * asynchronously process requests. The value is expected to be of type
+	 * {@link Long} and express the time in milliseconds. Requests that wait, or
+	 * are projected to wait, longer are rejected with HTTP 503 (Service
+	 * Unavailable) response. The default is half of the asynchronous request
+	 * processing timeout.
+	 */
+	String ASYNC_MAX_QUEUE_WAIT = "com.boylesoftware.web.async.maxQueueWait";
+
+	/**
+	 * Standard name of application configuration property used to make the
+	 * authenticated user lookup, when it requires accessing the persistent
+	 * storage, and the request processing transaction run in a single
+	 * asynchronous executor pass sharing the same entity manager. The value is
+	 * expected to be of type {@link Boolean}. The default is {@code true}. If
+	 * {@code false}, the user lookup is performed in a separate asynchronous
+	 * executor, which dispatches the request back to the container when done.
+	 */
+	String ASYNC_FUSED_AUTHENTICATION =
+		"com.boylesoftware.web.async.fusedAuthentication";
+
 	/**
 	 * Standard name of application configuration property used to specify the
 	 * JPA persistence unit name.
 	 */
 	String PU_NAME = "com.boylesoftware.web.pu.name";
 
+	/**
+	 * Standard name of application configuration property used to specify the
+	 * name of the optional secondary JPA persistence unit used by the requests
+	 * that only read persistent data, such as a persistence unit connected to
+	 * a read replica of the database. If undefined, all requests use the
+	 * primary persistence unit.
+	 */
+	String READ_PU_NAME = "com.boylesoftware.web.pu.readName";
+
+	/**
+	 * Standard name of application configuration property used to specify
+	 * which requests use the read persistence unit. The value is expected to
+	 * be of type {@link String} and can be "get" for read-only GET requests,
+	 * "readOnly" for all read-only requests, or "none" to not use the read
+	 * persistence unit at all. The default is "get".
+	 */
+	String READ_PU_ROUTING = "com.boylesoftware.web.pu.readRouting";
+
+	/**
+	 * Standard name of application configuration property used to specify for
+	 * how long the read-only requests fall back to the primary persistence
+	 * unit after an error using the read persistence unit. The value is
+	 * expected to be of type {@link Long} and express the time in
+	 * milliseconds. The default is 30 seconds.
+	 */
+	String READ_PU_RETRY_INTERVAL =
+		"com.boylesoftware.web.pu.readRetryInterval";
+
+	/**
+	 * Standard name of application configuration property used to configure the
+	 * maximum number of results kept in the default cache for the entity
+	 * queries and lookups marked as cached in the router configuration. The
+	 * value is expected to be of type {@link Integer}. Zero disables the cache.
+	 * The default is 1000.
+	 */
+	String QUERY_CACHE_SIZE = "com.boylesoftware.web.queryCache.size";
+
+	/**
+	 * Standard name of application configuration property used to configure the
+	 * default time to live of a result in the query results cache. The value
+	 * is expected to be of type {@link Long} and express the time in
+	 * milliseconds. The default is 60 seconds.
+	 */
+	String QUERY_CACHE_TTL = "com.boylesoftware.web.queryCache.ttl";
+
+	/**
+	 * Standard name of application configuration property used to configure the
+	 * maximum total size of the response bodies kept in the cache of
+	 * responses to the anonymous GET requests that use routes marked as
+	 * cacheable in the router configuration. The value is expected to be of
+	 * type {@link Long} and express the size in bytes. A single response
+	 * larger than 1/16 of the size is never cached. Zero disables the cache.
+	 * The default is 16 megabytes.
+	 */
+	String RESPONSE_CACHE_SIZE = "com.boylesoftware.web.responseCache.size";
+
+	/**
+	 * Standard name of application configuration property used to configure the
+	 * default time to live of a response in the response cache. The value is
+	 * expected to be of type {@link Long} and express the time in
+	 * milliseconds. The default is 60 seconds.
+	 */
+	String RESPONSE_CACHE_TTL = "com.boylesoftware.web.responseCache.ttl";
+
+	/**
+	 * Standard name of application configuration property used to specify the
+	 * request URI prefixes, for which the router does not even try to find a
+	 * matching route and passes the request down the filter chain. The value
+	 * is expected to be a comma-separated list of prefixes relative to the
+	 * web-application context path, such as "/css/,/img/,/favicon.ico". No
+	 * route may have a URI that starts with one of the prefixes. By default,
+	 * there are no pass-through prefixes.
+	 */
+	String ROUTER_PASS_THROUGH_PREFIXES =
+		"com.boylesoftware.web.router.passThroughPrefixes";
+
+	/**
+	 * Standard name of application configuration property used to configure the
+	 * maximum number of request URIs that did not match any route remembered by
+	 * the router, so that the repeated requests for the same URIs are passed
+	 * down the filter chain without the route lookup. The value is expected to
+	 * be of type {@link Integer}. Zero disables the negative cache. The default
+	 * is 1024.
+	 */
+	String ROUTER_NEGATIVE_CACHE_SIZE =
+		"com.boylesoftware.web.router.negativeCacheSize";
+
+	/**
+	 * Standard name of application configuration property used to make the
+	 * router periodically check if the route mappings have been modified and
+	 * reload them without restarting the web-application. The value is
+	 * expected to be of type {@link Long} and express the interval between
+	 * the checks in milliseconds. The default is zero, which means that the
+	 * routes are never reloaded.
+	 */
+	String ROUTER_RELOAD_INTERVAL =
+		"com.boylesoftware.web.router.reloadInterval";
+
+	/**
+	 * Standard name of application configuration property used to configure the
+	 * maximum number of authenticated user records kept in the default user
+	 * records cache. The value is expected to be of type {@link Integer}. The
+	 * default is zero, which means that user records are not cached.
+	 */
+	String AUTH_USER_CACHE_SIZE = "com.boylesoftware.web.auth.userCacheSize";
+
+	/**
+	 * Standard name of application configuration property used to configure the
+	 * time to live of a record in the default user records cache. The value is
+	 * expected to be of type {@link Long} and express the time in milliseconds.
+	 * The default is zero, which means that cached user records do not expire,
+	 * unless the evictions are broadcast to the other nodes in a cluster (see
+	 * {@link #AUTH_USER_CACHE_INVALIDATION}), in which case the default is
+	 * {@link AbstractWebApplication#DEFAULT_CLUSTERED_USER_CACHE_TTL}.
+	 */
+	String AUTH_USER_CACHE_TTL = "com.boylesoftware.web.auth.userCacheTTL";
+
+	/**
+	 * Standard name of application configuration property used to configure the
+	 * transport used to broadcast evictions from the default user records cache
+	 * to the other nodes in a cluster. The value is expected to be a string URI
+	 * in one of the following forms:
+	 *
+	 * <ul>
+	 * <li>"multicast://<i>group</i>:<i>port</i>" for UDP multicast.
+	 * <li>"tcp://<i>host</i>:<i>port</i>?peers=<i>host</i>:<i>port</i>,..."
+	 * for TCP connections, where the authority is the address on which the
+	 * node listens and the "peers" parameter lists the other nodes.
+	 * <li>"loopback://<i>channel</i>" for applications in the same JVM.
+	 * </ul>
+	 *
+	 * <p>By default, the evictions are not broadcast. The property is used only
+	 * if the user records cache is enabled with the
+	 * {@link #AUTH_USER_CACHE_SIZE} property.
+	 */
+	String AUTH_USER_CACHE_INVALIDATION =
+		"com.boylesoftware.web.auth.userCacheInvalidation";
+
+	/**
+	 * Standard name of application configuration property used to configure the
+	 * maximum number of decoded authentication cookie values kept in the cache
+	 * by the default authentication service. The value is expected to be of
+	 * type {@link Integer}. Zero disables the cache. The default is 1024.
+	 * The cache effectiveness is reported by the authentication service's
+	 * statistics MBean, see {@link #AUTH_JMX}.
+	 */
+	String AUTH_COOKIE_CACHE_SIZE =
+		"com.boylesoftware.web.auth.cookieCacheSize";
+
+	/**
+	 * Standard name of application configuration property used to configure the
+	 * time to live of a decoded authentication cookie value in the cache used
+	 * by the default authentication service. The value is expected to be of
+	 * type {@link Long} and express the time in milliseconds. The default is
+	 * 60 seconds.
+	 */
+	String AUTH_COOKIE_CACHE_TTL = "com.boylesoftware.web.auth.cookieCacheTTL";
+
+	/**
+	 * Standard name of application configuration property used to enable or
+	 * disable registration of the default authentication service and user
+	 * records cache statistics MBeans with the platform MBean server. The value
+	 * is expected to be of type {@link Boolean}. The default is {@code true}.
+	 */
+	String AUTH_JMX = "com.boylesoftware.web.auth.jmx";
+
 	/**
 	 * Standard name of application configuration property used to specified
 	 * JNDI name of the optional JavaMail session.
@@ -51,6 +266,31 @@ public interface ApplicationConfiguration {
 	String MAIL_SESSION_JNDI_NAME =
 		"com.boylesoftware.web.mail.sessionJndiName";
 
+	/**
+	 * Standard name of application configuration property used to enable or
+	 * disable registration of the framework's object pools usage statistics
+	 * MBeans with the platform MBean server. The value is expected to be of
+	 * type {@link Boolean}. The default is {@code true}.
+	 */
+	String POOLS_JMX = "com.boylesoftware.web.pools.jmx";
+
+	/**
+	 * Standard name of application configuration property used to enable
+	 * collection of the per-route request processing latency metrics by the
+	 * default metrics implementation. The value is expected to be of type
+	 * {@link Boolean}. The default is {@code false}.
+	 */
+	String METRICS_ENABLED = "com.boylesoftware.web.metrics.enabled";
+
+	/**
+	 * Standard name of application configuration property used to enable or
+	 * disable registration of the per-route request processing metrics MBeans
+	 * with the platform MBean server. The value is expected to be of type
+	 * {@link Boolean}. The default is {@code true}. Has effect only if the
+	 * metrics are enabled.
+	 */
+	String METRICS_JMX = "com.boylesoftware.web.metrics.jmx";
+
 
 	/**
 	 * Get application configuration property.
@@ -20,6 +20,7 @@ import javax.persistence.EntityManagerFactory;
 import javax.validation.ValidatorFactory;
 
 import com.boylesoftware.web.spi.AuthenticationService;
+import com.boylesoftware.web.spi.QueryResultsCache;
 import com.boylesoftware.web.spi.UserLocaleFinder;
 
 
@@ -52,6 +53,16 @@ public class ApplicationServices {
 	 */
 	private EntityManagerFactory emf;
 
+	/**
+	 * The read entity manager factory, or {@code null}.
+	 */
+	private EntityManagerFactory readEmf;
+
+	/**
+	 * The query results cache, or {@code null}.
+	 */
+	private QueryResultsCache queryResultsCache;
+
 	/**
 	 * Validator factory.
 	 */
@@ -130,6 +141,52 @@ public class ApplicationServices {
 		this.emf = emf;
 	}
 
+	/**
+	 * Get entity manager factory for the secondary persistence unit used by
+	 * the requests that only read persistent data.
+	 *
+	 * @return The read entity manager factory, or {@code null} if the
+	 * application does not have a read persistence unit.
+	 */
+	public EntityManagerFactory getReadEntityManagerFactory() {
+
+		return this.readEmf;
+	}
+
+	/**
+	 * Set read entity manager factory.
+	 *
+	 * @param readEmf The read entity manager factory, or {@code null}.
+	 */
+	void setReadEntityManagerFactory(final EntityManagerFactory readEmf) {
+
+		this.readEmf = readEmf;
+	}
+
+	/**
+	 * Get cache used for the results of the entity queries and lookups
+	 * performed by the router configuration scripts. The application may use
+	 * it to invalidate cached results after changing persistent data outside
+	 * of the request processing transactions.
+	 *
+	 * @return The query results cache, or {@code null} if the application
+	 * does not cache query results.
+	 */
+	public QueryResultsCache getQueryResultsCache() {
+
+		return this.queryResultsCache;
+	}
+
+	/**
+	 * Set query results cache.
+	 *
+	 * @param queryResultsCache The query results cache, or {@code null}.
+	 */
+	void setQueryResultsCache(final QueryResultsCache queryResultsCache) {
+
+		this.queryResultsCache = queryResultsCache;
+	}
+
 	/**
 	 * Get validator factory used to validate user input.
 	 *
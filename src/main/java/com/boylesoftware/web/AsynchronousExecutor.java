@@ -15,6 +15,9 @@
  */
 package com.boylesoftware.web;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
 import javax.servlet.AsyncContext;
 import javax.servlet.AsyncEvent;
 import javax.servlet.AsyncListener;
@@ -24,6 +27,10 @@ import javax.servlet.http.HttpServletResponse;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import com.boylesoftware.web.spi.RequestMetrics;
+import com.boylesoftware.web.spi.RequestMetrics.Phase;
+import com.boylesoftware.web.spi.Route;
+import com.boylesoftware.web.spi.Route.Priority;
 import com.boylesoftware.web.spi.RouterRequest;
 import com.boylesoftware.web.util.pool.AbstractPoolable;
 import com.boylesoftware.web.util.pool.FastPool;
@@ -41,7 +48,7 @@ abstract class AsynchronousExecutor
 	/**
 	 * Default timeout in milliseconds.
 	 */
-	private static final Long DEFAULT_TIMEOUT = Long.valueOf(10000L);
+	static final Long DEFAULT_TIMEOUT = Long.valueOf(10000L);
 
 
 	/**
@@ -74,7 +81,10 @@ abstract class AsynchronousExecutor
 	private boolean timedOut;
 
 	/**
-	 * Thread running the executor.
+	 * Thread running the executor, or {@code null} if the executor is not
+	 * running. Guarded by the executor instance monitor so that a timeout never
+	 * interrupts a thread that has already left the executor, which matters
+	 * for pooled threads as well as for short-lived virtual threads.
 	 */
 	private Thread executorThread;
 
@@ -93,6 +103,28 @@ abstract class AsynchronousExecutor
 	 */
 	protected AsyncContext asyncContext;
 
+	/**
+	 * Request processing metrics, or {@code null} if disabled.
+	 */
+	protected RequestMetrics metrics;
+
+	/**
+	 * Route of the request being processed, used for the metrics.
+	 */
+	private Route metricsRoute;
+
+	/**
+	 * Value of {@link System#nanoTime()} when the executor was submitted to
+	 * the executor service, used for the metrics.
+	 */
+	private long submitTime;
+
+	/**
+	 * Value of {@link System#nanoTime()} when the current phase started, used
+	 * for the metrics.
+	 */
+	private long phaseStart;
+
 
 	/**
 	 * Create new executor.
@@ -123,6 +155,8 @@ abstract class AsynchronousExecutor
 		this.routerReq = null;
 		this.asyncContext = null;
 		this.webapp = null;
+		this.metrics = null;
+		this.metricsRoute = null;
 
 		super.recycle();
 	}
@@ -144,9 +178,19 @@ abstract class AsynchronousExecutor
 
 		this.timedOut = false;
 
+		this.initMetrics(webapp, request);
+
 		if (this.log.isDebugEnabled())
 			this.log.debug("starting asynchronous request processing");
-		this.asyncContext = this.routerReq.startAsync();
+		final HttpServletResponse response = this.routerReq.getResponse();
+		if (response instanceof CapturingResponse) {
+			final CapturingResponse capture = (CapturingResponse) response;
+			this.asyncContext = this.routerReq.startAsync(
+					capture.getCapturedRequest(), capture);
+			this.asyncContext.addListener(capture);
+		} else {
+			this.asyncContext = this.routerReq.startAsync();
+		}
 		this.asyncContext.addListener(this);
 		this.asyncContext.setTimeout(webapp.getConfigProperty(
 				ApplicationConfiguration.ASYNC_TIMEOUT, Long.class,
@@ -159,6 +203,111 @@ abstract class AsynchronousExecutor
 		return this.asyncContext;
 	}
 
+	/**
+	 * Initialize request processing metrics for the request.
+	 *
+	 * @param webapp The application.
+	 * @param request The request.
+	 */
+	protected void initMetrics(final AbstractWebApplication webapp,
+			final RouterRequest request) {
+
+		this.metrics = webapp.getRequestMetrics();
+		this.metricsRoute = request.getRoute();
+	}
+
+	/**
+	 * Mark the start of a request processing phase for the metrics.
+	 */
+	protected void startPhase() {
+
+		if (this.metrics != null)
+			this.phaseStart = System.nanoTime();
+	}
+
+	/**
+	 * Record the time elapsed since the last call to {@link #startPhase()}
+	 * with the metrics.
+	 *
+	 * @param phase The phase.
+	 */
+	protected void endPhase(final Phase phase) {
+
+		final RequestMetrics m = this.metrics;
+		if ((m != null) && (this.metricsRoute != null))
+			m.recordPhase(this.metricsRoute, phase,
+					System.nanoTime() - this.phaseStart);
+	}
+
+	/**
+	 * Get scheduling priority of the request being processed.
+	 *
+	 * @return The priority of the request's route, or
+	 * {@link Priority#NORMAL} if unknown.
+	 */
+	Priority getPriority() {
+
+		final RouterRequest req = this.routerReq;
+		if (req == null)
+			return Priority.NORMAL;
+
+		final Route route = req.getRoute();
+
+		return (route != null ? route.getPriority() : Priority.NORMAL);
+	}
+
+	/**
+	 * Submit the executor to the specified executor service. If the executor
+	 * service refuses to accept the executor, the request is rejected with a
+	 * {@link ServiceUnavailableException}.
+	 *
+	 * @param execPool The executor service.
+	 */
+	void submit(final ExecutorService execPool) {
+
+		if (this.metrics != null)
+			this.submitTime = System.nanoTime();
+
+		try {
+			execPool.execute(this);
+		} catch (final RejectedExecutionException e) {
+			if (this.log.isDebugEnabled())
+				this.log.debug("async executor rejected by the executor" +
+						" service", e);
+			this.reject();
+		}
+	}
+
+	/**
+	 * Reject the request without executing the logic, because the server is
+	 * overloaded. Dispatches a {@link ServiceUnavailableException} back to the
+	 * router, unless the asynchronous processing has already timed out.
+	 */
+	void reject() {
+
+		final boolean debug = this.log.isDebugEnabled();
+
+		final AsyncContext asyncCtx = this.asyncContext;
+		if (this.timedOut || (asyncCtx == null)) {
+			if (debug)
+				this.log.debug("rejected async executor has already timed out");
+			return;
+		}
+
+		try {
+			Router.setAsyncException(asyncCtx.getRequest(),
+					new ServiceUnavailableException());
+			if (debug)
+				this.log.debug("dispatching service unavailable exception for" +
+						" rejected request back to the router");
+			asyncCtx.dispatch();
+		} catch (final Exception e) {
+			if (debug)
+				this.log.debug("error dispatching rejected request back to" +
+						" the router", e);
+		}
+	}
+
 	/**
 	 * Check if asynchronous processing has timed out. If so, the method throws
 	 * a special internal runtime exception.
@@ -196,7 +345,9 @@ abstract class AsynchronousExecutor
 
 		Thread.interrupted();
 
-		this.executorThread = Thread.currentThread();
+		synchronized (this) {
+			this.executorThread = Thread.currentThread();
+		}
 
 		final boolean debug = this.log.isDebugEnabled();
 		if (debug)
@@ -205,6 +356,10 @@ abstract class AsynchronousExecutor
 							" [" + this.routerReq.getRequestURI() + "]" : ""));
 		try {
 
+			if (this.metrics != null)
+				this.metrics.recordPhase(this.metricsRoute, Phase.QUEUE_WAIT,
+						System.nanoTime() - this.submitTime);
+
 			this.checkTimeout();
 
 			this.execute();
@@ -226,6 +381,10 @@ abstract class AsynchronousExecutor
 							" back to the router", e1);
 			}
 		} finally {
+			synchronized (this) {
+				this.executorThread = null;
+			}
+			Thread.interrupted();
 			if (debug)
 				this.log.debug("exiting async executor");
 		}
@@ -263,6 +422,9 @@ abstract class AsynchronousExecutor
 
 		this.timedOut = true;
 
+		if ((this.metrics != null) && (this.metricsRoute != null))
+			this.metrics.recordTimeout(this.metricsRoute);
+
 		this.cleanup();
 
 		if (debug)
@@ -273,8 +435,10 @@ abstract class AsynchronousExecutor
 		this.asyncContext = null;
 		this.webapp = null;
 
-		if (this.executorThread != null)
-			this.executorThread.interrupt();
+		synchronized (this) {
+			if (this.executorThread != null)
+				this.executorThread.interrupt();
+		}
 
 		final AsyncContext asyncCtx = event.getAsyncContext();
 		Router.setAsyncException(asyncCtx.getRequest(),
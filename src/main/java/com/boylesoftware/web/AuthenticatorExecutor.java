@@ -16,7 +16,9 @@
 package com.boylesoftware.web;
 
 import com.boylesoftware.web.spi.AuthenticationService;
+import com.boylesoftware.web.spi.RequestMetrics.Phase;
 import com.boylesoftware.web.util.LooseCannon;
+import com.boylesoftware.web.util.pool.ConcurrentFastPool;
 import com.boylesoftware.web.util.pool.FastPool;
 import com.boylesoftware.web.util.pool.PoolableObjectFactory;
 
@@ -33,16 +35,17 @@ class AuthenticatorExecutor
 	 * The instance pool.
 	 */
 	private static final FastPool<AuthenticatorExecutor> POOL =
-		new FastPool<>(new PoolableObjectFactory<AuthenticatorExecutor>() {
+		new ConcurrentFastPool<>(
+				new PoolableObjectFactory<AuthenticatorExecutor>() {
 
-			@Override
-			public AuthenticatorExecutor makeNew(
-					final FastPool<AuthenticatorExecutor> pool,
-					final int pooledObjectId) {
+					@Override
+					public AuthenticatorExecutor makeNew(
+							final FastPool<AuthenticatorExecutor> pool,
+							final int pooledObjectId) {
 
-				return new AuthenticatorExecutor(pooledObjectId);
-			}
-		}, "RequestAuthenticationExecutorsPool");
+						return new AuthenticatorExecutor(pooledObjectId);
+					}
+				}, "RequestAuthenticationExecutorsPool");
 
 	/**
 	 * Get executor instance from the internal pool. The instance must be
@@ -75,9 +78,11 @@ class AuthenticatorExecutor
 
 		final AuthenticationService<?> auth =
 			this.webapp.getAuthenticationService();
+		this.startPhase();
 		final Object authedUser = (this.routerReq.isSecure() ?
 				auth.getAuthenticatedUser(this.routerReq,
 						this.webapp.getEntityManagerFactory()) : null);
+		this.endPhase(Phase.AUTHENTICATION);
 
 		LooseCannon.heel();
 
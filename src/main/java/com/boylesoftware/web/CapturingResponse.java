@@ -0,0 +1,610 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web;
+
+import java.io.ByteArrayOutputStream;
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+
+/**
+ * Response wrapper used by the request elected to produce a response for the
+ * {@link ResponseCache}. The wrapper passes everything to the wrapped
+ * response and at the same time captures the response body. When the
+ * response is complete, it is put in the cache if it is a successful response
+ * that does not set any cookies. If the request is processed asynchronously,
+ * the wrapper is registered with the asynchronous context as a listener to
+ * find out when the response is complete.
+ *
+ * @author Lev Himmelfarb
+ */
+class CapturingResponse
+	extends HttpServletResponseWrapper
+	implements AsyncListener {
+
+	/**
+	 * Names of the response headers that are not cached, in lower case.
+	 */
+	private static final String[] UNCACHED_HEADERS = {
+		"content-type", "content-length", "content-language", "date",
+		"transfer-encoding", "connection", "set-cookie"
+	};
+
+
+	/**
+	 * Output stream that captures the body.
+	 */
+	private final class CapturingOutputStream
+		extends ServletOutputStream {
+
+		/**
+		 * The wrapped output stream.
+		 */
+		private final ServletOutputStream out;
+
+
+		/**
+		 * Create new stream.
+		 *
+		 * @param out The wrapped output stream.
+		 */
+		CapturingOutputStream(final ServletOutputStream out) {
+
+			this.out = out;
+		}
+
+
+		/* (non-Javadoc)
+		 * @see java.io.OutputStream#write(int)
+		 */
+		@Override
+		public void write(final int b)
+			throws IOException {
+
+			this.out.write(b);
+			CapturingResponse.this.captureBytes(new byte[] { (byte) b }, 0,
+					1);
+		}
+
+		/* (non-Javadoc)
+		 * @see java.io.OutputStream#write(byte[], int, int)
+		 */
+		@Override
+		public void write(final byte[] b, final int off, final int len)
+			throws IOException {
+
+			this.out.write(b, off, len);
+			CapturingResponse.this.captureBytes(b, off, len);
+		}
+
+		/* (non-Javadoc)
+		 * @see java.io.OutputStream#flush()
+		 */
+		@Override
+		public void flush()
+			throws IOException {
+
+			this.out.flush();
+		}
+
+		/* (non-Javadoc)
+		 * @see java.io.OutputStream#close()
+		 */
+		@Override
+		public void close()
+			throws IOException {
+
+			this.out.close();
+		}
+
+		/* (non-Javadoc)
+		 * @see javax.servlet.ServletOutputStream#isReady()
+		 */
+		@Override
+		public boolean isReady() {
+
+			return this.out.isReady();
+		}
+
+		/* (non-Javadoc)
+		 * @see javax.servlet.ServletOutputStream#setWriteListener(javax.servlet.WriteListener)
+		 */
+		@Override
+		public void setWriteListener(final WriteListener writeListener) {
+
+			this.out.setWriteListener(writeListener);
+		}
+	}
+
+	/**
+	 * Writer that captures the body. The characters are captured as is and
+	 * encoded when the response is complete, so that the writer does not need
+	 * any buffering of its own.
+	 */
+	private final class CapturingWriter
+		extends Writer {
+
+		/**
+		 * The wrapped writer.
+		 */
+		private final PrintWriter out;
+
+
+		/**
+		 * Create new writer.
+		 *
+		 * @param out The wrapped writer.
+		 */
+		CapturingWriter(final PrintWriter out) {
+
+			this.out = out;
+		}
+
+
+		/* (non-Javadoc)
+		 * @see java.io.Writer#write(char[], int, int)
+		 */
+		@Override
+		public void write(final char[] cbuf, final int off, final int len) {
+
+			this.out.write(cbuf, off, len);
+			CapturingResponse.this.captureChars(cbuf, off, len);
+		}
+
+		/* (non-Javadoc)
+		 * @see java.io.Writer#write(java.lang.String, int, int)
+		 */
+		@Override
+		public void write(final String str, final int off, final int len) {
+
+			this.out.write(str, off, len);
+			CapturingResponse.this.captureChars(str, off, len);
+		}
+
+		/* (non-Javadoc)
+		 * @see java.io.Writer#flush()
+		 */
+		@Override
+		public void flush() {
+
+			this.out.flush();
+		}
+
+		/* (non-Javadoc)
+		 * @see java.io.Writer#close()
+		 */
+		@Override
+		public void close() {
+
+			this.out.close();
+		}
+	}
+
+
+	/**
+	 * The cache.
+	 */
+	private final ResponseCache cache;
+
+	/**
+	 * Response key.
+	 */
+	private final String key;
+
+	/**
+	 * Time to live of the response in milliseconds, or zero for the cache
+	 * default.
+	 */
+	private final long ttl;
+
+	/**
+	 * The request, for which the response is produced.
+	 */
+	private final HttpServletRequest request;
+
+	/**
+	 * Captured binary body, or {@code null} if none.
+	 */
+	private ByteArrayOutputStream bytes;
+
+	/**
+	 * Captured character body, or {@code null} if none.
+	 */
+	private CharArrayWriter chars;
+
+	/**
+	 * Capturing output stream, or {@code null} if not requested yet.
+	 */
+	private ServletOutputStream outputStream;
+
+	/**
+	 * Capturing writer, or {@code null} if not requested yet.
+	 */
+	private PrintWriter writer;
+
+	/**
+	 * Response locale, or {@code null} if not set explicitly.
+	 */
+	private Locale locale;
+
+	/**
+	 * Tells if the response cannot be cached.
+	 */
+	private boolean uncacheable;
+
+	/**
+	 * Tells if the capture is finished.
+	 */
+	private boolean finished;
+
+
+	/**
+	 * Create new wrapper.
+	 *
+	 * @param cache The cache.
+	 * @param key Response key. The request must have been elected to produce
+	 * the response with the key.
+	 * @param ttl Time to live of the response in milliseconds, or zero for the
+	 * cache default.
+	 * @param request The request, for which the response is produced.
+	 * @param response The wrapped response.
+	 */
+	CapturingResponse(final ResponseCache cache, final String key,
+			final long ttl, final HttpServletRequest request,
+			final HttpServletResponse response) {
+		super(response);
+
+		this.cache = cache;
+		this.key = key;
+		this.ttl = ttl;
+		this.request = request;
+	}
+
+
+	/**
+	 * Get the request, for which the response is produced.
+	 *
+	 * @return The request.
+	 */
+	HttpServletRequest getCapturedRequest() {
+
+		return this.request;
+	}
+
+	/**
+	 * Capture body bytes.
+	 *
+	 * @param b Buffer with the bytes.
+	 * @param off Offset of the first byte in the buffer.
+	 * @param len Number of bytes.
+	 */
+	synchronized void captureBytes(final byte[] b, final int off,
+			final int len) {
+
+		if (this.uncacheable || this.finished)
+			return;
+
+		if (this.bytes.size() + len > this.cache.getMaxBodySize()) {
+			this.uncacheable = true;
+			this.bytes = null;
+			return;
+		}
+
+		this.bytes.write(b, off, len);
+	}
+
+	/**
+	 * Capture body characters.
+	 *
+	 * @param cbuf Buffer with the characters.
+	 * @param off Offset of the first character in the buffer.
+	 * @param len Number of characters.
+	 */
+	synchronized void captureChars(final char[] cbuf, final int off,
+			final int len) {
+
+		if (this.checkCharsLength(len))
+			this.chars.write(cbuf, off, len);
+	}
+
+	/**
+	 * Capture body characters.
+	 *
+	 * @param str String with the characters.
+	 * @param off Offset of the first character in the string.
+	 * @param len Number of characters.
+	 */
+	synchronized void captureChars(final String str, final int off,
+			final int len) {
+
+		if (this.checkCharsLength(len))
+			this.chars.write(str, off, len);
+	}
+
+	/**
+	 * Check if the specified number of characters can be added to the
+	 * captured character body.
+	 *
+	 * @param len Number of characters.
+	 *
+	 * @return {@code true} if can be added.
+	 */
+	private boolean checkCharsLength(final int len) {
+
+		if (this.uncacheable || this.finished)
+			return false;
+
+		if (this.chars.size() + len > this.cache.getMaxBodySize()) {
+			this.uncacheable = true;
+			this.chars = null;
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Discard body captured so far, because the wrapped response buffer has
+	 * been cleared.
+	 */
+	private void discardCaptured() {
+
+		if (this.bytes != null)
+			this.bytes.reset();
+		if (this.chars != null)
+			this.chars.reset();
+	}
+
+	/**
+	 * Finish the capture and put the response in the cache if it can be
+	 * cached. Otherwise, release the election to produce the response.
+	 */
+	synchronized void complete() {
+
+		if (this.finished)
+			return;
+		this.finished = true;
+
+		if (this.uncacheable ||
+				(this.getStatus() != HttpServletResponse.SC_OK) ||
+				this.containsHeader("Set-Cookie")) {
+			this.cache.release(this.key);
+			return;
+		}
+
+		final byte[] body;
+		try {
+			if (this.chars != null)
+				body = this.chars.toString().getBytes(
+						this.getCharacterEncoding());
+			else if (this.bytes != null)
+				body = this.bytes.toByteArray();
+			else
+				body = new byte[0];
+		} catch (final UnsupportedEncodingException e) {
+			this.cache.release(this.key);
+			return;
+		}
+
+		final List<String> headers = new ArrayList<>();
+		for (final String name : this.getHeaderNames()) {
+			if (isCachedHeader(name))
+				for (final String value : this.getHeaders(name)) {
+					headers.add(name);
+					headers.add(value);
+				}
+		}
+
+		this.cache.put(this.key, this.getContentType(), this.locale,
+				headers.toArray(new String[headers.size()]), body, this.ttl);
+	}
+
+	/**
+	 * Finish the capture without caching the response and release the
+	 * election to produce it.
+	 */
+	synchronized void abandon() {
+
+		if (this.finished)
+			return;
+		this.finished = true;
+
+		this.cache.release(this.key);
+	}
+
+	/**
+	 * Tell if the specified response header is cached.
+	 *
+	 * @param name Header name.
+	 *
+	 * @return {@code true} if cached.
+	 */
+	private static boolean isCachedHeader(final String name) {
+
+		final String nameLC = name.toLowerCase(Locale.ENGLISH);
+		for (final String uncached : UNCACHED_HEADERS)
+			if (uncached.equals(nameLC))
+				return false;
+
+		return true;
+	}
+
+
+	/* (non-Javadoc)
+	 * @see javax.servlet.ServletResponseWrapper#getOutputStream()
+	 */
+	@Override
+	public synchronized ServletOutputStream getOutputStream()
+		throws IOException {
+
+		if (this.outputStream == null) {
+			final ServletOutputStream out = super.getOutputStream();
+			this.bytes = new ByteArrayOutputStream();
+			this.outputStream = new CapturingOutputStream(out);
+		}
+
+		return this.outputStream;
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.servlet.ServletResponseWrapper#getWriter()
+	 */
+	@Override
+	public synchronized PrintWriter getWriter()
+		throws IOException {
+
+		if (this.writer == null) {
+			final PrintWriter out = super.getWriter();
+			this.chars = new CharArrayWriter();
+			this.writer = new PrintWriter(new CapturingWriter(out));
+		}
+
+		return this.writer;
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.servlet.ServletResponseWrapper#setLocale(java.util.Locale)
+	 */
+	@Override
+	public void setLocale(final Locale loc) {
+
+		super.setLocale(loc);
+
+		this.locale = loc;
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.servlet.http.HttpServletResponseWrapper#addCookie(javax.servlet.http.Cookie)
+	 */
+	@Override
+	public synchronized void addCookie(final Cookie cookie) {
+
+		super.addCookie(cookie);
+
+		this.uncacheable = true;
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.servlet.http.HttpServletResponseWrapper#sendError(int)
+	 */
+	@Override
+	public synchronized void sendError(final int sc)
+		throws IOException {
+
+		this.uncacheable = true;
+
+		super.sendError(sc);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.servlet.http.HttpServletResponseWrapper#sendError(int, java.lang.String)
+	 */
+	@Override
+	public synchronized void sendError(final int sc, final String msg)
+		throws IOException {
+
+		this.uncacheable = true;
+
+		super.sendError(sc, msg);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.servlet.http.HttpServletResponseWrapper#sendRedirect(java.lang.String)
+	 */
+	@Override
+	public synchronized void sendRedirect(final String location)
+		throws IOException {
+
+		this.uncacheable = true;
+
+		super.sendRedirect(location);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.servlet.ServletResponseWrapper#reset()
+	 */
+	@Override
+	public synchronized void reset() {
+
+		super.reset();
+
+		this.locale = null;
+		this.discardCaptured();
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.servlet.ServletResponseWrapper#resetBuffer()
+	 */
+	@Override
+	public synchronized void resetBuffer() {
+
+		super.resetBuffer();
+
+		this.discardCaptured();
+	}
+
+
+	/* (non-Javadoc)
+	 * @see javax.servlet.AsyncListener#onComplete(javax.servlet.AsyncEvent)
+	 */
+	@Override
+	public void onComplete(final AsyncEvent event) {
+
+		this.complete();
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.servlet.AsyncListener#onTimeout(javax.servlet.AsyncEvent)
+	 */
+	@Override
+	public void onTimeout(final AsyncEvent event) {
+
+		this.abandon();
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.servlet.AsyncListener#onError(javax.servlet.AsyncEvent)
+	 */
+	@Override
+	public void onError(final AsyncEvent event) {
+
+		this.abandon();
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.servlet.AsyncListener#onStartAsync(javax.servlet.AsyncEvent)
+	 */
+	@Override
+	public void onStartAsync(final AsyncEvent event) {
+
+		// nothing
+	}
+}
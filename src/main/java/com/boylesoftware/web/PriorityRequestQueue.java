@@ -0,0 +1,599 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web;
+
+import java.util.AbstractQueue;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.boylesoftware.web.spi.Route.Priority;
+
+
+/**
+ * Bounded request processing tasks queue used by the {@link RequestScheduler}.
+ * The queue keeps a separate FIFO ring buffer for each
+ * {@link Priority request priority} and always hands out the oldest task of
+ * the highest priority available.
+ *
+ * <p>The queue sheds load instead of letting requests wait for longer than
+ * the configured maximum queue wait:
+ *
+ * <ul>
+ * <li>A task is refused if the queue is filled above the admission threshold
+ * for the task's priority. Low priority tasks are admitted only while the
+ * queue is less than half full, normal priority tasks while it is less than
+ * 80% full, and high priority tasks while it has any free space.
+ * <li>A task is refused if its projected wait, calculated from the number of
+ * queued tasks of the same or higher priority and the average task service
+ * time, exceeds the maximum queue wait.
+ * <li>An {@link AsynchronousExecutor} that has been waiting in the queue for
+ * longer than the maximum queue wait is {@link AsynchronousExecutor#reject()
+ * rejected} when it is taken from the queue instead of being handed to a
+ * thread.
+ * </ul>
+ *
+ * @author Lev Himmelfarb
+ */
+class PriorityRequestQueue
+	extends AbstractQueue<Runnable>
+	implements BlockingQueue<Runnable> {
+
+	/**
+	 * Admission thresholds in percents of the queue capacity, indexed by the
+	 * priority ordinal.
+	 */
+	private static final int[] ADMISSION_THRESHOLDS = { 100, 80, 50 };
+
+	/**
+	 * Number of priorities.
+	 */
+	private static final int NUM_PRIORITIES = Priority.values().length;
+
+
+	/**
+	 * Queue capacity.
+	 */
+	private final int capacity;
+
+	/**
+	 * Maximum queue wait in nanoseconds.
+	 */
+	private final long maxQueueWait;
+
+	/**
+	 * Number of threads processing the tasks.
+	 */
+	private final int numThreads;
+
+	/**
+	 * Maximum number of queued tasks at which a task is still admitted,
+	 * indexed by the priority ordinal.
+	 */
+	private final int[] admissionLimits;
+
+	/**
+	 * Ring buffers with the queued tasks, indexed by the priority ordinal.
+	 */
+	private final Runnable[][] tasks;
+
+	/**
+	 * Ring buffers with the tasks enqueue times, indexed by the priority
+	 * ordinal.
+	 */
+	private final long[][] enqueueTimes;
+
+	/**
+	 * Ring buffer heads, indexed by the priority ordinal.
+	 */
+	private final int[] heads;
+
+	/**
+	 * Numbers of queued tasks, indexed by the priority ordinal.
+	 */
+	private final int[] counts;
+
+	/**
+	 * Total number of queued tasks.
+	 */
+	private int count;
+
+	/**
+	 * Enqueue time of the task last removed from the queue.
+	 */
+	private long lastEnqueueTime;
+
+	/**
+	 * Main lock guarding all access.
+	 */
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/**
+	 * Condition for waiting takes.
+	 */
+	private final Condition notEmpty = this.lock.newCondition();
+
+	/**
+	 * Condition for waiting puts.
+	 */
+	private final Condition notFull = this.lock.newCondition();
+
+	/**
+	 * Exponentially weighted moving average of the task service time in
+	 * nanoseconds. Updated without synchronization, occasionally losing a
+	 * sample is harmless.
+	 */
+	private volatile long avgServiceTime;
+
+
+	/**
+	 * Create new queue.
+	 *
+	 * @param capacity Queue capacity.
+	 * @param maxQueueWait Maximum queue wait in milliseconds.
+	 * @param numThreads Number of threads processing the tasks.
+	 */
+	PriorityRequestQueue(final int capacity, final long maxQueueWait,
+			final int numThreads) {
+
+		if ((capacity <= 0) || (maxQueueWait <= 0) || (numThreads <= 0))
+			throw new IllegalArgumentException();
+
+		this.capacity = capacity;
+		this.maxQueueWait = TimeUnit.MILLISECONDS.toNanos(maxQueueWait);
+		this.numThreads = numThreads;
+
+		this.admissionLimits = new int[NUM_PRIORITIES];
+		this.tasks = new Runnable[NUM_PRIORITIES][];
+		this.enqueueTimes = new long[NUM_PRIORITIES][];
+		for (int i = 0; i < NUM_PRIORITIES; i++) {
+			this.admissionLimits[i] =
+				Math.max(1, (int) ((long) capacity *
+						ADMISSION_THRESHOLDS[i] / 100));
+			this.tasks[i] = new Runnable[capacity];
+			this.enqueueTimes[i] = new long[capacity];
+		}
+		this.heads = new int[NUM_PRIORITIES];
+		this.counts = new int[NUM_PRIORITIES];
+	}
+
+
+	/**
+	 * Record the time it took to service a task.
+	 *
+	 * @param serviceTime The service time in nanoseconds.
+	 */
+	void recordServiceTime(final long serviceTime) {
+
+		final long avg = this.avgServiceTime;
+		this.avgServiceTime =
+			(avg == 0 ? serviceTime : avg + ((serviceTime - avg) >> 3));
+	}
+
+	/**
+	 * Get average task service time.
+	 *
+	 * @return Average task service time in nanoseconds.
+	 */
+	long getAvgServiceTime() {
+
+		return this.avgServiceTime;
+	}
+
+	/**
+	 * Get priority of the specified task.
+	 *
+	 * @param task The task.
+	 *
+	 * @return Priority ordinal.
+	 */
+	private static int getPriority(final Runnable task) {
+
+		return (task instanceof AsynchronousExecutor ?
+				((AsynchronousExecutor) task).getPriority() :
+					Priority.NORMAL).ordinal();
+	}
+
+	/**
+	 * Tell if the specified task can be admitted. Must be called under the
+	 * lock.
+	 *
+	 * @param p Task priority ordinal.
+	 *
+	 * @return {@code true} if can be admitted.
+	 */
+	private boolean canAdmit(final int p) {
+
+		if (this.count >= this.admissionLimits[p])
+			return false;
+
+		int numAhead = 0;
+		for (int i = 0; i <= p; i++)
+			numAhead += this.counts[i];
+
+		return (numAhead * this.avgServiceTime / this.numThreads <=
+				this.maxQueueWait);
+	}
+
+	/**
+	 * Add task to the queue. Must be called under the lock and only if the
+	 * task can be admitted.
+	 *
+	 * @param task The task.
+	 * @param p Task priority ordinal.
+	 */
+	private void enqueue(final Runnable task, final int p) {
+
+		final int ind = (this.heads[p] + this.counts[p]) % this.capacity;
+		this.tasks[p][ind] = task;
+		this.enqueueTimes[p][ind] = System.nanoTime();
+		this.counts[p]++;
+		this.count++;
+
+		this.notEmpty.signal();
+	}
+
+	/**
+	 * Remove the oldest task of the highest available priority from the queue
+	 * and save its enqueue time in {@link #lastEnqueueTime}. Must be called
+	 * under the lock and only if the queue is not empty.
+	 *
+	 * @return The task.
+	 */
+	private Runnable dequeue() {
+
+		int p = 0;
+		while (this.counts[p] == 0)
+			p++;
+
+		final int ind = this.heads[p];
+		final Runnable task = this.tasks[p][ind];
+		this.tasks[p][ind] = null;
+		this.lastEnqueueTime = this.enqueueTimes[p][ind];
+		this.heads[p] = (ind + 1) % this.capacity;
+		this.counts[p]--;
+		this.count--;
+
+		this.notFull.signal();
+
+		return task;
+	}
+
+	/**
+	 * Tell if the task last removed from the queue has been waiting for too
+	 * long and must be rejected. Must be called under the lock.
+	 *
+	 * @param task The task.
+	 *
+	 * @return {@code true} if the task must be rejected.
+	 */
+	private boolean isExpired(final Runnable task) {
+
+		return ((task instanceof AsynchronousExecutor) &&
+				(System.nanoTime() - this.lastEnqueueTime > this.maxQueueWait));
+	}
+
+	/**
+	 * Reject expired task. Must be called outside the lock.
+	 *
+	 * @param task The task.
+	 */
+	private static void reject(final Runnable task) {
+
+		((AsynchronousExecutor) task).reject();
+	}
+
+
+	/* (non-Javadoc)
+	 * @see java.util.Queue#offer(java.lang.Object)
+	 */
+	@Override
+	public boolean offer(final Runnable task) {
+
+		if (task == null)
+			throw new NullPointerException();
+
+		final int p = getPriority(task);
+
+		final ReentrantLock lock = this.lock;
+		lock.lock();
+		try {
+			if (!this.canAdmit(p))
+				return false;
+			this.enqueue(task, p);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.BlockingQueue#offer(java.lang.Object, long, java.util.concurrent.TimeUnit)
+	 */
+	@Override
+	public boolean offer(final Runnable task, final long timeout,
+			final TimeUnit unit)
+		throws InterruptedException {
+
+		if (task == null)
+			throw new NullPointerException();
+
+		final int p = getPriority(task);
+
+		long nanos = unit.toNanos(timeout);
+		final ReentrantLock lock = this.lock;
+		lock.lockInterruptibly();
+		try {
+			while (!this.canAdmit(p)) {
+				if (nanos <= 0)
+					return false;
+				nanos = this.notFull.awaitNanos(nanos);
+			}
+			this.enqueue(task, p);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.BlockingQueue#put(java.lang.Object)
+	 */
+	@Override
+	public void put(final Runnable task)
+		throws InterruptedException {
+
+		if (task == null)
+			throw new NullPointerException();
+
+		final int p = getPriority(task);
+
+		final ReentrantLock lock = this.lock;
+		lock.lockInterruptibly();
+		try {
+			while (!this.canAdmit(p))
+				this.notFull.await();
+			this.enqueue(task, p);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.Queue#poll()
+	 */
+	@Override
+	public Runnable poll() {
+
+		final ReentrantLock lock = this.lock;
+		for (;;) {
+			final Runnable task;
+			lock.lock();
+			try {
+				if (this.count == 0)
+					return null;
+				task = this.dequeue();
+				if (!this.isExpired(task))
+					return task;
+			} finally {
+				lock.unlock();
+			}
+			reject(task);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.BlockingQueue#poll(long, java.util.concurrent.TimeUnit)
+	 */
+	@Override
+	public Runnable poll(final long timeout, final TimeUnit unit)
+		throws InterruptedException {
+
+		long nanos = unit.toNanos(timeout);
+		final ReentrantLock lock = this.lock;
+		for (;;) {
+			final Runnable task;
+			lock.lockInterruptibly();
+			try {
+				while (this.count == 0) {
+					if (nanos <= 0)
+						return null;
+					nanos = this.notEmpty.awaitNanos(nanos);
+				}
+				task = this.dequeue();
+				if (!this.isExpired(task))
+					return task;
+			} finally {
+				lock.unlock();
+			}
+			reject(task);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.BlockingQueue#take()
+	 */
+	@Override
+	public Runnable take()
+		throws InterruptedException {
+
+		final ReentrantLock lock = this.lock;
+		for (;;) {
+			final Runnable task;
+			lock.lockInterruptibly();
+			try {
+				while (this.count == 0)
+					this.notEmpty.await();
+				task = this.dequeue();
+				if (!this.isExpired(task))
+					return task;
+			} finally {
+				lock.unlock();
+			}
+			reject(task);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.Queue#peek()
+	 */
+	@Override
+	public Runnable peek() {
+
+		final ReentrantLock lock = this.lock;
+		lock.lock();
+		try {
+			for (int p = 0; p < NUM_PRIORITIES; p++)
+				if (this.counts[p] > 0)
+					return this.tasks[p][this.heads[p]];
+			return null;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.AbstractCollection#remove(java.lang.Object)
+	 */
+	@Override
+	public boolean remove(final Object o) {
+
+		if (o == null)
+			return false;
+
+		final ReentrantLock lock = this.lock;
+		lock.lock();
+		try {
+			for (int p = 0; p < NUM_PRIORITIES; p++) {
+				final Runnable[] pTasks = this.tasks[p];
+				final long[] pTimes = this.enqueueTimes[p];
+				final int head = this.heads[p];
+				final int pCount = this.counts[p];
+				for (int i = 0; i < pCount; i++) {
+					int ind = (head + i) % this.capacity;
+					if (!o.equals(pTasks[ind]))
+						continue;
+					for (int j = i + 1; j < pCount; j++) {
+						final int nextInd = (head + j) % this.capacity;
+						pTasks[ind] = pTasks[nextInd];
+						pTimes[ind] = pTimes[nextInd];
+						ind = nextInd;
+					}
+					pTasks[ind] = null;
+					this.counts[p]--;
+					this.count--;
+					this.notFull.signal();
+					return true;
+				}
+			}
+			return false;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.AbstractCollection#size()
+	 */
+	@Override
+	public int size() {
+
+		final ReentrantLock lock = this.lock;
+		lock.lock();
+		try {
+			return this.count;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.BlockingQueue#remainingCapacity()
+	 */
+	@Override
+	public int remainingCapacity() {
+
+		final ReentrantLock lock = this.lock;
+		lock.lock();
+		try {
+			return this.capacity - this.count;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.BlockingQueue#drainTo(java.util.Collection)
+	 */
+	@Override
+	public int drainTo(final Collection<? super Runnable> c) {
+
+		return this.drainTo(c, Integer.MAX_VALUE);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.BlockingQueue#drainTo(java.util.Collection, int)
+	 */
+	@Override
+	public int drainTo(final Collection<? super Runnable> c,
+			final int maxElements) {
+
+		if (c == null)
+			throw new NullPointerException();
+		if (c == this)
+			throw new IllegalArgumentException();
+
+		final ReentrantLock lock = this.lock;
+		lock.lock();
+		try {
+			int n = 0;
+			while ((n < maxElements) && (this.count > 0)) {
+				c.add(this.dequeue());
+				n++;
+			}
+			return n;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.AbstractCollection#iterator()
+	 */
+	@Override
+	public Iterator<Runnable> iterator() {
+
+		final Runnable[] snapshot;
+		final ReentrantLock lock = this.lock;
+		lock.lock();
+		try {
+			snapshot = new Runnable[this.count];
+			int n = 0;
+			for (int p = 0; p < NUM_PRIORITIES; p++)
+				for (int i = 0; i < this.counts[p]; i++)
+					snapshot[n++] =
+						this.tasks[p][(this.heads[p] + i) % this.capacity];
+		} finally {
+			lock.unlock();
+		}
+
+		return Arrays.asList(snapshot).iterator();
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+import com.boylesoftware.web.spi.QueryResultsCache;
+
+
+/**
+ * JPA entity listener that tracks classes of the entities changed by the
+ * request processing transaction, so that the framework can invalidate the
+ * affected results in the {@link QueryResultsCache} once the transaction is
+ * committed. For the invalidation to work, the listener must be registered
+ * with the entities, whose query results are cached. The easiest way to do it
+ * is to register it as a default entity listener in the persistence unit's
+ * {@code orm.xml}:
+ *
+ * <pre>
+ * &lt;persistence-unit-metadata&gt;
+ *   &lt;persistence-unit-defaults&gt;
+ *     &lt;entity-listeners&gt;
+ *       &lt;entity-listener
+ *         class="com.boylesoftware.web.QueryResultsCacheListener"/&gt;
+ *     &lt;/entity-listeners&gt;
+ *   &lt;/persistence-unit-defaults&gt;
+ * &lt;/persistence-unit-metadata&gt;
+ * </pre>
+ *
+ * <p>Changes made outside of the request processing transactions are not
+ * tracked. The application needs to invalidate the affected results itself
+ * using the cache returned by
+ * {@link ApplicationServices#getQueryResultsCache()}.
+ *
+ * @author Lev Himmelfarb
+ */
+public class QueryResultsCacheListener {
+
+	/**
+	 * Classes of the entities changed by the transaction executed in the
+	 * current thread, or {@code null} if not tracked.
+	 */
+	private static final ThreadLocal<Set<Class<?>>> CHANGED_CLASSES =
+		new ThreadLocal<>();
+
+
+	/**
+	 * Start tracking changed entities in the current thread. Called by the
+	 * framework when a request processing transaction begins.
+	 */
+	static void beginTracking() {
+
+		CHANGED_CLASSES.set(new HashSet<Class<?>>());
+	}
+
+	/**
+	 * Stop tracking changed entities in the current thread. Called by the
+	 * framework when a request processing transaction ends.
+	 *
+	 * @return Classes of the entities changed since tracking began.
+	 */
+	static Collection<Class<?>> endTracking() {
+
+		final Set<Class<?>> changedClasses = CHANGED_CLASSES.get();
+		CHANGED_CLASSES.remove();
+
+		return (changedClasses != null ? changedClasses :
+			Collections.<Class<?>>emptySet());
+	}
+
+
+	/**
+	 * Register entity change.
+	 *
+	 * @param entity The persisted, updated or removed entity.
+	 */
+	@PostPersist
+	@PostUpdate
+	@PostRemove
+	public void entityChanged(final Object entity) {
+
+		final Set<Class<?>> changedClasses = CHANGED_CLASSES.get();
+		if (changedClasses != null)
+			changedClasses.add(entity.getClass());
+	}
+}
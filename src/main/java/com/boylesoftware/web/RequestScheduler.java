@@ -0,0 +1,116 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Fixed size thread pool for asynchronous request processing that uses a
+ * bounded {@link PriorityRequestQueue}. When the queue refuses a task, the
+ * scheduler throws a {@link java.util.concurrent.RejectedExecutionException},
+ * which makes the {@link AsynchronousExecutor} fail the request with a
+ * {@link ServiceUnavailableException} right away instead of letting it wait
+ * until the asynchronous processing times out.
+ *
+ * @author Lev Himmelfarb
+ */
+class RequestScheduler
+	extends ThreadPoolExecutor {
+
+	/**
+	 * The queue.
+	 */
+	private final PriorityRequestQueue queue;
+
+	/**
+	 * Start times of the tasks being executed by the threads.
+	 */
+	private final ThreadLocal<long[]> startTimes = new ThreadLocal<long[]>() {
+
+		@Override
+		protected long[] initialValue() {
+
+			return new long[1];
+		}
+	};
+
+
+	/**
+	 * Create new scheduler.
+	 *
+	 * @param numThreads Number of threads.
+	 * @param queueCapacity Queue capacity.
+	 * @param maxQueueWait Maximum time in milliseconds a request may wait in
+	 * the queue.
+	 * @param threadFactory Thread factory.
+	 */
+	RequestScheduler(final int numThreads, final int queueCapacity,
+			final long maxQueueWait, final ThreadFactory threadFactory) {
+		this(numThreads, new PriorityRequestQueue(queueCapacity, maxQueueWait,
+				numThreads), threadFactory);
+	}
+
+	/**
+	 * Create new scheduler.
+	 *
+	 * @param numThreads Number of threads.
+	 * @param queue The queue.
+	 * @param threadFactory Thread factory.
+	 */
+	private RequestScheduler(final int numThreads,
+			final PriorityRequestQueue queue,
+			final ThreadFactory threadFactory) {
+		super(numThreads, numThreads, 0L, TimeUnit.MILLISECONDS, queue,
+				threadFactory);
+
+		this.queue = queue;
+	}
+
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.ThreadPoolExecutor#beforeExecute(java.lang.Thread, java.lang.Runnable)
+	 */
+	@Override
+	protected void beforeExecute(final Thread t, final Runnable r) {
+
+		this.startTimes.get()[0] = System.nanoTime();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.ThreadPoolExecutor#afterExecute(java.lang.Runnable, java.lang.Throwable)
+	 */
+	@Override
+	protected void afterExecute(final Runnable r, final Throwable t) {
+
+		this.queue.recordServiceTime(
+				System.nanoTime() - this.startTimes.get()[0]);
+	}
+
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.ThreadPoolExecutor#toString()
+	 */
+	@Override
+	public String toString() {
+
+		return super.toString() + "[avg service time = " +
+				TimeUnit.NANOSECONDS.toMillis(this.queue.getAvgServiceTime()) +
+				" ms]";
+	}
+}
@@ -16,19 +16,31 @@
 package com.boylesoftware.web;
 
 import java.io.IOException;
+import java.util.Collection;
 
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 import javax.persistence.EntityTransaction;
+import javax.persistence.FlushModeType;
+import javax.persistence.NoResultException;
+import javax.persistence.NonUniqueResultException;
+import javax.persistence.PersistenceException;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletResponse;
 
+import com.boylesoftware.web.api.Attributes;
 import com.boylesoftware.web.spi.ControllerHandler;
 import com.boylesoftware.web.spi.ControllerMethodHandler;
+import com.boylesoftware.web.spi.QueryResultsCache;
+import com.boylesoftware.web.spi.RequestMetrics;
+import com.boylesoftware.web.spi.RequestMetrics.Phase;
 import com.boylesoftware.web.spi.Route;
+import com.boylesoftware.web.spi.Route.SecurityMode;
 import com.boylesoftware.web.spi.RouterRequest;
 import com.boylesoftware.web.spi.Script;
 import com.boylesoftware.web.spi.ViewHandler;
 import com.boylesoftware.web.util.LooseCannon;
+import com.boylesoftware.web.util.pool.ConcurrentFastPool;
 import com.boylesoftware.web.util.pool.FastPool;
 import com.boylesoftware.web.util.pool.PoolableObjectFactory;
 
@@ -45,16 +57,17 @@ class RequestTransactionExecutor
 	 * The instance pool.
 	 */
 	private static final FastPool<RequestTransactionExecutor> POOL =
-		new FastPool<>(new PoolableObjectFactory<RequestTransactionExecutor>() {
+		new ConcurrentFastPool<>(
+				new PoolableObjectFactory<RequestTransactionExecutor>() {
 
-			@Override
-			public RequestTransactionExecutor makeNew(
-					final FastPool<RequestTransactionExecutor> pool,
-					final int pooledObjectId) {
+					@Override
+					public RequestTransactionExecutor makeNew(
+							final FastPool<RequestTransactionExecutor> pool,
+							final int pooledObjectId) {
 
-				return new RequestTransactionExecutor(pooledObjectId);
-			}
-		}, "RequestTransactionExecutorsPool");
+						return new RequestTransactionExecutor(pooledObjectId);
+					}
+				}, "RequestTransactionExecutorsPool");
 
 	/**
 	 * Get executor instance from the internal pool. The instance must be
@@ -69,12 +82,14 @@ class RequestTransactionExecutor
 
 
 	/**
-	 * Finisher used to send redirect responses.
+	 * Finisher used to send redirect responses, or the 304 (Not Modified)
+	 * response if no redirection target is set.
 	 */
 	private static final class RedirectFinisher {
 
 		/**
-		 * Redirection target URL.
+		 * Redirection target URL, or {@code null} for the 304 (Not Modified)
+		 * response.
 		 */
 		private String location;
 
@@ -88,7 +103,8 @@ class RequestTransactionExecutor
 		/**
 		 * Set redirection target URL.
 		 *
-		 * @param location Target URL.
+		 * @param location Target URL, or {@code null} for the 304 (Not
+		 * Modified) response.
 		 */
 		void setLocation(final String location) {
 
@@ -104,8 +120,12 @@ class RequestTransactionExecutor
 
 			final HttpServletResponse response =
 				(HttpServletResponse) executor.asyncContext.getResponse();
-			response.setStatus(HttpServletResponse.SC_SEE_OTHER);
-			response.setHeader("Location", this.location);
+			if (this.location != null) {
+				response.setStatus(HttpServletResponse.SC_SEE_OTHER);
+				response.setHeader("Location", this.location);
+			} else {
+				response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			}
 
 			LooseCannon.heel();
 
@@ -212,6 +232,24 @@ class RequestTransactionExecutor
 	 */
 	private Script viewScript;
 
+	/**
+	 * Tells if the request can be processed without a transaction because
+	 * nothing in its processing modifies persistent data.
+	 */
+	private boolean readOnly;
+
+	/**
+	 * Tells if the entity manager used to process the request was created by
+	 * the read entity manager factory.
+	 */
+	private boolean readEm;
+
+	/**
+	 * Tells if the executor needs to lookup the authenticated user before
+	 * processing the request.
+	 */
+	private boolean authenticate;
+
 
 	/**
 	 * Create new executor. This constructor is for internal use only. Use
@@ -240,6 +278,51 @@ class RequestTransactionExecutor
 			final RouterRequest request)
 		throws ServletException, IOException {
 
+		// prepare request processing
+		if (!this.prepareRequest(request)) {
+			this.initMetrics(webapp, request);
+			this.sendViewWithoutTransaction(request);
+			return false;
+		}
+
+		// need transaction, start asynchronous processing
+		this.init(webapp, request);
+
+		// need transaction
+		return true;
+	}
+
+	/**
+	 * Prepare for asynchronous request processing that starts with the
+	 * authenticated user lookup. The user lookup and the request processing
+	 * transaction share the same entity manager and the executor dispatches
+	 * the request back to the container only to send the view.
+	 *
+	 * @param webapp The application.
+	 * @param request The request.
+	 */
+	void prepareAuthenticated(final AbstractWebApplication webapp,
+			final RouterRequest request) {
+
+		this.authenticate = true;
+
+		this.init(webapp, request);
+	}
+
+	/**
+	 * Retrieve objects needed for the request processing and prepare user
+	 * input.
+	 *
+	 * @param request The request.
+	 *
+	 * @return {@code true} if needs transaction, {@code false} if the view can
+	 * be sent right away.
+	 *
+	 * @throws ServletException If an error happens.
+	 */
+	private boolean prepareRequest(final RouterRequest request)
+		throws ServletException {
+
 		final boolean debug = this.log.isDebugEnabled();
 
 		// retrieve objects that we'll need for request processing
@@ -260,31 +343,122 @@ class RequestTransactionExecutor
 		this.hasViewPrep = (this.controllerHandler != null ?
 				this.controllerHandler.hasPrepareView(request) : false);
 
-		// no need for transaction?
-		if ((this.routeScript == null) && (this.viewScript == null) &&
-				!this.hasViewPrep &&
-				(!this.userInputValid || (this.methodHandler == null))) {
-			if (debug)
-				this.log.debug("no need for transaction, sending the view");
+		// only reads persistent data?
+		this.readOnly = isReadOnly(request, this.userInputValid);
 
-			RouterRequestLifecycle.complete(request);
+		// no need for transaction?
+		return ((this.routeScript != null) || (this.viewScript != null) ||
+				this.hasViewPrep ||
+				(this.userInputValid && (this.methodHandler != null)));
+	}
 
-			if (!this.userInputValid)
-				request.getResponse().setStatus(
-						HttpServletResponse.SC_BAD_REQUEST);
+	/**
+	 * Tell if processing of the request only reads persistent data. Route
+	 * scripts never modify anything, so only the route's read-only flag and
+	 * the controller methods matter.
+	 *
+	 * @param request The request.
+	 * @param methodCalled {@code false} if the controller method is not going
+	 * to be called, because the user input is invalid.
+	 *
+	 * @return {@code true} if read-only.
+	 *
+	 * @throws ServletException If an error happens.
+	 */
+	private static boolean isReadOnly(final RouterRequest request,
+			final boolean methodCalled)
+		throws ServletException {
+
+		final Route route = request.getRoute();
+		if (route.isReadOnly())
+			return true;
+
+		final ControllerMethodHandler methodHandler =
+			request.getControllerMethodHandler();
+		if (methodCalled && (methodHandler != null) &&
+				!methodHandler.isReadOnly())
+			return false;
 
-			LooseCannon.heel();
+		final ControllerHandler controllerHandler =
+			route.getControllerHandler();
 
-			viewHandler.sendView(request);
+		return ((controllerHandler == null) ||
+				!controllerHandler.hasPrepareView(request) ||
+				controllerHandler.prepareViewIsReadOnly());
+	}
 
-			return false;
+	/**
+	 * Create entity manager for processing the request. Read-only requests
+	 * may get an entity manager for the read persistence unit, in which case
+	 * the {@link #readEm} flag is set.
+	 *
+	 * @param readOnly {@code true} if processing of the request only reads
+	 * persistent data.
+	 *
+	 * @return The entity manager.
+	 */
+	private EntityManager createEntityManager(final boolean readOnly) {
+
+		final EntityManagerFactory primaryEmf =
+			this.webapp.getEntityManagerFactory();
+		final EntityManagerFactory emf =
+			this.webapp.getEntityManagerFactory(this.routerReq, readOnly);
+		if (emf != primaryEmf) {
+			if (this.log.isDebugEnabled())
+				this.log.debug("using read persistence unit");
+			try {
+				final EntityManager em = emf.createEntityManager();
+				this.readEm = true;
+				return em;
+			} catch (final PersistenceException e) {
+				this.webapp.readEntityManagerFactoryFailed(e);
+			}
 		}
 
-		// need transaction, start asynchronous processing
-		this.init(webapp, request);
+		this.readEm = false;
 
-		// need transaction
-		return true;
+		return primaryEmf.createEntityManager();
+	}
+
+	/**
+	 * Check if a persistence error indicates a problem with the read
+	 * persistence unit and if so, make the read-only requests fall back to the
+	 * primary persistence unit for a while.
+	 *
+	 * @param e The error.
+	 */
+	private void checkReadEmError(final PersistenceException e) {
+
+		if (this.readEm && !(e instanceof NoResultException) &&
+				!(e instanceof NonUniqueResultException))
+			this.webapp.readEntityManagerFactoryFailed(e);
+	}
+
+	/**
+	 * Send the view for a request that does not need transaction.
+	 *
+	 * @param request The request.
+	 *
+	 * @throws ServletException If an error happens.
+	 * @throws IOException If an I/O error happens sending the response.
+	 */
+	private void sendViewWithoutTransaction(final RouterRequest request)
+		throws ServletException, IOException {
+
+		if (this.log.isDebugEnabled())
+			this.log.debug("no need for transaction, sending the view");
+
+		RouterRequestLifecycle.complete(request);
+
+		if (!this.userInputValid)
+			request.getResponse().setStatus(
+					HttpServletResponse.SC_BAD_REQUEST);
+
+		LooseCannon.heel();
+
+		this.startPhase();
+		this.route.getViewHandler().sendView(request);
+		this.endPhase(Phase.SEND_VIEW);
 	}
 
 	/* (non-Javadoc)
@@ -301,6 +475,9 @@ class RequestTransactionExecutor
 		this.controllerHandler = null;
 		this.methodHandler = null;
 		this.viewScript = null;
+		this.readOnly = false;
+		this.readEm = false;
+		this.authenticate = false;
 	}
 
 	/* (non-Javadoc)
@@ -310,6 +487,88 @@ class RequestTransactionExecutor
 	protected void execute()
 		throws RequestedResourceException, ServletException, IOException {
 
+		if (this.authenticate)
+			this.executeAuthenticated();
+		else
+			this.executeTransaction(null);
+	}
+
+	/**
+	 * Lookup the authenticated user and process the request sharing the same
+	 * entity manager. The user lookup always uses the primary persistence
+	 * unit, so that it sees the latest user records, and so does the rest of
+	 * the request processing.
+	 *
+	 * @throws RequestedResourceException If controller throws it.
+	 * @throws ServletException If an error happens.
+	 * @throws IOException If an I/O error happens sending the response.
+	 */
+	private void executeAuthenticated()
+		throws RequestedResourceException, ServletException, IOException {
+
+		final boolean debug = this.log.isDebugEnabled();
+
+		if (debug)
+			this.log.debug("creating entity manager for authenticated user" +
+					" lookup");
+		final EntityManager em = this.createEntityManager(false);
+		try {
+
+			// get authenticated user
+			this.startPhase();
+			final Object authedUser = this.webapp.getAuthenticationService()
+				.getAuthenticatedUser(this.routerReq, em);
+			this.endPhase(Phase.AUTHENTICATION);
+			LooseCannon.heel();
+			this.checkTimeout();
+
+			// check if route requires authenticated user
+			if (authedUser != null) {
+				this.routerReq.setAttribute(Attributes.AUTHED_USER,
+						authedUser);
+			} else if ((this.routerReq.getRoute().getSecurityMode() ==
+								SecurityMode.FORCE_REQUIRE_AUTH) ||
+							this.routerReq.isAuthenticationRequired()) {
+				if (debug)
+					this.log.debug("authenticated user required, dispatching" +
+							" back to the router");
+				Router.setAuthenticatedUser(this.routerReq, null);
+				this.asyncContext.dispatch();
+				return;
+			}
+
+			// prepare request processing
+			if (!this.prepareRequest(this.routerReq)) {
+				this.sendViewWithoutTransaction(this.routerReq);
+				return;
+			}
+
+			// process the request
+			this.executeTransaction(em);
+
+		} catch (final PersistenceException e) {
+			this.checkReadEmError(e);
+			throw e;
+		} finally {
+			if (debug)
+				this.log.debug("closing entity manager");
+			em.close();
+		}
+	}
+
+	/**
+	 * Process the request.
+	 *
+	 * @param sharedEm Entity manager to use if needed, or {@code null} to
+	 * create a new one.
+	 *
+	 * @throws RequestedResourceException If controller throws it.
+	 * @throws ServletException If an error happens.
+	 * @throws IOException If an I/O error happens sending the response.
+	 */
+	private void executeTransaction(final EntityManager sharedEm)
+		throws RequestedResourceException, ServletException, IOException {
+
 		final boolean debug = this.log.isDebugEnabled();
 
 		// flag telling whether to send the view or not
@@ -327,7 +586,9 @@ class RequestTransactionExecutor
 						" no need for transaction");
 
 			// call the controller
+			this.startPhase();
 			sendView = this.callController(null);
+			this.endPhase(Phase.CONTROLLER);
 
 			// perform user cache evictions
 			this.webapp.getAuthenticationService().performCacheEvictions(
@@ -337,86 +598,116 @@ class RequestTransactionExecutor
 
 			// call controller's prepare view method
 			if (sendView && this.hasViewPrep) {
+				this.startPhase();
 				this.controllerHandler.prepareView(this.routerReq, null);
+				this.endPhase(Phase.PREPARE_VIEW);
 				LooseCannon.heel();
 				this.checkTimeout();
 			}
 
 		} else { // needs transaction
 
-			if (debug)
-				this.log.debug("creating entity manager");
-			final EntityManager em =
-				this.webapp.getEntityManagerFactory().createEntityManager();
+			final EntityManager em;
+			if (sharedEm != null) {
+				em = sharedEm;
+			} else {
+				if (debug)
+					this.log.debug("creating entity manager");
+				em = this.createEntityManager(this.readOnly);
+			}
 			try {
 
-				// start transaction
-				final EntityTransaction tx = em.getTransaction();
-				if (debug)
-					this.log.debug("begin transaction");
-				tx.begin();
-				boolean success = false;
-				try {
+				if (this.readOnly) {
+
+					// read-only, process without transaction
+					if (debug)
+						this.log.debug("read-only request, no transaction");
+					em.setFlushMode(FlushModeType.COMMIT);
+					this.checkTimeout();
+					sendView = this.executeLogic(em);
+					this.webapp.getAuthenticationService()
+						.performCacheEvictions(this.routerReq);
+					LooseCannon.heel();
 					this.checkTimeout();
 
-					// execute script associated with the mapping
-					if (this.routeScript != null) {
-						this.routeScript.execute(this.routerReq, em);
-						LooseCannon.heel();
+				} else {
+
+					// start transaction
+					final EntityTransaction tx = em.getTransaction();
+					if (debug)
+						this.log.debug("begin transaction");
+					final QueryResultsCache queryResultsCache =
+						this.webapp.getQueryResultsCache();
+					if (queryResultsCache != null)
+						QueryResultsCacheListener.beginTracking();
+					tx.begin();
+					boolean success = false;
+					try {
 						this.checkTimeout();
-					}
-
-					// call the controller
-					sendView = this.callController(em);
-
-					// prepare the view
-					if (sendView) {
 
-						// call the view's script
-						if (this.viewScript != null) {
-							this.viewScript.execute(this.routerReq, em);
+						// process the request
+						sendView = this.executeLogic(em);
+
+						// transaction successful
+						success = true;
+
+					} finally {
+						if (success) {
+							if (debug)
+								this.log.debug("commit transaction");
+							this.startPhase();
+							final Collection<Class<?>> changedClasses;
+							try {
+								tx.commit();
+							} finally {
+								changedClasses = (queryResultsCache != null ?
+									QueryResultsCacheListener.endTracking() :
+										null);
+							}
+							this.endPhase(Phase.COMMIT);
+							if (changedClasses != null) {
+								if (debug && !changedClasses.isEmpty())
+									this.log.debug("invalidating cached" +
+											" query results for " +
+											changedClasses);
+								queryResultsCache.invalidate(changedClasses);
+							}
+							this.webapp.getAuthenticationService()
+								.performCacheEvictions(this.routerReq);
 							LooseCannon.heel();
 							this.checkTimeout();
-						}
-
-						// call controller's prepare view method
-						if (this.hasViewPrep) {
-							this.controllerHandler.prepareView(this.routerReq,
-									em);
+						} else {
+							// nothing to invalidate: requests that run a
+							// transaction do not use the query results cache
+							if (queryResultsCache != null)
+								QueryResultsCacheListener.endTracking();
+							if (debug)
+								this.log.debug("rollback transaction");
+							tx.rollback();
 							LooseCannon.heel();
-							this.checkTimeout();
 						}
 					}
-
-					// transaction successful
-					success = true;
-
-				} finally {
-					if (success) {
-						if (debug)
-							this.log.debug("commit transaction");
-						tx.commit();
-						this.webapp.getAuthenticationService()
-							.performCacheEvictions(this.routerReq);
-						LooseCannon.heel();
-						this.checkTimeout();
-					} else {
-						if (debug)
-							this.log.debug("rollback transaction");
-						tx.rollback();
-						LooseCannon.heel();
-					}
 				}
 
+			} catch (final PersistenceException e) {
+				if (sharedEm == null)
+					this.checkReadEmError(e);
+				throw e;
 			} finally {
-				if (debug)
-					this.log.debug("closing entity manager");
-				em.close();
+				if (sharedEm == null) {
+					if (debug)
+						this.log.debug("closing entity manager");
+					em.close();
+				}
 			}
 		}
 
-		// show the view or send the redirect
+		// show the view or send the redirect (the executor may be recycled
+		// as soon as the response is sent, so keep what the metrics need)
 		RouterRequestLifecycle.complete(this.routerReq);
+		final RequestMetrics m = this.metrics;
+		final Route r = this.route;
+		final long sendStart = (m != null ? System.nanoTime() : 0);
 		if (sendView) {
 			if (debug)
 				this.log.debug("sending the view");
@@ -426,6 +717,70 @@ class RequestTransactionExecutor
 				this.log.debug("completing async processing");
 			this.redirectFinisher.execute(this);
 		}
+		if (m != null)
+			m.recordPhase(r, Phase.SEND_VIEW, System.nanoTime() - sendStart);
+	}
+
+	/**
+	 * Execute the route script, call the controller and prepare the view using
+	 * the specified entity manager.
+	 *
+	 * @param em The entity manager.
+	 *
+	 * @return {@code true} if the view needs to be displayed as a result of the
+	 * controller call, {@code false} if a redirect or, if the validators added
+	 * by the route script show that the requested resource has not been
+	 * modified, the 304 (Not Modified) response needs to be sent instead.
+	 *
+	 * @throws RequestedResourceException If controller throws it.
+	 * @throws ServletException If an error happens.
+	 */
+	private boolean executeLogic(final EntityManager em)
+		throws RequestedResourceException, ServletException {
+
+		// execute script associated with the mapping
+		if (this.routeScript != null) {
+			this.startPhase();
+			this.routeScript.execute(this.routerReq, em);
+			this.endPhase(Phase.ROUTE_SCRIPT);
+			LooseCannon.heel();
+			this.checkTimeout();
+		}
+
+		// call the controller
+		this.startPhase();
+		final boolean sendView = this.callController(em);
+		this.endPhase(Phase.CONTROLLER);
+
+		// respond to conditional request if the route script added validators
+		if (sendView && this.routerReq.checkValidators()) {
+			if (this.log.isDebugEnabled())
+				this.log.debug("requested resource not modified");
+			return false;
+		}
+
+		// prepare the view
+		if (sendView) {
+			this.startPhase();
+
+			// call the view's script
+			if (this.viewScript != null) {
+				this.viewScript.execute(this.routerReq, em);
+				LooseCannon.heel();
+				this.checkTimeout();
+			}
+
+			// call controller's prepare view method
+			if (this.hasViewPrep) {
+				this.controllerHandler.prepareView(this.routerReq, em);
+				LooseCannon.heel();
+				this.checkTimeout();
+			}
+
+			this.endPhase(Phase.PREPARE_VIEW);
+		}
+
+		return sendView;
 	}
 
 	/**
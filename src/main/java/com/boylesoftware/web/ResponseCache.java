@@ -0,0 +1,422 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.boylesoftware.web.spi.Route;
+import com.boylesoftware.web.spi.RouterRequest;
+import com.boylesoftware.web.util.pool.PooledStringBuffer;
+import com.boylesoftware.web.util.pool.StringBufferPool;
+
+
+/**
+ * Cache of complete responses to the anonymous GET requests that use routes
+ * marked as cacheable. The responses are keyed by the request URI, the values
+ * of the route's selected request parameters and the user locale. The cache
+ * holds responses up to a total body size and evicts the least recently used
+ * ones. Only one request at a time is elected to produce the response for a
+ * given key. To protect the application from a stampede of identical requests
+ * when a response expires, the other requests are served the expired response
+ * while it is being reproduced. Note, that there is no such protection on a
+ * cold miss, when there is no expired response to serve: the requests that
+ * are not elected are processed in full, only their responses are not
+ * cached. They are not made to wait for the elected request, because that
+ * would block the container threads.
+ *
+ * @author Lev Himmelfarb
+ */
+class ResponseCache {
+
+	/**
+	 * Number of partitions.
+	 */
+	private static final int NUM_PARTITIONS = 4;
+
+	/**
+	 * Divisor of the cache size that gives the maximum size of a single
+	 * response body.
+	 */
+	private static final int MAX_BODY_SIZE_DIVISOR = 16;
+
+	/**
+	 * Name of the HTTP response header with the age of a cached response.
+	 */
+	private static final String AGE_HEADER = "Age";
+
+
+	/**
+	 * Cached response.
+	 */
+	static final class CachedResponse {
+
+		/**
+		 * Response content type, or {@code null}.
+		 */
+		private final String contentType;
+
+		/**
+		 * Response locale, or {@code null} if not set explicitly.
+		 */
+		private final Locale locale;
+
+		/**
+		 * Response header names and values, alternating.
+		 */
+		private final String[] headers;
+
+		/**
+		 * Response body.
+		 */
+		private final byte[] body;
+
+		/**
+		 * Value of {@link System#nanoTime()} when the response was cached.
+		 */
+		private final long createdAt;
+
+		/**
+		 * Value of {@link System#nanoTime()} when the response expires.
+		 */
+		private final long expiresAt;
+
+
+		/**
+		 * Create new cached response.
+		 *
+		 * @param contentType Response content type, or {@code null}.
+		 * @param locale Response locale, or {@code null} if not set
+		 * explicitly.
+		 * @param headers Response header names and values, alternating.
+		 * @param body Response body.
+		 * @param ttl Time to live in nanoseconds.
+		 */
+		CachedResponse(final String contentType, final Locale locale,
+				final String[] headers, final byte[] body, final long ttl) {
+
+			this.contentType = contentType;
+			this.locale = locale;
+			this.headers = headers;
+			this.body = body;
+			this.createdAt = System.nanoTime();
+			this.expiresAt = this.createdAt + ttl;
+		}
+
+
+		/**
+		 * Send the response to the client.
+		 *
+		 * @param response The HTTP response.
+		 *
+		 * @throws IOException If an I/O error happens sending the response.
+		 */
+		void send(final HttpServletResponse response)
+			throws IOException {
+
+			if (this.contentType != null)
+				response.setContentType(this.contentType);
+			if (this.locale != null)
+				response.setLocale(this.locale);
+			for (int i = 0; i < this.headers.length; i += 2)
+				response.addHeader(this.headers[i], this.headers[i + 1]);
+			response.setIntHeader(AGE_HEADER, (int) ((System.nanoTime() -
+					this.createdAt) / 1000000000L));
+			response.setContentLength(this.body.length);
+
+			final ServletOutputStream out = response.getOutputStream();
+			out.write(this.body);
+			out.flush();
+		}
+	}
+
+	/**
+	 * Cache partition. All access must be synchronized on the partition.
+	 */
+	private static final class Partition
+		extends LinkedHashMap<String, CachedResponse> {
+
+		/**
+		 * Serial version id.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Total size of the response bodies in the partition.
+		 */
+		long size;
+
+
+		/**
+		 * Create new partition.
+		 */
+		Partition() {
+			super(16, 0.75f, true);
+		}
+	}
+
+
+	/**
+	 * The log.
+	 */
+	private final Log log = LogFactory.getLog(this.getClass());
+
+	/**
+	 * Maximum total size of the response bodies in a partition.
+	 */
+	private final long partitionCapacity;
+
+	/**
+	 * Maximum size of a single response body.
+	 */
+	private final int maxBodySize;
+
+	/**
+	 * Default time to live of a response in nanoseconds.
+	 */
+	private final long ttl;
+
+	/**
+	 * The partitions.
+	 */
+	private final Partition[] partitions;
+
+	/**
+	 * Keys of the responses being produced by the elected requests.
+	 */
+	private final ConcurrentMap<String, Boolean> producing =
+		new ConcurrentHashMap<>();
+
+
+	/**
+	 * Create new cache.
+	 *
+	 * @param maxSize Maximum total size of the cached response bodies in
+	 * bytes. Must be positive.
+	 * @param ttl Default time to live of a response in milliseconds. Must be
+	 * positive.
+	 */
+	ResponseCache(final long maxSize, final long ttl) {
+
+		if ((maxSize <= 0) || (ttl <= 0))
+			throw new IllegalArgumentException(
+					"Cache size and time to live must be positive.");
+
+		this.partitions = new Partition[NUM_PARTITIONS];
+		for (int i = 0; i < NUM_PARTITIONS; i++)
+			this.partitions[i] = new Partition();
+		this.partitionCapacity =
+			(maxSize + NUM_PARTITIONS - 1) / NUM_PARTITIONS;
+		this.maxBodySize = (int) Math.min(Integer.MAX_VALUE,
+				Math.max(1, maxSize / MAX_BODY_SIZE_DIVISOR));
+
+		this.ttl = ttl * 1000000L;
+	}
+
+
+	/**
+	 * Get partition for the specified response key.
+	 *
+	 * @param key The response key.
+	 *
+	 * @return The partition.
+	 */
+	private Partition partition(final String key) {
+
+		final int h = key.hashCode() * 0x9E3779B9;
+
+		return this.partitions[(h ^ (h >>> 16)) & (NUM_PARTITIONS - 1)];
+	}
+
+	/**
+	 * Get maximum size of a single response body that can be cached.
+	 *
+	 * @return Maximum body size in bytes.
+	 */
+	int getMaxBodySize() {
+
+		return this.maxBodySize;
+	}
+
+	/**
+	 * Get key for the response to the specified request.
+	 *
+	 * @param request The request. The caller must make sure that the request
+	 * is anonymous.
+	 * @param authRequired {@code true} if the request requires an
+	 * authenticated user.
+	 *
+	 * @return The response key, or {@code null} if the response to the request
+	 * cannot be cached.
+	 */
+	String getKey(final RouterRequest request, final boolean authRequired) {
+
+		final Route route = request.getRoute();
+		if (!route.isResponseCacheable() || authRequired ||
+				!"GET".equals(request.getMethod()) ||
+				request.hasFlashAttributes())
+			return null;
+
+		try (final PooledStringBuffer buf = StringBufferPool.get()) {
+			final StringBuilder sb = buf.getStringBuilder();
+
+			sb.append(request.isSecure() ? "https://" : "http://")
+				.append(request.getServerName())
+				.append(request.getRequestURI());
+			for (final String paramName : route.getResponseCacheParams()) {
+				sb.append('\0').append(paramName);
+				final String[] vals = request.getParameterValues(paramName);
+				if (vals != null)
+					for (final String val : vals)
+						sb.append('\0').append(val);
+			}
+			sb.append('\0').append(request.getUserLocale());
+
+			return sb.toString();
+		}
+	}
+
+	/**
+	 * Get cached response.
+	 *
+	 * @param key The response key.
+	 *
+	 * @return The response, or {@code null} if there is no fresh response and
+	 * no other request is producing it, in which case the caller should
+	 * attempt to produce the response itself.
+	 */
+	CachedResponse get(final String key) {
+
+		final Partition partition = this.partition(key);
+		final CachedResponse cached;
+		synchronized (partition) {
+			cached = partition.get(key);
+		}
+		if (cached == null)
+			return null;
+
+		final long now = System.nanoTime();
+		if (now - cached.expiresAt < 0)
+			return cached;
+
+		// serve expired response for up to another time to live while it is
+		// being reproduced
+		if ((now - cached.expiresAt < cached.expiresAt - cached.createdAt) &&
+				this.producing.containsKey(key)) {
+			if (this.log.isDebugEnabled())
+				this.log.debug("serving expired response while it is being" +
+						" reproduced");
+			return cached;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Elect the calling request to produce the response with the specified
+	 * key. Only one request at a time can be elected for a given key.
+	 *
+	 * @param key The response key.
+	 *
+	 * @return {@code true} if the calling request has been elected, in which
+	 * case it must eventually call either {@link #put} or {@link #release}.
+	 * {@code false} if another request is already producing the response.
+	 */
+	boolean elect(final String key) {
+
+		return (this.producing.putIfAbsent(key, Boolean.TRUE) == null);
+	}
+
+	/**
+	 * Release election to produce the response with the specified key without
+	 * caching the response.
+	 *
+	 * @param key The response key.
+	 */
+	void release(final String key) {
+
+		this.producing.remove(key);
+	}
+
+	/**
+	 * Cache response and release the election to produce it.
+	 *
+	 * @param key The response key.
+	 * @param contentType Response content type, or {@code null}.
+	 * @param locale Response locale, or {@code null} if not set explicitly.
+	 * @param headers Response header names and values, alternating.
+	 * @param body Response body.
+	 * @param ttl Time to live of the response in milliseconds, or zero for the
+	 * default.
+	 */
+	void put(final String key, final String contentType, final Locale locale,
+			final String[] headers, final byte[] body, final long ttl) {
+
+		try {
+			if (body.length > this.maxBodySize)
+				return;
+
+			final CachedResponse cached = new CachedResponse(contentType,
+					locale, headers, body,
+					(ttl > 0 ? ttl * 1000000L : this.ttl));
+
+			final Partition partition = this.partition(key);
+			synchronized (partition) {
+				final CachedResponse old = partition.put(key, cached);
+				if (old != null)
+					partition.size -= old.body.length;
+				partition.size += body.length;
+				final Iterator<Map.Entry<String, CachedResponse>> i =
+					partition.entrySet().iterator();
+				while (partition.size > this.partitionCapacity) {
+					partition.size -= i.next().getValue().body.length;
+					i.remove();
+				}
+			}
+
+			if (this.log.isDebugEnabled())
+				this.log.debug("cached response of " + body.length +
+						" bytes");
+
+		} finally {
+			this.producing.remove(key);
+		}
+	}
+
+	/**
+	 * Remove all cached responses.
+	 */
+	void clear() {
+
+		for (final Partition partition : this.partitions) {
+			synchronized (partition) {
+				partition.clear();
+				partition.size = 0;
+			}
+		}
+	}
+}
@@ -31,6 +31,7 @@ import org.apache.commons.logging.LogFactory;
 
 import com.boylesoftware.web.api.Attributes;
 import com.boylesoftware.web.api.Authenticator;
+import com.boylesoftware.web.spi.AuthenticationService;
 import com.boylesoftware.web.spi.Route.SecurityMode;
 import com.boylesoftware.web.spi.RouterRequest;
 import com.boylesoftware.web.util.LooseCannon;
@@ -175,6 +176,7 @@ class Router {
 
 		// process request
 		boolean recycleReq = true;
+		CapturingResponse capture = null;
 		try {
 
 			// check if SSL is required
@@ -198,24 +200,82 @@ class Router {
 			if (routerReq.getCharacterEncoding() == null)
 				routerReq.setCharacterEncoding("UTF-8");
 
-			// get authenticated user
-			final AuthenticatorExecutor exec =
-				AuthenticatorExecutor.getExecutor();
-			boolean recycleExec = true;
-			try {
-				exec.init(webapp, routerReq);
-				recycleReq = recycleExec = false;
-				final ExecutorService execPool = webapp.getExecutorService();
+			// try to get authenticated user without the async hop
+			final Object authedUser = (routerReq.isSecure() ?
+					webapp.getAuthenticationService()
+						.getAuthenticatedUserInline(routerReq) : null);
+			if (authedUser != AuthenticationService.USER_UNRESOLVED) {
 				if (debug)
-					this.log.debug("executor service status: " + execPool);
-				execPool.execute(exec);
-			} finally {
-				if (recycleExec)
-					exec.recycle();
+					this.log.debug("authenticated user resolved inline");
+
+				// try to serve anonymous request from the response cache
+				final ResponseCache responseCache = webapp.getResponseCache();
+				final String cacheKey = ((authedUser == null) &&
+						(responseCache != null) ?
+								responseCache.getKey(routerReq,
+										requireAuthedUser) : null);
+				if (cacheKey != null) {
+					final ResponseCache.CachedResponse cached =
+						responseCache.get(cacheKey);
+					if (cached != null) {
+						if (debug)
+							this.log.debug("sending cached response");
+						cached.send(response);
+						return true;
+					}
+					if (responseCache.elect(cacheKey)) {
+						if (debug)
+							this.log.debug("capturing response for the cache");
+						capture = new CapturingResponse(responseCache,
+								cacheKey,
+								routerReq.getRoute().getResponseCacheTTL(),
+								request, response);
+						routerReq.rewrap(request, capture);
+					}
+				}
+
+				recycleReq = !this.processRequest(webapp, routerReq, response,
+						authedUser);
+				if (recycleReq && (capture != null))
+					capture.complete();
+				return true;
 			}
 
+			// get authenticated user asynchronously
+			final AsynchronousExecutor exec;
+			boolean recycleExec = true;
+			if (webapp.isFusedAuthentication()) {
+				final RequestTransactionExecutor txExec =
+					RequestTransactionExecutor.getExecutor();
+				exec = txExec;
+				try {
+					txExec.prepareAuthenticated(webapp, routerReq);
+					recycleReq = recycleExec = false;
+				} finally {
+					if (recycleExec)
+						txExec.recycle();
+				}
+			} else {
+				final AuthenticatorExecutor authExec =
+					AuthenticatorExecutor.getExecutor();
+				exec = authExec;
+				try {
+					authExec.init(webapp, routerReq);
+					recycleReq = recycleExec = false;
+				} finally {
+					if (recycleExec)
+						authExec.recycle();
+				}
+			}
+			final ExecutorService execPool = webapp.getExecutorService();
+			if (debug)
+				this.log.debug("executor service status: " + execPool);
+			exec.submit(execPool);
+
 		} finally {
 			if (recycleReq) {
+				if (capture != null)
+					capture.abandon();
 				if (debug)
 					this.log.debug("recycling router request " + routerReq);
 				RouterRequestLifecycle.recycle(routerReq);
@@ -281,16 +341,50 @@ class Router {
 		// re-wrap the router request
 		routerReq.rewrap(request, response);
 
-		// check if route requires authenticated user
+		// get authenticated user
 		final Object authedUser =
 			routerReq.getAttribute(AUTHED_USER_ATTNAME);
-		if ((authedUser != null) && (authedUser != ANONYMOUS_USER)) {
+
+		// process the request
+		this.processRequest(webapp, routerReq, response,
+				(authedUser != ANONYMOUS_USER ? authedUser : null));
+
+		// done
+		return true;
+	}
+
+	/**
+	 * Process request once the authenticated user is known.
+	 *
+	 * @param webapp The application.
+	 * @param routerReq The router request.
+	 * @param response The response.
+	 * @param authedUser Authenticated user, or {@code null} if the request is
+	 * unauthenticated.
+	 *
+	 * @return {@code true} if asynchronous processing has been started and the
+	 * router request is now owned by the asynchronous executor,
+	 * {@code false} if the request processing has been completed.
+	 *
+	 * @throws ServletException If an error happens.
+	 * @throws IOException If an I/O error happens reading the request or
+	 * sending the response.
+	 */
+	private boolean processRequest(final AbstractWebApplication webapp,
+			final RouterRequest routerReq, final HttpServletResponse response,
+			final Object authedUser)
+		throws ServletException, IOException {
+
+		final boolean debug = this.log.isDebugEnabled();
+
+		// check if route requires authenticated user
+		if (authedUser != null) {
 			routerReq.setAttribute(Attributes.AUTHED_USER, authedUser);
 		} else if ((routerReq.getRoute().getSecurityMode() ==
 							SecurityMode.FORCE_REQUIRE_AUTH) ||
 						routerReq.isAuthenticationRequired()) {
 			this.sendRequestForAuthentication(webapp, routerReq, response);
-			return true;
+			return false;
 		}
 
 		// execute request processing logic
@@ -303,7 +397,8 @@ class Router {
 				final ExecutorService execPool = webapp.getExecutorService();
 				if (debug)
 					this.log.debug("executor service status: " + execPool);
-				execPool.execute(exec);
+				exec.submit(execPool);
+				return true;
 			}
 		} finally {
 			if (recycleExec)
@@ -311,7 +406,7 @@ class Router {
 		}
 
 		// done
-		return true;
+		return false;
 	}
 
 	/**
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Executor service that runs every task in a new virtual thread. The number of
+ * concurrently running tasks is limited by a semaphore instead of a number of
+ * threads: the tasks in excess of the limit wait for a permit in their own
+ * virtual threads, which is cheap. The virtual threads are obtained from the
+ * Java runtime via reflection, so the framework can still be compiled and run
+ * on runtimes that do not support them, in which case {@link #isSupported}
+ * returns {@code false}. A task interrupted while waiting for a permit, which
+ * happens when the executor service is shut down, is not executed, and if it is
+ * an {@link AsynchronousExecutor}, its request is rejected.
+ *
+ * <p>The framework's object pools do not bind idle objects to threads, so the
+ * pooled objects used by a task are reused by the tasks that run in the
+ * subsequent virtual threads.
+ *
+ * @author Lev Himmelfarb
+ */
+class VirtualThreadsExecutorService
+	extends AbstractExecutorService {
+
+	/**
+	 * Factory method for the runtime's virtual thread per task executor, or
+	 * {@code null} if the runtime does not support virtual threads.
+	 */
+	private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR;
+	static {
+		Method m;
+		try {
+			m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+		} catch (final NoSuchMethodException e) {
+			m = null;
+		}
+		NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = m;
+	}
+
+
+	/**
+	 * Tell if the runtime supports virtual threads.
+	 *
+	 * @return {@code true} if supported.
+	 */
+	static boolean isSupported() {
+
+		return (NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null);
+	}
+
+
+	/**
+	 * The runtime's virtual thread per task executor.
+	 */
+	private final ExecutorService executor;
+
+	/**
+	 * Semaphore that limits the number of concurrently running tasks.
+	 */
+	private final Semaphore permits;
+
+
+	/**
+	 * Create new executor service.
+	 *
+	 * @param maxConcurrency Maximum number of concurrently running tasks.
+	 *
+	 * @throws UnsupportedOperationException If the runtime does not support
+	 * virtual threads.
+	 */
+	VirtualThreadsExecutorService(final int maxConcurrency) {
+
+		if (NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR == null)
+			throw new UnsupportedOperationException(
+					"The runtime does not support virtual threads.");
+
+		try {
+			this.executor = (ExecutorService)
+				NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+		} catch (final IllegalAccessException |
+				InvocationTargetException e) {
+			throw new UnsupportedOperationException(
+					"Could not create virtual threads executor.", e);
+		}
+
+		this.permits = new Semaphore(maxConcurrency);
+	}
+
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.Executor#execute(java.lang.Runnable)
+	 */
+	@Override
+	public void execute(final Runnable command) {
+
+		this.executor.execute(new Runnable() {
+
+			@Override
+			public void run() {
+
+				try {
+					VirtualThreadsExecutorService.this.permits.acquire();
+				} catch (final InterruptedException e) {
+					// executor service is being shut down
+					Thread.currentThread().interrupt();
+					if (command instanceof AsynchronousExecutor)
+						((AsynchronousExecutor) command).reject();
+					return;
+				}
+				try {
+					command.run();
+				} finally {
+					VirtualThreadsExecutorService.this.permits.release();
+				}
+			}
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.ExecutorService#shutdown()
+	 */
+	@Override
+	public void shutdown() {
+
+		this.executor.shutdown();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.ExecutorService#shutdownNow()
+	 */
+	@Override
+	public List<Runnable> shutdownNow() {
+
+		return this.executor.shutdownNow();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.ExecutorService#isShutdown()
+	 */
+	@Override
+	public boolean isShutdown() {
+
+		return this.executor.isShutdown();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.ExecutorService#isTerminated()
+	 */
+	@Override
+	public boolean isTerminated() {
+
+		return this.executor.isTerminated();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.ExecutorService#awaitTermination(long, java.util.concurrent.TimeUnit)
+	 */
+	@Override
+	public boolean awaitTermination(final long timeout, final TimeUnit unit)
+		throws InterruptedException {
+
+		return this.executor.awaitTermination(timeout, unit);
+	}
+}
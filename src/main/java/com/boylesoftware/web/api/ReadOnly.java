@@ -0,0 +1,43 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.api;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+
+/**
+ * Marks a controller method that only reads persistent data. If neither the
+ * controller methods called for a request nor the route's scripts modify
+ * anything, the framework processes the request without a transaction and
+ * never flushes the entity manager, which saves the commit round-trip to the
+ * database and the dirty checking of the loaded entities.
+ *
+ * <p>Changes made to the persistent objects in a read-only method are
+ * silently discarded.
+ *
+ * @author Lev Himmelfarb
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ReadOnly {
+
+	// nothing
+}
@@ -15,11 +15,10 @@
  */
 package com.boylesoftware.web.impl;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -33,16 +32,19 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import com.boylesoftware.web.AbstractWebApplication;
+import com.boylesoftware.web.ApplicationConfiguration;
 import com.boylesoftware.web.ApplicationServices;
 import com.boylesoftware.web.MethodNotAllowedException;
 import com.boylesoftware.web.api.Attributes;
 import com.boylesoftware.web.api.Routes;
+import com.boylesoftware.web.impl.RouteImpl.AuthRequirement;
 import com.boylesoftware.web.spi.Route.SecurityMode;
 import com.boylesoftware.web.spi.ControllerMethodArgHandlerProvider;
 import com.boylesoftware.web.spi.RouterConfiguration;
 import com.boylesoftware.web.spi.RouterRequest;
 import com.boylesoftware.web.spi.ViewSender;
 import com.boylesoftware.web.util.StringUtils;
+import com.boylesoftware.web.util.pool.ConcurrentFastPool;
 import com.boylesoftware.web.util.pool.FastPool;
 import com.boylesoftware.web.util.pool.PoolableObjectFactory;
 import com.boylesoftware.web.util.pool.PooledStringBuffer;
@@ -67,6 +69,84 @@ public abstract class AbstractRouterConfiguration
 	 */
 	private static final Pattern NO_URI = Pattern.compile("");
 
+	/**
+	 * Regular expression metacharacters.
+	 */
+	private static final String REGEX_METACHARS = "\\^$.|?*+()[]{}";
+
+	/**
+	 * Default negative route match cache size.
+	 */
+	private static final int DEFAULT_NEGATIVE_CACHE_SIZE = 1024;
+
+
+	/**
+	 * Immutable routing table built from the route mappings.
+	 */
+	private static final class RoutingTable {
+
+		/**
+		 * Index of the mappings used to match request URIs.
+		 */
+		final RoutesIndex mappingsIndex;
+
+		/**
+		 * Mappings by mapping id.
+		 */
+		final Map<String, RouteImpl> mappingsById;
+
+		/**
+		 * Login page URI.
+		 */
+		final String loginPageURI;
+
+		/**
+		 * Protected URIs pattern.
+		 */
+		final Pattern protectedURIPattern;
+
+		/**
+		 * Public URIs pattern.
+		 */
+		final Pattern publicURIPattern;
+
+
+		/**
+		 * Create new routing table.
+		 *
+		 * @param mappingsIndex Index of the mappings.
+		 * @param mappingsById Mappings by mapping id.
+		 * @param loginPageURI Login page URI.
+		 * @param protectedURIPattern Protected URIs pattern.
+		 * @param publicURIPattern Public URIs pattern.
+		 */
+		RoutingTable(final RoutesIndex mappingsIndex,
+				final Map<String, RouteImpl> mappingsById,
+				final String loginPageURI, final Pattern protectedURIPattern,
+				final Pattern publicURIPattern) {
+
+			this.mappingsIndex = mappingsIndex;
+			this.mappingsById = mappingsById;
+			this.loginPageURI = loginPageURI;
+			this.protectedURIPattern = protectedURIPattern;
+			this.publicURIPattern = publicURIPattern;
+		}
+
+
+		/**
+		 * Tell if specified request URI requires authenticated user.
+		 *
+		 * @param requestURI Server root relative request URI.
+		 *
+		 * @return {@code true} if requires authenticated user.
+		 */
+		boolean isAuthenticationRequired(final String requestURI) {
+
+			return (this.protectedURIPattern.matcher(requestURI).matches() &&
+					!this.publicURIPattern.matcher(requestURI).matches());
+		}
+	}
+
 
 	/**
 	 * The log.
@@ -79,40 +159,51 @@ public abstract class AbstractRouterConfiguration
 	private final AbstractWebApplication webapp;
 
 	/**
-	 * The mappings.
+	 * Servlet context.
 	 */
-	private final RouteImpl[] mappings;
+	private final ServletContext sc;
 
 	/**
-	 * Lock used to synchronized concurrent access to the {@code mappings}
-	 * field.
+	 * The application services.
 	 */
-	private final ReadWriteLock mappingsLock = new ReentrantReadWriteLock();
+	private final ApplicationServices appServices;
 
 	/**
-	 * Mappings by mapping id.
+	 * Controller method argument handler provider.
 	 */
-	private final Map<String, RouteImpl> mappingsById;
+	private final ControllerMethodArgHandlerProvider argHandlerProvider;
 
 	/**
-	 * Login page URI.
+	 * View sender.
 	 */
-	private final String loginPageURI;
+	private final ViewSender viewSender;
 
 	/**
-	 * Protected URIs pattern.
+	 * Route match objects pool.
 	 */
-	private final Pattern protectedURIPattern;
+	private final FastPool<RouteMatch> routeMatchPool;
 
 	/**
-	 * Public URIs pattern.
+	 * Router request objects pool.
 	 */
-	private final Pattern publicURIPattern;
+	private final FastPool<RouterRequestImpl> routerRequestPool;
 
 	/**
-	 * Router request objects pool.
+	 * Current routing table.
 	 */
-	private final FastPool<RouterRequestImpl> routerRequestPool;
+	private volatile RoutingTable routingTable;
+
+	/**
+	 * Builder used to build the current routing table. Used to reuse the
+	 * controllers when the routes are reloaded.
+	 */
+	private RoutesBuilder lastRoutesBuilder;
+
+	/**
+	 * Modification time of the route mappings source when the current routing
+	 * table was built.
+	 */
+	private long routesLastModified;
 
 
 	/**
@@ -132,45 +223,99 @@ public abstract class AbstractRouterConfiguration
 		throws UnavailableException {
 
 		this.webapp = appServices.getApplication();
+		this.sc = sc;
+		this.appServices = appServices;
+		this.argHandlerProvider = argHandlerProvider;
+		this.viewSender = viewSender;
+
+		this.routesLastModified = this.getRoutesLastModified(sc);
+		this.routingTable = this.buildRoutingTable();
+
+		this.routeMatchPool = new ConcurrentFastPool<>(
+				new PoolableObjectFactory<RouteMatch>() {
+
+					@Override
+					public RouteMatch makeNew(final FastPool<RouteMatch> pool,
+							final int pooledObjectId) {
+
+						return new RouteMatch(pool, pooledObjectId);
+					}
+				}, "RouteMatchesPool");
+
+		this.routerRequestPool = new ConcurrentFastPool<>(
+				new PoolableObjectFactory<RouterRequestImpl>() {
+
+					@Override
+					public RouterRequestImpl makeNew(
+							final FastPool<RouterRequestImpl> pool,
+							final int pooledObjectId) {
+
+						return new RouterRequestImpl(pool, pooledObjectId,
+								appServices);
+					}
+				}, "RouterRequestsPool");
+	}
+
+
+	/**
+	 * Build new routing table from the route mappings.
+	 *
+	 * @return The routing table.
+	 *
+	 * @throws UnavailableException If configuration is incorrect.
+	 */
+	private RoutingTable buildRoutingTable()
+		throws UnavailableException {
+
+		final ServletContext sc = this.sc;
 
 		final RoutesBuilder routesBuilder =
-			new RoutesBuilder(sc, argHandlerProvider, viewSender);
+			new RoutesBuilder(sc, this.argHandlerProvider, this.viewSender,
+					this.appServices.getQueryResultsCache(),
+					this.lastRoutesBuilder);
 		this.buildRoutes(sc, routesBuilder);
-		this.mappings = routesBuilder.getRoutes();
+		final RouteImpl[] mappings = routesBuilder.getRoutes();
 
-		this.loginPageURI = routesBuilder.getLoginPageURI();
+		final String loginPageURI = routesBuilder.getLoginPageURI();
 
-		final Pattern protectedURIPattern =
+		final Pattern protectedURIPatternSpec =
 			routesBuilder.getProtectedURIPattern();
-		final Pattern publicURIPattern =
+		final Pattern publicURIPatternSpec =
 			routesBuilder.getPublicURIPattern();
-		this.protectedURIPattern = (protectedURIPattern != null ?
-				protectedURIPattern :
-					(publicURIPattern != null ? ANY_URI : NO_URI));
-		this.publicURIPattern = (publicURIPattern != null ?
-				publicURIPattern :
-					(protectedURIPattern != null ? NO_URI : ANY_URI));
-		final String fullLoginPageURI = (this.loginPageURI != null ?
+		final Pattern protectedURIPattern = (protectedURIPatternSpec != null ?
+				protectedURIPatternSpec :
+					(publicURIPatternSpec != null ? ANY_URI : NO_URI));
+		final Pattern publicURIPattern = (publicURIPatternSpec != null ?
+				publicURIPatternSpec :
+					(protectedURIPatternSpec != null ? NO_URI : ANY_URI));
+		final String fullLoginPageURI = (loginPageURI != null ?
 				StringUtils.emptyIfNull(sc.getContextPath()) +
-				this.loginPageURI : null);
+				loginPageURI : null);
 		if (fullLoginPageURI != null) {
-			if (this.protectedURIPattern.matcher(fullLoginPageURI).matches() &&
-					!this.publicURIPattern.matcher(fullLoginPageURI).matches())
+			if (protectedURIPattern.matcher(fullLoginPageURI).matches() &&
+					!publicURIPattern.matcher(fullLoginPageURI).matches())
 				throw new UnavailableException("Provided login page URI" +
 					" requires an authenticated user. Check the protected and" +
 					" public URI patterns.");
 		}
 
-		final int numMappings = this.mappings.length;
-		this.mappingsById = new HashMap<>(numMappings);
+		final List<String> protectedURIPrefixes = new ArrayList<>();
+		collectWildcardPrefixes(protectedURIPattern.pattern(), "",
+				protectedURIPrefixes);
+		final List<String> publicURIPrefixes = new ArrayList<>();
+		collectWildcardPrefixes(publicURIPattern.pattern(), "",
+				publicURIPrefixes);
+
+		final int numMappings = mappings.length;
+		final Map<String, RouteImpl> mappingsById = new HashMap<>(numMappings);
 		for (int i = 0; i < numMappings; i++) {
-			RouteImpl mapping = this.mappings[i];
+			RouteImpl mapping = mappings[i];
 			if ((fullLoginPageURI != null) &&
 					mapping.getURIPattern().matcher(fullLoginPageURI)
 						.matches()) {
 				switch (mapping.getSecurityMode()) {
 				case DEFAULT:
-					this.mappings[i] = mapping =
+					mappings[i] = mapping =
 						new RouteImpl(mapping, SecurityMode.FORCE_SSL);
 					break;
 				case FORCE_SSL:
@@ -181,34 +326,338 @@ public abstract class AbstractRouterConfiguration
 						" security mode.");
 				}
 			}
-			if (this.mappingsById.put(mapping.getId(), mapping) != null)
+			mapping.setAuthRequirement(this.getAuthRequirement(mapping,
+					protectedURIPattern, publicURIPattern,
+					protectedURIPrefixes, publicURIPrefixes));
+			if (mappingsById.put(mapping.getId(), mapping) != null)
 				throw new UnavailableException(
 						"More than one mapping share route id " +
 						mapping.getId() + ".");
 		}
 
-		this.routerRequestPool = new FastPool<>(
-				new PoolableObjectFactory<RouterRequestImpl>() {
+		final String[] passThroughPrefixes =
+			this.getPassThroughPrefixes(sc, mappings);
+		final RoutesIndex mappingsIndex = new RoutesIndex(mappings,
+				passThroughPrefixes,
+				this.webapp.getConfigProperty(
+						ApplicationConfiguration.ROUTER_NEGATIVE_CACHE_SIZE,
+						Integer.class,
+						Integer.valueOf(DEFAULT_NEGATIVE_CACHE_SIZE))
+					.intValue());
 
-					@Override
-					public RouterRequestImpl makeNew(
-							final FastPool<RouterRequestImpl> pool,
-							final int pooledObjectId) {
+		this.lastRoutesBuilder = routesBuilder;
 
-						return new RouterRequestImpl(pool, pooledObjectId,
-								appServices);
-					}
-				}, "RouterRequestsPool");
+		return new RoutingTable(mappingsIndex, mappingsById, loginPageURI,
+				protectedURIPattern, publicURIPattern);
+	}
+
+	/**
+	 * Reload the route mappings if their source has been modified since the
+	 * current routing table was built. The new routing table is built while
+	 * the current one remains in use and then replaces it atomically. The
+	 * requests matched against the current routing table finish processing
+	 * with the routes they were matched to. Unchanged controllers and their
+	 * handlers are reused by the new routes.
+	 *
+	 * @return {@code true} if the routes were reloaded.
+	 *
+	 * @throws UnavailableException If the modified route mappings are
+	 * incorrect, in which case the current routing table remains in use. The
+	 * routes are not reloaded again until their source is modified again.
+	 */
+	public synchronized boolean reloadIfModified()
+		throws UnavailableException {
+
+		final long lastModified = this.getRoutesLastModified(this.sc);
+		if ((lastModified <= 0) || (lastModified == this.routesLastModified))
+			return false;
+		this.routesLastModified = lastModified;
+
+		if (this.log.isDebugEnabled())
+			this.log.debug("reloading modified route mappings");
+
+		this.routingTable = this.buildRoutingTable();
+
+		return true;
+	}
+
+	/**
+	 * Get modification time of the source of the route mappings added by the
+	 * {@link #buildRoutes} method. Used by {@link #reloadIfModified} to detect
+	 * if the routes need to be reloaded. The method is called from the
+	 * constructor, so it must not rely on the subclass state.
+	 *
+	 * <p>Default implementation returns zero, which means that the
+	 * modification time is unknown and the routes are never reloaded.
+	 *
+	 * @param sc Servlet context.
+	 *
+	 * @return Modification time in milliseconds, or zero if unknown.
+	 */
+	@SuppressWarnings("unused")
+	protected long getRoutesLastModified(final ServletContext sc) {
+
+		return 0;
+	}
+
+	/**
+	 * Determine authenticated user requirement for the route. For a route
+	 * without URI parameters the protected and public URI patterns are matched
+	 * against the route's only URI. For a route with URI parameters, the
+	 * requirement is determined only if the outcome of the pattern matching is
+	 * known for any URI that starts with the literal part of the route's URI
+	 * template that precedes the first parameter.
+	 *
+	 * @param mapping The route mapping.
+	 * @param protectedURIPattern Protected URIs pattern.
+	 * @param publicURIPattern Public URIs pattern.
+	 * @param protectedURIPrefixes URI prefixes, all extensions of which match
+	 * the protected URIs pattern.
+	 * @param publicURIPrefixes URI prefixes, all extensions of which match the
+	 * public URIs pattern.
+	 *
+	 * @return The requirement.
+	 */
+	private AuthRequirement getAuthRequirement(final RouteImpl mapping,
+			final Pattern protectedURIPattern, final Pattern publicURIPattern,
+			final List<String> protectedURIPrefixes,
+			final List<String> publicURIPrefixes) {
+
+		final String uriTmpl = mapping.getURITemplate();
+		if (mapping.getNumURIParams() == 0)
+			return (protectedURIPattern.matcher(uriTmpl).matches() &&
+					!publicURIPattern.matcher(uriTmpl).matches() ?
+					AuthRequirement.ALWAYS : AuthRequirement.NEVER);
+
+		final String prefix = uriTmpl.substring(0, uriTmpl.indexOf('%'));
+		if (neverMatches(protectedURIPattern, prefix) ||
+				alwaysMatches(publicURIPrefixes, prefix))
+			return AuthRequirement.NEVER;
+		if (alwaysMatches(protectedURIPrefixes, prefix) &&
+				neverMatches(publicURIPattern, prefix))
+			return AuthRequirement.ALWAYS;
+
+		if (this.log.isDebugEnabled())
+			this.log.debug("authenticated user requirement for route " +
+					mapping.getId() + " depends on the URI parameters");
+
+		return AuthRequirement.URI_DEPENDENT;
+	}
+
+	/**
+	 * Tell if the pattern does not match any URI that starts with the
+	 * specified prefix.
+	 *
+	 * @param pattern The pattern.
+	 * @param prefix The URI prefix.
+	 *
+	 * @return {@code true} if the pattern fails to match the prefix without
+	 * looking past its end, so that no extension of the prefix can match.
+	 */
+	private static boolean neverMatches(final Pattern pattern,
+			final String prefix) {
+
+		final Matcher m = pattern.matcher(prefix);
+
+		return (!m.matches() && !m.hitEnd());
 	}
 
+	/**
+	 * Tell if any URI that starts with the specified prefix is known to match
+	 * a pattern.
+	 *
+	 * @param patternPrefixes URI prefixes, all extensions of which match the
+	 * pattern.
+	 * @param prefix The URI prefix.
+	 *
+	 * @return {@code true} if the prefix starts with one of the pattern
+	 * prefixes.
+	 */
+	private static boolean alwaysMatches(final List<String> patternPrefixes,
+			final String prefix) {
+
+		for (final String patternPrefix : patternPrefixes)
+			if (prefix.startsWith(patternPrefix))
+				return true;
+
+		return false;
+	}
+
+	/**
+	 * Collect literal prefixes, all extensions of which match the specified
+	 * regular expression. The regular expression is analyzed only as far as it
+	 * consists of literal characters, non-capturing groups of alternatives and
+	 * a trailing ".*". Any prefixes found are reliable, but not all of them may
+	 * be found.
+	 *
+	 * @param regex The regular expression.
+	 * @param prefix Literal prefix matched before the regular expression.
+	 * @param prefixes List, to which to add the found prefixes.
+	 */
+	private static void collectWildcardPrefixes(final String regex,
+			final String prefix, final List<String> prefixes) {
+
+		// consume the literal characters
+		final StringBuilder literalSB = new StringBuilder(prefix);
+		final int len = regex.length();
+		int i = 0;
+		while (i < len) {
+			final char c = regex.charAt(i);
+			if (c == '\\') {
+				if ((i + 1 >= len) ||
+						Character.isLetterOrDigit(regex.charAt(i + 1)))
+					break;
+				literalSB.append(regex.charAt(i + 1));
+				i += 2;
+			} else if (REGEX_METACHARS.indexOf(c) < 0) {
+				literalSB.append(c);
+				i++;
+			} else {
+				break;
+			}
+		}
+
+		// check what follows (a quantifier makes it unusable)
+		final String rest = regex.substring(i);
+		if (rest.equals(".*")) {
+			prefixes.add(literalSB.toString());
+		} else if (rest.startsWith("(?:") &&
+				(findGroupEnd(rest) == rest.length() - 1)) {
+			final String literal = literalSB.toString();
+			final List<String> alts =
+				splitAlternatives(rest.substring(3, rest.length() - 1));
+			if (alts != null)
+				for (final String alt : alts)
+					collectWildcardPrefixes(alt, literal, prefixes);
+		}
+	}
+
+	/**
+	 * Find the closing parenthesis of a group.
+	 *
+	 * @param regex Regular expression that starts with the group.
+	 *
+	 * @return Index of the closing parenthesis, or -1 if not found.
+	 */
+	private static int findGroupEnd(final String regex) {
+
+		int depth = 0;
+		boolean inClass = false;
+		final int len = regex.length();
+		for (int i = 0; i < len; i++) {
+			final char c = regex.charAt(i);
+			if (c == '\\')
+				i++;
+			else if (inClass)
+				inClass = (c != ']');
+			else if (c == '[')
+				inClass = true;
+			else if (c == '(')
+				depth++;
+			else if ((c == ')') && (--depth == 0))
+				return i;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Split regular expression into top-level alternatives.
+	 *
+	 * @param regex The regular expression.
+	 *
+	 * @return The alternatives, or {@code null} if the expression cannot be
+	 * analyzed.
+	 */
+	private static List<String> splitAlternatives(final String regex) {
+
+		final List<String> alts = new ArrayList<>();
+		int depth = 0;
+		boolean inClass = false;
+		int altStart = 0;
+		final int len = regex.length();
+		for (int i = 0; i < len; i++) {
+			final char c = regex.charAt(i);
+			if (c == '\\') {
+				if ((i + 1 < len) && (regex.charAt(i + 1) == 'Q'))
+					return null;
+				i++;
+			} else if (inClass) {
+				inClass = (c != ']');
+			} else if (c == '[') {
+				inClass = true;
+			} else if (c == '(') {
+				depth++;
+			} else if (c == ')') {
+				depth--;
+			} else if ((c == '|') && (depth == 0)) {
+				alts.add(regex.substring(altStart, i));
+				altStart = i + 1;
+			}
+		}
+		alts.add(regex.substring(altStart));
+
+		return alts;
+	}
+
+	/**
+	 * Get configured pass-through request URI prefixes.
+	 *
+	 * @param sc Servlet context.
+	 * @param mappings The route mappings.
+	 *
+	 * @return The prefixes including the context path.
+	 *
+	 * @throws UnavailableException If the configuration is invalid or a route
+	 * mapping's URI starts with one of the prefixes.
+	 */
+	private String[] getPassThroughPrefixes(final ServletContext sc,
+			final RouteImpl[] mappings)
+		throws UnavailableException {
+
+		final String spec = this.webapp.getConfigProperty(
+				ApplicationConfiguration.ROUTER_PASS_THROUGH_PREFIXES,
+				String.class, null);
+		if (spec == null)
+			return new String[0];
+
+		final String contextPath =
+			StringUtils.emptyIfNull(sc.getContextPath());
+		final List<String> prefixes = new ArrayList<>();
+		for (final String prefixSpec : spec.split(",")) {
+			final String prefix = prefixSpec.trim();
+			if (prefix.isEmpty())
+				continue;
+			if (prefix.charAt(0) != '/')
+				throw new UnavailableException("Invalid pass-through URI" +
+						" prefix " + prefix + ": must start with \"/\".");
+			final String fullPrefix = contextPath + prefix;
+			for (final RouteImpl mapping : mappings)
+				if (mapping.getURITemplate().startsWith(fullPrefix))
+					throw new UnavailableException("Route " +
+							mapping.getId() + " URI starts with pass-through" +
+							" URI prefix " + prefix + ".");
+			prefixes.add(fullPrefix);
+		}
+
+		if (this.log.isDebugEnabled())
+			this.log.debug("pass-through request URI prefixes: " + prefixes);
+
+		return prefixes.toArray(new String[prefixes.size()]);
+	}
 
 	/**
 	 * Build the route mappings. The implementation must call one of the
 	 * {@code addRoute} protected methods to add the route mappings.
 	 *
-	 * <p>Note, that the mappings must be configured in a way that no request
-	 * URI can ever match more than one mapping. If it does, the choice of the
-	 * mapping by the framework is unpredictable.
+	 * <p>Note, that the mappings should be configured in a way that no request
+	 * URI can ever match more than one mapping. If it does, the mapping is
+	 * chosen by comparing the request URI segment by segment: a literal
+	 * segment takes precedence over a segment with URI parameters, which takes
+	 * precedence over a URI parameter that may span multiple segments. Among
+	 * different segment patterns at the same position, the most frequently
+	 * matched ones are tried first, and among mappings with identical URI
+	 * patterns, the mapping added first is chosen.
 	 *
 	 * @param sc Servlet context.
 	 * @param routes Builder, to which to add the routes.
@@ -227,114 +676,80 @@ public abstract class AbstractRouterConfiguration
 			final HttpServletResponse response)
 		throws MethodNotAllowedException, ServletException {
 
-		// check if we have mappings
-		if (this.mappings.length == 0)
-			return null;
-
 		// try to find the matching route mapping
-		final Lock readLock = this.mappingsLock.readLock();
-		readLock.lock();
-		try {
-
-			// test request URI against the mappings
-			RouteImpl mapping = this.mappings[0];
-			final String requestURI = request.getRequestURI();
-			// TODO: reusable matcher?
-			final Matcher m = mapping.getURIPattern().matcher(requestURI);
-			int mappingInd = 0;
-			do {
-
-				// try to match the mapping
-				if (m.matches()) {
-
-					// log the match
-					if (this.log.isDebugEnabled())
-						this.log.debug("found mapping for URI " + requestURI +
-								" on attempt " + (mappingInd + 1));
-
-					// move the mapping higher if matched more frequently
-					final long numMatched = mapping.incrementNumMatched();
-					if (mappingInd > 0) {
-						final RouteImpl prevMapping =
-							this.mappings[mappingInd - 1];
-						if (numMatched > prevMapping.getNumMatched()) {
-							final Lock writeLock =
-								this.mappingsLock.writeLock();
-							readLock.unlock();
-							writeLock.lock();
-							try {
-								this.mappings[mappingInd] = prevMapping;
-								this.mappings[mappingInd - 1] = mapping;
-							} finally {
-								readLock.lock();
-								writeLock.unlock();
-							}
-						}
-					}
-
-					// wrap the request
-					final RouterRequestImpl routerRequest =
-						this.routerRequestPool.getSync();
-					boolean success = false;
-					try {
-
-						// initialize the router request
-						routerRequest.wrap(request, response, mapping,
-								this.isAuthenticationRequired(requestURI));
-
-						// add parameters made from the URI components
-						final int numURIParams = m.groupCount();
-						for (int i = 0; i < numURIParams; i++) {
-							final String uriParamName =
-								mapping.getURIParamName(i);
-							if (uriParamName != null)
-								routerRequest.addParameter(uriParamName,
-										m.group(i + 1));
-						}
-
-						// convert flash attributes cookie to request attributes
-						routerRequest.flashCookieToAttributes();
-
-						// return the router request
-						success = true;
-						return routerRequest;
-
-					} finally {
-						if (!success)
-							routerRequest.recycle();
-					}
+		final RoutingTable table = this.routingTable;
+		final String requestURI = request.getRequestURI();
+		if (table.mappingsIndex.isUnmatched(requestURI))
+			return null;
+		try (final RouteMatch match = this.routeMatchPool.getSync()) {
+
+			// look up the mapping in the index
+			if (!match.find(table.mappingsIndex, requestURI))
+				return null;
+			final RouteImpl mapping = match.getRoute();
+
+			// log the match
+			if (this.log.isDebugEnabled())
+				this.log.debug("found mapping for URI " + requestURI + ": " +
+						mapping.getId());
+
+			// wrap the request
+			final RouterRequestImpl routerRequest =
+				this.routerRequestPool.getSync();
+			boolean success = false;
+			try {
+
+				// initialize the router request
+				routerRequest.wrap(request, response, mapping,
+						isAuthenticationRequired(table, mapping,
+								requestURI));
+
+				// add parameters made from the URI components
+				final int numURIParams = match.getNumURIParamValues();
+				for (int i = 0; i < numURIParams; i++) {
+					final String uriParamName = mapping.getURIParamName(i);
+					if (uriParamName != null)
+						routerRequest.addParameter(uriParamName,
+								match.getURIParamValue(i));
 				}
 
-				// next mapping for next iteration
-				if (++mappingInd >= this.mappings.length)
-					break;
-				mapping = this.mappings[mappingInd];
-
-				// reuse the matcher
-				m.reset();
-				m.usePattern(mapping.getURIPattern());
+				// convert flash attributes cookie to request attributes
+				routerRequest.flashCookieToAttributes();
 
-			} while (true);
+				// return the router request
+				success = true;
+				return routerRequest;
 
-		} finally {
-			readLock.unlock();
+			} finally {
+				if (!success)
+					routerRequest.recycle();
+			}
 		}
-
-		// no mapping matched
-		return null;
 	}
 
 	/**
-	 * Tell if specified request URI requires authenticated user.
+	 * Tell if specified request URI matched by the specified route requires
+	 * authenticated user. The URI patterns are matched against the URI only
+	 * if the requirement could not be determined for the route when the
+	 * routing table was built.
 	 *
+	 * @param table Routing table, to which the route belongs.
+	 * @param mapping The route mapping.
 	 * @param requestURI Server root relative request URI.
 	 *
 	 * @return {@code true} if requires authenticated user.
 	 */
-	private boolean isAuthenticationRequired(final String requestURI) {
-
-		return (this.protectedURIPattern.matcher(requestURI).matches() &&
-				!this.publicURIPattern.matcher(requestURI).matches());
+	private static boolean isAuthenticationRequired(final RoutingTable table,
+			final RouteImpl mapping, final String requestURI) {
+
+		switch (mapping.getAuthRequirement()) {
+		case ALWAYS:
+			return true;
+		case NEVER:
+			return false;
+		default:
+			return table.isAuthenticationRequired(requestURI);
+		}
 	}
 
 	/* (non-Javadoc)
@@ -343,7 +758,7 @@ public abstract class AbstractRouterConfiguration
 	@Override
 	public String getLoginPageURI() {
 
-		return this.loginPageURI;
+		return this.routingTable.loginPageURI;
 	}
 
 	/* (non-Javadoc)
@@ -365,7 +780,8 @@ public abstract class AbstractRouterConfiguration
 			final String... uriParams) {
 
 		// find mapping
-		final RouteImpl mapping = this.mappingsById.get(routeId);
+		final RoutingTable table = this.routingTable;
+		final RouteImpl mapping = table.mappingsById.get(routeId);
 		if (mapping == null)
 			throw new IllegalArgumentException("No mapping for route id " +
 					routeId + ".");
@@ -391,7 +807,8 @@ public abstract class AbstractRouterConfiguration
 				(type == URIType.FORCE_ABSOLUTE_SSL) || (
 					(type == URIType.DEFAULT) && (
 						(mapping.getSecurityMode() != SecurityMode.DEFAULT) ||
-							this.isAuthenticationRequired(relativeURI)
+							isAuthenticationRequired(table, mapping,
+									relativeURI)
 					)
 				)
 			);
@@ -186,6 +186,15 @@ class ControllerHandlerImpl
 		return this.prepareViewMethodHandler.needsEntityManager();
 	}
 
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.spi.ControllerHandler#prepareViewIsReadOnly()
+	 */
+	@Override
+	public boolean prepareViewIsReadOnly() {
+
+		return this.prepareViewMethodHandler.isReadOnly();
+	}
+
 	/* (non-Javadoc)
 	 * @see com.boylesoftware.web.spi.ControllerHandler#prepareView(com.boylesoftware.web.spi.RouterRequest, javax.persistence.EntityManager)
 	 */
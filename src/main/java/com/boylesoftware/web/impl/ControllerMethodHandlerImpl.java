@@ -28,12 +28,14 @@ import javax.servlet.ServletException;
 import javax.servlet.UnavailableException;
 
 import com.boylesoftware.web.RequestedResourceException;
+import com.boylesoftware.web.api.ReadOnly;
 import com.boylesoftware.web.spi.ControllerMethodArgHandler;
 import com.boylesoftware.web.spi.ControllerMethodArgHandlerProvider;
 import com.boylesoftware.web.spi.ControllerMethodHandler;
 import com.boylesoftware.web.spi.RouterRequest;
 import com.boylesoftware.web.spi.UserInputHandler;
 import com.boylesoftware.web.util.pool.AbstractPoolable;
+import com.boylesoftware.web.util.pool.ConcurrentFastPool;
 import com.boylesoftware.web.util.pool.FastPool;
 import com.boylesoftware.web.util.pool.PoolableObjectFactory;
 
@@ -132,6 +134,11 @@ class ControllerMethodHandlerImpl
 	 */
 	private final boolean needsEntityManager;
 
+	/**
+	 * Tells if the method is read-only.
+	 */
+	private final boolean readOnly;
+
 	/**
 	 * Handler for the user input method parameter, or {@code null} if none.
 	 */
@@ -200,15 +207,18 @@ class ControllerMethodHandlerImpl
 		this.needsEntityManager = needsEntityManager;
 		this.userInputHandler = userInputHandler;
 
-		this.argsPool = new FastPool<>(new PoolableObjectFactory<Args>() {
+		this.readOnly = this.method.isAnnotationPresent(ReadOnly.class);
 
-			@Override
-			public Args makeNew(final FastPool<Args> pool,
-					final int pooledObjectId) {
+		this.argsPool = new ConcurrentFastPool<>(
+				new PoolableObjectFactory<Args>() {
 
-				return new Args(pool, pooledObjectId, argTypes.length);
-			}
-		}, "ControllerMethodArgumentListsPool");
+					@Override
+					public Args makeNew(final FastPool<Args> pool,
+							final int pooledObjectId) {
+
+						return new Args(pool, pooledObjectId, argTypes.length);
+					}
+				}, "ControllerMethodArgumentListsPool");
 
 		this.redirectOnSuccess = redirectOnSuccess;
 	}
@@ -243,6 +253,15 @@ class ControllerMethodHandlerImpl
 		return this.needsEntityManager;
 	}
 
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.spi.ControllerMethodHandler#isReadOnly()
+	 */
+	@Override
+	public boolean isReadOnly() {
+
+		return this.readOnly;
+	}
+
 	/* (non-Javadoc)
 	 * @see com.boylesoftware.web.spi.ControllerMethodHandler#call(com.boylesoftware.web.spi.RouterRequest, javax.persistence.EntityManager)
 	 */
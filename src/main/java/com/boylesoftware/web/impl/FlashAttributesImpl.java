@@ -149,6 +149,17 @@ class FlashAttributesImpl
 					"Invalid flash attributes cookie value.");
 	}
 
+	/**
+	 * Tell if there is a flash attributes cookie sent with the current
+	 * request.
+	 *
+	 * @return {@code true} if there is a flash attributes cookie.
+	 */
+	boolean hasFlashCookie() {
+
+		return this.hasFlashCookie;
+	}
+
 	/**
 	 * Convert flash attributes to a cookie.
 	 *
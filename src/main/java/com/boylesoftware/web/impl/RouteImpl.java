@@ -16,8 +16,10 @@
 package com.boylesoftware.web.impl;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Pattern;
 
 import javax.servlet.ServletContext;
@@ -25,7 +27,6 @@ import javax.servlet.UnavailableException;
 
 import org.apache.commons.logging.LogFactory;
 
-import com.boylesoftware.web.spi.ControllerMethodArgHandlerProvider;
 import com.boylesoftware.web.spi.Route;
 import com.boylesoftware.web.spi.Script;
 import com.boylesoftware.web.spi.ViewSender;
@@ -40,6 +41,38 @@ import com.boylesoftware.web.util.StringUtils;
 class RouteImpl
 	implements Route {
 
+	/**
+	 * Regular expression used for URI parameter values if the placeholder does
+	 * not specify one.
+	 */
+	static final String DEFAULT_URI_PARAM_PATTERN = "[^/]+";
+
+
+	/**
+	 * Authenticated user requirement determined for the route by the
+	 * protected and public URI patterns.
+	 */
+	enum AuthRequirement {
+
+		/**
+		 * Every request URI matched by the route requires an authenticated
+		 * user.
+		 */
+		ALWAYS,
+
+		/**
+		 * No request URI matched by the route requires an authenticated user.
+		 */
+		NEVER,
+
+		/**
+		 * The requirement depends on the URI parameter values and must be
+		 * determined for each request URI.
+		 */
+		URI_DEPENDENT
+	}
+
+
 	/**
 	 * Route id.
 	 */
@@ -55,6 +88,12 @@ class RouteImpl
 	 */
 	private final String[] uriParamNames;
 
+	/**
+	 * Regular expressions for values of parameters extracted from the URI
+	 * pattern.
+	 */
+	private final String[] uriParamPatterns;
+
 	/**
 	 * Request URI template.
 	 */
@@ -65,6 +104,27 @@ class RouteImpl
 	 */
 	private final SecurityMode securityMode;
 
+	/**
+	 * Scheduling priority.
+	 */
+	private final Priority priority;
+
+	/**
+	 * Tells if the route is read-only.
+	 */
+	private final boolean readOnly;
+
+	/**
+	 * Time to live of the cached responses in milliseconds, zero for the
+	 * response cache default, or -1 if the responses are not cached.
+	 */
+	private final long responseCacheTTL;
+
+	/**
+	 * Names of request parameters that distinguish cached responses.
+	 */
+	private final Collection<String> responseCacheParams;
+
 	/**
 	 * Script associated with the mapping, or {@code null}.
 	 */
@@ -81,9 +141,16 @@ class RouteImpl
 	private final ViewHandlerImpl viewHandler;
 
 	/**
-	 * Number of times this mapping has been matched.
+	 * Number of times this mapping has been matched. Striped to avoid
+	 * contention between concurrent requests.
+	 */
+	private final LongAdder numMatched;
+
+	/**
+	 * Authenticated user requirement. Set once while the router configuration
+	 * is being built.
 	 */
-	private AtomicLong numMatched;
+	private AuthRequirement authRequirement = AuthRequirement.URI_DEPENDENT;
 
 
 	/**
@@ -103,14 +170,14 @@ class RouteImpl
 	 * expression that matches anything except "/" is used. Each URI parameter
 	 * is converted to a regular request parameter with the specified name.
 	 * @param securityMode Security mode.
+	 * @param options Optional route parameters: the scheduling priority, the
+	 * read-only flag and the response caching parameters.
 	 * @param commonScript Additional logic associated with the mapping, or
 	 * {@code null} if none. If specified, the script is executed each time for
 	 * the matched request before the controller is called and the view is sent
 	 * back to the client.
-	 * @param controller Controller, or {@code null} if no controller is
-	 * associated with the mapped resource.
-	 * @param argHandlerProvider Controller method argument handler provider to
-	 * use.
+	 * @param controllerHandler Handler of the controller, or {@code null} if
+	 * no controller is associated with the mapped resource.
 	 * @param viewIdPattern Mapped resource view id. The id may contain
 	 * placeholders for request attributes and parameters in curly braces with
 	 * the attribute or parameter name inside. Attributes take precedence over
@@ -125,8 +192,8 @@ class RouteImpl
 	 */
 	RouteImpl(final ServletContext sc, final String id,
 			final String uriPattern, final SecurityMode securityMode,
-			final Script commonScript, final Object controller,
-			final ControllerMethodArgHandlerProvider argHandlerProvider,
+			final RouteOptions options, final Script commonScript,
+			final ControllerHandlerImpl controllerHandler,
 			final String viewIdPattern, final ViewSender viewSender,
 			final Script viewScript)
 		throws UnavailableException {
@@ -135,6 +202,7 @@ class RouteImpl
 		final StringBuilder uriTemplateSB = new StringBuilder();
 		final StringBuilder uriPatternSB = new StringBuilder();
 		final List<String> uriParamNamesList = new ArrayList<>();
+		final List<String> uriParamPatternsList = new ArrayList<>();
 		final StringBuilder paramNameSB = new StringBuilder();
 		final StringBuilder paramPatternSB = new StringBuilder();
 		final int patternLen = uriPattern.length();
@@ -179,9 +247,11 @@ class RouteImpl
 
 				uriParamNamesList.add(paramNameSB.length() > 0 ?
 						paramNameSB.toString() : null);
+				final String paramPattern = (paramPatternSB.length() > 0 ?
+						paramPatternSB.toString() : DEFAULT_URI_PARAM_PATTERN);
+				uriParamPatternsList.add(paramPattern);
 
-				uriPatternSB.append("\\E(")
-				.append(paramPatternSB.length() > 0 ? paramPatternSB : "[^/]+")
+				uriPatternSB.append("\\E(").append(paramPattern)
 				.append(")\\Q");
 
 				uriTemplateSB.append("%");
@@ -195,6 +265,8 @@ class RouteImpl
 		this.uriPattern = Pattern.compile(uriPatternSB.toString());
 		this.uriParamNames =
 			uriParamNamesList.toArray(new String[uriParamNamesList.size()]);
+		this.uriParamPatterns = uriParamPatternsList.toArray(
+				new String[uriParamPatternsList.size()]);
 		this.uriTemplate = uriTemplateSB.toString();
 
 		// route id
@@ -205,20 +277,33 @@ class RouteImpl
 		// save security mode
 		this.securityMode = securityMode;
 
+		// save scheduling priority
+		this.priority = options.getPriority();
+
+		// save read-only flag
+		this.readOnly = options.isReadOnly();
+
+		// save response caching parameters
+		this.responseCacheTTL = options.getResponseCacheTTL();
+		final Collection<String> responseCacheParams =
+			options.getResponseCacheParams();
+		this.responseCacheParams = (responseCacheParams != null ?
+				Collections.unmodifiableList(
+						new ArrayList<>(responseCacheParams)) :
+					Collections.<String>emptyList());
+
 		// save the script
 		this.script = commonScript;
 
-		// create controller handler
-		this.controllerHandler = (controller != null ?
-				new ControllerHandlerImpl(sc, controller, argHandlerProvider) :
-					null);
+		// set controller handler
+		this.controllerHandler = controllerHandler;
 
 		// create view handler
 		this.viewHandler =
 			new ViewHandlerImpl(viewIdPattern, viewScript, viewSender);
 
 		// initially the mapping has not been matched
-		this.numMatched = new AtomicLong();
+		this.numMatched = new LongAdder();
 	}
 
 	/**
@@ -233,45 +318,62 @@ class RouteImpl
 		this.id = baseMapping.id;
 		this.uriPattern = baseMapping.uriPattern;
 		this.uriParamNames = baseMapping.uriParamNames;
+		this.uriParamPatterns = baseMapping.uriParamPatterns;
 		this.uriTemplate = baseMapping.uriTemplate;
 		this.script = baseMapping.script;
 		this.controllerHandler = baseMapping.controllerHandler;
 		this.viewHandler = baseMapping.viewHandler;
 
-		this.numMatched = new AtomicLong();
+		this.numMatched = new LongAdder();
+		this.authRequirement = baseMapping.authRequirement;
 
 		this.securityMode = securityMode;
+		this.priority = baseMapping.priority;
+		this.readOnly = baseMapping.readOnly;
+		this.responseCacheTTL = baseMapping.responseCacheTTL;
+		this.responseCacheParams = baseMapping.responseCacheParams;
 	}
 
 
 	/**
-	 * Atomically get number of times this mapping has been matched.
+	 * Get number of times this mapping has been matched. The value is not an
+	 * atomic snapshot if the mapping is being matched concurrently.
 	 *
 	 * @return Number of times this mapping has been matched.
 	 */
 	long getNumMatched() {
 
-		return this.numMatched.get();
+		return this.numMatched.sum();
 	}
 
 	/**
-	 * Atomically increment the number of times this mapping has been matched.
+	 * Increment the number of times this mapping has been matched.
+	 */
+	void incrementNumMatched() {
+
+		this.numMatched.increment();
+	}
+
+	/**
+	 * Get authenticated user requirement determined for the route by the
+	 * protected and public URI patterns.
 	 *
-	 * @return The new value.
+	 * @return The requirement.
 	 */
-	long incrementNumMatched() {
+	AuthRequirement getAuthRequirement() {
 
-		return this.numMatched.incrementAndGet();
+		return this.authRequirement;
 	}
 
 	/**
-	 * Get route id.
+	 * Set authenticated user requirement. Called while the router
+	 * configuration is being built.
 	 *
-	 * @return Route id.
+	 * @param authRequirement The requirement.
 	 */
-	String getId() {
+	void setAuthRequirement(final AuthRequirement authRequirement) {
 
-		return this.id;
+		this.authRequirement = authRequirement;
 	}
 
 	/**
@@ -297,6 +399,21 @@ class RouteImpl
 		return this.uriParamNames[ind];
 	}
 
+	/**
+	 * Get regular expression for the values of the URI parameter with the
+	 * specified index.
+	 *
+	 * @param ind Zero-based parameter index.
+	 *
+	 * @return The regular expression, which is
+	 * {@value #DEFAULT_URI_PARAM_PATTERN} if placeholder in the URI pattern
+	 * does not specify one.
+	 */
+	String getURIParamPattern(final int ind) {
+
+		return this.uriParamPatterns[ind];
+	}
+
 	/**
 	 * Get number of URI parameters in the URI pattern.
 	 *
@@ -320,6 +437,15 @@ class RouteImpl
 	}
 
 
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.spi.Route#getId()
+	 */
+	@Override
+	public String getId() {
+
+		return this.id;
+	}
+
 	/* (non-Javadoc)
 	 * @see com.boylesoftware.web.spi.Route#getScript()
 	 */
@@ -355,4 +481,49 @@ class RouteImpl
 
 		return this.securityMode;
 	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.spi.Route#getPriority()
+	 */
+	@Override
+	public Priority getPriority() {
+
+		return this.priority;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.spi.Route#isReadOnly()
+	 */
+	@Override
+	public boolean isReadOnly() {
+
+		return this.readOnly;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.spi.Route#isResponseCacheable()
+	 */
+	@Override
+	public boolean isResponseCacheable() {
+
+		return (this.responseCacheTTL >= 0);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.spi.Route#getResponseCacheTTL()
+	 */
+	@Override
+	public long getResponseCacheTTL() {
+
+		return (this.responseCacheTTL > 0 ? this.responseCacheTTL : 0);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.spi.Route#getResponseCacheParams()
+	 */
+	@Override
+	public Collection<String> getResponseCacheParams() {
+
+		return this.responseCacheParams;
+	}
 }
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.impl;
+
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.boylesoftware.web.util.pool.AbstractPoolable;
+import com.boylesoftware.web.util.pool.FastPool;
+
+
+/**
+ * Poolable result of a {@link RoutesIndex} lookup. Also includes the re-usable
+ * regular expression matcher used by the lookup.
+ *
+ * @author Lev Himmelfarb
+ */
+final class RouteMatch
+	extends AbstractPoolable
+	implements AutoCloseable {
+
+	/**
+	 * Pattern plug.
+	 */
+	private static final Pattern PATTERN_PLUG = Pattern.compile("");
+
+
+	/**
+	 * Regular expression matcher.
+	 */
+	private final Matcher matcher;
+
+	/**
+	 * URI parameter values.
+	 */
+	private String[] uriParamValues;
+
+	/**
+	 * Number of URI parameter values.
+	 */
+	private int numURIParamValues;
+
+	/**
+	 * Matched route, or {@code null}.
+	 */
+	private RouteImpl route;
+
+
+	/**
+	 * Create new object.
+	 *
+	 * @param pool Reference to the pool.
+	 * @param pooledObjectId Pooled object id.
+	 */
+	RouteMatch(final FastPool<RouteMatch> pool, final int pooledObjectId) {
+		super(pool, pooledObjectId);
+
+		this.matcher = PATTERN_PLUG.matcher("");
+		this.matcher.useTransparentBounds(true);
+
+		this.uriParamValues = new String[0];
+	}
+
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.util.pool.AbstractPoolable#recycle()
+	 */
+	@Override
+	public void recycle() {
+
+		Arrays.fill(this.uriParamValues, null);
+		this.numURIParamValues = 0;
+		this.route = null;
+
+		this.matcher.usePattern(PATTERN_PLUG);
+		this.matcher.reset("");
+
+		super.recycle();
+	}
+
+	/**
+	 * Calls {@link #recycle}.
+	 */
+	@Override
+	public void close() {
+
+		this.recycle();
+	}
+
+
+	/**
+	 * Find route matching the specified request URI.
+	 *
+	 * @param index The index.
+	 * @param uri The request URI.
+	 *
+	 * @return {@code true} if found, in which case the route and the URI
+	 * parameter values are available via the {@link #getRoute} and
+	 * {@link #getURIParamValue} methods.
+	 */
+	boolean find(final RoutesIndex index, final String uri) {
+
+		final int maxURIParams = index.getMaxURIParams();
+		if (this.uriParamValues.length < maxURIParams)
+			this.uriParamValues = new String[maxURIParams];
+
+		this.route = index.find(uri, this);
+
+		return (this.route != null);
+	}
+
+	/**
+	 * Get matched route.
+	 *
+	 * @return The route, or {@code null} if not found.
+	 */
+	RouteImpl getRoute() {
+
+		return this.route;
+	}
+
+	/**
+	 * Get number of URI parameter values extracted from the request URI.
+	 *
+	 * @return Number of URI parameter values.
+	 */
+	int getNumURIParamValues() {
+
+		return this.numURIParamValues;
+	}
+
+	/**
+	 * Get URI parameter value.
+	 *
+	 * @param ind Zero-based URI parameter index.
+	 *
+	 * @return The value.
+	 */
+	String getURIParamValue(final int ind) {
+
+		return this.uriParamValues[ind];
+	}
+
+
+	/**
+	 * Get the matcher initialized for the specified input region.
+	 *
+	 * @param pattern The pattern.
+	 * @param input The input.
+	 * @param start Region start.
+	 * @param end Region end (exclusive).
+	 *
+	 * @return The matcher.
+	 */
+	Matcher getMatcher(final Pattern pattern, final CharSequence input,
+			final int start, final int end) {
+
+		this.matcher.usePattern(pattern);
+		this.matcher.reset(input);
+		this.matcher.region(start, end);
+
+		return this.matcher;
+	}
+
+	/**
+	 * Set URI parameter value.
+	 *
+	 * @param ind Zero-based URI parameter index.
+	 * @param value The value.
+	 */
+	void setURIParamValue(final int ind, final String value) {
+
+		this.uriParamValues[ind] = value;
+	}
+
+	/**
+	 * Set number of URI parameter values extracted from the request URI.
+	 *
+	 * @param numURIParamValues Number of URI parameter values.
+	 */
+	void setNumURIParamValues(final int numURIParamValues) {
+
+		this.numURIParamValues = numURIParamValues;
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.impl;
+
+import java.util.Collection;
+
+import com.boylesoftware.web.spi.Route.Priority;
+
+
+/**
+ * Optional route parameters passed to the {@link RoutesBuilder} when a route
+ * is added. A new options object describes a route with normal scheduling
+ * priority, processed in a transaction, whose responses are not cached. The
+ * setters return the options object, so that calls can be chained.
+ *
+ * @author Lev Himmelfarb
+ */
+public class RouteOptions {
+
+	/**
+	 * Scheduling priority.
+	 */
+	private Priority priority = Priority.NORMAL;
+
+	/**
+	 * Read-only flag.
+	 */
+	private boolean readOnly;
+
+	/**
+	 * Response cache time to live.
+	 */
+	private long responseCacheTTL = -1;
+
+	/**
+	 * Response cache request parameters, or {@code null}.
+	 */
+	private Collection<String> responseCacheParams;
+
+
+	/**
+	 * Set scheduling priority of the requests that use the route.
+	 *
+	 * @param priority The priority.
+	 *
+	 * @return This object.
+	 */
+	public RouteOptions setPriority(final Priority priority) {
+
+		this.priority = priority;
+
+		return this;
+	}
+
+	/**
+	 * Set read-only flag.
+	 *
+	 * @param readOnly {@code true} if the route only reads persistent data, in
+	 * which case the requests that use it are processed without a transaction.
+	 *
+	 * @return This object.
+	 */
+	public RouteOptions setReadOnly(final boolean readOnly) {
+
+		this.readOnly = readOnly;
+
+		return this;
+	}
+
+	/**
+	 * Enable caching of the responses to the anonymous GET requests that use
+	 * the route.
+	 *
+	 * @param ttl Time to live in milliseconds of the cached responses, or zero
+	 * for the response cache default.
+	 * @param params Names of request parameters that, in addition to the
+	 * request URI and the user locale, distinguish cached responses, or
+	 * {@code null} if none.
+	 *
+	 * @return This object.
+	 */
+	public RouteOptions setResponseCache(final long ttl,
+			final Collection<String> params) {
+
+		this.responseCacheTTL = ttl;
+		this.responseCacheParams = params;
+
+		return this;
+	}
+
+
+	/**
+	 * Get scheduling priority.
+	 *
+	 * @return The priority.
+	 */
+	Priority getPriority() {
+
+		return this.priority;
+	}
+
+	/**
+	 * Tell if the route only reads persistent data.
+	 *
+	 * @return {@code true} if read-only.
+	 */
+	boolean isReadOnly() {
+
+		return this.readOnly;
+	}
+
+	/**
+	 * Get response cache time to live.
+	 *
+	 * @return Time to live in milliseconds, zero for the response cache
+	 * default, or -1 if the responses are not cached.
+	 */
+	long getResponseCacheTTL() {
+
+		return this.responseCacheTTL;
+	}
+
+	/**
+	 * Get names of request parameters that distinguish cached responses.
+	 *
+	 * @return Parameter names, or {@code null} if none.
+	 */
+	Collection<String> getResponseCacheParams() {
+
+		return this.responseCacheParams;
+	}
+}
@@ -16,8 +16,10 @@
 package com.boylesoftware.web.impl;
 
 import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -44,6 +46,7 @@ import com.boylesoftware.web.spi.Route;
 import com.boylesoftware.web.spi.RouterRequest;
 import com.boylesoftware.web.spi.UserLocaleFinder;
 import com.boylesoftware.web.util.pool.AbstractPoolable;
+import com.boylesoftware.web.util.pool.ConcurrentFastPool;
 import com.boylesoftware.web.util.pool.FastPool;
 import com.boylesoftware.web.util.pool.Poolable;
 import com.boylesoftware.web.util.pool.PoolableObjectFactory;
@@ -106,7 +109,7 @@ class RouterRequestImpl
 	 * Single element string arrays pool.
 	 */
 	private static final FastPool<PoolableSingleElementStringArray> SESA_POOL =
-		new FastPool<>(
+		new ConcurrentFastPool<>(
 				new PoolableObjectFactory<PoolableSingleElementStringArray>() {
 
 					@Override
@@ -228,6 +231,18 @@ class RouterRequestImpl
 	 */
 	private boolean parameterNamesFilled;
 
+	/**
+	 * Opaque part of the entity tag built from the requested resource state
+	 * validators, or {@code null} if none.
+	 */
+	private String entityTag;
+
+	/**
+	 * Last modification time of the requested resource in milliseconds from
+	 * the validators, or -1 if none.
+	 */
+	private long lastModified = -1;
+
 
 	/**
 	 * Create new wrapper instance.
@@ -453,6 +468,15 @@ class RouterRequestImpl
 		return this.flashAttributes;
 	}
 
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.spi.RouterRequest#hasFlashAttributes()
+	 */
+	@Override
+	public boolean hasFlashAttributes() {
+
+		return this.flashAttributes.hasFlashCookie();
+	}
+
 	/* (non-Javadoc)
 	 * @see com.boylesoftware.web.spi.RouterRequest#commitFlashAttributes()
 	 */
@@ -462,6 +486,126 @@ class RouterRequestImpl
 		this.flashAttributes.flashAttributesToCookie(this, this.response);
 	}
 
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.spi.RouterRequest#addValidator(java.lang.Object)
+	 */
+	@Override
+	public void addValidator(final Object validator) {
+
+		long time;
+		if (validator instanceof Date) {
+			time = ((Date) validator).getTime();
+		} else if (validator instanceof Calendar) {
+			time = ((Calendar) validator).getTimeInMillis();
+		} else {
+			final String token = entityTagToken(validator.toString());
+			this.entityTag = (this.entityTag == null ? token :
+				this.entityTag + "." + token);
+			return;
+		}
+
+		// HTTP dates have one second precision
+		time = (time / 1000) * 1000;
+		if (time > this.lastModified)
+			this.lastModified = time;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.spi.RouterRequest#checkValidators()
+	 */
+	@Override
+	public boolean checkValidators() {
+
+		if ((this.entityTag == null) && (this.lastModified < 0))
+			return false;
+
+		// the same validators may describe different pages for different users
+		if (this.getAttribute(Attributes.AUTHED_USER) != null) {
+			this.response.addHeader("Vary", "Cookie");
+			return false;
+		}
+
+		// the page is rendered in the user locale, so the entity tag includes
+		// it and is always sent, so that the clients validate with it
+		final String localeToken =
+			entityTagToken(String.valueOf(this.getUserLocale()));
+		final String entityTag = (this.entityTag != null ?
+				localeToken + "." + this.entityTag : localeToken);
+		this.response.setHeader("ETag", "W/\"" + entityTag + "\"");
+		if (this.lastModified >= 0)
+			this.response.setDateHeader("Last-Modified", this.lastModified);
+		this.response.addHeader("Vary", "Accept-Language");
+
+		final String method = this.getMethod();
+		if (!"GET".equals(method) && !"HEAD".equals(method))
+			return false;
+
+		final String ifNoneMatch = this.getHeader("If-None-Match");
+		if (ifNoneMatch != null)
+			return matchesEntityTag(ifNoneMatch, entityTag);
+
+		if (this.lastModified < 0)
+			return false;
+		final long ifModifiedSince;
+		try {
+			ifModifiedSince = this.getDateHeader("If-Modified-Since");
+		} catch (final IllegalArgumentException e) {
+			return false;
+		}
+
+		return ((ifModifiedSince >= 0) &&
+				(this.lastModified <= ifModifiedSince));
+	}
+
+	/**
+	 * Convert validator string representation to an entity tag token. Values
+	 * that are not short strings of characters allowed in entity tags are
+	 * replaced with their hash codes.
+	 *
+	 * @param value Validator string representation.
+	 *
+	 * @return The token.
+	 */
+	private static String entityTagToken(final String value) {
+
+		final int len = value.length();
+		boolean safe = ((len > 0) && (len <= 64));
+		for (int i = 0; safe && (i < len); i++) {
+			final char c = value.charAt(i);
+			safe = ((c > 0x20) && (c < 0x7F) && (c != '"') && (c != '.'));
+		}
+
+		return (safe ? value : Integer.toHexString(value.hashCode()));
+	}
+
+	/**
+	 * Tell if an "If-None-Match" request header matches the entity tag. The
+	 * weak comparison is used.
+	 *
+	 * @param ifNoneMatch The header value.
+	 * @param entityTag Opaque part of the entity tag.
+	 *
+	 * @return {@code true} if matches.
+	 */
+	private static boolean matchesEntityTag(final String ifNoneMatch,
+			final String entityTag) {
+
+		for (final String tagRaw : ifNoneMatch.split(",")) {
+			String tag = tagRaw.trim();
+			if (tag.equals("*"))
+				return true;
+			if (tag.startsWith("W/"))
+				tag = tag.substring(2);
+			if ((tag.length() == entityTag.length() + 2) &&
+					(tag.charAt(0) == '"') &&
+					tag.regionMatches(1, entityTag, 0, entityTag.length()) &&
+					(tag.charAt(tag.length() - 1) == '"'))
+				return true;
+		}
+
+		return false;
+	}
+
 	/* (non-Javadoc)
 	 * @see com.boylesoftware.web.spi.RouterRequest#rewrap(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse)
 	 */
@@ -514,6 +658,9 @@ class RouterRequestImpl
 
 		this.userLocale = null;
 
+		this.entityTag = null;
+		this.lastModified = -1;
+
 		this.pool.recycleSync(this);
 	}
 
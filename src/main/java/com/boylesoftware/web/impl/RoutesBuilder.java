@@ -15,14 +15,22 @@
  */
 package com.boylesoftware.web.impl;
 
+import java.lang.reflect.Constructor;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 import javax.servlet.ServletContext;
 import javax.servlet.UnavailableException;
 
 import com.boylesoftware.web.spi.ControllerMethodArgHandlerProvider;
+import com.boylesoftware.web.spi.QueryResultsCache;
 import com.boylesoftware.web.spi.Script;
 import com.boylesoftware.web.spi.ViewSender;
 import com.boylesoftware.web.spi.Route.SecurityMode;
@@ -52,11 +60,39 @@ public class RoutesBuilder {
 	 */
 	private final ViewSender viewSender;
 
+	/**
+	 * Query results cache, or {@code null}.
+	 */
+	private final QueryResultsCache queryResultsCache;
+
 	/**
 	 * The routes.
 	 */
 	private final Collection<RouteImpl> routes;
 
+	/**
+	 * Controllers used by the routes added to this builder by the controller
+	 * class and constructor arguments, in the order of the routes.
+	 */
+	private final Map<List<Object>, List<Object>> controllers =
+		new HashMap<>();
+
+	/**
+	 * Handlers of the controllers used by the routes added to this builder.
+	 */
+	private final Map<Object, ControllerHandlerImpl> controllerHandlers =
+		new IdentityHashMap<>();
+
+	/**
+	 * Controllers used by the previous routes.
+	 */
+	private final Map<List<Object>, List<Object>> prevControllers;
+
+	/**
+	 * Handlers of the controllers used by the previous routes.
+	 */
+	private final Map<Object, ControllerHandlerImpl> prevControllerHandlers;
+
 	/**
 	 * Login page URI.
 	 */
@@ -79,16 +115,32 @@ public class RoutesBuilder {
 	 * @param sc Servlet context.
 	 * @param argHandlerProvider Controller method argument handler provider.
 	 * @param viewSender View sender.
+	 * @param queryResultsCache Query results cache, or {@code null} if the
+	 * application does not cache query results.
+	 * @param prevBuilder Builder of the previous routes, from which to reuse
+	 * unchanged controllers and their handlers when the routes are reloaded,
+	 * or {@code null}.
 	 */
 	RoutesBuilder(final ServletContext sc,
 			final ControllerMethodArgHandlerProvider argHandlerProvider,
-			final ViewSender viewSender) {
+			final ViewSender viewSender,
+			final QueryResultsCache queryResultsCache,
+			final RoutesBuilder prevBuilder) {
 
 		this.sc = sc;
 		this.argHandlerProvider = argHandlerProvider;
 		this.viewSender = viewSender;
+		this.queryResultsCache = queryResultsCache;
 
 		this.routes = new ArrayList<>(128);
+
+		if (prevBuilder != null) {
+			this.prevControllers = prevBuilder.controllers;
+			this.prevControllerHandlers = prevBuilder.controllerHandlers;
+		} else {
+			this.prevControllers = Collections.emptyMap();
+			this.prevControllerHandlers = Collections.emptyMap();
+		}
 	}
 
 
@@ -133,13 +185,127 @@ public class RoutesBuilder {
 			final Script viewScript)
 		throws UnavailableException {
 
+		this.addRoute(id, uriPattern, securityMode, new RouteOptions(),
+				routeScript, controller, viewIdPattern, viewScript);
+	}
+
+	/**
+	 * Add route mapping with the specified optional parameters.
+	 *
+	 * @param id Route id, or {@code null} to auto-generate id from the URI
+	 * pattern. See
+	 * {@link #addRoute(String, String, SecurityMode, Script, Object, String, Script)}.
+	 * @param uriPattern Request URI pattern. See
+	 * {@link #addRoute(String, String, SecurityMode, Script, Object, String, Script)}.
+	 * @param securityMode Security mode.
+	 * @param options Optional route parameters, such as the scheduling
+	 * priority, the read-only flag and the response caching parameters.
+	 * @param routeScript Additional logic associated with the mapping, or
+	 * {@code null} if none.
+	 * @param controller Controller, or {@code null} if no controller is
+	 * associated with the mapped route.
+	 * @param viewIdPattern Mapped resource view id.
+	 * @param viewScript Additional logic associated with the view, or
+	 * {@code null} if none.
+	 *
+	 * @throws UnavailableException If an error happens.
+	 */
+	public void addRoute(final String id, final String uriPattern,
+			final SecurityMode securityMode, final RouteOptions options,
+			final Script routeScript, final Object controller,
+			final String viewIdPattern, final Script viewScript)
+		throws UnavailableException {
+
 		final String contextPath =
 			StringUtils.emptyIfNull(this.sc.getContextPath());
 
 		this.routes.add(new RouteImpl(this.sc, id, contextPath + uriPattern,
-				securityMode, routeScript, controller,
-				this.argHandlerProvider, viewIdPattern, this.viewSender,
-				viewScript));
+				securityMode, options, routeScript,
+				this.getControllerHandler(controller), viewIdPattern,
+				this.viewSender, viewScript));
+	}
+
+	/**
+	 * Get controller for a new route created with the specified constructor
+	 * and arguments. Each route gets its own controller instance. When the
+	 * routes are reloaded, the instance used by the previous routes is reused
+	 * instead, so that its handler does not need to be recreated. The
+	 * instances are matched by the controller class, the constructor arguments
+	 * and the order of the routes that use them.
+	 *
+	 * @param constr Controller constructor.
+	 * @param args Constructor arguments.
+	 *
+	 * @return The controller.
+	 *
+	 * @throws ReflectiveOperationException If the controller cannot be
+	 * instantiated.
+	 */
+	public Object getController(final Constructor<?> constr,
+			final Object[] args)
+		throws ReflectiveOperationException {
+
+		final List<Object> key = new ArrayList<>(args.length + 1);
+		key.add(constr.getDeclaringClass());
+		key.addAll(Arrays.asList(args));
+
+		List<Object> keyControllers = this.controllers.get(key);
+		if (keyControllers == null) {
+			keyControllers = new ArrayList<>(1);
+			this.controllers.put(key, keyControllers);
+		}
+
+		final List<Object> prevKeyControllers = this.prevControllers.get(key);
+		final int ind = keyControllers.size();
+		final Object controller = ((prevKeyControllers != null) &&
+				(ind < prevKeyControllers.size()) ?
+						prevKeyControllers.get(ind) : constr.newInstance(args));
+		keyControllers.add(controller);
+
+		return controller;
+	}
+
+	/**
+	 * Get handler for the specified controller, creating it unless the
+	 * controller is already used by another route or was used by the previous
+	 * routes.
+	 *
+	 * @param controller The controller, or {@code null}.
+	 *
+	 * @return The controller handler, or {@code null} if the controller is
+	 * {@code null}.
+	 *
+	 * @throws UnavailableException If the controller is invalid.
+	 */
+	private ControllerHandlerImpl getControllerHandler(final Object controller)
+		throws UnavailableException {
+
+		if (controller == null)
+			return null;
+
+		ControllerHandlerImpl controllerHandler =
+			this.controllerHandlers.get(controller);
+		if (controllerHandler == null) {
+			controllerHandler = this.prevControllerHandlers.get(controller);
+			if (controllerHandler == null)
+				controllerHandler = new ControllerHandlerImpl(this.sc,
+						controller, this.argHandlerProvider);
+			this.controllerHandlers.put(controller, controllerHandler);
+		}
+
+		return controllerHandler;
+	}
+
+	/**
+	 * Get cache to use for the results of the queries performed by the route
+	 * and view scripts, for which caching is requested.
+	 *
+	 * @return The query results cache, or {@code null} if the application
+	 * does not cache query results.
+	 */
+	public QueryResultsCache getQueryResultsCache() {
+
+		return this.queryResultsCache;
 	}
 
 	/**
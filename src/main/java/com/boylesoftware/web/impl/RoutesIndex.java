@@ -0,0 +1,747 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/**
+ * Index of route mappings compiled from the route URI templates. The index is a
+ * trie of request URI path segments. Literal segments are dispatched using a
+ * hash table, segments that contain URI parameter placeholders are matched
+ * against per-segment regular expressions, and only routes with URI parameters
+ * whose values may span multiple segments fall back to matching the whole
+ * request URI against the route's URI pattern. The lookup cost, therefore,
+ * depends on the request URI depth rather than on the number of routes.
+ *
+ * <p>Alternative candidates at each index node (segment patterns and routes
+ * that need full URI pattern matching) are tried in the order of their
+ * popularity. The index periodically re-sorts the candidates using the route
+ * match counters and publishes the new order by replacing the candidate
+ * arrays, so that the lookups never take any locks. Other than that, once
+ * built, the index is immutable and can be used concurrently.
+ *
+ * <p>Request URIs that do not match any route, such as the URIs of the static
+ * resources served by the container, are rejected without the lookup if they
+ * start with one of the configured pass-through prefixes. The index also
+ * remembers the URIs, for which the lookup did not find a route, in a bounded
+ * negative cache, so that the repeated requests for the same URI are rejected
+ * with a single hash table lookup as well. When the negative cache fills up,
+ * it is emptied and starts filling up again.
+ *
+ * @author Lev Himmelfarb
+ */
+final class RoutesIndex {
+
+	/**
+	 * Empty node array.
+	 */
+	private static final Node[] NO_NODES = new Node[0];
+
+	/**
+	 * Empty routes array.
+	 */
+	private static final RouteImpl[] NO_ROUTES = new RouteImpl[0];
+
+	/**
+	 * Interval in milliseconds between re-sorting the candidates by
+	 * popularity.
+	 */
+	private static final long REORDER_INTERVAL = 10000;
+
+	/**
+	 * Maximum length of a request URI that can be stored in the negative
+	 * cache.
+	 */
+	private static final int MAX_UNMATCHED_URI_LENGTH = 256;
+
+
+	/**
+	 * Index node, which corresponds to a request URI path segment.
+	 */
+	private static final class Node {
+
+		/**
+		 * Segment pattern, or {@code null} for literal segment nodes.
+		 */
+		final Pattern pattern;
+
+		/**
+		 * Number of capturing groups in the segment pattern.
+		 */
+		final int numGroups;
+
+		/**
+		 * Literal children by segment value. Used only while the index is
+		 * being built.
+		 */
+		private Map<String, Node> literalChildrenMap = new HashMap<>();
+
+		/**
+		 * Pattern children by segment regular expression. Used only while the
+		 * index is being built.
+		 */
+		private Map<String, Node> patternChildrenMap = new LinkedHashMap<>();
+
+		/**
+		 * Routes that end at this node. Used only while the index is being
+		 * built.
+		 */
+		private List<RouteImpl> terminalRoutesList = new ArrayList<>();
+
+		/**
+		 * Routes that need the full URI pattern matching starting at this node.
+		 * Used only while the index is being built.
+		 */
+		private List<RouteImpl> regexRoutesList = new ArrayList<>();
+
+		/**
+		 * Open addressing hash table of literal children segment values, or
+		 * {@code null} if no literal children.
+		 */
+		String[] literalKeys;
+
+		/**
+		 * Literal children corresponding to the {@code literalKeys} elements.
+		 */
+		Node[] literalNodes;
+
+		/**
+		 * Mask for the literal children hash table index.
+		 */
+		int literalMask;
+
+		/**
+		 * Pattern children, most popular first.
+		 */
+		volatile Node[] patternChildren;
+
+		/**
+		 * Routes that end at this node.
+		 */
+		RouteImpl[] terminalRoutes;
+
+		/**
+		 * Routes that need the full URI pattern matching starting at this node,
+		 * most popular first.
+		 */
+		volatile RouteImpl[] regexRoutes;
+
+
+		/**
+		 * Create new node.
+		 *
+		 * @param pattern Segment pattern, or {@code null} for a literal segment
+		 * node.
+		 */
+		Node(final Pattern pattern) {
+
+			this.pattern = pattern;
+			this.numGroups =
+				(pattern != null ? pattern.matcher("").groupCount() : 0);
+		}
+
+
+		/**
+		 * Get literal child node, creating it if necessary. Used while the
+		 * index is being built.
+		 *
+		 * @param segment Segment value.
+		 *
+		 * @return The child node.
+		 */
+		Node getLiteralChild(final String segment) {
+
+			Node child = this.literalChildrenMap.get(segment);
+			if (child == null) {
+				child = new Node(null);
+				this.literalChildrenMap.put(segment, child);
+			}
+
+			return child;
+		}
+
+		/**
+		 * Get pattern child node, creating it if necessary. Used while the
+		 * index is being built.
+		 *
+		 * @param segmentRegex Segment regular expression.
+		 *
+		 * @return The child node.
+		 */
+		Node getPatternChild(final String segmentRegex) {
+
+			Node child = this.patternChildrenMap.get(segmentRegex);
+			if (child == null) {
+				child = new Node(Pattern.compile(segmentRegex));
+				this.patternChildrenMap.put(segmentRegex, child);
+			}
+
+			return child;
+		}
+
+		/**
+		 * Add route that ends at this node. Used while the index is being
+		 * built.
+		 *
+		 * @param route The route.
+		 */
+		void addTerminalRoute(final RouteImpl route) {
+
+			this.terminalRoutesList.add(route);
+		}
+
+		/**
+		 * Add route that needs full URI pattern matching. Used while the index
+		 * is being built.
+		 *
+		 * @param route The route.
+		 */
+		void addRegexRoute(final RouteImpl route) {
+
+			this.regexRoutesList.add(route);
+		}
+
+		/**
+		 * Convert the build time collections into the lookup structures for
+		 * this node and all its descendants.
+		 */
+		void freeze() {
+
+			final int numLiterals = this.literalChildrenMap.size();
+			if (numLiterals > 0) {
+				int capacity = 2;
+				while (capacity < numLiterals * 2)
+					capacity <<= 1;
+				this.literalKeys = new String[capacity];
+				this.literalNodes = new Node[capacity];
+				this.literalMask = capacity - 1;
+				for (final Map.Entry<String, Node> entry :
+						this.literalChildrenMap.entrySet()) {
+					final String key = entry.getKey();
+					int i = spread(key.hashCode()) & this.literalMask;
+					while (this.literalKeys[i] != null)
+						i = (i + 1) & this.literalMask;
+					this.literalKeys[i] = key;
+					this.literalNodes[i] = entry.getValue();
+					entry.getValue().freeze();
+				}
+			}
+			this.literalChildrenMap = null;
+
+			this.patternChildren = (this.patternChildrenMap.isEmpty() ?
+					NO_NODES : this.patternChildrenMap.values().toArray(
+							new Node[this.patternChildrenMap.size()]));
+			for (final Node child : this.patternChildren)
+				child.freeze();
+			this.patternChildrenMap = null;
+
+			this.terminalRoutes = (this.terminalRoutesList.isEmpty() ?
+					NO_ROUTES : this.terminalRoutesList.toArray(
+							new RouteImpl[this.terminalRoutesList.size()]));
+			this.terminalRoutesList = null;
+
+			this.regexRoutes = (this.regexRoutesList.isEmpty() ?
+					NO_ROUTES : this.regexRoutesList.toArray(
+							new RouteImpl[this.regexRoutesList.size()]));
+			this.regexRoutesList = null;
+		}
+
+		/**
+		 * Find literal child node for the specified segment of the request URI.
+		 *
+		 * @param uri The request URI.
+		 * @param start Segment start index in the URI.
+		 * @param end Segment end index in the URI (exclusive).
+		 *
+		 * @return The child node, or {@code null} if none.
+		 */
+		Node findLiteralChild(final String uri, final int start,
+				final int end) {
+
+			final String[] keys = this.literalKeys;
+			if (keys == null)
+				return null;
+
+			int h = 0;
+			for (int i = start; i < end; i++)
+				h = 31 * h + uri.charAt(i);
+
+			final int len = end - start;
+			for (int i = spread(h) & this.literalMask;;
+					i = (i + 1) & this.literalMask) {
+				final String key = keys[i];
+				if (key == null)
+					return null;
+				if ((key.length() == len) &&
+						key.regionMatches(0, uri, start, len))
+					return this.literalNodes[i];
+			}
+		}
+	}
+
+
+	/**
+	 * Root node of the trie.
+	 */
+	private final Node root;
+
+	/**
+	 * Maximum number of URI parameters in a route.
+	 */
+	private final int maxURIParams;
+
+	/**
+	 * Time when the candidates are due to be re-sorted by popularity next
+	 * time.
+	 */
+	private final AtomicLong nextReorderTime;
+
+	/**
+	 * Request URI prefixes that do not match any route.
+	 */
+	private final String[] passThroughPrefixes;
+
+	/**
+	 * Negative cache of request URIs known to not match any route, or
+	 * {@code null} if the negative cache is disabled.
+	 */
+	private final ConcurrentMap<String, Boolean> unmatchedURIs;
+
+	/**
+	 * Maximum number of URIs in the negative cache.
+	 */
+	private final int unmatchedURIsCapacity;
+
+	/**
+	 * Approximate number of URIs in the negative cache.
+	 */
+	private final AtomicInteger numUnmatchedURIs = new AtomicInteger();
+
+
+	/**
+	 * Build index for the specified routes.
+	 *
+	 * @param routes The routes. If a request URI matches more than one route,
+	 * the routes that come earlier in the array take precedence among the
+	 * routes that end at the same index node.
+	 * @param passThroughPrefixes Request URI prefixes that do not match any
+	 * route. The routes are not checked against the prefixes.
+	 * @param negativeCacheSize Maximum number of request URIs kept in the
+	 * negative cache. Zero disables the negative cache.
+	 */
+	RoutesIndex(final RouteImpl[] routes, final String[] passThroughPrefixes,
+			final int negativeCacheSize) {
+
+		this.root = new Node(null);
+		int maxURIParams = 0;
+		for (final RouteImpl route : routes) {
+			this.addRoute(route);
+			if (route.getNumURIParams() > maxURIParams)
+				maxURIParams = route.getNumURIParams();
+		}
+		this.root.freeze();
+		this.maxURIParams = maxURIParams;
+		this.nextReorderTime =
+			new AtomicLong(System.currentTimeMillis() + REORDER_INTERVAL);
+
+		this.passThroughPrefixes = passThroughPrefixes.clone();
+		this.unmatchedURIs = (negativeCacheSize > 0 ?
+				new ConcurrentHashMap<String, Boolean>() : null);
+		this.unmatchedURIsCapacity = negativeCacheSize;
+	}
+
+	/**
+	 * Add route to the index.
+	 *
+	 * @param route The route.
+	 */
+	private void addRoute(final RouteImpl route) {
+
+		// check if the template can be split into segments
+		final String tmpl = route.getURITemplate();
+		final int tmplLen = tmpl.length();
+		int numPlaceholders = 0;
+		for (int i = 0; i < tmplLen; i++)
+			if (tmpl.charAt(i) == '%')
+				numPlaceholders++;
+		if ((tmplLen == 0) || (tmpl.charAt(0) != '/') ||
+				(numPlaceholders != route.getNumURIParams())) {
+			this.root.addRegexRoute(route);
+			return;
+		}
+
+		// walk the template segments
+		Node node = this.root;
+		int paramInd = 0;
+		int segStart = 1;
+		final StringBuilder segmentRegex = new StringBuilder(64);
+		do {
+			int segEnd = tmpl.indexOf('/', segStart);
+			if (segEnd < 0)
+				segEnd = tmplLen;
+
+			final int phInd = tmpl.indexOf('%', segStart);
+			if ((phInd < 0) || (phInd >= segEnd)) {
+				node = node.getLiteralChild(tmpl.substring(segStart, segEnd));
+			} else {
+				segmentRegex.setLength(0);
+				int litStart = segStart;
+				for (int i = phInd; i < segEnd; i++) {
+					if (tmpl.charAt(i) != '%')
+						continue;
+					final String paramPattern =
+						route.getURIParamPattern(paramInd++);
+					if (!isSingleSegmentPattern(paramPattern)) {
+						node.addRegexRoute(route);
+						return;
+					}
+					if (i > litStart)
+						segmentRegex.append(
+								Pattern.quote(tmpl.substring(litStart, i)));
+					segmentRegex.append('(').append(paramPattern).append(')');
+					litStart = i + 1;
+				}
+				if (segEnd > litStart)
+					segmentRegex.append(
+							Pattern.quote(tmpl.substring(litStart, segEnd)));
+				node = node.getPatternChild(segmentRegex.toString());
+			}
+
+			segStart = segEnd + 1;
+		} while (segStart <= tmplLen);
+
+		node.addTerminalRoute(route);
+	}
+
+	/**
+	 * Tell if the specified URI parameter value regular expression can never
+	 * match a "/" character. The check is conservative: a {@code false} result
+	 * means only that the expression may span multiple URI segments.
+	 *
+	 * @param pattern URI parameter value regular expression.
+	 *
+	 * @return {@code true} if the expression is known to match within a single
+	 * URI segment.
+	 */
+	private static boolean isSingleSegmentPattern(final String pattern) {
+
+		if (pattern.equals(RouteImpl.DEFAULT_URI_PARAM_PATTERN))
+			return true;
+
+		final int len = pattern.length();
+		for (int i = 0; i < len; i++) {
+			switch (pattern.charAt(i)) {
+			case '/':
+			case '.':
+			case '^':
+				return false;
+			case '\\':
+				if (++i >= len)
+					return false;
+				final char c = pattern.charAt(i);
+				if ((c == '/') || (Character.isLetterOrDigit(c) &&
+						(c != 'd') && (c != 'w') && (c != 's')))
+					return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Spread hash code bits for the hash table index.
+	 *
+	 * @param h The hash code.
+	 *
+	 * @return Spread hash code.
+	 */
+	static int spread(final int h) {
+
+		return (h ^ (h >>> 16));
+	}
+
+
+	/**
+	 * Get maximum number of URI parameters in a route.
+	 *
+	 * @return Maximum number of URI parameters.
+	 */
+	int getMaxURIParams() {
+
+		return this.maxURIParams;
+	}
+
+	/**
+	 * Tell if the specified request URI is known to not match any route
+	 * without performing the lookup. The check does not use the route match
+	 * objects and does not run any regular expressions.
+	 *
+	 * @param uri The request URI.
+	 *
+	 * @return {@code true} if the URI starts with a pass-through prefix or is
+	 * in the negative cache. If {@code false}, the URI still may not match any
+	 * route.
+	 */
+	boolean isUnmatched(final String uri) {
+
+		for (final String prefix : this.passThroughPrefixes)
+			if (uri.startsWith(prefix))
+				return true;
+
+		return ((this.unmatchedURIs != null) &&
+				this.unmatchedURIs.containsKey(uri));
+	}
+
+	/**
+	 * Find route matching the specified request URI.
+	 *
+	 * @param uri The request URI.
+	 * @param match Route match object, which receives the URI parameter values
+	 * extracted from the request URI.
+	 *
+	 * @return Matching route, or {@code null} if none.
+	 */
+	RouteImpl find(final String uri, final RouteMatch match) {
+
+		final RouteImpl route;
+		if ((uri.length() == 0) || (uri.charAt(0) != '/'))
+			route = this.findRegexRoute(this.root, uri, match);
+		else
+			route = this.find(this.root, uri, 1, 0, match);
+
+		if (route != null) {
+			route.incrementNumMatched();
+			final long now = System.currentTimeMillis();
+			final long nextReorderTime = this.nextReorderTime.get();
+			if ((now >= nextReorderTime) && this.nextReorderTime.compareAndSet(
+					nextReorderTime, now + REORDER_INTERVAL))
+				reorder(this.root);
+		} else {
+			this.addUnmatched(uri);
+		}
+
+		return route;
+	}
+
+	/**
+	 * Add request URI that does not match any route to the negative cache.
+	 * If the cache is full, it is emptied first.
+	 *
+	 * @param uri The request URI.
+	 */
+	private void addUnmatched(final String uri) {
+
+		if ((this.unmatchedURIs == null) ||
+				(uri.length() > MAX_UNMATCHED_URI_LENGTH))
+			return;
+
+		if (this.numUnmatchedURIs.incrementAndGet() >
+				this.unmatchedURIsCapacity) {
+			this.unmatchedURIs.clear();
+			this.numUnmatchedURIs.set(1);
+		}
+
+		if (this.unmatchedURIs.putIfAbsent(uri, Boolean.TRUE) != null)
+			this.numUnmatchedURIs.decrementAndGet();
+	}
+
+	/**
+	 * Recursively find route matching the remainder of the request URI.
+	 *
+	 * @param node Current node.
+	 * @param uri The request URI.
+	 * @param segStart Start index of the next URI segment, or URI length plus
+	 * one if all segments have been consumed.
+	 * @param numValues Number of URI parameter values extracted so far.
+	 * @param match Route match object.
+	 *
+	 * @return Matching route, or {@code null} if none.
+	 */
+	private RouteImpl find(final Node node, final String uri,
+			final int segStart, final int numValues, final RouteMatch match) {
+
+		final int uriLen = uri.length();
+		if (segStart > uriLen) {
+
+			// all segments consumed
+			if (node.terminalRoutes.length > 0) {
+				match.setNumURIParamValues(numValues);
+				return node.terminalRoutes[0];
+			}
+
+		} else {
+
+			// get next segment
+			int segEnd = uri.indexOf('/', segStart);
+			if (segEnd < 0)
+				segEnd = uriLen;
+			final int nextSegStart = segEnd + 1;
+
+			// try literal segment
+			final Node literalChild =
+				node.findLiteralChild(uri, segStart, segEnd);
+			if (literalChild != null) {
+				final RouteImpl route = this.find(literalChild, uri,
+						nextSegStart, numValues, match);
+				if (route != null)
+					return route;
+			}
+
+			// try segment patterns
+			final Node[] patternChildren = node.patternChildren;
+			for (final Node patternChild : patternChildren) {
+				final Matcher m = match.getMatcher(patternChild.pattern, uri,
+						segStart, segEnd);
+				if (!m.matches())
+					continue;
+				final int numGroups = patternChild.numGroups;
+				for (int i = 0; i < numGroups; i++)
+					match.setURIParamValue(numValues + i, m.group(i + 1));
+				final RouteImpl route = this.find(patternChild, uri,
+						nextSegStart, numValues + numGroups, match);
+				if (route != null)
+					return route;
+			}
+		}
+
+		// fall back to the full URI pattern matching
+		return this.findRegexRoute(node, uri, match);
+	}
+
+	/**
+	 * Find route matching the request URI among the node routes that need full
+	 * URI pattern matching.
+	 *
+	 * @param node The node.
+	 * @param uri The request URI.
+	 * @param match Route match object.
+	 *
+	 * @return Matching route, or {@code null} if none.
+	 */
+	private RouteImpl findRegexRoute(final Node node, final String uri,
+			final RouteMatch match) {
+
+		final RouteImpl[] regexRoutes = node.regexRoutes;
+		for (final RouteImpl route : regexRoutes) {
+			final Matcher m = match.getMatcher(route.getURIPattern(), uri, 0,
+					uri.length());
+			if (m.matches()) {
+				final int numGroups = m.groupCount();
+				for (int i = 0; i < numGroups; i++)
+					match.setURIParamValue(i, m.group(i + 1));
+				match.setNumURIParamValues(numGroups);
+				return route;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Recursively re-sort the candidates of the specified node and all its
+	 * descendants by popularity.
+	 *
+	 * @param node The node.
+	 *
+	 * @return Total number of matches of the routes in the node's subtree.
+	 */
+	private static long reorder(final Node node) {
+
+		long numMatched = 0;
+
+		for (final RouteImpl route : node.terminalRoutes)
+			numMatched += route.getNumMatched();
+
+		final Node[] literalNodes = node.literalNodes;
+		if (literalNodes != null)
+			for (final Node child : literalNodes)
+				if (child != null)
+					numMatched += reorder(child);
+
+		final Node[] patternChildren = node.patternChildren;
+		final int numPatternChildren = patternChildren.length;
+		if (numPatternChildren > 0) {
+			final long[] childrenNumMatched = new long[numPatternChildren];
+			for (int i = 0; i < numPatternChildren; i++)
+				numMatched += (childrenNumMatched[i] =
+					reorder(patternChildren[i]));
+			final Node[] sorted =
+				sortByPopularity(patternChildren, childrenNumMatched);
+			if (sorted != null)
+				node.patternChildren = sorted;
+		}
+
+		final RouteImpl[] regexRoutes = node.regexRoutes;
+		final int numRegexRoutes = regexRoutes.length;
+		if (numRegexRoutes > 0) {
+			final long[] routesNumMatched = new long[numRegexRoutes];
+			for (int i = 0; i < numRegexRoutes; i++)
+				numMatched += (routesNumMatched[i] =
+					regexRoutes[i].getNumMatched());
+			final RouteImpl[] sorted =
+				sortByPopularity(regexRoutes, routesNumMatched);
+			if (sorted != null)
+				node.regexRoutes = sorted;
+		}
+
+		return numMatched;
+	}
+
+	/**
+	 * Sort candidates by popularity, most popular first. The sort is stable.
+	 * The counts are snapshotted by the caller so that the concurrent matches
+	 * do not affect the sort.
+	 *
+	 * @param candidates The candidates. Not modified.
+	 * @param numMatched Number of matches for each candidate. Modified.
+	 *
+	 * @return New sorted array, or {@code null} if the candidates are already
+	 * in the order of their popularity.
+	 */
+	private static <T> T[] sortByPopularity(final T[] candidates,
+			final long[] numMatched) {
+
+		T[] sorted = null;
+		for (int i = 1; i < candidates.length; i++) {
+			final long n = numMatched[i];
+			if (n <= numMatched[i - 1])
+				continue;
+			if (sorted == null)
+				sorted = candidates.clone();
+			final T c = sorted[i];
+			int j = i;
+			do {
+				numMatched[j] = numMatched[j - 1];
+				sorted[j] = sorted[j - 1];
+			} while ((--j > 0) && (n > numMatched[j - 1]));
+			numMatched[j] = n;
+			sorted[j] = c;
+		}
+
+		return sorted;
+	}
+}
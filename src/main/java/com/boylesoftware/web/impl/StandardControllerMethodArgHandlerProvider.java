@@ -41,6 +41,7 @@ import com.boylesoftware.web.api.UserInputErrors;
 import com.boylesoftware.web.spi.ControllerMethodArgHandler;
 import com.boylesoftware.web.spi.ControllerMethodArgHandlerProvider;
 import com.boylesoftware.web.spi.RouterRequest;
+import com.boylesoftware.web.util.pool.ConcurrentFastPool;
 import com.boylesoftware.web.util.pool.FastPool;
 import com.boylesoftware.web.util.pool.PoolableObjectFactory;
 
@@ -380,16 +381,17 @@ public class StandardControllerMethodArgHandlerProvider
 		 * Route URI.
 		 */
 		final FastPool<RouteURIBuilderImpl> routeURIBuildersPool =
-			new FastPool<>(new PoolableObjectFactory<RouteURIBuilderImpl>() {
-				@Override
-				public RouteURIBuilderImpl makeNew(
-						final FastPool<RouteURIBuilderImpl> pool,
-						final int pooledObjectId) {
-
-					return new RouteURIBuilderImpl(pool, pooledObjectId,
-							appServices.getApplication().getRoutes());
-				}
-			}, "RouteURIBuildersPool");
+			new ConcurrentFastPool<>(
+					new PoolableObjectFactory<RouteURIBuilderImpl>() {
+						@Override
+						public RouteURIBuilderImpl makeNew(
+								final FastPool<RouteURIBuilderImpl> pool,
+								final int pooledObjectId) {
+
+							return new RouteURIBuilderImpl(pool, pooledObjectId,
+									appServices.getApplication().getRoutes());
+						}
+					}, "RouteURIBuildersPool");
 		final String pooledRouteURIBuilderAttName =
 			(StandardControllerMethodArgHandlerProvider.class).getName() +
 			".POOLED_ROUTE_URI_BUILDER";
@@ -51,6 +51,7 @@ import com.boylesoftware.web.spi.RouterRequest;
 import com.boylesoftware.web.spi.UserInputHandler;
 import com.boylesoftware.web.util.StringUtils;
 import com.boylesoftware.web.util.pool.AbstractPoolable;
+import com.boylesoftware.web.util.pool.ConcurrentFastPool;
 import com.boylesoftware.web.util.pool.FastPool;
 import com.boylesoftware.web.util.pool.PoolableObjectFactory;
 
@@ -339,24 +340,24 @@ class UserInputControllerMethodArgHandler
 					" could not be instantiated.");
 		}
 
-		this.beanPool =
-			new FastPool<>(new PoolableObjectFactory<PoolableUserInput>() {
-
-				@Override
-				public PoolableUserInput makeNew(
-						final FastPool<PoolableUserInput> pool,
-						final int pooledObjectId) {
-
-					try {
-						return new PoolableUserInput(pool, pooledObjectId,
-								beanClass.newInstance());
-					} catch (final InstantiationException |
-							IllegalAccessException e) {
-						throw new RuntimeException(
-								"Error instatiating user input bean.", e);
+		this.beanPool = new ConcurrentFastPool<>(
+				new PoolableObjectFactory<PoolableUserInput>() {
+
+					@Override
+					public PoolableUserInput makeNew(
+							final FastPool<PoolableUserInput> pool,
+							final int pooledObjectId) {
+
+						try {
+							return new PoolableUserInput(pool, pooledObjectId,
+									beanClass.newInstance());
+						} catch (final InstantiationException |
+								IllegalAccessException e) {
+							throw new RuntimeException(
+									"Error instatiating user input bean.", e);
+						}
 					}
-				}
-			}, "UserInputBeansPool_" + beanClass.getSimpleName());
+				}, "UserInputBeansPool_" + beanClass.getSimpleName());
 	}
 
 
@@ -33,6 +33,7 @@ import javax.validation.metadata.ConstraintDescriptor;
 
 import com.boylesoftware.web.UserInputError;
 import com.boylesoftware.web.api.UserInputErrors;
+import com.boylesoftware.web.util.pool.ConcurrentFastPool;
 import com.boylesoftware.web.util.pool.FastPool;
 import com.boylesoftware.web.util.pool.Poolable;
 import com.boylesoftware.web.util.pool.PoolableObjectFactory;
@@ -195,16 +196,17 @@ class UserInputErrorsImpl
 	 * User input error objects pool.
 	 */
 	private static final FastPool<PoolableUserInputError> ERRORS_POOL =
-		new FastPool<>(new PoolableObjectFactory<PoolableUserInputError>() {
+		new ConcurrentFastPool<>(
+				new PoolableObjectFactory<PoolableUserInputError>() {
 
-			@Override
-			public PoolableUserInputError makeNew(
-					final FastPool<PoolableUserInputError> pool,
-					final int pooledObjectId) {
+					@Override
+					public PoolableUserInputError makeNew(
+							final FastPool<PoolableUserInputError> pool,
+							final int pooledObjectId) {
 
-				return new PoolableUserInputError(pool, pooledObjectId);
-			}
-		}, "UserInputErrorsPool");
+						return new PoolableUserInputError(pool, pooledObjectId);
+					}
+				}, "UserInputErrorsPool");
 
 
 	/**
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.impl.auth;
+
+import java.util.UUID;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.boylesoftware.web.spi.UserRecordsCacheInvalidationTransport;
+
+
+/**
+ * Base class for {@link UserRecordsCacheInvalidationTransport} implementations
+ * that send evictions over the network. Each eviction is sent as a fixed size
+ * binary message that consists of the message type byte, the sending
+ * transport's random node id, so that a node can recognize its own messages,
+ * and the user id.
+ *
+ * @author Lev Himmelfarb
+ */
+abstract class AbstractNetworkInvalidationTransport
+	implements UserRecordsCacheInvalidationTransport {
+
+	/**
+	 * Message size in bytes.
+	 */
+	static final int MESSAGE_SIZE = 1 + 8 + 4;
+
+	/**
+	 * Message type for single user eviction.
+	 */
+	private static final byte TYPE_USER = 1;
+
+	/**
+	 * Message type for all users eviction.
+	 */
+	private static final byte TYPE_ALL = 2;
+
+
+	/**
+	 * The log.
+	 */
+	protected final Log log = LogFactory.getLog(this.getClass());
+
+	/**
+	 * Node id of this transport.
+	 */
+	private final long nodeId = UUID.randomUUID().getMostSignificantBits();
+
+	/**
+	 * The listener, or {@code null} if not started.
+	 */
+	private volatile Listener listener;
+
+	/**
+	 * Tells if the transport has been closed.
+	 */
+	protected volatile boolean closed;
+
+
+	/**
+	 * Set the listener. Called by the subclass when the transport is started.
+	 *
+	 * @param listener The listener.
+	 */
+	protected void setListener(final Listener listener) {
+
+		this.listener = listener;
+	}
+
+	/**
+	 * Create single user eviction message.
+	 *
+	 * @param id User id.
+	 *
+	 * @return The message.
+	 */
+	protected byte[] createUserEvictionMessage(final int id) {
+
+		return this.createMessage(TYPE_USER, id);
+	}
+
+	/**
+	 * Create all users eviction message.
+	 *
+	 * @return The message.
+	 */
+	protected byte[] createAllUsersEvictionMessage() {
+
+		return this.createMessage(TYPE_ALL, 0);
+	}
+
+	/**
+	 * Create message.
+	 *
+	 * @param type Message type.
+	 * @param id User id.
+	 *
+	 * @return The message.
+	 */
+	private byte[] createMessage(final byte type, final int id) {
+
+		final byte[] msg = new byte[MESSAGE_SIZE];
+		msg[0] = type;
+		long v = this.nodeId;
+		for (int i = 8; i > 0; i--) {
+			msg[i] = (byte) v;
+			v >>>= 8;
+		}
+		msg[9] = (byte) (id >>> 24);
+		msg[10] = (byte) (id >>> 16);
+		msg[11] = (byte) (id >>> 8);
+		msg[12] = (byte) id;
+
+		return msg;
+	}
+
+	/**
+	 * Deliver received message to the listener. Messages sent by this
+	 * transport and malformed messages are ignored.
+	 *
+	 * @param msg Buffer with the message.
+	 */
+	protected void deliver(final byte[] msg) {
+
+		final Listener l = this.listener;
+		if ((l == null) || this.closed)
+			return;
+
+		long senderId = 0;
+		for (int i = 1; i <= 8; i++)
+			senderId = (senderId << 8) | (msg[i] & 0xFF);
+		if (senderId == this.nodeId)
+			return;
+
+		switch (msg[0]) {
+		case TYPE_USER:
+			l.onUserEviction(((msg[9] & 0xFF) << 24) |
+					((msg[10] & 0xFF) << 16) | ((msg[11] & 0xFF) << 8) |
+					(msg[12] & 0xFF));
+			break;
+		case TYPE_ALL:
+			l.onAllUsersEviction();
+			break;
+		default:
+			this.log.warn("received invalid user records cache invalidation" +
+					" message of type " + msg[0]);
+		}
+	}
+
+	/**
+	 * Start daemon thread.
+	 *
+	 * @param name Thread name.
+	 * @param task Thread logic.
+	 *
+	 * @return The started thread.
+	 */
+	protected static Thread startDaemon(final String name,
+			final Runnable task) {
+
+		final Thread thread = new Thread(task, name);
+		thread.setDaemon(true);
+		thread.start();
+
+		return thread;
+	}
+}
@@ -87,18 +87,7 @@ public abstract class AbstractUserRecordHandler<T>
 		}
 		final EntityManager em = emf.createEntityManager();
 		try {
-			final T user = em.find(this.userRecordClass, Integer.valueOf(id));
-
-			if ((user == null) || (this.getUserSalt(user) != salt)) {
-				if (debug)
-					this.log.debug("user not found or salt does not match");
-				return null;
-			}
-
-			if (debug)
-				this.log.debug("user found");
-			return user;
-
+			return this.getUser(id, salt, em);
 		} finally {
 			if (debug)
 				this.log.debug("closing entity manager");
@@ -106,6 +95,29 @@ public abstract class AbstractUserRecordHandler<T>
 		}
 	}
 
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.spi.UserRecordHandler#getUser(int, int, javax.persistence.EntityManager)
+	 */
+	@Override
+	public T getUser(final int id, final int salt, final EntityManager em) {
+
+		final boolean debug = this.log.isDebugEnabled();
+
+		final T user = em.find(this.userRecordClass, Integer.valueOf(id));
+
+		if ((user == null) || (this.getUserSalt(user) != salt)) {
+			if (debug)
+				this.log.debug("user not found or salt does not match");
+			return null;
+		}
+
+		em.detach(user);
+
+		if (debug)
+			this.log.debug("user found");
+		return user;
+	}
+
 	/**
 	 * Digest password. This is a convenience method for some implementations.
 	 *
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.impl.auth;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * Bounded cache of decoded authentication cookie values used to avoid
+ * decrypting the same cookie value on every request. The cache is a
+ * direct-mapped table: each cookie value can be stored only in the slot
+ * determined by its hash code, so a new value simply replaces whatever value
+ * occupied its slot before. That makes the cache lock-free and its size
+ * strictly bounded at the cost of occasional collision misses. Cached values
+ * expire after a short time to live.
+ *
+ * @author Lev Himmelfarb
+ */
+class AuthCookieCache {
+
+	/**
+	 * Decoded authentication cookie value. Instances are immutable.
+	 */
+	static final class DecodedCookie {
+
+		/**
+		 * The cookie value.
+		 */
+		final String value;
+
+		/**
+		 * User id.
+		 */
+		final int userId;
+
+		/**
+		 * The salt.
+		 */
+		final int salt;
+
+		/**
+		 * Timestamp of the cookie creation.
+		 */
+		final long timestamp;
+
+		/**
+		 * Value of {@link System#nanoTime()} when the cached value expires.
+		 */
+		final long expiresAt;
+
+
+		/**
+		 * Create new decoded value.
+		 *
+		 * @param value The cookie value.
+		 * @param userId User id.
+		 * @param salt The salt.
+		 * @param timestamp Timestamp of the cookie creation.
+		 * @param expiresAt Value of {@link System#nanoTime()} when the cached
+		 * value expires.
+		 */
+		DecodedCookie(final String value, final int userId, final int salt,
+				final long timestamp, final long expiresAt) {
+
+			this.value = value;
+			this.userId = userId;
+			this.salt = salt;
+			this.timestamp = timestamp;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+
+	/**
+	 * The slots.
+	 */
+	private final AtomicReferenceArray<DecodedCookie> slots;
+
+	/**
+	 * Mask used to get slot index from the hash code.
+	 */
+	private final int mask;
+
+	/**
+	 * Time to live of a cached value in nanoseconds.
+	 */
+	private final long ttl;
+
+
+	/**
+	 * Create new cache.
+	 *
+	 * @param size Maximum number of cached values. Rounded up to a power of
+	 * two.
+	 * @param ttl Time to live of a cached value in milliseconds.
+	 */
+	AuthCookieCache(final int size, final long ttl) {
+
+		int cap = 1;
+		while (cap < size)
+			cap <<= 1;
+
+		this.slots = new AtomicReferenceArray<>(cap);
+		this.mask = cap - 1;
+		this.ttl = ttl * 1000000L;
+	}
+
+
+	/**
+	 * Get slot index for the specified cookie value.
+	 *
+	 * @param value The cookie value.
+	 *
+	 * @return Slot index.
+	 */
+	private int slot(final String value) {
+
+		final int h = value.hashCode();
+
+		return (h ^ (h >>> 16)) & this.mask;
+	}
+
+	/**
+	 * Get cached decoded cookie value.
+	 *
+	 * @param value The cookie value.
+	 *
+	 * @return Decoded value, or {@code null} if not cached or expired.
+	 */
+	DecodedCookie get(final String value) {
+
+		final DecodedCookie decoded = this.slots.get(this.slot(value));
+		if ((decoded == null) || !decoded.value.equals(value)
+				|| (System.nanoTime() - decoded.expiresAt > 0))
+			return null;
+
+		return decoded;
+	}
+
+	/**
+	 * Store decoded cookie value in the cache.
+	 *
+	 * @param value The cookie value.
+	 * @param userId Decrypted user id.
+	 * @param salt Decrypted salt.
+	 * @param timestamp Decrypted timestamp.
+	 *
+	 * @return The cached decoded value.
+	 */
+	DecodedCookie put(final String value, final int userId, final int salt,
+			final long timestamp) {
+
+		final DecodedCookie decoded = new DecodedCookie(value, userId, salt,
+				timestamp, System.nanoTime() + this.ttl);
+
+		this.slots.set(this.slot(value), decoded);
+
+		return decoded;
+	}
+}
@@ -0,0 +1,606 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.impl.auth;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.boylesoftware.web.spi.UserRecordsCache;
+
+
+/**
+ * {@link UserRecordsCache} implementation that holds up to a fixed number of
+ * user records and evicts them according to the segmented LRU policy. New
+ * records are placed in the probationary segment and are promoted to the
+ * protected segment when they are looked up again, so that a burst of one-time
+ * users does not flush the frequently active ones out of the cache. Optionally,
+ * the records expire after a fixed time to live.
+ *
+ * <p>The cache is split into independently locked partitions by the user id and
+ * each partition keeps its records in an open addressing hash table with
+ * primitive {@code int} keys. This cache implementation cannot be used in
+ * clustered environments as the cache instances do not communicate between each
+ * other.
+ *
+ * @param <T> User record type.
+ *
+ * @author Lev Himmelfarb
+ */
+public class BoundedUserRecordsCache<T>
+	implements UserRecordsCache<T>, BoundedUserRecordsCacheMBean {
+
+	/**
+	 * Maximum number of partitions.
+	 */
+	private static final int MAX_PARTITIONS = 16;
+
+	/**
+	 * Share of the partition capacity given to the protected segment, in
+	 * percents.
+	 */
+	private static final int PROTECTED_SHARE = 80;
+
+
+	/**
+	 * Cache record.
+	 *
+	 * @param <T> User record type.
+	 */
+	private static final class Node<T> {
+
+		/**
+		 * User id.
+		 */
+		final int id;
+
+		/**
+		 * User record.
+		 */
+		T user;
+
+		/**
+		 * Value of {@link System#nanoTime()} when the record expires.
+		 */
+		long expiresAt;
+
+		/**
+		 * Tells if the record is in the protected segment.
+		 */
+		boolean isProtected;
+
+		/**
+		 * Previous node in the segment list.
+		 */
+		Node<T> prev;
+
+		/**
+		 * Next node in the segment list.
+		 */
+		Node<T> next;
+
+
+		/**
+		 * Create new node.
+		 *
+		 * @param id User id.
+		 */
+		Node(final int id) {
+
+			this.id = id;
+		}
+
+
+		/**
+		 * Make the node an empty list head.
+		 *
+		 * @return This node.
+		 */
+		Node<T> makeHead() {
+
+			this.prev = this;
+			this.next = this;
+
+			return this;
+		}
+
+		/**
+		 * Remove the node from its list.
+		 */
+		void unlink() {
+
+			this.prev.next = this.next;
+			this.next.prev = this.prev;
+			this.prev = null;
+			this.next = null;
+		}
+
+		/**
+		 * Insert the node at the most recently used end of the list.
+		 *
+		 * @param head List head.
+		 */
+		void linkLast(final Node<T> head) {
+
+			this.prev = head.prev;
+			this.next = head;
+			head.prev.next = this;
+			head.prev = this;
+		}
+	}
+
+	/**
+	 * Cache partition.
+	 *
+	 * @param <T> User record type.
+	 */
+	private static final class Partition<T> {
+
+		/**
+		 * Maximum number of records in the partition.
+		 */
+		private final int capacity;
+
+		/**
+		 * Maximum number of records in the protected segment.
+		 */
+		private final int protectedCapacity;
+
+		/**
+		 * Hash table keys.
+		 */
+		private final int[] keys;
+
+		/**
+		 * Hash table values, {@code null} for free slots.
+		 */
+		private final Node<T>[] nodes;
+
+		/**
+		 * Hash table index mask.
+		 */
+		private final int mask;
+
+		/**
+		 * Probationary segment list head. The least recently used record is
+		 * next to the head.
+		 */
+		private final Node<T> probation = new Node<T>(0).makeHead();
+
+		/**
+		 * Protected segment list head. The least recently used record is next
+		 * to the head.
+		 */
+		private final Node<T> protectd = new Node<T>(0).makeHead();
+
+		/**
+		 * Number of records in the partition.
+		 */
+		private volatile int size;
+
+		/**
+		 * Number of records in the protected segment.
+		 */
+		private int protectedSize;
+
+
+		/**
+		 * Create new partition.
+		 *
+		 * @param capacity Maximum number of records in the partition.
+		 */
+		@SuppressWarnings("unchecked")
+		Partition(final int capacity) {
+
+			this.capacity = capacity;
+			this.protectedCapacity =
+				Math.max(1, capacity * PROTECTED_SHARE / 100);
+
+			int tableSize = 2;
+			while (tableSize < capacity * 2)
+				tableSize <<= 1;
+			this.keys = new int[tableSize];
+			this.nodes = new Node[tableSize];
+			this.mask = tableSize - 1;
+		}
+
+
+		/**
+		 * Get number of records in the partition.
+		 *
+		 * @return Number of records.
+		 */
+		int size() {
+
+			return this.size;
+		}
+
+		/**
+		 * Get record. Must be called under the partition lock.
+		 *
+		 * @param id User id.
+		 *
+		 * @return The record node, or {@code null} if not found.
+		 */
+		Node<T> get(final int id) {
+
+			for (int i = spread(id) & this.mask;; i = (i + 1) & this.mask) {
+				final Node<T> node = this.nodes[i];
+				if (node == null)
+					return null;
+				if (this.keys[i] == id)
+					return node;
+			}
+		}
+
+		/**
+		 * Register access to a record, promoting it to the protected segment
+		 * if necessary. Must be called under the partition lock.
+		 *
+		 * @param node The record node.
+		 */
+		void touch(final Node<T> node) {
+
+			node.unlink();
+			if (!node.isProtected) {
+				node.isProtected = true;
+				if (this.protectedSize == this.protectedCapacity) {
+					final Node<T> demoted = this.protectd.next;
+					demoted.unlink();
+					demoted.isProtected = false;
+					demoted.linkLast(this.probation);
+				} else {
+					this.protectedSize++;
+				}
+			}
+			node.linkLast(this.protectd);
+		}
+
+		/**
+		 * Add new record. Must be called under the partition lock and only if
+		 * the record is not in the partition.
+		 *
+		 * @param node The record node.
+		 *
+		 * @return Evicted record node, or {@code null} if nothing was evicted.
+		 */
+		Node<T> add(final Node<T> node) {
+
+			Node<T> evicted = null;
+			if (this.size == this.capacity) {
+				evicted = (this.probation.next != this.probation ?
+						this.probation.next : this.protectd.next);
+				this.remove(evicted);
+			}
+
+			int i = spread(node.id) & this.mask;
+			while (this.nodes[i] != null)
+				i = (i + 1) & this.mask;
+			this.keys[i] = node.id;
+			this.nodes[i] = node;
+
+			node.linkLast(this.probation);
+			this.size++;
+
+			return evicted;
+		}
+
+		/**
+		 * Remove record. Must be called under the partition lock and only if
+		 * the record is in the partition.
+		 *
+		 * @param node The record node.
+		 */
+		void remove(final Node<T> node) {
+
+			// find the slot
+			int i = spread(node.id) & this.mask;
+			while (this.nodes[i] != node)
+				i = (i + 1) & this.mask;
+
+			// shift back the following records in the probe sequence
+			for (int j = (i + 1) & this.mask; this.nodes[j] != null;
+					j = (j + 1) & this.mask) {
+				final int home = spread(this.keys[j]) & this.mask;
+				if (((j - home) & this.mask) >= ((j - i) & this.mask)) {
+					this.keys[i] = this.keys[j];
+					this.nodes[i] = this.nodes[j];
+					i = j;
+				}
+			}
+			this.nodes[i] = null;
+
+			// remove from the segment
+			if (node.isProtected)
+				this.protectedSize--;
+			node.unlink();
+			node.user = null;
+			this.size--;
+		}
+
+		/**
+		 * Remove all records. Must be called under the partition lock.
+		 */
+		void clear() {
+
+			for (int i = 0; i <= this.mask; i++)
+				this.nodes[i] = null;
+			this.probation.makeHead();
+			this.protectd.makeHead();
+			this.protectedSize = 0;
+			this.size = 0;
+		}
+	}
+
+
+	/**
+	 * Spread bits of the user id to use it as a hash code.
+	 *
+	 * @param id User id.
+	 *
+	 * @return The hash code.
+	 */
+	static int spread(final int id) {
+
+		final int h = id * 0x9E3779B9;
+
+		return h ^ (h >>> 16);
+	}
+
+
+	/**
+	 * Maximum number of cached records.
+	 */
+	private final int maxSize;
+
+	/**
+	 * Time to live of a record in nanoseconds, or zero for no expiration.
+	 */
+	private final long ttl;
+
+	/**
+	 * The partitions.
+	 */
+	private final Partition<T>[] partitions;
+
+	/**
+	 * Mask for the partition index.
+	 */
+	private final int partitionMask;
+
+	/**
+	 * Number of hits.
+	 */
+	private final LongAdder hits = new LongAdder();
+
+	/**
+	 * Number of misses.
+	 */
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * Number of evictions.
+	 */
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * Number of expirations.
+	 */
+	private final LongAdder expirations = new LongAdder();
+
+
+	/**
+	 * Create new cache with records that do not expire.
+	 *
+	 * @param maxSize Maximum number of cached records.
+	 */
+	public BoundedUserRecordsCache(final int maxSize) {
+		this(maxSize, 0);
+	}
+
+	/**
+	 * Create new cache.
+	 *
+	 * @param maxSize Maximum number of cached records.
+	 * @param ttl Time to live of a cached record in milliseconds, or zero if
+	 * records do not expire.
+	 */
+	@SuppressWarnings("unchecked")
+	public BoundedUserRecordsCache(final int maxSize, final long ttl) {
+
+		if (maxSize <= 0)
+			throw new IllegalArgumentException("Cache size must be positive.");
+		if (ttl < 0)
+			throw new IllegalArgumentException(
+					"Time to live must not be negative.");
+
+		this.maxSize = maxSize;
+		this.ttl = TimeUnit.MILLISECONDS.toNanos(ttl);
+
+		int numPartitions = 1;
+		while ((numPartitions < MAX_PARTITIONS) &&
+				(numPartitions * 2 * 8 <= maxSize))
+			numPartitions <<= 1;
+		this.partitions = new Partition[numPartitions];
+		this.partitionMask = numPartitions - 1;
+		final int partitionCapacity = maxSize / numPartitions;
+		final int remainder = maxSize % numPartitions;
+		for (int i = 0; i < numPartitions; i++)
+			this.partitions[i] = new Partition<>(
+					partitionCapacity + (i < remainder ? 1 : 0));
+	}
+
+
+	/**
+	 * Get partition for the specified user id.
+	 *
+	 * @param id User id.
+	 *
+	 * @return The partition.
+	 */
+	private Partition<T> getPartition(final int id) {
+
+		return this.partitions[(spread(id) >>> 24) & this.partitionMask];
+	}
+
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.spi.UserRecordsCache#getUser(int)
+	 */
+	@Override
+	public T getUser(final int id) {
+
+		final Partition<T> partition = this.getPartition(id);
+		synchronized (partition) {
+			final Node<T> node = partition.get(id);
+			if (node == null) {
+				this.misses.increment();
+				return null;
+			}
+			if ((this.ttl > 0) && (System.nanoTime() - node.expiresAt > 0)) {
+				partition.remove(node);
+				this.expirations.increment();
+				this.misses.increment();
+				return null;
+			}
+			partition.touch(node);
+			this.hits.increment();
+			return node.user;
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.spi.UserRecordsCache#storeUser(int, java.lang.Object)
+	 */
+	@Override
+	public void storeUser(final int id, final T user) {
+
+		if (user == null) {
+			this.evictUser(id);
+			return;
+		}
+
+		final long expiresAt = System.nanoTime() + this.ttl;
+
+		final Partition<T> partition = this.getPartition(id);
+		synchronized (partition) {
+			Node<T> node = partition.get(id);
+			if (node != null) {
+				partition.touch(node);
+			} else {
+				node = new Node<>(id);
+				if (partition.add(node) != null)
+					this.evictions.increment();
+			}
+			node.user = user;
+			node.expiresAt = expiresAt;
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.spi.UserRecordsCache#evictUser(int)
+	 */
+	@Override
+	public void evictUser(final int id) {
+
+		final Partition<T> partition = this.getPartition(id);
+		synchronized (partition) {
+			final Node<T> node = partition.get(id);
+			if (node != null)
+				partition.remove(node);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.spi.UserRecordsCache#evictAllUsers()
+	 */
+	@Override
+	public void evictAllUsers() {
+
+		for (final Partition<T> partition : this.partitions) {
+			synchronized (partition) {
+				partition.clear();
+			}
+		}
+	}
+
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.impl.auth.BoundedUserRecordsCacheMBean#getMaxSize()
+	 */
+	@Override
+	public int getMaxSize() {
+
+		return this.maxSize;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.impl.auth.BoundedUserRecordsCacheMBean#getTimeToLive()
+	 */
+	@Override
+	public long getTimeToLive() {
+
+		return TimeUnit.NANOSECONDS.toMillis(this.ttl);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.impl.auth.BoundedUserRecordsCacheMBean#getSize()
+	 */
+	@Override
+	public int getSize() {
+
+		int size = 0;
+		for (final Partition<T> partition : this.partitions)
+			size += partition.size();
+
+		return size;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.impl.auth.BoundedUserRecordsCacheMBean#getHits()
+	 */
+	@Override
+	public long getHits() {
+
+		return this.hits.sum();
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.impl.auth.BoundedUserRecordsCacheMBean#getMisses()
+	 */
+	@Override
+	public long getMisses() {
+
+		return this.misses.sum();
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.impl.auth.BoundedUserRecordsCacheMBean#getEvictions()
+	 */
+	@Override
+	public long getEvictions() {
+
+		return this.evictions.sum();
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.impl.auth.BoundedUserRecordsCacheMBean#getExpirations()
+	 */
+	@Override
+	public long getExpirations() {
+
+		return this.expirations.sum();
+	}
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.impl.auth;
+
+
+/**
+ * Management interface for the {@link BoundedUserRecordsCache} statistics.
+ *
+ * @author Lev Himmelfarb
+ */
+public interface BoundedUserRecordsCacheMBean {
+
+	/**
+	 * Get maximum number of cached user records.
+	 *
+	 * @return Maximum number of records.
+	 */
+	int getMaxSize();
+
+	/**
+	 * Get time to live of a cached user record.
+	 *
+	 * @return Time to live in milliseconds, or zero if records do not expire.
+	 */
+	long getTimeToLive();
+
+	/**
+	 * Get current number of cached user records.
+	 *
+	 * @return Number of records.
+	 */
+	int getSize();
+
+	/**
+	 * Get number of lookups that found the user record in the cache.
+	 *
+	 * @return Number of hits.
+	 */
+	long getHits();
+
+	/**
+	 * Get number of lookups that did not find the user record in the cache.
+	 *
+	 * @return Number of misses.
+	 */
+	long getMisses();
+
+	/**
+	 * Get number of user records evicted from the cache to make room for new
+	 * ones.
+	 *
+	 * @return Number of evictions.
+	 */
+	long getEvictions();
+
+	/**
+	 * Get number of user records removed from the cache because they expired.
+	 *
+	 * @return Number of expirations.
+	 */
+	long getExpirations();
+}
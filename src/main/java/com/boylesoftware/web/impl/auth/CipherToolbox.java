@@ -19,9 +19,10 @@ import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.security.GeneralSecurityException;
 import java.security.Key;
-import java.util.Random;
+import java.security.SecureRandom;
 
 import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -35,6 +36,15 @@ import com.boylesoftware.web.util.pool.FastPool;
  * Poolable collection of objects needed for encrypting/decrypting
  * authentication cookie.
  *
+ * <p>The cookie is encrypted using AES in GCM mode, which authenticates the
+ * encrypted data, so that a tampered cookie is always rejected. The token
+ * consists of a nonce followed by the encrypted salt, user id and timestamp
+ * and the authentication tag. The nonce is made of a random prefix generated
+ * for each toolbox and a counter incremented for each token, so that the
+ * secure random number generator is not called on every encryption. Each
+ * toolbox has its own ciphers for encryption and decryption, which are never
+ * switched between the modes, and reuses its buffers for all operations.
+ *
  * @author Lev Himmelfarb
  */
 class CipherToolbox
@@ -46,9 +56,41 @@ class CipherToolbox
 	static final String ALGORITHM = "AES";
 
 	/**
-	 * Random number generator.
+	 * Cipher transformation.
+	 */
+	private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+
+	/**
+	 * Nonce length in bytes.
+	 */
+	private static final int NONCE_LENGTH = 12;
+
+	/**
+	 * Length of the random nonce prefix in bytes. The rest of the nonce is the
+	 * counter.
 	 */
-	private static final Random RAND = new Random();
+	private static final int NONCE_PREFIX_LENGTH = 8;
+
+	/**
+	 * Authentication tag length in bytes.
+	 */
+	private static final int TAG_LENGTH = 16;
+
+	/**
+	 * Clear value length in bytes: salt, user id and timestamp.
+	 */
+	private static final int CLEAR_LENGTH = 4 + 4 + 8;
+
+	/**
+	 * Token length in bytes.
+	 */
+	private static final int TOKEN_LENGTH =
+		NONCE_LENGTH + CLEAR_LENGTH + TAG_LENGTH;
+
+	/**
+	 * Length of the Base64 encoded token.
+	 */
+	private static final int TOKEN_BASE64_LENGTH = (TOKEN_LENGTH + 2) / 3 * 4;
 
 
 	/**
@@ -62,22 +104,52 @@ class CipherToolbox
 	private final Key secretKey;
 
 	/**
-	 * The cipher.
+	 * Random number generator for the nonce prefixes.
+	 */
+	private final SecureRandom rand;
+
+	/**
+	 * Cipher used for encryption.
+	 */
+	private final Cipher encryptCipher;
+
+	/**
+	 * Cipher used for decryption.
+	 */
+	private final Cipher decryptCipher;
+
+	/**
+	 * Buffer for the nonce.
+	 */
+	private final byte[] nonce;
+
+	/**
+	 * Nonce counter.
 	 */
-	private final Cipher cipher;
+	private int nonceCounter;
 
 	/**
 	 * Buffer for the clear value.
 	 */
+	private final byte[] clear;
+
+	/**
+	 * Byte buffer wrapper for the clear value.
+	 */
 	private final ByteBuffer clearBuf;
 
 	/**
-	 * Buffer for the encrypted value.
+	 * Buffer for the token.
 	 */
-	private final ByteBuffer cipherBuf;
+	private final byte[] token;
 
 	/**
-	 * Character array for Base64 representation of the encrypted value.
+	 * Byte buffer wrapper for the token.
+	 */
+	private final ByteBuffer tokenBuf;
+
+	/**
+	 * Character array for Base64 representation of the token.
 	 */
 	private final char[] base64Chars;
 
@@ -114,17 +186,30 @@ class CipherToolbox
 		super(pool, pooledObjectId);
 
 		this.secretKey = secretKey;
+		this.rand = new SecureRandom();
+
+		this.nonce = new byte[NONCE_LENGTH];
+		this.clear = new byte[CLEAR_LENGTH];
+		this.clearBuf = ByteBuffer.wrap(this.clear);
+		this.token = new byte[TOKEN_LENGTH];
+		this.tokenBuf = ByteBuffer.wrap(this.token);
+		this.base64Chars = new char[TOKEN_BASE64_LENGTH];
+		this.base64Buf = CharBuffer.wrap(this.base64Chars);
 
 		try {
-			this.cipher = Cipher.getInstance(ALGORITHM);
+			this.encryptCipher = Cipher.getInstance(TRANSFORMATION);
+			this.decryptCipher = Cipher.getInstance(TRANSFORMATION);
+
+			// initialize the ciphers, so that the key is expanded only once
+			this.rand.nextBytes(this.nonce);
+			this.nonceCounter = 0;
+			this.encryptCipher.init(Cipher.ENCRYPT_MODE, this.secretKey,
+					new GCMParameterSpec(TAG_LENGTH * 8, this.nonce));
+			this.decryptCipher.init(Cipher.DECRYPT_MODE, this.secretKey,
+					new GCMParameterSpec(TAG_LENGTH * 8, this.nonce));
 		} catch (final GeneralSecurityException e) {
 			throw new RuntimeException("Error creating cipher.", e);
 		}
-
-		this.clearBuf = ByteBuffer.allocate(48);
-		this.cipherBuf = ByteBuffer.allocate(48);
-		this.base64Chars = new char[64];
-		this.base64Buf = CharBuffer.wrap(this.base64Chars);
 	}
 
 
@@ -139,25 +224,41 @@ class CipherToolbox
 	String encrypt(final int userId, final int salt) {
 
 		this.clearBuf.clear();
-		this.clearBuf.putInt(salt).putLong(RAND.nextLong()).putInt(userId)
-			.putLong(RAND.nextLong()).putLong(System.currentTimeMillis());
-		this.clearBuf.flip();
+		this.clearBuf.putInt(salt).putInt(userId)
+			.putLong(System.currentTimeMillis());
 
-		this.cipherBuf.clear();
+		this.nextNonce();
+		System.arraycopy(this.nonce, 0, this.token, 0, NONCE_LENGTH);
 		try {
-			this.cipher.init(Cipher.ENCRYPT_MODE, this.secretKey);
-			this.cipher.doFinal(this.clearBuf, this.cipherBuf);
+			this.encryptCipher.init(Cipher.ENCRYPT_MODE, this.secretKey,
+					new GCMParameterSpec(TAG_LENGTH * 8, this.nonce));
+			this.encryptCipher.doFinal(this.clear, 0, CLEAR_LENGTH,
+					this.token, NONCE_LENGTH);
 		} catch (final GeneralSecurityException e) {
 			throw new RuntimeException(
 					"Error encrypting authentication cookie.", e);
 		}
-		this.cipherBuf.flip();
 
+		this.tokenBuf.clear();
 		this.base64Buf.clear();
-		Base64.encode(this.cipherBuf, this.base64Buf);
-		this.base64Buf.flip();
+		Base64.encode(this.tokenBuf, this.base64Buf);
 
-		return this.base64Buf.toString();
+		return new String(this.base64Chars, 0, this.base64Buf.position());
+	}
+
+	/**
+	 * Generate next nonce. The counter part of the nonce is incremented and
+	 * when it wraps around a new random prefix is generated.
+	 */
+	private void nextNonce() {
+
+		final int c = ++this.nonceCounter;
+		if (c == 0)
+			this.rand.nextBytes(this.nonce);
+		this.nonce[NONCE_PREFIX_LENGTH] = (byte) (c >>> 24);
+		this.nonce[NONCE_PREFIX_LENGTH + 1] = (byte) (c >>> 16);
+		this.nonce[NONCE_PREFIX_LENGTH + 2] = (byte) (c >>> 8);
+		this.nonce[NONCE_PREFIX_LENGTH + 3] = (byte) c;
 	}
 
 	/**
@@ -168,45 +269,52 @@ class CipherToolbox
 	 * @param base64Val The value to decrypt in Base64 encoding.
 	 *
 	 * @return {@code true} if decrypted successfully, {@code false} if
-	 * could not decrypt.
+	 * could not decrypt or the value has been tampered with.
 	 */
-	boolean decrypt(final String base64Val) {
+	boolean decrypt(final CharSequence base64Val) {
 
 		final boolean debug = this.log.isDebugEnabled();
 		if (debug)
 			this.log.debug("decrypting [" + base64Val +
 					"], pooled cipher " + this);
 
+		if (base64Val.length() != TOKEN_BASE64_LENGTH) {
+			if (debug)
+				this.log.debug("decryption error: invalid value length");
+			return false;
+		}
+
+		this.tokenBuf.clear();
 		try {
-			final int len = base64Val.length();
-			base64Val.getChars(0, len, this.base64Chars, 0);
-			this.base64Buf.limit(len);
-			this.base64Buf.rewind();
-		} catch (final IndexOutOfBoundsException e) {
+			Base64.decode(base64Val, this.tokenBuf);
+		} catch (final IllegalArgumentException e) {
 			if (debug)
 				this.log.debug("decryption error", e);
 			return false;
 		}
+		if (this.tokenBuf.position() != TOKEN_LENGTH) {
+			if (debug)
+				this.log.debug("decryption error: invalid token length");
+			return false;
+		}
 
-		this.cipherBuf.clear();
-		Base64.decode(this.base64Buf, this.cipherBuf);
-		this.cipherBuf.flip();
-
-		this.clearBuf.clear();
 		try {
-			this.cipher.init(Cipher.DECRYPT_MODE, this.secretKey);
-			this.cipher.doFinal(this.cipherBuf, this.clearBuf);
+			this.decryptCipher.init(Cipher.DECRYPT_MODE, this.secretKey,
+					new GCMParameterSpec(TAG_LENGTH * 8, this.token, 0,
+							NONCE_LENGTH));
+			if (this.decryptCipher.doFinal(this.token, NONCE_LENGTH,
+					TOKEN_LENGTH - NONCE_LENGTH, this.clear, 0) !=
+						CLEAR_LENGTH)
+				return false;
 		} catch (final GeneralSecurityException e) {
 			if (debug)
 				this.log.debug("decryption error", e);
 			return false;
 		}
-		this.clearBuf.flip();
 
+		this.clearBuf.clear();
 		this.salt = this.clearBuf.getInt();
-		this.clearBuf.getLong();
 		this.userId = this.clearBuf.getInt();
-		this.clearBuf.getLong();
 		this.timestamp = this.clearBuf.getLong();
 
 		if (debug)
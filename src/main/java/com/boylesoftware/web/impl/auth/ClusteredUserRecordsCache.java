@@ -0,0 +1,146 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.impl.auth;
+
+import java.io.IOException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.boylesoftware.web.spi.UserRecordsCache;
+import com.boylesoftware.web.spi.UserRecordsCacheInvalidationTransport;
+
+
+/**
+ * {@link UserRecordsCache} implementation for clustered environments. The
+ * records are cached in a local cache on each node and the evictions are
+ * broadcast to the other nodes via a
+ * {@link UserRecordsCacheInvalidationTransport}, so that a user record change
+ * on one node does not leave stale copies of the record on the others.
+ *
+ * @param <T> User record type.
+ *
+ * @author Lev Himmelfarb
+ */
+public class ClusteredUserRecordsCache<T>
+	implements UserRecordsCache<T>, AutoCloseable {
+
+	/**
+	 * The log.
+	 */
+	final Log log = LogFactory.getLog(this.getClass());
+
+	/**
+	 * Local cache.
+	 */
+	final UserRecordsCache<T> localCache;
+
+	/**
+	 * Invalidation transport.
+	 */
+	private final UserRecordsCacheInvalidationTransport transport;
+
+
+	/**
+	 * Create new cache and start the invalidation transport.
+	 *
+	 * @param localCache Local cache used to store the records on this node.
+	 * @param transport Invalidation transport. The transport is closed when
+	 * the cache is closed.
+	 *
+	 * @throws IOException If an I/O error happens starting the transport.
+	 */
+	public ClusteredUserRecordsCache(final UserRecordsCache<T> localCache,
+			final UserRecordsCacheInvalidationTransport transport)
+		throws IOException {
+
+		this.localCache = localCache;
+		this.transport = transport;
+
+		transport.start(new UserRecordsCacheInvalidationTransport.Listener() {
+
+			@Override
+			public void onUserEviction(final int id) {
+
+				if (ClusteredUserRecordsCache.this.log.isDebugEnabled())
+					ClusteredUserRecordsCache.this.log.debug(
+							"received eviction of user id " + id);
+
+				ClusteredUserRecordsCache.this.localCache.evictUser(id);
+			}
+
+			@Override
+			public void onAllUsersEviction() {
+
+				if (ClusteredUserRecordsCache.this.log.isDebugEnabled())
+					ClusteredUserRecordsCache.this.log.debug(
+							"received purge of all user records");
+
+				ClusteredUserRecordsCache.this.localCache.evictAllUsers();
+			}
+		});
+	}
+
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.spi.UserRecordsCache#getUser(int)
+	 */
+	@Override
+	public T getUser(final int id) {
+
+		return this.localCache.getUser(id);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.spi.UserRecordsCache#storeUser(int, java.lang.Object)
+	 */
+	@Override
+	public void storeUser(final int id, final T user) {
+
+		this.localCache.storeUser(id, user);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.spi.UserRecordsCache#evictUser(int)
+	 */
+	@Override
+	public void evictUser(final int id) {
+
+		this.localCache.evictUser(id);
+
+		this.transport.publishUserEviction(id);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.spi.UserRecordsCache#evictAllUsers()
+	 */
+	@Override
+	public void evictAllUsers() {
+
+		this.localCache.evictAllUsers();
+
+		this.transport.publishAllUsersEviction();
+	}
+
+	/**
+	 * Close the invalidation transport.
+	 */
+	@Override
+	public void close() {
+
+		this.transport.close();
+	}
+}
@@ -32,7 +32,11 @@ import com.boylesoftware.web.spi.UserRecordsCache;
  * @param <T> User record type.
  *
  * @author Lev Himmelfarb
+ * @deprecated The garbage collector may clear all soft references at once,
+ * which empties the whole cache under memory pressure. Use
+ * {@link BoundedUserRecordsCache} instead.
  */
+@Deprecated
 public class LocalUserRecordsCache<T>
 	implements UserRecordsCache<T> {
 
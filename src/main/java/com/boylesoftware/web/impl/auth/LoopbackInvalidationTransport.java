@@ -0,0 +1,137 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.impl.auth;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.boylesoftware.web.spi.UserRecordsCacheInvalidationTransport;
+
+
+/**
+ * In-process {@link UserRecordsCacheInvalidationTransport} that delivers
+ * evictions to all other transports in the same JVM that use the same channel
+ * name. Useful for testing clustered caches and for several applications in
+ * one container sharing a user database.
+ *
+ * @author Lev Himmelfarb
+ */
+public class LoopbackInvalidationTransport
+	implements UserRecordsCacheInvalidationTransport {
+
+	/**
+	 * Started transports by channel name.
+	 */
+	private static final
+	ConcurrentMap<String, List<LoopbackInvalidationTransport>> CHANNELS =
+		new ConcurrentHashMap<>();
+
+
+	/**
+	 * Channel name.
+	 */
+	private final String channel;
+
+	/**
+	 * The listener, or {@code null} if not started.
+	 */
+	private volatile Listener listener;
+
+
+	/**
+	 * Create new transport.
+	 *
+	 * @param channel Channel name.
+	 */
+	public LoopbackInvalidationTransport(final String channel) {
+
+		this.channel = channel;
+	}
+
+
+	/**
+	 * Get transports on the channel.
+	 *
+	 * @return The transports.
+	 */
+	private List<LoopbackInvalidationTransport> getChannelTransports() {
+
+		List<LoopbackInvalidationTransport> transports =
+			CHANNELS.get(this.channel);
+		if (transports == null) {
+			transports = new CopyOnWriteArrayList<>();
+			final List<LoopbackInvalidationTransport> existing =
+				CHANNELS.putIfAbsent(this.channel, transports);
+			if (existing != null)
+				transports = existing;
+		}
+
+		return transports;
+	}
+
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.spi.UserRecordsCacheInvalidationTransport#start(com.boylesoftware.web.spi.UserRecordsCacheInvalidationTransport.Listener)
+	 */
+	@Override
+	public void start(final Listener listener) {
+
+		this.listener = listener;
+
+		this.getChannelTransports().add(this);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.spi.UserRecordsCacheInvalidationTransport#publishUserEviction(int)
+	 */
+	@Override
+	public void publishUserEviction(final int id) {
+
+		for (final LoopbackInvalidationTransport transport :
+				this.getChannelTransports()) {
+			final Listener l = transport.listener;
+			if ((transport != this) && (l != null))
+				l.onUserEviction(id);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.spi.UserRecordsCacheInvalidationTransport#publishAllUsersEviction()
+	 */
+	@Override
+	public void publishAllUsersEviction() {
+
+		for (final LoopbackInvalidationTransport transport :
+				this.getChannelTransports()) {
+			final Listener l = transport.listener;
+			if ((transport != this) && (l != null))
+				l.onAllUsersEviction();
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.spi.UserRecordsCacheInvalidationTransport#close()
+	 */
+	@Override
+	public void close() {
+
+		this.getChannelTransports().remove(this);
+
+		this.listener = null;
+	}
+}
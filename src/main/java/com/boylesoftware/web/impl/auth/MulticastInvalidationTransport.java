@@ -0,0 +1,176 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.impl.auth;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.MulticastSocket;
+
+import com.boylesoftware.web.spi.UserRecordsCacheInvalidationTransport;
+
+
+/**
+ * {@link UserRecordsCacheInvalidationTransport} that sends evictions as UDP
+ * multicast datagrams. All nodes in the cluster must use the same multicast
+ * group and port. The transport requires no configuration of the peers, but
+ * the network must support multicast and, since UDP is unreliable, evictions
+ * may occasionally be lost.
+ *
+ * @author Lev Himmelfarb
+ */
+public class MulticastInvalidationTransport
+	extends AbstractNetworkInvalidationTransport {
+
+	/**
+	 * Multicast group address.
+	 */
+	private final InetAddress group;
+
+	/**
+	 * Port.
+	 */
+	private final int port;
+
+	/**
+	 * The socket.
+	 */
+	private MulticastSocket socket;
+
+
+	/**
+	 * Create new transport.
+	 *
+	 * @param group Multicast group address.
+	 * @param port Port.
+	 */
+	public MulticastInvalidationTransport(final InetAddress group,
+			final int port) {
+
+		if (!group.isMulticastAddress())
+			throw new IllegalArgumentException(group +
+					" is not a multicast address.");
+
+		this.group = group;
+		this.port = port;
+	}
+
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.spi.UserRecordsCacheInvalidationTransport#start(com.boylesoftware.web.spi.UserRecordsCacheInvalidationTransport.Listener)
+	 */
+	@Override
+	public void start(final Listener listener)
+		throws IOException {
+
+		this.setListener(listener);
+
+		final MulticastSocket sock = new MulticastSocket(this.port);
+		sock.joinGroup(this.group);
+		this.socket = sock;
+
+		if (this.log.isDebugEnabled())
+			this.log.debug("joined user records cache invalidation group " +
+					this.group + ":" + this.port);
+
+		startDaemon("user-cache-invalidation-receiver", new Runnable() {
+
+			@Override
+			public void run() {
+
+				MulticastInvalidationTransport.this.receive(sock);
+			}
+		});
+	}
+
+	/**
+	 * Receive messages until the transport is closed.
+	 *
+	 * @param sock The socket.
+	 */
+	void receive(final MulticastSocket sock) {
+
+		final byte[] buf = new byte[MESSAGE_SIZE];
+		final DatagramPacket packet = new DatagramPacket(buf, buf.length);
+		while (!this.closed) {
+			try {
+				packet.setLength(buf.length);
+				sock.receive(packet);
+				if (packet.getLength() == MESSAGE_SIZE)
+					this.deliver(buf);
+			} catch (final IOException e) {
+				if (this.closed || sock.isClosed())
+					break;
+				this.log.error("error receiving user records cache" +
+						" invalidation message", e);
+			}
+		}
+	}
+
+	/**
+	 * Send message to the group.
+	 *
+	 * @param msg The message.
+	 */
+	private void send(final byte[] msg) {
+
+		try {
+			this.socket.send(
+					new DatagramPacket(msg, msg.length, this.group, this.port));
+		} catch (final IOException e) {
+			this.log.error("error sending user records cache invalidation" +
+					" message", e);
+		}
+	}
+
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.spi.UserRecordsCacheInvalidationTransport#publishUserEviction(int)
+	 */
+	@Override
+	public void publishUserEviction(final int id) {
+
+		this.send(this.createUserEvictionMessage(id));
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.spi.UserRecordsCacheInvalidationTransport#publishAllUsersEviction()
+	 */
+	@Override
+	public void publishAllUsersEviction() {
+
+		this.send(this.createAllUsersEvictionMessage());
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.spi.UserRecordsCacheInvalidationTransport#close()
+	 */
+	@Override
+	public void close() {
+
+		this.closed = true;
+
+		final MulticastSocket sock = this.socket;
+		if (sock != null) {
+			try {
+				sock.leaveGroup(this.group);
+			} catch (final IOException e) {
+				this.log.debug("error leaving multicast group", e);
+			}
+			sock.close();
+		}
+	}
+}
@@ -15,6 +15,7 @@
  */
 package com.boylesoftware.web.impl.auth;
 
+import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -44,6 +45,26 @@ public class NopAuthenticationService
 		return null;
 	}
 
+	/**
+	 * Always returns {@code null}.
+	 */
+	@Override
+	public Object getAuthenticatedUser(final HttpServletRequest request,
+			final EntityManager em) {
+
+		return null;
+	}
+
+	/**
+	 * Always returns {@code null}.
+	 */
+	@Override
+	public Object getAuthenticatedUserInline(
+			final HttpServletRequest request) {
+
+		return null;
+	}
+
 	/* (non-Javadoc)
 	 * @see com.boylesoftware.web.spi.AuthenticationService#getAuthenticator(com.boylesoftware.web.spi.RouterRequest)
 	 */
@@ -18,10 +18,14 @@ package com.boylesoftware.web.impl.auth;
 import java.security.Key;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.crypto.spec.SecretKeySpec;
 import javax.naming.InitialContext;
 import javax.naming.NamingException;
+import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.servlet.UnavailableException;
 import javax.servlet.http.Cookie;
@@ -37,6 +41,7 @@ import com.boylesoftware.web.spi.UserRecordHandler;
 import com.boylesoftware.web.spi.UserRecordsCache;
 import com.boylesoftware.web.util.Hex;
 import com.boylesoftware.web.util.StringUtils;
+import com.boylesoftware.web.util.pool.ConcurrentFastPool;
 import com.boylesoftware.web.util.pool.FastPool;
 import com.boylesoftware.web.util.pool.PoolableObjectFactory;
 
@@ -50,12 +55,20 @@ import com.boylesoftware.web.util.pool.PoolableObjectFactory;
  * secret key in the JNDI environment. The name of the environment entry is
  * "java:comp/env/secretKey" and it should be a string in hexadecimal encoding.
  *
+ * <p>Concurrent requests that miss the authenticated user records cache for
+ * the same user share a single load of the user record from the persistent
+ * storage instead of each performing its own.
+ *
+ * <p>Decoded authentication cookie values are kept in a small cache for a
+ * short time, so that repeated requests with the same cookie do not need to
+ * decrypt it every time.
+ *
  * @param <T> User record type.
  *
  * @author Lev Himmelfarb
  */
 public class SessionlessAuthenticationService<T>
-	implements AuthenticationService<T> {
+	implements AuthenticationService<T>, SessionlessAuthenticationServiceMBean {
 
 	/**
 	 * Name of the authentication cookie.
@@ -76,6 +89,108 @@ public class SessionlessAuthenticationService<T>
 	 */
 	private static final Object EVICT_ALL = new Object();
 
+	/**
+	 * Default maximum number of decoded authentication cookie values kept in
+	 * the cache.
+	 */
+	public static final int DEFAULT_COOKIE_CACHE_SIZE = 1024;
+
+	/**
+	 * Default time to live of a decoded authentication cookie value in the
+	 * cache in milliseconds.
+	 */
+	public static final long DEFAULT_COOKIE_CACHE_TTL = 60000;
+
+
+	/**
+	 * User record load from the persistent storage in progress, which other
+	 * requests for the same user can wait for.
+	 *
+	 * @param <T> User record type.
+	 */
+	private static final class PendingUserLoad<T> {
+
+		/**
+		 * Salt from the authentication cookie used for the load.
+		 */
+		final int salt;
+
+		/**
+		 * Loaded user record, or {@code null}.
+		 */
+		private T user;
+
+		/**
+		 * Tells if the load is complete.
+		 */
+		private boolean done;
+
+		/**
+		 * Tells if the load failed.
+		 */
+		private boolean failed;
+
+
+		/**
+		 * Create new pending load.
+		 *
+		 * @param salt Salt from the authentication cookie.
+		 */
+		PendingUserLoad(final int salt) {
+
+			this.salt = salt;
+		}
+
+
+		/**
+		 * Complete the load and release the waiting threads.
+		 *
+		 * @param user Loaded user record, or {@code null}.
+		 * @param failed {@code true} if the load failed.
+		 */
+		synchronized void complete(final T user, final boolean failed) {
+
+			if (this.done)
+				return;
+
+			this.user = user;
+			this.failed = failed;
+			this.done = true;
+
+			this.notifyAll();
+		}
+
+		/**
+		 * Wait for the load to complete.
+		 *
+		 * @return {@code true} if the load completed successfully,
+		 * {@code false} if it failed or the waiting thread was interrupted.
+		 */
+		synchronized boolean await() {
+
+			try {
+				while (!this.done)
+					this.wait();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+
+			return !this.failed;
+		}
+
+		/**
+		 * Get loaded user record. May be called only after {@link #await()}
+		 * returns {@code true}.
+		 *
+		 * @return The user record, or {@code null}.
+		 */
+		synchronized T getUser() {
+
+			return this.user;
+		}
+	}
+
 
 	/**
 	 * The log.
@@ -97,9 +212,42 @@ public class SessionlessAuthenticationService<T>
 	 */
 	private final FastPool<CipherToolbox> cipherPool;
 
+	/**
+	 * Decoded authentication cookie values cache, or {@code null} if disabled.
+	 */
+	private final AuthCookieCache authCookieCache;
 
 	/**
-	 * Create new authenticator.
+	 * Number of authentication cookie decryptions.
+	 */
+	private final LongAdder cookieDecryptions = new LongAdder();
+
+	/**
+	 * Number of authentication cookie decryptions avoided by using the decoded
+	 * cookie values cache.
+	 */
+	private final LongAdder cookieCacheHits = new LongAdder();
+
+	/**
+	 * User record loads from the persistent storage in progress by user id.
+	 */
+	private final ConcurrentMap<Integer, PendingUserLoad<T>> pendingUserLoads =
+		new ConcurrentHashMap<>();
+
+	/**
+	 * Number of user record loads from the persistent storage.
+	 */
+	private final LongAdder userLoads = new LongAdder();
+
+	/**
+	 * Number of user record loads avoided by waiting for a load in progress.
+	 */
+	private final LongAdder coalescedUserLoads = new LongAdder();
+
+
+	/**
+	 * Create new authenticator with default decoded authentication cookie
+	 * values cache settings.
 	 *
 	 * @param userRecordHandler User record handler.
 	 * @param userRecordsCache Authenticated user records cache.
@@ -110,11 +258,36 @@ public class SessionlessAuthenticationService<T>
 			final UserRecordHandler<T> userRecordHandler,
 			final UserRecordsCache<T> userRecordsCache)
 		throws UnavailableException {
+		this(userRecordHandler, userRecordsCache, DEFAULT_COOKIE_CACHE_SIZE,
+				DEFAULT_COOKIE_CACHE_TTL);
+	}
+
+	/**
+	 * Create new authenticator.
+	 *
+	 * @param userRecordHandler User record handler.
+	 * @param userRecordsCache Authenticated user records cache.
+	 * @param cookieCacheSize Maximum number of decoded authentication cookie
+	 * values kept in the cache, or zero to disable the cache.
+	 * @param cookieCacheTTL Time to live of a decoded authentication cookie
+	 * value in the cache in milliseconds.
+	 *
+	 * @throws UnavailableException If an error happens creating the service.
+	 */
+	public SessionlessAuthenticationService(
+			final UserRecordHandler<T> userRecordHandler,
+			final UserRecordsCache<T> userRecordsCache,
+			final int cookieCacheSize, final long cookieCacheTTL)
+		throws UnavailableException {
 
 		// store the references
 		this.userRecordHandler = userRecordHandler;
 		this.userRecordsCache = userRecordsCache;
 
+		// create decoded cookie values cache
+		this.authCookieCache = ((cookieCacheSize > 0) && (cookieCacheTTL > 0) ?
+				new AuthCookieCache(cookieCacheSize, cookieCacheTTL) : null);
+
 		// get configured secret key from the JNDI
 		String secretKeyStr;
 		try {
@@ -136,16 +309,18 @@ public class SessionlessAuthenticationService<T>
 				Hex.decode(secretKeyStr), CipherToolbox.ALGORITHM);
 
 		// create the cipher pool
-		this.cipherPool =
-			new FastPool<>(new PoolableObjectFactory<CipherToolbox>() {
-
-				@Override
-				public CipherToolbox makeNew(final FastPool<CipherToolbox> pool,
-						final int pooledObjectId) {
-
-					return new CipherToolbox(pool, pooledObjectId, secretKey);
-				}
-			}, "AuthenticatorCiphersPool");
+		this.cipherPool = new ConcurrentFastPool<>(
+				new PoolableObjectFactory<CipherToolbox>() {
+
+					@Override
+					public CipherToolbox makeNew(
+							final FastPool<CipherToolbox> pool,
+							final int pooledObjectId) {
+
+						return new CipherToolbox(pool, pooledObjectId,
+								secretKey);
+					}
+				}, "AuthenticatorCiphersPool");
 	}
 
 
@@ -233,38 +408,42 @@ public class SessionlessAuthenticationService<T>
 	public T getAuthenticatedUser(final HttpServletRequest request,
 			final EntityManagerFactory emf) {
 
-		final boolean debug = this.log.isDebugEnabled();
+		return this.getAuthenticatedUser(request, emf, null);
+	}
 
-		// get authentication cookie
-		final String cookieVal = this.getAuthCookieValue(request);
-		if (cookieVal == null) {
-			if (debug)
-				this.log.debug("no authentication cookie");
-			return null;
-		}
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.spi.AuthenticationService#getAuthenticatedUser(javax.servlet.http.HttpServletRequest, javax.persistence.EntityManager)
+	 */
+	@Override
+	public T getAuthenticatedUser(final HttpServletRequest request,
+			final EntityManager em) {
 
-		// decrypt the cookie value
-		int userId;
-		int salt;
-		long timestamp;
-		final CipherToolbox cipher = this.getCipherToolbox();
-		try {
-			if (!cipher.decrypt(cookieVal))
-				return null;
-			userId = cipher.getUserId();
-			salt = cipher.getSalt();
-			timestamp = cipher.getTimestamp();
-		} finally {
-			cipher.recycle();
-		}
+		return this.getAuthenticatedUser(request, null, em);
+	}
 
-		// check if timestamp is way too old
-		final long now = System.currentTimeMillis();
-		if ((timestamp < now - 365L * 24L * 3600000L) || (timestamp > now)) {
-			if (debug)
-				this.log.debug("timestamp out of allowed range");
+	/**
+	 * Get authenticated user for the request.
+	 *
+	 * @param request The HTTP request.
+	 * @param emf Entity manager factory to use to access the user record, or
+	 * {@code null} to use the specified entity manager.
+	 * @param em Entity manager to use to access the user record if entity
+	 * manager factory is not specified.
+	 *
+	 * @return Authenticated user record, or {@code null}.
+	 */
+	private T getAuthenticatedUser(final HttpServletRequest request,
+			final EntityManagerFactory emf, final EntityManager em) {
+
+		final boolean debug = this.log.isDebugEnabled();
+
+		// decode authentication cookie
+		final AuthCookieCache.DecodedCookie cookie =
+			this.decodeAuthCookie(request);
+		if (cookie == null)
 			return null;
-		}
+		final int userId = cookie.userId;
+		final int salt = cookie.salt;
 
 		// find the user record
 		T user = this.userRecordsCache.getUser(userId);
@@ -273,8 +452,7 @@ public class SessionlessAuthenticationService<T>
 				this.log.debug("user id " + userId +
 						" is not in the authenticated user records cache," +
 						" will attempt to fetch from the storage");
-			user = this.userRecordHandler.getUser(userId, salt, emf);
-			this.userRecordsCache.storeUser(userId, user);
+			user = this.loadUser(userId, salt, emf, em);
 		} else {
 			if (debug)
 				this.log.debug("user id " + userId +
@@ -285,6 +463,169 @@ public class SessionlessAuthenticationService<T>
 		return user;
 	}
 
+	/**
+	 * Load user record from the persistent storage and store it in the
+	 * authenticated user records cache. If a load of the same user record with
+	 * the same salt is already in progress, wait for it and use its result
+	 * instead.
+	 *
+	 * @param userId User id.
+	 * @param salt Salt from the authentication cookie.
+	 * @param emf Entity manager factory to use to access the user record, or
+	 * {@code null} to use the specified entity manager.
+	 * @param em Entity manager to use to access the user record if entity
+	 * manager factory is not specified.
+	 *
+	 * @return The user record, or {@code null} if not found or the salt does
+	 * not match.
+	 */
+	private T loadUser(final int userId, final int salt,
+			final EntityManagerFactory emf, final EntityManager em) {
+
+		final Integer key = Integer.valueOf(userId);
+		final PendingUserLoad<T> load = new PendingUserLoad<>(salt);
+		final PendingUserLoad<T> inProgress =
+			this.pendingUserLoads.putIfAbsent(key, load);
+
+		// wait for the load in progress
+		if (inProgress != null) {
+			if ((inProgress.salt == salt) && inProgress.await()) {
+				this.coalescedUserLoads.increment();
+				if (this.log.isDebugEnabled())
+					this.log.debug("user id " + userId +
+							" loaded by a concurrent request");
+				return inProgress.getUser();
+			}
+			return this.fetchUser(userId, salt, emf, em);
+		}
+
+		// perform the load
+		T user = null;
+		boolean success = false;
+		try {
+			user = this.fetchUser(userId, salt, emf, em);
+			success = true;
+		} finally {
+			load.complete(user, !success);
+			this.pendingUserLoads.remove(key, load);
+		}
+
+		return user;
+	}
+
+	/**
+	 * Fetch user record from the persistent storage and store it in the
+	 * authenticated user records cache.
+	 *
+	 * @param userId User id.
+	 * @param salt Salt from the authentication cookie.
+	 * @param emf Entity manager factory to use to access the user record, or
+	 * {@code null} to use the specified entity manager.
+	 * @param em Entity manager to use to access the user record if entity
+	 * manager factory is not specified.
+	 *
+	 * @return The user record, or {@code null} if not found or the salt does
+	 * not match.
+	 */
+	private T fetchUser(final int userId, final int salt,
+			final EntityManagerFactory emf, final EntityManager em) {
+
+		this.userLoads.increment();
+
+		final T user = (emf != null ?
+				this.userRecordHandler.getUser(userId, salt, emf) :
+					this.userRecordHandler.getUser(userId, salt, em));
+		this.userRecordsCache.storeUser(userId, user);
+
+		return user;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.spi.AuthenticationService#getAuthenticatedUserInline(javax.servlet.http.HttpServletRequest)
+	 */
+	@Override
+	public Object getAuthenticatedUserInline(
+			final HttpServletRequest request) {
+
+		// decode authentication cookie
+		final AuthCookieCache.DecodedCookie cookie =
+			this.decodeAuthCookie(request);
+		if (cookie == null)
+			return null;
+		final int userId = cookie.userId;
+
+		// find the user record in the cache
+		final T user = this.userRecordsCache.getUser(userId);
+		if (user == null) {
+			if (this.log.isDebugEnabled())
+				this.log.debug("user id " + userId +
+						" is not in the authenticated user records cache," +
+						" cannot resolve without the storage");
+			return USER_UNRESOLVED;
+		}
+
+		if (this.log.isDebugEnabled())
+			this.log.debug("authenticated user from the cache: " + user);
+		return user;
+	}
+
+	/**
+	 * Decode authentication cookie.
+	 *
+	 * @param request The HTTP request.
+	 *
+	 * @return The decoded cookie value, or {@code null} if the request does not
+	 * have a valid authentication cookie.
+	 */
+	private AuthCookieCache.DecodedCookie decodeAuthCookie(
+			final HttpServletRequest request) {
+
+		final boolean debug = this.log.isDebugEnabled();
+
+		// get authentication cookie
+		final String cookieVal = this.getAuthCookieValue(request);
+		if (cookieVal == null) {
+			if (debug)
+				this.log.debug("no authentication cookie");
+			return null;
+		}
+
+		// look up the cookie value in the cache or decrypt it
+		AuthCookieCache.DecodedCookie cookie = (this.authCookieCache != null ?
+				this.authCookieCache.get(cookieVal) : null);
+		if (cookie != null) {
+			this.cookieCacheHits.increment();
+		} else {
+			this.cookieDecryptions.increment();
+			final CipherToolbox cipher = this.getCipherToolbox();
+			try {
+				if (!cipher.decrypt(cookieVal))
+					return null;
+				if (this.authCookieCache != null)
+					cookie = this.authCookieCache.put(cookieVal,
+							cipher.getUserId(), cipher.getSalt(),
+							cipher.getTimestamp());
+				else
+					cookie = new AuthCookieCache.DecodedCookie(cookieVal,
+							cipher.getUserId(), cipher.getSalt(),
+							cipher.getTimestamp(), 0);
+			} finally {
+				cipher.recycle();
+			}
+		}
+
+		// check if timestamp is way too old
+		final long timestamp = cookie.timestamp;
+		final long now = System.currentTimeMillis();
+		if ((timestamp < now - 365L * 24L * 3600000L) || (timestamp > now)) {
+			if (debug)
+				this.log.debug("timestamp out of allowed range");
+			return null;
+		}
+
+		return cookie;
+	}
+
 	/**
 	 * Get authentication cookie value.
 	 *
@@ -343,4 +684,40 @@ public class SessionlessAuthenticationService<T>
 			}
 		}
 	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.impl.auth.SessionlessAuthenticationServiceMBean#getUserLoads()
+	 */
+	@Override
+	public long getUserLoads() {
+
+		return this.userLoads.sum();
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.impl.auth.SessionlessAuthenticationServiceMBean#getCoalescedUserLoads()
+	 */
+	@Override
+	public long getCoalescedUserLoads() {
+
+		return this.coalescedUserLoads.sum();
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.impl.auth.SessionlessAuthenticationServiceMBean#getCookieDecryptions()
+	 */
+	@Override
+	public long getCookieDecryptions() {
+
+		return this.cookieDecryptions.sum();
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.impl.auth.SessionlessAuthenticationServiceMBean#getCookieCacheHits()
+	 */
+	@Override
+	public long getCookieCacheHits() {
+
+		return this.cookieCacheHits.sum();
+	}
 }
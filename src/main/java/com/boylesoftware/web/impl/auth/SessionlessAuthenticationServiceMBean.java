@@ -0,0 +1,60 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.impl.auth;
+
+
+/**
+ * Management interface for the {@link SessionlessAuthenticationService}
+ * statistics.
+ *
+ * @author Lev Himmelfarb
+ */
+public interface SessionlessAuthenticationServiceMBean {
+
+	/**
+	 * Get number of user record loads from the persistent storage performed
+	 * after authenticated user records cache misses.
+	 *
+	 * @return Number of loads.
+	 */
+	long getUserLoads();
+
+	/**
+	 * Get number of user record loads from the persistent storage that were
+	 * avoided because a concurrent request was already loading the same user
+	 * record and its result was shared.
+	 *
+	 * @return Number of saved loads.
+	 */
+	long getCoalescedUserLoads();
+
+	/**
+	 * Get number of authentication cookie decryptions.
+	 *
+	 * @return Number of decryptions.
+	 */
+	long getCookieDecryptions();
+
+	/**
+	 * Get number of authentication cookie decryptions that were avoided
+	 * because the decoded cookie value was found in the cache. The share of
+	 * saved decryptions is this value divided by the sum of this value and
+	 * {@link #getCookieDecryptions()}.
+	 *
+	 * @return Number of saved decryptions.
+	 */
+	long getCookieCacheHits();
+}
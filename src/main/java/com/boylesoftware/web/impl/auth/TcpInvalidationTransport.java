@@ -0,0 +1,380 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.impl.auth;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.boylesoftware.web.spi.UserRecordsCacheInvalidationTransport;
+
+
+/**
+ * {@link UserRecordsCacheInvalidationTransport} that sends evictions over TCP
+ * connections to a fixed list of peers. Each node listens on a port for the
+ * connections from the other nodes and keeps a persistent connection to each
+ * of its peers, re-establishing it when it breaks. The messages are sent by a
+ * background thread, so publishing an eviction never blocks the request
+ * processing. If the outgoing queue overflows, the pending messages are
+ * replaced with a single purge of all user records. Likewise, when a message
+ * could not be sent to a peer, or the connection to a peer broke and messages
+ * written to it may have been lost, the peer is sent a purge of all user
+ * records as soon as it is connected again.
+ *
+ * @author Lev Himmelfarb
+ */
+public class TcpInvalidationTransport
+	extends AbstractNetworkInvalidationTransport {
+
+	/**
+	 * Maximum number of messages waiting to be sent.
+	 */
+	private static final int OUTBOX_CAPACITY = 1024;
+
+	/**
+	 * Peer connection timeout in milliseconds.
+	 */
+	private static final int CONNECT_TIMEOUT = 5000;
+
+
+	/**
+	 * Address on which to listen for the connections from the peers.
+	 */
+	private final InetSocketAddress bindAddress;
+
+	/**
+	 * Peer addresses.
+	 */
+	private final InetSocketAddress[] peers;
+
+	/**
+	 * Connections to the peers, {@code null} elements for the peers that are
+	 * not connected. Accessed only by the sender thread.
+	 */
+	private final Socket[] peerSockets;
+
+	/**
+	 * Tells for each peer if messages to it may have been lost, so that all
+	 * user records must be purged on it. Accessed only by the sender thread.
+	 */
+	private final boolean[] peerResyncs;
+
+	/**
+	 * Messages waiting to be sent.
+	 */
+	private final BlockingQueue<byte[]> outbox =
+		new ArrayBlockingQueue<>(OUTBOX_CAPACITY);
+
+	/**
+	 * Tells if messages have been dropped because the outbox was full.
+	 */
+	private final AtomicBoolean overflow = new AtomicBoolean();
+
+	/**
+	 * Connections from the peers.
+	 */
+	private final Set<Socket> inboundSockets =
+		Collections.synchronizedSet(new HashSet<Socket>());
+
+	/**
+	 * Server socket.
+	 */
+	private ServerSocket serverSocket;
+
+	/**
+	 * Sender thread.
+	 */
+	private Thread sender;
+
+
+	/**
+	 * Create new transport.
+	 *
+	 * @param bindAddress Address on which to listen for the connections from
+	 * the peers.
+	 * @param peers Addresses of the other nodes in the cluster.
+	 */
+	public TcpInvalidationTransport(final InetSocketAddress bindAddress,
+			final List<InetSocketAddress> peers) {
+
+		this.bindAddress = bindAddress;
+		this.peers = peers.toArray(new InetSocketAddress[peers.size()]);
+		this.peerSockets = new Socket[this.peers.length];
+		this.peerResyncs = new boolean[this.peers.length];
+	}
+
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.spi.UserRecordsCacheInvalidationTransport#start(com.boylesoftware.web.spi.UserRecordsCacheInvalidationTransport.Listener)
+	 */
+	@Override
+	public void start(final Listener listener)
+		throws IOException {
+
+		this.setListener(listener);
+
+		final ServerSocket ss = new ServerSocket();
+		ss.setReuseAddress(true);
+		ss.bind(this.bindAddress);
+		this.serverSocket = ss;
+
+		if (this.log.isDebugEnabled())
+			this.log.debug("listening for user records cache invalidation" +
+					" messages on " + this.bindAddress);
+
+		startDaemon("user-cache-invalidation-acceptor", new Runnable() {
+
+			@Override
+			public void run() {
+
+				TcpInvalidationTransport.this.accept(ss);
+			}
+		});
+
+		this.sender = startDaemon("user-cache-invalidation-sender",
+				new Runnable() {
+
+					@Override
+					public void run() {
+
+						TcpInvalidationTransport.this.send();
+					}
+				});
+	}
+
+	/**
+	 * Accept connections from the peers until the transport is closed.
+	 *
+	 * @param ss The server socket.
+	 */
+	void accept(final ServerSocket ss) {
+
+		while (!this.closed) {
+			final Socket sock;
+			try {
+				sock = ss.accept();
+			} catch (final IOException e) {
+				if (this.closed || ss.isClosed())
+					break;
+				this.log.error("error accepting user records cache" +
+						" invalidation connection", e);
+				continue;
+			}
+
+			if (this.log.isDebugEnabled())
+				this.log.debug("accepted user records cache invalidation" +
+						" connection from " + sock.getRemoteSocketAddress());
+
+			this.inboundSockets.add(sock);
+			if (this.closed) {
+				this.closeQuietly(sock);
+				break;
+			}
+
+			startDaemon("user-cache-invalidation-receiver", new Runnable() {
+
+				@Override
+				public void run() {
+
+					TcpInvalidationTransport.this.receive(sock);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Receive messages from a peer until the connection is closed.
+	 *
+	 * @param sock Connection from the peer.
+	 */
+	void receive(final Socket sock) {
+
+		try {
+			final DataInputStream in =
+				new DataInputStream(sock.getInputStream());
+			final byte[] buf = new byte[MESSAGE_SIZE];
+			while (!this.closed) {
+				in.readFully(buf);
+				this.deliver(buf);
+			}
+		} catch (final EOFException e) {
+			if (this.log.isDebugEnabled())
+				this.log.debug("user records cache invalidation connection" +
+						" from " + sock.getRemoteSocketAddress() + " closed");
+		} catch (final IOException e) {
+			if (!this.closed)
+				this.log.warn("error receiving user records cache" +
+						" invalidation message from " +
+						sock.getRemoteSocketAddress(), e);
+		} finally {
+			this.inboundSockets.remove(sock);
+			this.closeQuietly(sock);
+		}
+	}
+
+	/**
+	 * Send queued messages to the peers until the transport is closed.
+	 */
+	void send() {
+
+		try {
+			while (!this.closed) {
+				byte[] msg = this.outbox.take();
+				if (this.overflow.getAndSet(false)) {
+					this.log.warn("user records cache invalidation messages" +
+							" overflow, purging all user records on peers");
+					this.outbox.clear();
+					msg = this.createAllUsersEvictionMessage();
+				}
+				for (int i = 0; i < this.peers.length; i++)
+					this.sendToPeer(i, msg);
+			}
+		} catch (final InterruptedException e) {
+			// closed, exit
+		} finally {
+			for (int i = 0; i < this.peerSockets.length; i++) {
+				if (this.peerSockets[i] != null) {
+					this.closeQuietly(this.peerSockets[i]);
+					this.peerSockets[i] = null;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Send message to a peer, connecting to it if necessary. If messages to
+	 * the peer may have been lost, a purge of all user records is sent to it
+	 * first.
+	 *
+	 * @param peerInd Peer index.
+	 * @param msg The message.
+	 */
+	private void sendToPeer(final int peerInd, final byte[] msg) {
+
+		for (int attempt = 0; attempt < 2; attempt++) {
+			Socket sock = this.peerSockets[peerInd];
+			try {
+				if (sock == null) {
+					sock = new Socket();
+					this.peerSockets[peerInd] = sock;
+					sock.setTcpNoDelay(true);
+					sock.connect(this.peers[peerInd], CONNECT_TIMEOUT);
+				}
+				final OutputStream out = sock.getOutputStream();
+				if (this.peerResyncs[peerInd]) {
+					if (this.log.isDebugEnabled())
+						this.log.debug("purging all user records on " +
+								this.peers[peerInd] + " after lost messages");
+					out.write(this.createAllUsersEvictionMessage());
+				}
+				out.write(msg);
+				out.flush();
+				this.peerResyncs[peerInd] = false;
+				return;
+			} catch (final IOException e) {
+				this.closeQuietly(sock);
+				this.peerSockets[peerInd] = null;
+				this.peerResyncs[peerInd] = true;
+				if (attempt > 0)
+					this.log.warn("could not send user records cache" +
+							" invalidation message to " +
+							this.peers[peerInd] + ", all user records will" +
+							" be purged on it when it is connected again", e);
+			}
+		}
+	}
+
+	/**
+	 * Queue message for sending to the peers.
+	 *
+	 * @param msg The message.
+	 */
+	private void publish(final byte[] msg) {
+
+		if (!this.outbox.offer(msg))
+			this.overflow.set(true);
+	}
+
+	/**
+	 * Close socket ignoring errors.
+	 *
+	 * @param sock The socket.
+	 */
+	private void closeQuietly(final Socket sock) {
+
+		try {
+			sock.close();
+		} catch (final IOException e) {
+			this.log.debug("error closing socket", e);
+		}
+	}
+
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.spi.UserRecordsCacheInvalidationTransport#publishUserEviction(int)
+	 */
+	@Override
+	public void publishUserEviction(final int id) {
+
+		this.publish(this.createUserEvictionMessage(id));
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.spi.UserRecordsCacheInvalidationTransport#publishAllUsersEviction()
+	 */
+	@Override
+	public void publishAllUsersEviction() {
+
+		this.publish(this.createAllUsersEvictionMessage());
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.spi.UserRecordsCacheInvalidationTransport#close()
+	 */
+	@Override
+	public void close() {
+
+		this.closed = true;
+
+		if (this.serverSocket != null) {
+			try {
+				this.serverSocket.close();
+			} catch (final IOException e) {
+				this.log.debug("error closing server socket", e);
+			}
+		}
+
+		if (this.sender != null)
+			this.sender.interrupt();
+
+		synchronized (this.inboundSockets) {
+			for (final Socket sock : this.inboundSockets)
+				this.closeQuietly(sock);
+			this.inboundSockets.clear();
+		}
+	}
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.impl.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.boylesoftware.web.spi.RequestMetrics;
+import com.boylesoftware.web.spi.Route;
+
+
+/**
+ * {@link RequestMetrics} implementation that keeps latency histograms for each
+ * route and phase. Optionally, a {@link RouteMetricsMBean} is registered with
+ * the platform MBean server for every route the first time the route is used.
+ * The MBean names have the form
+ * {@code com.boylesoftware.web:type=RouteMetrics,application=<app>,route=<id>}.
+ *
+ * <p>Recording a latency does not allocate memory except for the first time a
+ * route or a phase is recorded.
+ *
+ * @author Lev Himmelfarb
+ */
+public class HistogramRequestMetrics
+	implements RequestMetrics, AutoCloseable {
+
+	/**
+	 * MBean names domain.
+	 */
+	private static final String DOMAIN = "com.boylesoftware.web";
+
+
+	/**
+	 * The log.
+	 */
+	private final Log log = LogFactory.getLog(this.getClass());
+
+	/**
+	 * Application name used in the MBean names, or {@code null} if the MBeans
+	 * are not registered.
+	 */
+	private final String application;
+
+	/**
+	 * Metrics by route id.
+	 */
+	private final ConcurrentMap<String, RouteMetrics> routeMetrics =
+		new ConcurrentHashMap<>();
+
+	/**
+	 * Names of the registered MBeans.
+	 */
+	private final List<ObjectName> registeredNames = new ArrayList<>();
+
+
+	/**
+	 * Create new metrics.
+	 *
+	 * @param application Application name to use in the MBean names, or
+	 * {@code null} not to register any MBeans.
+	 */
+	public HistogramRequestMetrics(final String application) {
+
+		this.application = application;
+	}
+
+
+	/**
+	 * Get metrics for the specified route.
+	 *
+	 * @param routeId Route id.
+	 *
+	 * @return Route metrics, or {@code null} if nothing has been recorded for
+	 * the route yet.
+	 */
+	public RouteMetricsMBean getRouteMetrics(final String routeId) {
+
+		return this.routeMetrics.get(routeId);
+	}
+
+	/**
+	 * Get metrics for the specified route, creating them if necessary.
+	 *
+	 * @param route The route.
+	 *
+	 * @return Route metrics.
+	 */
+	private RouteMetrics getOrCreateRouteMetrics(final Route route) {
+
+		final String routeId = route.getId();
+		final RouteMetrics metrics = this.routeMetrics.get(routeId);
+		if (metrics != null)
+			return metrics;
+
+		return this.createRouteMetrics(routeId);
+	}
+
+	/**
+	 * Create and register metrics for a route.
+	 *
+	 * @param routeId Route id.
+	 *
+	 * @return Route metrics.
+	 */
+	private synchronized RouteMetrics createRouteMetrics(
+			final String routeId) {
+
+		RouteMetrics metrics = this.routeMetrics.get(routeId);
+		if (metrics != null)
+			return metrics;
+
+		metrics = new RouteMetrics(routeId);
+		this.routeMetrics.put(routeId, metrics);
+
+		if (this.application != null) {
+			final MBeanServer server =
+				ManagementFactory.getPlatformMBeanServer();
+			try {
+				final ObjectName name = new ObjectName(DOMAIN +
+						":type=RouteMetrics,application=" +
+						ObjectName.quote(this.application) + ",route=" +
+						ObjectName.quote(routeId));
+				server.registerMBean(metrics, name);
+				this.registeredNames.add(name);
+			} catch (final JMException e) {
+				this.log.warn("error registering metrics MBean for route " +
+						routeId, e);
+			}
+		}
+
+		return metrics;
+	}
+
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.spi.RequestMetrics#recordPhase(com.boylesoftware.web.spi.Route, com.boylesoftware.web.spi.RequestMetrics.Phase, long)
+	 */
+	@Override
+	public void recordPhase(final Route route, final Phase phase,
+			final long nanos) {
+
+		this.getOrCreateRouteMetrics(route).record(phase, nanos);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.spi.RequestMetrics#recordTimeout(com.boylesoftware.web.spi.Route)
+	 */
+	@Override
+	public void recordTimeout(final Route route) {
+
+		this.getOrCreateRouteMetrics(route).recordTimeout();
+	}
+
+	/**
+	 * Unregister the MBeans.
+	 */
+	@Override
+	public synchronized void close() {
+
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		for (final ObjectName name : this.registeredNames) {
+			try {
+				server.unregisterMBean(name);
+			} catch (final JMException e) {
+				this.log.warn("error unregistering route metrics MBean " +
+						name, e);
+			}
+		}
+		this.registeredNames.clear();
+	}
+}
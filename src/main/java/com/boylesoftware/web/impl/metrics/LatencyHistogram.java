@@ -0,0 +1,189 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.impl.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * Thread-safe latency histogram with logarithmic buckets. Latencies are
+ * recorded in microseconds. Values below {@value #LINEAR_RANGE} are counted
+ * exactly and larger values are counted in buckets with the width of
+ * 1/{@value #SUB_BUCKETS} of the value, so that the reported percentiles are
+ * within about 3% of the actual values. Recording a value is a single atomic
+ * increment of the bucket counter and does not allocate memory.
+ *
+ * @author Lev Himmelfarb
+ */
+final class LatencyHistogram {
+
+	/**
+	 * Number of sub-buckets in each power of two range.
+	 */
+	private static final int SUB_BUCKETS = 32;
+
+	/**
+	 * Number of bits in the sub-bucket index.
+	 */
+	private static final int SUB_BUCKET_BITS = 5;
+
+	/**
+	 * Values below this are counted exactly.
+	 */
+	private static final int LINEAR_RANGE = 2 * SUB_BUCKETS;
+
+	/**
+	 * Maximum bucket shift, which covers latencies of over an hour. Larger
+	 * values are counted in the last bucket.
+	 */
+	private static final int MAX_SHIFT = 26;
+
+
+	/**
+	 * Bucket counters.
+	 */
+	private final AtomicLongArray counts =
+		new AtomicLongArray(LINEAR_RANGE + MAX_SHIFT * SUB_BUCKETS);
+
+	/**
+	 * Maximum recorded value.
+	 */
+	private final AtomicLong maxValue = new AtomicLong();
+
+
+	/**
+	 * Record value.
+	 *
+	 * @param nanos Latency in nanoseconds.
+	 */
+	void record(final long nanos) {
+
+		final long v = (nanos > 0 ? nanos / 1000 : 0);
+
+		this.counts.incrementAndGet(bucketIndex(v));
+
+		long max = this.maxValue.get();
+		while ((v > max) && !this.maxValue.compareAndSet(max, v))
+			max = this.maxValue.get();
+	}
+
+	/**
+	 * Get number of recorded values.
+	 *
+	 * @return Number of values.
+	 */
+	long getCount() {
+
+		long count = 0;
+		for (int i = this.counts.length() - 1; i >= 0; i--)
+			count += this.counts.get(i);
+
+		return count;
+	}
+
+	/**
+	 * Get maximum recorded value.
+	 *
+	 * @return Maximum latency in microseconds.
+	 */
+	long getMax() {
+
+		return this.maxValue.get();
+	}
+
+	/**
+	 * Get value at the specified percentile.
+	 *
+	 * @param percentile The percentile, from 0 to 100.
+	 *
+	 * @return Latency in microseconds, at or below which the specified
+	 * percentage of the recorded values falls. Zero if nothing has been
+	 * recorded.
+	 */
+	long getValueAtPercentile(final double percentile) {
+
+		final int numBuckets = this.counts.length();
+		final long[] snapshot = new long[numBuckets];
+		long total = 0;
+		for (int i = 0; i < numBuckets; i++)
+			total += (snapshot[i] = this.counts.get(i));
+		if (total == 0)
+			return 0;
+
+		final long rank = Math.max(1, (long) Math.ceil(
+				total * Math.min(Math.max(percentile, 0), 100) / 100));
+		final long max = this.maxValue.get();
+		long count = 0;
+		for (int i = 0; i < numBuckets; i++) {
+			count += snapshot[i];
+			if (count >= rank)
+				return Math.min(bucketUpperBound(i), max);
+		}
+
+		return max;
+	}
+
+	/**
+	 * Clear all recorded values.
+	 */
+	void reset() {
+
+		for (int i = this.counts.length() - 1; i >= 0; i--)
+			this.counts.set(i, 0);
+		this.maxValue.set(0);
+	}
+
+
+	/**
+	 * Get bucket index for a value.
+	 *
+	 * @param v The value.
+	 *
+	 * @return The bucket index.
+	 */
+	private static int bucketIndex(final long v) {
+
+		if (v < LINEAR_RANGE)
+			return (int) v;
+
+		final int shift =
+			63 - Long.numberOfLeadingZeros(v) - SUB_BUCKET_BITS;
+		if (shift > MAX_SHIFT)
+			return LINEAR_RANGE + MAX_SHIFT * SUB_BUCKETS - 1;
+
+		return LINEAR_RANGE + (shift - 1) * SUB_BUCKETS +
+				(int) (v >>> shift) - SUB_BUCKETS;
+	}
+
+	/**
+	 * Get largest value counted in a bucket.
+	 *
+	 * @param index The bucket index.
+	 *
+	 * @return The value.
+	 */
+	private static long bucketUpperBound(final int index) {
+
+		if (index < LINEAR_RANGE)
+			return index;
+
+		final int shift = (index - LINEAR_RANGE) / SUB_BUCKETS + 1;
+		final long sub = (index - LINEAR_RANGE) % SUB_BUCKETS + SUB_BUCKETS;
+
+		return ((sub + 1) << shift) - 1;
+	}
+}
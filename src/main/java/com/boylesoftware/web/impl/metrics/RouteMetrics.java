@@ -0,0 +1,215 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.impl.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.boylesoftware.web.spi.RequestMetrics.Phase;
+
+
+/**
+ * Request processing metrics of a route. A latency histogram for a phase is
+ * created the first time a latency is recorded for the phase, so that the
+ * routes do not carry histograms for the phases they never go through.
+ *
+ * @author Lev Himmelfarb
+ */
+final class RouteMetrics
+	implements RouteMetricsMBean {
+
+	/**
+	 * All phases.
+	 */
+	private static final Phase[] PHASES = Phase.values();
+
+
+	/**
+	 * Route id.
+	 */
+	private final String routeId;
+
+	/**
+	 * Latency histograms indexed by phase ordinal, {@code null} elements for
+	 * the phases that have not been recorded yet.
+	 */
+	private final AtomicReferenceArray<LatencyHistogram> histograms =
+		new AtomicReferenceArray<>(PHASES.length);
+
+	/**
+	 * Number of timeouts.
+	 */
+	private final AtomicLong timeouts = new AtomicLong();
+
+
+	/**
+	 * Create new metrics.
+	 *
+	 * @param routeId Route id.
+	 */
+	RouteMetrics(final String routeId) {
+
+		this.routeId = routeId;
+	}
+
+
+	/**
+	 * Record phase latency.
+	 *
+	 * @param phase The phase.
+	 * @param nanos Latency in nanoseconds.
+	 */
+	void record(final Phase phase, final long nanos) {
+
+		final int ind = phase.ordinal();
+		LatencyHistogram histogram = this.histograms.get(ind);
+		if (histogram == null) {
+			this.histograms.compareAndSet(ind, null, new LatencyHistogram());
+			histogram = this.histograms.get(ind);
+		}
+
+		histogram.record(nanos);
+	}
+
+	/**
+	 * Record timeout.
+	 */
+	void recordTimeout() {
+
+		this.timeouts.incrementAndGet();
+	}
+
+	/**
+	 * Get latency histogram for a phase.
+	 *
+	 * @param phase Phase name.
+	 *
+	 * @return The histogram, or {@code null} if nothing has been recorded for
+	 * the phase.
+	 *
+	 * @throws IllegalArgumentException If the phase name is invalid.
+	 */
+	private LatencyHistogram getHistogram(final String phase) {
+
+		return this.histograms.get(Phase.valueOf(phase).ordinal());
+	}
+
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.impl.metrics.RouteMetricsMBean#getRouteId()
+	 */
+	@Override
+	public String getRouteId() {
+
+		return this.routeId;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.impl.metrics.RouteMetricsMBean#getTimeouts()
+	 */
+	@Override
+	public long getTimeouts() {
+
+		return this.timeouts.get();
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.impl.metrics.RouteMetricsMBean#getPhases()
+	 */
+	@Override
+	public String[] getPhases() {
+
+		final List<String> phases = new ArrayList<>(PHASES.length);
+		for (final Phase phase : PHASES)
+			if (this.histograms.get(phase.ordinal()) != null)
+				phases.add(phase.name());
+
+		return phases.toArray(new String[phases.size()]);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.impl.metrics.RouteMetricsMBean#getSummary()
+	 */
+	@Override
+	public String[] getSummary() {
+
+		final List<String> lines = new ArrayList<>(PHASES.length);
+		for (final Phase phase : PHASES) {
+			final LatencyHistogram histogram =
+				this.histograms.get(phase.ordinal());
+			if (histogram == null)
+				continue;
+			lines.add(phase.name() + ": count=" + histogram.getCount() +
+					", p50=" + histogram.getValueAtPercentile(50) +
+					"us, p99=" + histogram.getValueAtPercentile(99) +
+					"us, p99.9=" + histogram.getValueAtPercentile(99.9) +
+					"us, max=" + histogram.getMax() + "us");
+		}
+
+		return lines.toArray(new String[lines.size()]);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.impl.metrics.RouteMetricsMBean#getCount(java.lang.String)
+	 */
+	@Override
+	public long getCount(final String phase) {
+
+		final LatencyHistogram histogram = this.getHistogram(phase);
+
+		return (histogram != null ? histogram.getCount() : 0);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.impl.metrics.RouteMetricsMBean#getPercentile(java.lang.String, double)
+	 */
+	@Override
+	public long getPercentile(final String phase, final double percentile) {
+
+		final LatencyHistogram histogram = this.getHistogram(phase);
+
+		return (histogram != null ?
+				histogram.getValueAtPercentile(percentile) : 0);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.impl.metrics.RouteMetricsMBean#getMax(java.lang.String)
+	 */
+	@Override
+	public long getMax(final String phase) {
+
+		final LatencyHistogram histogram = this.getHistogram(phase);
+
+		return (histogram != null ? histogram.getMax() : 0);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.impl.metrics.RouteMetricsMBean#reset()
+	 */
+	@Override
+	public void reset() {
+
+		for (final Phase phase : PHASES) {
+			final LatencyHistogram histogram =
+				this.histograms.get(phase.ordinal());
+			if (histogram != null)
+				histogram.reset();
+		}
+		this.timeouts.set(0);
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.impl.metrics;
+
+
+/**
+ * Management interface for the request processing metrics of a route. The
+ * phases are identified by the names of the
+ * {@link com.boylesoftware.web.spi.RequestMetrics.Phase} constants. All
+ * latencies are in microseconds.
+ *
+ * @author Lev Himmelfarb
+ */
+public interface RouteMetricsMBean {
+
+	/**
+	 * Get route id.
+	 *
+	 * @return Route id.
+	 */
+	String getRouteId();
+
+	/**
+	 * Get number of requests that timed out before their asynchronous
+	 * processing completed.
+	 *
+	 * @return Number of timeouts.
+	 */
+	long getTimeouts();
+
+	/**
+	 * Get names of the phases, for which latencies have been recorded.
+	 *
+	 * @return Phase names.
+	 */
+	String[] getPhases();
+
+	/**
+	 * Get latency summary, one line per phase with the number of recorded
+	 * latencies, the 50th, 99th and 99.9th percentiles and the maximum.
+	 *
+	 * @return Summary lines.
+	 */
+	String[] getSummary();
+
+	/**
+	 * Get number of latencies recorded for a phase.
+	 *
+	 * @param phase Phase name.
+	 *
+	 * @return Number of recorded latencies.
+	 */
+	long getCount(String phase);
+
+	/**
+	 * Get latency of a phase at the specified percentile.
+	 *
+	 * @param phase Phase name.
+	 * @param percentile The percentile, from 0 to 100.
+	 *
+	 * @return Latency in microseconds.
+	 */
+	long getPercentile(String phase, double percentile);
+
+	/**
+	 * Get maximum latency of a phase.
+	 *
+	 * @param phase Phase name.
+	 *
+	 * @return Latency in microseconds.
+	 */
+	long getMax(String phase);
+
+	/**
+	 * Clear all recorded latencies and the timeouts counter.
+	 */
+	void reset();
+}
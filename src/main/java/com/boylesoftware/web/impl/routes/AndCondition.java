@@ -66,6 +66,27 @@ class AndCondition
 				this.condition2.isTrue(request, em));
 	}
 
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.impl.routes.Condition#compile()
+	 */
+	@Override
+	public Condition compile() {
+
+		final Condition c1 = this.condition1.compile();
+		final Condition c2 = this.condition2.compile();
+
+		// the first condition is always evaluated, so it can be dropped only
+		// if it is a constant
+		if (c1 instanceof ConstantCondition)
+			return (((ConstantCondition) c1).getValue() ? c2 :
+				ConstantCondition.FALSE);
+		if (c2 == ConstantCondition.TRUE)
+			return c1;
+
+		return ((c1 == this.condition1) && (c2 == this.condition2) ? this :
+			new AndCondition(c1, c2));
+	}
+
 
 	/* (non-Javadoc)
 	 * @see java.lang.Object#toString()
@@ -29,7 +29,7 @@ import com.boylesoftware.web.spi.Script;
  * @author Lev Himmelfarb
  */
 class AssignStatement
-	implements Script {
+	implements CompilableScript {
 
 	/**
 	 * Model component name.
@@ -71,6 +71,15 @@ class AssignStatement
 			request.removeAttribute(this.name);
 	}
 
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.impl.routes.CompilableScript#compile()
+	 */
+	@Override
+	public Script compile() {
+
+		return this;
+	}
+
 
 	/* (non-Javadoc)
 	 * @see java.lang.Object#toString()
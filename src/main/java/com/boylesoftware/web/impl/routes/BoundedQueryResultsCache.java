@@ -0,0 +1,293 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.impl.routes;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.boylesoftware.web.spi.QueryResultsCache;
+
+
+/**
+ * {@link QueryResultsCache} implementation that holds up to a fixed number of
+ * results and evicts the least recently used ones. The results expire after a
+ * time to live. The cache is split into independently locked partitions by the
+ * result key. This cache implementation cannot be used in clustered
+ * environments as the cache instances do not communicate between each other.
+ *
+ * @author Lev Himmelfarb
+ */
+public class BoundedQueryResultsCache
+	implements QueryResultsCache {
+
+	/**
+	 * Maximum number of partitions.
+	 */
+	private static final int MAX_PARTITIONS = 16;
+
+
+	/**
+	 * Cached result.
+	 */
+	private static final class Entry {
+
+		/**
+		 * Class of the entities contained in the result.
+		 */
+		final Class<?> entityClass;
+
+		/**
+		 * The result.
+		 */
+		final Object result;
+
+		/**
+		 * Value of {@link System#nanoTime()} when the result expires.
+		 */
+		final long expiresAt;
+
+
+		/**
+		 * Create new entry.
+		 *
+		 * @param entityClass Class of the entities contained in the result.
+		 * @param result The result.
+		 * @param expiresAt Value of {@link System#nanoTime()} when the result
+		 * expires.
+		 */
+		Entry(final Class<?> entityClass, final Object result,
+				final long expiresAt) {
+
+			this.entityClass = entityClass;
+			this.result = result;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	/**
+	 * Cache partition. All access must be synchronized on the partition.
+	 */
+	private static final class Partition
+		extends LinkedHashMap<Object, Entry> {
+
+		/**
+		 * Serial version id.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Maximum number of results in the partition.
+		 */
+		private final int capacity;
+
+
+		/**
+		 * Create new partition.
+		 *
+		 * @param capacity Maximum number of results in the partition.
+		 */
+		Partition(final int capacity) {
+			super(16, 0.75f, true);
+
+			this.capacity = capacity;
+		}
+
+
+		/* (non-Javadoc)
+		 * @see java.util.LinkedHashMap#removeEldestEntry(java.util.Map.Entry)
+		 */
+		@Override
+		protected boolean removeEldestEntry(
+				final Map.Entry<Object, Entry> eldest) {
+
+			return (this.size() > this.capacity);
+		}
+	}
+
+
+	/**
+	 * Default time to live of a result in nanoseconds.
+	 */
+	private final long ttl;
+
+	/**
+	 * The partitions.
+	 */
+	private final Partition[] partitions;
+
+	/**
+	 * Mask for the partition index.
+	 */
+	private final int partitionMask;
+
+	/**
+	 * Current generation.
+	 */
+	private final AtomicLong generation = new AtomicLong();
+
+
+	/**
+	 * Create new cache.
+	 *
+	 * @param maxSize Maximum number of cached results. Must be positive.
+	 * @param ttl Default time to live of a result in milliseconds. Must be
+	 * positive.
+	 */
+	public BoundedQueryResultsCache(final int maxSize, final long ttl) {
+
+		if ((maxSize <= 0) || (ttl <= 0))
+			throw new IllegalArgumentException(
+					"Cache size and time to live must be positive.");
+
+		int numPartitions = 1;
+		while ((numPartitions < MAX_PARTITIONS) &&
+				(numPartitions * 2 * 64 <= maxSize))
+			numPartitions <<= 1;
+
+		this.partitions = new Partition[numPartitions];
+		final int partitionCapacity =
+			(maxSize + numPartitions - 1) / numPartitions;
+		for (int i = 0; i < numPartitions; i++)
+			this.partitions[i] = new Partition(partitionCapacity);
+		this.partitionMask = numPartitions - 1;
+
+		this.ttl = ttl * 1000000L;
+	}
+
+
+	/**
+	 * Get partition for the specified result key.
+	 *
+	 * @param key The result key.
+	 *
+	 * @return The partition.
+	 */
+	private Partition partition(final Object key) {
+
+		final int h = key.hashCode() * 0x9E3779B9;
+
+		return this.partitions[(h ^ (h >>> 16)) & this.partitionMask];
+	}
+
+	/**
+	 * Tell if results containing entities of the specified class are affected
+	 * by changes to entities of any of the specified changed classes.
+	 *
+	 * @param entityClass Class of the entities contained in the result.
+	 * @param changedClasses Changed entity classes.
+	 *
+	 * @return {@code true} if affected.
+	 */
+	private static boolean isAffected(final Class<?> entityClass,
+			final Collection<Class<?>> changedClasses) {
+
+		for (final Class<?> changedClass : changedClasses) {
+			if (entityClass.isAssignableFrom(changedClass) ||
+					changedClass.isAssignableFrom(entityClass))
+				return true;
+		}
+
+		return false;
+	}
+
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.spi.QueryResultsCache#getGeneration()
+	 */
+	@Override
+	public long getGeneration() {
+
+		return this.generation.get();
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.spi.QueryResultsCache#get(java.lang.Object)
+	 */
+	@Override
+	public Object get(final Object key) {
+
+		final Partition partition = this.partition(key);
+		synchronized (partition) {
+			final Entry entry = partition.get(key);
+			if (entry == null)
+				return null;
+			if (System.nanoTime() - entry.expiresAt > 0) {
+				partition.remove(key);
+				return null;
+			}
+			return entry.result;
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.spi.QueryResultsCache#put(java.lang.Object, java.lang.Class, java.lang.Object, long, long)
+	 */
+	@Override
+	public void put(final Object key, final Class<?> entityClass,
+			final Object result, final long ttl, final long generation) {
+
+		final Entry entry = new Entry(entityClass, result, System.nanoTime() +
+				(ttl > 0 ? ttl * 1000000L : this.ttl));
+
+		// the generation is checked under the partition lock, so that a
+		// concurrent invalidation either sees the entry or refuses it
+		final Partition partition = this.partition(key);
+		synchronized (partition) {
+			if (this.generation.get() == generation)
+				partition.put(key, entry);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.spi.QueryResultsCache#invalidate(java.util.Collection)
+	 */
+	@Override
+	public void invalidate(final Collection<Class<?>> entityClasses) {
+
+		if (entityClasses.isEmpty())
+			return;
+
+		this.generation.incrementAndGet();
+
+		for (final Partition partition : this.partitions) {
+			synchronized (partition) {
+				for (final Iterator<Entry> i = partition.values().iterator();
+						i.hasNext();) {
+					if (isAffected(i.next().entityClass, entityClasses))
+						i.remove();
+				}
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.spi.QueryResultsCache#clear()
+	 */
+	@Override
+	public void clear() {
+
+		this.generation.incrementAndGet();
+
+		for (final Partition partition : this.partitions) {
+			synchronized (partition) {
+				partition.clear();
+			}
+		}
+	}
+}
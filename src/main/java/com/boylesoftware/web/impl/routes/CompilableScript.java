@@ -0,0 +1,41 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.impl.routes;
+
+import com.boylesoftware.web.spi.Script;
+
+
+/**
+ * Script statement produced by the router configuration parser, which is
+ * compiled into the form used to execute it at run-time once the router
+ * configuration is loaded.
+ *
+ * @author Lev Himmelfarb
+ */
+interface CompilableScript
+	extends Script {
+
+	/**
+	 * Compile the script. Conditions that do not depend on the request are
+	 * folded into constants, branches that can never be executed and
+	 * statements that never have any effect are removed, and nested sequences
+	 * are flattened into arrays.
+	 *
+	 * @return The compiled script, which may be this script itself, or
+	 * {@code null} if the script has no effect.
+	 */
+	Script compile();
+}
@@ -43,4 +43,13 @@ interface Condition {
 	 */
 	boolean isTrue(HttpServletRequest request, EntityManager em)
 		throws RequestedResourceException, ServletException;
+
+	/**
+	 * Compile the condition into the form used to evaluate it at run-time.
+	 * Called once when the router configuration is loaded. Conditions that do
+	 * not depend on the request are folded into constants.
+	 *
+	 * @return The compiled condition, which may be this condition itself.
+	 */
+	Condition compile();
 }
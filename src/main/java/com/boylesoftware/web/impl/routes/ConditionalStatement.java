@@ -29,7 +29,7 @@ import com.boylesoftware.web.spi.Script;
  * @author Lev Himmelfarb
  */
 class ConditionalStatement
-	implements Script {
+	implements CompilableScript {
 
 	/**
 	 * The condition.
@@ -51,7 +51,8 @@ class ConditionalStatement
 	 * Create new statement.
 	 *
 	 * @param condition The condition.
-	 * @param ifScript Subscript to execute if the condition is true.
+	 * @param ifScript Subscript to execute if the condition is true, or
+	 * {@code null}.
 	 * @param elseScript Subscript to execute if the condition is false, or
 	 * {@code null}.
 	 */
@@ -72,12 +73,45 @@ class ConditionalStatement
 			final EntityManager em)
 		throws RequestedResourceException, ServletException {
 
-		if (this.condition.isTrue(request, em))
-			this.ifScript.execute(request, em);
-		else if (this.elseScript != null)
+		if (this.condition.isTrue(request, em)) {
+			if (this.ifScript != null)
+				this.ifScript.execute(request, em);
+		} else if (this.elseScript != null)
 			this.elseScript.execute(request, em);
 	}
 
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.impl.routes.CompilableScript#compile()
+	 */
+	@Override
+	public Script compile() {
+
+		final Condition c = this.condition.compile();
+		final Script ifS = compileSubscript(this.ifScript);
+		final Script elseS = compileSubscript(this.elseScript);
+
+		if (c instanceof ConstantCondition)
+			return (((ConstantCondition) c).getValue() ? ifS : elseS);
+
+		// the condition is still evaluated even if both branches are empty,
+		// because evaluating it may fail the request
+		return new ConditionalStatement(c, ifS, elseS);
+	}
+
+	/**
+	 * Compile a branch.
+	 *
+	 * @param script The branch script, or {@code null}.
+	 *
+	 * @return The compiled script, or {@code null} if none or the script has
+	 * no effect.
+	 */
+	private static Script compileSubscript(final Script script) {
+
+		return (script instanceof CompilableScript ?
+				((CompilableScript) script).compile() : script);
+	}
+
 
 	/* (non-Javadoc)
 	 * @see java.lang.Object#toString()
@@ -87,7 +121,7 @@ class ConditionalStatement
 
 		final StringBuilder sb = new StringBuilder(256);
 		sb.append("if (").append(this.condition).append(") ")
-			.append(this.ifScript);
+			.append(this.ifScript != null ? this.ifScript : "{}");
 		if (this.elseScript != null)
 			sb.append(" else ").append(this.elseScript);
 
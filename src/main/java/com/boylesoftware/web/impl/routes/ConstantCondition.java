@@ -0,0 +1,110 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.impl.routes;
+
+import javax.persistence.EntityManager;
+import javax.servlet.http.HttpServletRequest;
+
+
+/**
+ * Condition with a value known when the router configuration is loaded. Used
+ * to fold conditions that do not depend on the request.
+ *
+ * @author Lev Himmelfarb
+ */
+final class ConstantCondition
+	implements Condition {
+
+	/**
+	 * Always true condition.
+	 */
+	static final ConstantCondition TRUE = new ConstantCondition(true);
+
+	/**
+	 * Always false condition.
+	 */
+	static final ConstantCondition FALSE = new ConstantCondition(false);
+
+
+	/**
+	 * The value.
+	 */
+	private final boolean value;
+
+
+	/**
+	 * Create new condition.
+	 *
+	 * @param value The value.
+	 */
+	private ConstantCondition(final boolean value) {
+
+		this.value = value;
+	}
+
+
+	/**
+	 * Get constant condition.
+	 *
+	 * @param value The value.
+	 *
+	 * @return The condition.
+	 */
+	static ConstantCondition valueOf(final boolean value) {
+
+		return (value ? TRUE : FALSE);
+	}
+
+	/**
+	 * Get the condition value.
+	 *
+	 * @return The value.
+	 */
+	boolean getValue() {
+
+		return this.value;
+	}
+
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.impl.routes.Condition#isTrue(javax.servlet.http.HttpServletRequest, javax.persistence.EntityManager)
+	 */
+	@Override
+	public boolean isTrue(final HttpServletRequest request,
+			final EntityManager em) {
+
+		return this.value;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.impl.routes.Condition#compile()
+	 */
+	@Override
+	public Condition compile() {
+
+		return this;
+	}
+
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+
+		return String.valueOf(this.value);
+	}
+}
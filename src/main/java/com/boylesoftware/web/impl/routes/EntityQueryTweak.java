@@ -31,16 +31,28 @@ import com.boylesoftware.web.RequestedResourceException;
 interface EntityQueryTweak {
 
 	/**
-	 * Apply the tweak to the specified query.
+	 * Evaluate the tweak argument for the specified request. The argument is
+	 * used both to apply the tweak to the query and as a part of the query
+	 * results cache key.
 	 *
-	 * @param query The query.
 	 * @param request The HTTP request.
 	 * @param em Entity manager to use to access persistent objects.
 	 *
+	 * @return The argument.
+	 *
 	 * @throws RequestedResourceException If there is a problem with the
 	 * request.
 	 * @throws ServletException If an application error happens.
 	 */
-	void apply(Query query, HttpServletRequest request, EntityManager em)
+	Object getArgument(HttpServletRequest request, EntityManager em)
 		throws RequestedResourceException, ServletException;
+
+	/**
+	 * Apply the tweak to the specified query.
+	 *
+	 * @param query The query.
+	 * @param argument The tweak argument returned by the
+	 * {@link #getArgument} method.
+	 */
+	void apply(Query query, Object argument);
 }
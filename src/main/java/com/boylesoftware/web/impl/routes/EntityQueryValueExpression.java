@@ -15,6 +15,11 @@
  */
 package com.boylesoftware.web.impl.routes;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.NonUniqueResultException;
@@ -24,6 +29,7 @@ import javax.servlet.http.HttpServletRequest;
 
 import com.boylesoftware.web.NotFoundException;
 import com.boylesoftware.web.RequestedResourceException;
+import com.boylesoftware.web.spi.QueryResultsCache;
 
 
 /**
@@ -54,6 +60,18 @@ class EntityQueryValueExpression
 	 */
 	private final boolean listMode;
 
+	/**
+	 * Cache for the query results, or {@code null} if the results are not
+	 * cached.
+	 */
+	private final QueryResultsCache cache;
+
+	/**
+	 * Time to live of the cached results in milliseconds, or zero for the
+	 * cache default.
+	 */
+	private final long cacheTTL;
+
 
 	/**
 	 * Create new expression.
@@ -63,15 +81,22 @@ class EntityQueryValueExpression
 	 * @param tweaks Query tweaks.
 	 * @param listMode {@code true} if list is requested instead of a single
 	 * result.
+	 * @param cache Cache for the query results, or {@code null} if the results
+	 * are not cached.
+	 * @param cacheTTL Time to live of the cached results in milliseconds, or
+	 * zero for the cache default.
 	 */
 	EntityQueryValueExpression(final Class<?> entityClass,
 			final String queryName, final EntityQueryTweak[] tweaks,
-			final boolean listMode) {
+			final boolean listMode, final QueryResultsCache cache,
+			final long cacheTTL) {
 
 		this.entityClass = entityClass;
 		this.queryName = queryName;
 		this.tweaks = tweaks;
 		this.listMode = listMode;
+		this.cache = cache;
+		this.cacheTTL = cacheTTL;
 	}
 
 
@@ -83,11 +108,61 @@ class EntityQueryValueExpression
 			final EntityManager em)
 		throws RequestedResourceException, ServletException {
 
+		final int numTweaks = this.tweaks.length;
+
+		// not cached, execute the query directly
+		if ((this.cache == null) || !QueryResultsCacheSupport.isCacheable(em)) {
+			final TypedQuery<?> query =
+				em.createNamedQuery(this.queryName, this.entityClass);
+			for (int i = 0; i < numTweaks; i++) {
+				final EntityQueryTweak tweak = this.tweaks[i];
+				tweak.apply(query, tweak.getArgument(request, em));
+			}
+			return this.getResult(query);
+		}
+
+		// build the cache key from the expression and the tweak arguments
+		final Object[] keyParts = new Object[numTweaks + 1];
+		keyParts[0] = this;
+		for (int i = 0; i < numTweaks; i++)
+			keyParts[i + 1] = this.tweaks[i].getArgument(request, em);
+		final List<Object> key = Arrays.asList(keyParts);
+
+		// try the cache
+		final Object cachedRes = this.cache.get(key);
+		if (cachedRes != null)
+			return cachedRes;
+
+		// execute the query
+		final long generation = this.cache.getGeneration();
 		final TypedQuery<?> query =
 			em.createNamedQuery(this.queryName, this.entityClass);
+		for (int i = 0; i < numTweaks; i++)
+			this.tweaks[i].apply(query, keyParts[i + 1]);
+		Object res = this.getResult(query);
 
-		for (final EntityQueryTweak tweak : this.tweaks)
-			tweak.apply(query, request, em);
+		// cache the result
+		QueryResultsCacheSupport.detach(em, res);
+		if (this.listMode)
+			res = Collections.unmodifiableList(
+					new ArrayList<>((List<?>) res));
+		this.cache.put(key, this.entityClass, res, this.cacheTTL, generation);
+
+		return res;
+	}
+
+	/**
+	 * Get the query result.
+	 *
+	 * @param query The query with all tweaks applied.
+	 *
+	 * @return The result list in the list mode, or the single result.
+	 *
+	 * @throws NotFoundException If single result is requested and the query
+	 * returns no result or more than one result.
+	 */
+	private Object getResult(final TypedQuery<?> query)
+		throws NotFoundException {
 
 		if (this.listMode)
 			return query.getResultList();
@@ -113,6 +188,8 @@ class EntityQueryValueExpression
 			sb.append('.').append(tweak);
 		if (this.listMode)
 			sb.append(".list");
+		if (this.cache != null)
+			sb.append(".cached");
 
 		return sb.toString();
 	}
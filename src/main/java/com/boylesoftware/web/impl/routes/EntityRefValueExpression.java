@@ -42,6 +42,13 @@ class EntityRefValueExpression
 	 */
 	private final ValueExpression entityIdExpr;
 
+	/**
+	 * Entity id class, or {@code null} if not resolved yet. Resolved from the
+	 * persistence unit metamodel when the expression is evaluated for the
+	 * first time.
+	 */
+	private volatile Class<?> idClass;
+
 
 	/**
 	 * Create new expression.
@@ -57,6 +64,33 @@ class EntityRefValueExpression
 	}
 
 
+	/**
+	 * Evaluate the entity id expression and convert the result to the entity
+	 * id class.
+	 *
+	 * @param request The HTTP request.
+	 * @param em Entity manager to use to access persistent objects.
+	 *
+	 * @return The entity id.
+	 *
+	 * @throws RequestedResourceException If there is a problem with the
+	 * request.
+	 * @throws ServletException If an application error happens.
+	 */
+	private Object getEntityId(final HttpServletRequest request,
+			final EntityManager em)
+		throws RequestedResourceException, ServletException {
+
+		Class<?> idClass = this.idClass;
+		if (idClass == null)
+			this.idClass = idClass =
+				TypeConverter.getEntityIdClass(em, this.entityClass);
+
+		return TypeConverter.toEntityId(idClass,
+				this.entityIdExpr.getValue(request, em));
+	}
+
+
 	/* (non-Javadoc)
 	 * @see com.boylesoftware.web.impl.routes.ValueExpression#getValue(javax.servlet.http.HttpServletRequest, javax.persistence.EntityManager)
 	 */
@@ -67,8 +101,7 @@ class EntityRefValueExpression
 
 		try {
 			return em.getReference(this.entityClass,
-					TypeConverter.toEntityId(em, this.entityClass,
-							this.entityIdExpr.getValue(request, em)));
+					this.getEntityId(request, em));
 		} catch (final EntityNotFoundException e) {
 			throw new NotFoundException();
 		}
@@ -15,12 +15,15 @@
  */
 package com.boylesoftware.web.impl.routes;
 
+import java.util.Arrays;
+
 import javax.persistence.EntityManager;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 
 import com.boylesoftware.web.NotFoundException;
 import com.boylesoftware.web.RequestedResourceException;
+import com.boylesoftware.web.spi.QueryResultsCache;
 
 
 /**
@@ -41,18 +44,71 @@ class EntityValueExpression
 	 */
 	private final ValueExpression entityIdExpr;
 
+	/**
+	 * Entity id class, or {@code null} if not resolved yet. Resolved from the
+	 * persistence unit metamodel when the expression is evaluated for the
+	 * first time.
+	 */
+	private volatile Class<?> idClass;
+
+	/**
+	 * Cache for the found entities, or {@code null} if the entities are not
+	 * cached.
+	 */
+	private final QueryResultsCache cache;
+
+	/**
+	 * Time to live of the cached entities in milliseconds, or zero for the
+	 * cache default.
+	 */
+	private final long cacheTTL;
+
 
 	/**
 	 * Create new expression.
 	 *
 	 * @param entityClass Entity class.
 	 * @param entityIdExpr Entity id expression.
+	 * @param cache Cache for the found entities, or {@code null} if the
+	 * entities are not cached.
+	 * @param cacheTTL Time to live of the cached entities in milliseconds, or
+	 * zero for the cache default.
 	 */
 	EntityValueExpression(final Class<?> entityClass,
-			final ValueExpression entityIdExpr) {
+			final ValueExpression entityIdExpr, final QueryResultsCache cache,
+			final long cacheTTL) {
 
 		this.entityClass = entityClass;
 		this.entityIdExpr = entityIdExpr;
+		this.cache = cache;
+		this.cacheTTL = cacheTTL;
+	}
+
+
+	/**
+	 * Evaluate the entity id expression and convert the result to the entity
+	 * id class.
+	 *
+	 * @param request The HTTP request.
+	 * @param em Entity manager to use to access persistent objects.
+	 *
+	 * @return The entity id.
+	 *
+	 * @throws RequestedResourceException If there is a problem with the
+	 * request.
+	 * @throws ServletException If an application error happens.
+	 */
+	private Object getEntityId(final HttpServletRequest request,
+			final EntityManager em)
+		throws RequestedResourceException, ServletException {
+
+		Class<?> idClass = this.idClass;
+		if (idClass == null)
+			this.idClass = idClass =
+				TypeConverter.getEntityIdClass(em, this.entityClass);
+
+		return TypeConverter.toEntityId(idClass,
+				this.entityIdExpr.getValue(request, em));
 	}
 
 
@@ -64,12 +120,29 @@ class EntityValueExpression
 			final EntityManager em)
 		throws RequestedResourceException, ServletException {
 
-		final Object res = em.find(this.entityClass,
-				TypeConverter.toEntityId(em, this.entityClass,
-						this.entityIdExpr.getValue(request, em)));
-
+		final Object id = this.getEntityId(request, em);
+
+		// not cached, find the entity directly
+		if ((this.cache == null) || !QueryResultsCacheSupport.isCacheable(em)) {
+			final Object res = em.find(this.entityClass, id);
+			if (res == null)
+				throw new NotFoundException();
+			return res;
+		}
+
+		// try the cache
+		final Object key = Arrays.asList(this, id);
+		final Object cachedRes = this.cache.get(key);
+		if (cachedRes != null)
+			return cachedRes;
+
+		// find the entity and cache it
+		final long generation = this.cache.getGeneration();
+		final Object res = em.find(this.entityClass, id);
 		if (res == null)
 			throw new NotFoundException();
+		QueryResultsCacheSupport.detach(em, res);
+		this.cache.put(key, this.entityClass, res, this.cacheTTL, generation);
 
 		return res;
 	}
@@ -81,6 +154,7 @@ class EntityValueExpression
 	@Override
 	public String toString() {
 
-		return this.entityClass.getName() + "(" + this.entityIdExpr + ")";
+		return this.entityClass.getName() + "(" + this.entityIdExpr + ")" +
+				(this.cache != null ? ".cached" : "");
 	}
 }
@@ -69,6 +69,21 @@ class EqualsCondition
 		return (v1 != null ? v1.equals(v2) : (v2 == null));
 	}
 
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.impl.routes.Condition#compile()
+	 */
+	@Override
+	public Condition compile() {
+
+		if ((this.value1 instanceof LiteralValueExpression) &&
+				(this.value2 instanceof LiteralValueExpression))
+			return ConstantCondition.valueOf(
+					((LiteralValueExpression) this.value1).getConstant().equals(
+						((LiteralValueExpression) this.value2).getConstant()));
+
+		return this;
+	}
+
 
 	/* (non-Javadoc)
 	 * @see java.lang.Object#toString()
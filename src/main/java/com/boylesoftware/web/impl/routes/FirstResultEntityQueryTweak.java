@@ -49,10 +49,10 @@ class FirstResultEntityQueryTweak
 
 
 	/* (non-Javadoc)
-	 * @see com.boylesoftware.web.impl.routes.EntityQueryTweak#apply(javax.persistence.Query, javax.servlet.http.HttpServletRequest, javax.persistence.EntityManager)
+	 * @see com.boylesoftware.web.impl.routes.EntityQueryTweak#getArgument(javax.servlet.http.HttpServletRequest, javax.persistence.EntityManager)
 	 */
 	@Override
-	public void apply(final Query query, final HttpServletRequest request,
+	public Object getArgument(final HttpServletRequest request,
 			final EntityManager em)
 		throws RequestedResourceException, ServletException {
 
@@ -61,7 +61,16 @@ class FirstResultEntityQueryTweak
 			throw new ServletException(
 					"Query first result is not a number.");
 
-		query.setFirstResult(((Number) val).intValue());
+		return Integer.valueOf(((Number) val).intValue());
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.impl.routes.EntityQueryTweak#apply(javax.persistence.Query, java.lang.Object)
+	 */
+	@Override
+	public void apply(final Query query, final Object argument) {
+
+		query.setFirstResult(((Integer) argument).intValue());
 	}
 
 
@@ -30,7 +30,7 @@ import com.boylesoftware.web.spi.Script;
  * @author Lev Himmelfarb
  */
 class ForbidStatement
-	implements Script {
+	implements CompilableScript {
 
 	/**
 	 * Execute if condition evaluates to this value.
@@ -71,6 +71,23 @@ class ForbidStatement
 			throw new ForbiddenException();
 	}
 
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.impl.routes.CompilableScript#compile()
+	 */
+	@Override
+	public Script compile() {
+
+		final Condition c = this.condition.compile();
+
+		if ((c instanceof ConstantCondition) &&
+				(((ConstantCondition) c).getValue() !=
+					this.expectedConditionResult))
+			return null;
+
+		return (c == this.condition ? this :
+			new ForbidStatement(this.expectedConditionResult, c));
+	}
+
 
 	/* (non-Javadoc)
 	 * @see java.lang.Object#toString()
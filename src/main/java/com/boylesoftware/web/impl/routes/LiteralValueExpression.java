@@ -44,6 +44,17 @@ class LiteralValueExpression
 	}
 
 
+	/**
+	 * Get the literal value.
+	 *
+	 * @return The value.
+	 */
+	Object getConstant() {
+
+		return this.value;
+	}
+
+
 	/* (non-Javadoc)
 	 * @see com.boylesoftware.web.impl.routes.ValueExpression#getValue(javax.servlet.http.HttpServletRequest, javax.persistence.EntityManager)
 	 */
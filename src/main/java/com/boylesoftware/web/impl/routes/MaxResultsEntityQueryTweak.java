@@ -49,10 +49,10 @@ class MaxResultsEntityQueryTweak
 
 
 	/* (non-Javadoc)
-	 * @see com.boylesoftware.web.impl.routes.EntityQueryTweak#apply(javax.persistence.Query, javax.servlet.http.HttpServletRequest, javax.persistence.EntityManager)
+	 * @see com.boylesoftware.web.impl.routes.EntityQueryTweak#getArgument(javax.servlet.http.HttpServletRequest, javax.persistence.EntityManager)
 	 */
 	@Override
-	public void apply(final Query query, final HttpServletRequest request,
+	public Object getArgument(final HttpServletRequest request,
 			final EntityManager em)
 		throws RequestedResourceException, ServletException {
 
@@ -61,7 +61,16 @@ class MaxResultsEntityQueryTweak
 			throw new ServletException(
 					"Query maximum results is not a number.");
 
-		query.setMaxResults(((Number) val).intValue());
+		return Integer.valueOf(((Number) val).intValue());
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.impl.routes.EntityQueryTweak#apply(javax.persistence.Query, java.lang.Object)
+	 */
+	@Override
+	public void apply(final Query query, final Object argument) {
+
+		query.setMaxResults(((Integer) argument).intValue());
 	}
 
 
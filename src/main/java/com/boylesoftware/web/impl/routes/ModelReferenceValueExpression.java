@@ -19,6 +19,8 @@ import java.beans.BeanInfo;
 import java.beans.IntrospectionException;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import javax.persistence.EntityManager;
 import javax.servlet.ServletException;
@@ -33,6 +35,37 @@ import javax.servlet.http.HttpServletRequest;
 class ModelReferenceValueExpression
 	implements ValueExpression {
 
+	/**
+	 * Bean property read method resolved for a specific bean class.
+	 */
+	private static final class PropertyReader {
+
+		/**
+		 * The bean class.
+		 */
+		final Class<?> beanClass;
+
+		/**
+		 * The property read method, or {@code null} if the bean does not have
+		 * readable property with the name.
+		 */
+		final Method readMethod;
+
+
+		/**
+		 * Create new reader.
+		 *
+		 * @param beanClass The bean class.
+		 * @param readMethod The property read method, or {@code null}.
+		 */
+		PropertyReader(final Class<?> beanClass, final Method readMethod) {
+
+			this.beanClass = beanClass;
+			this.readMethod = readMethod;
+		}
+	}
+
+
 	/**
 	 * Model component name.
 	 */
@@ -43,6 +76,13 @@ class ModelReferenceValueExpression
 	 */
 	private final String[] nameParts;
 
+	/**
+	 * Property readers for the name parts, resolved for the last seen bean
+	 * class, so that the bean introspection is not repeated on every
+	 * evaluation.
+	 */
+	private final AtomicReferenceArray<PropertyReader> propertyReaders;
+
 
 	/**
 	 * Create new expression.
@@ -53,6 +93,8 @@ class ModelReferenceValueExpression
 
 		this.name = name;
 		this.nameParts = name.split("\\.");
+		this.propertyReaders =
+			new AtomicReferenceArray<>(this.nameParts.length);
 	}
 
 
@@ -90,27 +132,61 @@ class ModelReferenceValueExpression
 		if (namePartInd >= this.nameParts.length)
 			return bean;
 
+		final Method readMethod =
+			this.getReadMethod(bean.getClass(), namePartInd);
+		if (readMethod == null)
+			return null;
+
 		try {
-			final BeanInfo beanInfo = Introspector.getBeanInfo(bean.getClass());
-
-			final String propName = this.nameParts[namePartInd];
-			for (final PropertyDescriptor propDesc :
-				beanInfo.getPropertyDescriptors()) {
-				if (propDesc.getName().equals(propName))
-					return this.getBeanProperty(
-							propDesc.getReadMethod().invoke(bean),
-							namePartInd + 1);
-			}
+			return this.getBeanProperty(readMethod.invoke(bean),
+					namePartInd + 1);
+		} catch (final ReflectiveOperationException e) {
+			throw new ServletException(
+					"Error getting model component bean property.", e);
+		}
+	}
 
-			return null;
+	/**
+	 * Get bean property read method.
+	 *
+	 * @param beanClass The bean class.
+	 * @param namePartInd Index of the bean property name.
+	 *
+	 * @return The read method, or {@code null} if the bean does not have
+	 * readable property with the name.
+	 *
+	 * @throws ServletException If an error happens introspecting the bean.
+	 */
+	private Method getReadMethod(final Class<?> beanClass,
+			final int namePartInd)
+		throws ServletException {
 
+		final PropertyReader cached = this.propertyReaders.get(namePartInd);
+		if ((cached != null) && (cached.beanClass == beanClass))
+			return cached.readMethod;
+
+		final BeanInfo beanInfo;
+		try {
+			beanInfo = Introspector.getBeanInfo(beanClass);
 		} catch (final IntrospectionException e) {
 			throw new ServletException(
 					"Error introspecting model component bean.", e);
-		} catch (final ReflectiveOperationException e) {
-			throw new ServletException(
-					"Error getting model component bean property.", e);
 		}
+
+		Method readMethod = null;
+		final String propName = this.nameParts[namePartInd];
+		for (final PropertyDescriptor propDesc :
+			beanInfo.getPropertyDescriptors()) {
+			if (propDesc.getName().equals(propName)) {
+				readMethod = propDesc.getReadMethod();
+				break;
+			}
+		}
+
+		this.propertyReaders.set(namePartInd,
+				new PropertyReader(beanClass, readMethod));
+
+		return readMethod;
 	}
 
 
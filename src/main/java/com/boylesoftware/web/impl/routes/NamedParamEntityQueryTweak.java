@@ -57,15 +57,23 @@ class NamedParamEntityQueryTweak
 
 
 	/* (non-Javadoc)
-	 * @see com.boylesoftware.web.impl.routes.EntityQueryTweak#apply(javax.persistence.Query, javax.servlet.http.HttpServletRequest, javax.persistence.EntityManager)
+	 * @see com.boylesoftware.web.impl.routes.EntityQueryTweak#getArgument(javax.servlet.http.HttpServletRequest, javax.persistence.EntityManager)
 	 */
 	@Override
-	public void apply(final Query query, final HttpServletRequest request,
+	public Object getArgument(final HttpServletRequest request,
 			final EntityManager em)
 		throws RequestedResourceException, ServletException {
 
-		query.setParameter(this.paramName,
-				this.valueExpr.getValue(request, em));
+		return this.valueExpr.getValue(request, em);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.impl.routes.EntityQueryTweak#apply(javax.persistence.Query, java.lang.Object)
+	 */
+	@Override
+	public void apply(final Query query, final Object argument) {
+
+		query.setParameter(this.paramName, argument);
 	}
 
 
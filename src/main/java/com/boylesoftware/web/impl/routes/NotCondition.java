@@ -58,6 +58,21 @@ class NotCondition
 		return !this.condition.isTrue(request, em);
 	}
 
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.impl.routes.Condition#compile()
+	 */
+	@Override
+	public Condition compile() {
+
+		final Condition c = this.condition.compile();
+
+		if (c instanceof ConstantCondition)
+			return ConstantCondition.valueOf(
+					!((ConstantCondition) c).getValue());
+
+		return (c == this.condition ? this : new NotCondition(c));
+	}
+
 
 	/* (non-Javadoc)
 	 * @see java.lang.Object#toString()
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.impl.routes;
+
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+
+/**
+ * Helper methods used by the entity expressions that cache their results in
+ * the query results cache. The cache is used only by the requests processed
+ * without a transaction, that is the read-only requests. A request that runs
+ * a transaction may change the entities it loads, and the changes may never
+ * be committed, so it neither gets the results from the cache nor puts them
+ * there. The cached entities are detached from the entity manager that
+ * loaded them, so that they can be shared by the concurrent requests.
+ *
+ * @author Lev Himmelfarb
+ */
+final class QueryResultsCacheSupport {
+
+	/**
+	 * All methods are static.
+	 */
+	private QueryResultsCacheSupport() {}
+
+
+	/**
+	 * Tell if the request that uses the specified entity manager can use the
+	 * query results cache.
+	 *
+	 * @param em The entity manager.
+	 *
+	 * @return {@code true} if the entity manager has no active transaction.
+	 */
+	static boolean isCacheable(final EntityManager em) {
+
+		return !em.getTransaction().isActive();
+	}
+
+	/**
+	 * Detach the entities in a result from the entity manager before the
+	 * result is put in the cache.
+	 *
+	 * @param em The entity manager.
+	 * @param res The result, which is either an entity or a list of entities.
+	 */
+	static void detach(final EntityManager em, final Object res) {
+
+		if (res instanceof List) {
+			for (final Object entity : (List<?>) res)
+				if (entity != null)
+					em.detach(entity);
+		} else {
+			em.detach(res);
+		}
+	}
+}
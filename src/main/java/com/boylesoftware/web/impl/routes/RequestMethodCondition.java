@@ -54,6 +54,15 @@ class RequestMethodCondition
 		return request.getMethod().equalsIgnoreCase(this.method);
 	}
 
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.impl.routes.Condition#compile()
+	 */
+	@Override
+	public Condition compile() {
+
+		return this;
+	}
+
 
 	/* (non-Javadoc)
 	 * @see java.lang.Object#toString()
@@ -15,6 +15,7 @@
  */
 package com.boylesoftware.web.impl.routes;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -35,7 +36,8 @@ import org.apache.commons.logging.LogFactory;
 
 /**
  * Router configuration provider implementation that loads the configuration
- * from {@value #ROUTES_PATH} file.
+ * from {@value #ROUTES_PATH} file. The file can be reloaded without restarting
+ * the web-application only if the web-application is deployed as a directory.
  *
  * @author Lev Himmelfarb
  */
@@ -96,6 +98,17 @@ public class RoutesRouterConfiguration
 		}
 	}
 
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.impl.AbstractRouterConfiguration#getRoutesLastModified(javax.servlet.ServletContext)
+	 */
+	@Override
+	protected long getRoutesLastModified(final ServletContext sc) {
+
+		final String path = sc.getRealPath(ROUTES_PATH);
+
+		return (path != null ? new File(path).lastModified() : 0);
+	}
+
 	/**
 	 * Convert exception to {@link UnavailableException} and throw it.
 	 *
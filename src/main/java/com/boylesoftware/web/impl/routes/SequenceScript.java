@@ -19,6 +19,7 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import javax.persistence.EntityManager;
@@ -35,12 +36,12 @@ import com.boylesoftware.web.spi.Script;
  * @author Lev Himmelfarb
  */
 class SequenceScript
-	implements Script {
+	implements CompilableScript {
 
 	/**
 	 * Nested subscripts.
 	 */
-	private final List<Script> subscripts = new ArrayList<>();
+	private final List<CompilableScript> subscripts = new ArrayList<>();
 
 
 	/**
@@ -48,7 +49,7 @@ class SequenceScript
 	 *
 	 * @param subscript The subscript.
 	 */
-	void addSubscript(final Script subscript) {
+	void addSubscript(final CompilableScript subscript) {
 
 		this.subscripts.add(subscript);
 	}
@@ -76,6 +77,33 @@ class SequenceScript
 			subscript.execute(request, em);
 	}
 
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.impl.routes.CompilableScript#compile()
+	 */
+	@Override
+	public Script compile() {
+
+		final List<Script> compiled = new ArrayList<>(this.subscripts.size());
+		for (final CompilableScript subscript : this.subscripts) {
+			final Script c = subscript.compile();
+			if (c instanceof CompiledSequenceScript)
+				compiled.addAll(Arrays.asList(
+						((CompiledSequenceScript) c).getSubscripts()));
+			else if (c != null)
+				compiled.add(c);
+		}
+
+		switch (compiled.size()) {
+		case 0:
+			return null;
+		case 1:
+			return compiled.get(0);
+		default:
+			return new CompiledSequenceScript(
+					compiled.toArray(new Script[compiled.size()]));
+		}
+	}
+
 
 	/* (non-Javadoc)
 	 * @see java.lang.Object#toString()
@@ -33,23 +33,32 @@ final class TypeConverter {
 
 
 	/**
-	 * Convert value to entity id class.
+	 * Get entity id class.
 	 *
 	 * @param em Entity manager.
 	 * @param entityClass Entity class.
+	 *
+	 * @return Entity id class.
+	 */
+	static Class<?> getEntityIdClass(final EntityManager em,
+			final Class<?> entityClass) {
+
+		return em.getMetamodel().entity(entityClass).getIdType().getJavaType();
+	}
+
+	/**
+	 * Convert value to entity id class.
+	 *
+	 * @param idClass Entity id class.
 	 * @param val Value to convert.
 	 *
 	 * @return Id value.
 	 *
 	 * @throws ServletException If cannot be converted.
 	 */
-	static Object toEntityId(final EntityManager em, final Class<?> entityClass,
-			final Object val)
+	static Object toEntityId(final Class<?> idClass, final Object val)
 		throws ServletException {
 
-		final Class<?> idClass =
-			em.getMetamodel().entity(entityClass).getIdType().getJavaType();
-
 		final Object id = TypeConverter.convert(val, idClass);
 
 		if (id == null)
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.impl.routes;
+
+import javax.persistence.EntityManager;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+
+import com.boylesoftware.web.RequestedResourceException;
+import com.boylesoftware.web.spi.RouterRequest;
+import com.boylesoftware.web.spi.Script;
+
+
+/**
+ * Implementation of the "validate" script statement, which adds a validator
+ * of the requested resource state to the request.
+ *
+ * @author Lev Himmelfarb
+ */
+class ValidateStatement
+	implements CompilableScript {
+
+	/**
+	 * Validator value expression.
+	 */
+	private final ValueExpression valueExpression;
+
+
+	/**
+	 * Create new statement.
+	 *
+	 * @param valueExpression Validator value expression.
+	 */
+	ValidateStatement(final ValueExpression valueExpression) {
+
+		this.valueExpression = valueExpression;
+	}
+
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.spi.Script#execute(javax.servlet.http.HttpServletRequest, javax.persistence.EntityManager)
+	 */
+	@Override
+	public void execute(final HttpServletRequest request,
+			final EntityManager em)
+		throws RequestedResourceException, ServletException {
+
+		final Object v = this.valueExpression.getValue(request, em);
+		if (v != null)
+			((RouterRequest) request).addValidator(v);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.impl.routes.CompilableScript#compile()
+	 */
+	@Override
+	public Script compile() {
+
+		return this;
+	}
+
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+
+		return "validate " + this.valueExpression;
+	}
+}
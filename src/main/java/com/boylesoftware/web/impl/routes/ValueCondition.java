@@ -66,6 +66,22 @@ class ValueCondition
 		return true;
 	}
 
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.impl.routes.Condition#compile()
+	 */
+	@Override
+	public Condition compile() {
+
+		if (this.value instanceof LiteralValueExpression) {
+			final Object v =
+				((LiteralValueExpression) this.value).getConstant();
+			return ConstantCondition.valueOf(!(v instanceof Boolean) ||
+					((Boolean) v).booleanValue());
+		}
+
+		return this;
+	}
+
 
 	/* (non-Javadoc)
 	 * @see java.lang.Object#toString()
@@ -15,6 +15,7 @@
  */
 package com.boylesoftware.web.spi;
 
+import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.servlet.http.HttpServletRequest;
 
@@ -38,6 +39,14 @@ import com.boylesoftware.web.api.Authenticator;
  */
 public interface AuthenticationService<T> {
 
+	/**
+	 * Special value returned by {@link #getAuthenticatedUserInline} when the
+	 * authenticated user cannot be determined without accessing the persistent
+	 * storage.
+	 */
+	Object USER_UNRESOLVED = new Object();
+
+
 	/**
 	 * Get authenticated user for the request. The framework calls this method
 	 * only if the request's {@link HttpServletRequest#isSecure} method returns
@@ -56,6 +65,58 @@ public interface AuthenticationService<T> {
 	T getAuthenticatedUser(HttpServletRequest request,
 			EntityManagerFactory emf);
 
+	/**
+	 * Get authenticated user for the request using an existing entity manager.
+	 * The framework uses this method instead of
+	 * {@link #getAuthenticatedUser(HttpServletRequest, EntityManagerFactory)}
+	 * when the user lookup and the request processing transaction share the
+	 * same entity manager. The same rules apply otherwise.
+	 *
+	 * <p>The default implementation calls
+	 * {@link #getAuthenticatedUser(HttpServletRequest, EntityManagerFactory)}
+	 * with the entity manager's factory, so the lookup does not share the
+	 * entity manager.
+	 *
+	 * @param request The HTTP request.
+	 * @param em Entity manager to use to access the user record. The returned
+	 * record is not managed by the entity manager.
+	 *
+	 * @return Authenticated user record, or {@code null} if the request does
+	 * not contain information about the authenticated user.
+	 */
+	default T getAuthenticatedUser(final HttpServletRequest request,
+			final EntityManager em) {
+
+		return this.getAuthenticatedUser(request,
+				em.getEntityManagerFactory());
+	}
+
+	/**
+	 * Get authenticated user for the request if it can be determined without
+	 * accessing the persistent storage or performing any other blocking
+	 * operation, for example if the request does not contain any
+	 * authentication information, or the user record is cached. The framework
+	 * calls this method in the container thread before resorting to
+	 * {@link #getAuthenticatedUser} in an asynchronous executor, and only if
+	 * the request's {@link HttpServletRequest#isSecure} method returns
+	 * {@code true}.
+	 *
+	 * <p>The default implementation always returns {@link #USER_UNRESOLVED},
+	 * so that the user is always looked up in the asynchronous executor.
+	 *
+	 * @param request The HTTP request.
+	 *
+	 * @return Authenticated user record, {@code null} if the request does not
+	 * contain information about the authenticated user, or
+	 * {@link #USER_UNRESOLVED} if the user cannot be determined without
+	 * accessing the persistent storage.
+	 */
+	default Object getAuthenticatedUserInline(
+			final HttpServletRequest request) {
+
+		return USER_UNRESOLVED;
+	}
+
 	/**
 	 * Get authentication service API for controllers.
 	 *
@@ -62,6 +62,17 @@ public interface ControllerHandler {
 	 */
 	boolean prepareViewNeedsEntityManager();
 
+	/**
+	 * Tell if {@link #prepareView} method only reads persistent data. The
+	 * method is called only after calling {@link #hasPrepareView} and only if
+	 * that call returned {@code true}.
+	 *
+	 * @return {@code true} if it is read-only.
+	 *
+	 * @see com.boylesoftware.web.api.ReadOnly
+	 */
+	boolean prepareViewIsReadOnly();
+
 	/**
 	 * Call controller's view preparation logic. If controller does not provide
 	 * any view preparation logic, the method must do nothing. The method is
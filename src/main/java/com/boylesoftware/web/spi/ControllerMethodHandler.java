@@ -67,6 +67,16 @@ public interface ControllerMethodHandler {
 	 */
 	boolean needsEntityManager();
 
+	/**
+	 * Tell if the method only reads persistent data and, therefore, does not
+	 * need a transaction to be committed.
+	 *
+	 * @return {@code true} if the method is read-only.
+	 *
+	 * @see com.boylesoftware.web.api.ReadOnly
+	 */
+	boolean isReadOnly();
+
 	/**
 	 * Call the controller method.
 	 *
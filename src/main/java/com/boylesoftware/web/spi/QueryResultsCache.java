@@ -0,0 +1,83 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.spi;
+
+import java.util.Collection;
+
+
+/**
+ * Interface for the cache of the results of the entity queries and lookups
+ * performed by the router configuration scripts, for which caching is
+ * requested. Every cached result is associated with the entity class it
+ * contains, so that it can be invalidated when a transaction changes entities
+ * of that class.
+ *
+ * <p>To avoid caching a result loaded before a concurrent transaction
+ * committed and invalidated the cache, the caller takes the cache generation
+ * before loading the result and passes it when storing the result. The cache
+ * refuses to store results loaded in a generation that has been invalidated
+ * since.
+ *
+ * <p>Cache implementations must be thread-safe.
+ *
+ * @author Lev Himmelfarb
+ */
+public interface QueryResultsCache {
+
+	/**
+	 * Get current cache generation. The generation changes every time the
+	 * cache is invalidated.
+	 *
+	 * @return The generation.
+	 */
+	long getGeneration();
+
+	/**
+	 * Get result from the cache.
+	 *
+	 * @param key The result key.
+	 *
+	 * @return Cached result, or {@code null} if not in the cache or expired.
+	 */
+	Object get(Object key);
+
+	/**
+	 * Store result in the cache. The result is not stored if the cache has
+	 * been invalidated since the specified generation.
+	 *
+	 * @param key The result key.
+	 * @param entityClass Class of the entities contained in the result.
+	 * @param result The result.
+	 * @param ttl Time to live of the result in milliseconds, or zero for the
+	 * cache default.
+	 * @param generation Cache generation taken before the result was loaded.
+	 */
+	void put(Object key, Class<?> entityClass, Object result, long ttl,
+			long generation);
+
+	/**
+	 * Evict all results that contain entities of the specified classes, their
+	 * subclasses or their superclasses.
+	 *
+	 * @param entityClasses Changed entity classes.
+	 */
+	void invalidate(Collection<Class<?>> entityClasses);
+
+	/**
+	 * Evict all results.
+	 */
+	void clear();
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.spi;
+
+
+/**
+ * Receiver of the request processing timings. The framework reports the time
+ * each request spent in each processing phase along with the request's route,
+ * which allows the implementation to collect latency statistics per route and
+ * per phase.
+ *
+ * <p>The methods are called by the request processing threads on every
+ * request, so the implementation must be thread-safe and fast, and it should
+ * not allocate memory in the common case.
+ *
+ * @author Lev Himmelfarb
+ */
+public interface RequestMetrics {
+
+	/**
+	 * Request processing phase.
+	 */
+	enum Phase {
+
+		/**
+		 * Waiting in the executor service queue for a request processing
+		 * thread.
+		 */
+		QUEUE_WAIT,
+
+		/**
+		 * Authenticated user lookup performed asynchronously, either by a
+		 * separate executor or at the beginning of the request processing
+		 * transaction if the authentication is fused.
+		 */
+		AUTHENTICATION,
+
+		/**
+		 * Execution of the route script.
+		 */
+		ROUTE_SCRIPT,
+
+		/**
+		 * Call to the controller method.
+		 */
+		CONTROLLER,
+
+		/**
+		 * Execution of the view script and the controller's view preparation
+		 * method.
+		 */
+		PREPARE_VIEW,
+
+		/**
+		 * Commit of the request processing transaction.
+		 */
+		COMMIT,
+
+		/**
+		 * Dispatch of the request to the view, or sending the redirect.
+		 */
+		SEND_VIEW
+	}
+
+
+	/**
+	 * Record time a request spent in a processing phase.
+	 *
+	 * @param route The request's route.
+	 * @param phase The phase.
+	 * @param nanos Time in nanoseconds.
+	 */
+	void recordPhase(Route route, Phase phase, long nanos);
+
+	/**
+	 * Record a request that timed out before its asynchronous processing
+	 * completed.
+	 *
+	 * @param route The request's route.
+	 */
+	void recordTimeout(Route route);
+}
@@ -15,6 +15,8 @@
  */
 package com.boylesoftware.web.spi;
 
+import java.util.Collection;
+
 
 /**
  * Descriptor of a route, which maps request URI to corresponding application
@@ -67,6 +69,36 @@ public interface Route {
 		FORCE_REQUIRE_AUTH
 	}
 
+	/**
+	 * Scheduling priority class for requests that use the route. When the
+	 * application is under load, requests with higher priority are processed
+	 * first and requests with lower priority are rejected first.
+	 */
+	enum Priority {
+
+		/**
+		 * High priority, for example login and checkout pages.
+		 */
+		HIGH,
+
+		/**
+		 * Normal priority. The default.
+		 */
+		NORMAL,
+
+		/**
+		 * Low priority, for example reports.
+		 */
+		LOW
+	}
+
+
+	/**
+	 * Get route id.
+	 *
+	 * @return Route id.
+	 */
+	String getId();
 
 	/**
 	 * Get script associated with the route. The script is executed each time
@@ -98,4 +130,48 @@ public interface Route {
 	 * @return The security mode.
 	 */
 	SecurityMode getSecurityMode();
+
+	/**
+	 * Get scheduling priority class for the requests that use the route.
+	 *
+	 * @return The priority.
+	 */
+	Priority getPriority();
+
+	/**
+	 * Tell if the route only reads persistent data. Requests that use a
+	 * read-only route are processed without a transaction regardless of
+	 * whether the controller methods are marked as read-only or not.
+	 *
+	 * @return {@code true} if read-only.
+	 */
+	boolean isReadOnly();
+
+	/**
+	 * Tell if complete responses to the anonymous GET requests that use the
+	 * route may be cached and served to other anonymous clients without
+	 * processing the requests.
+	 *
+	 * @return {@code true} if the responses may be cached.
+	 */
+	boolean isResponseCacheable();
+
+	/**
+	 * Get time to live of the cached responses. Used only if
+	 * {@link #isResponseCacheable()} returns {@code true}.
+	 *
+	 * @return Time to live in milliseconds, or zero to use the response cache
+	 * default.
+	 */
+	long getResponseCacheTTL();
+
+	/**
+	 * Get names of the request parameters that, in addition to the request
+	 * URI and the user locale, distinguish cached responses from each other.
+	 * Other request parameters are ignored when looking up cached responses.
+	 * Used only if {@link #isResponseCacheable()} returns {@code true}.
+	 *
+	 * @return Parameter names. May be empty, but never {@code null}.
+	 */
+	Collection<String> getResponseCacheParams();
 }
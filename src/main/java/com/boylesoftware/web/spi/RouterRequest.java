@@ -91,12 +91,48 @@ public interface RouterRequest
 	 */
 	FlashAttributes getFlashAttributes();
 
+	/**
+	 * Tell if the request came with flash attributes from the previous
+	 * request.
+	 *
+	 * @return {@code true} if the request has flash attributes.
+	 */
+	boolean hasFlashAttributes();
+
 	/**
 	 * Commit flash attributes. Called by the framework before sending a
 	 * successful response (either redirect or the view) back to the client.
 	 */
 	void commitFlashAttributes();
 
+	/**
+	 * Add validator of the current state of the requested resource, such as
+	 * an entity version or last modification date. The validators added while
+	 * processing the request are combined into the response "ETag" and
+	 * "Last-Modified" headers by the {@link #checkValidators()} method.
+	 *
+	 * @param validator The validator. A {@link java.util.Date} or a
+	 * {@link java.util.Calendar} is used as the last modification date, any
+	 * other object contributes its string representation to the entity tag.
+	 */
+	void addValidator(Object validator);
+
+	/**
+	 * Set the response "ETag" and "Last-Modified" headers from the validators
+	 * added to the request, if any, and evaluate the conditional GET request
+	 * headers against them. The entity tag also includes the user locale,
+	 * because the page is rendered in it, and the response "Vary" header is
+	 * set to "Accept-Language". The validators do not identify the user, so
+	 * for a request with an authenticated user the validators are ignored and
+	 * the response "Vary" header is set to "Cookie" instead.
+	 *
+	 * @return {@code true} if the request is a conditional GET or HEAD request
+	 * and the client already has the current state of the requested resource,
+	 * so that the 304 (Not Modified) response can be sent. {@code false} if the
+	 * request needs to be processed normally.
+	 */
+	boolean checkValidators();
+
 	/**
 	 * Change underlying original request and response.
 	 *
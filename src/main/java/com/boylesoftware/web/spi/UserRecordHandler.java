@@ -50,6 +50,29 @@ public interface UserRecordHandler<T> {
 	 */
 	T getUser(int id, int salt, EntityManagerFactory emf);
 
+	/**
+	 * Get user record given the user id and salt using an existing entity
+	 * manager. The returned record must not be managed by the entity manager,
+	 * because the entity manager is later used for the request processing
+	 * transaction and the record may be cached and shared between requests.
+	 *
+	 * <p>The default implementation calls
+	 * {@link #getUser(int, int, EntityManagerFactory)} with the entity
+	 * manager's factory, so the lookup does not share the entity manager.
+	 *
+	 * @param id User id.
+	 * @param salt Salt.
+	 * @param em Entity manager to use to lookup the user record in the
+	 * persistent storage.
+	 *
+	 * @return User record, or {@code null} if none match the specified id and
+	 * salt.
+	 */
+	default T getUser(final int id, final int salt, final EntityManager em) {
+
+		return this.getUser(id, salt, em.getEntityManagerFactory());
+	}
+
 	/**
 	 * Get user record given user login name and password.
 	 *
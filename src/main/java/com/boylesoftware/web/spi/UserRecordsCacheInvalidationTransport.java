@@ -0,0 +1,83 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.spi;
+
+import java.io.IOException;
+
+
+/**
+ * Interface for the transport used by clustered {@link UserRecordsCache}
+ * implementations to broadcast user record evictions to the other nodes in the
+ * cluster. The delivery is best effort: a transport does not have to guarantee
+ * that every message reaches every node, so clustered caches should still
+ * limit the time their records live.
+ *
+ * <p>Transport implementations must be thread-safe.
+ *
+ * @author Lev Himmelfarb
+ */
+public interface UserRecordsCacheInvalidationTransport
+	extends AutoCloseable {
+
+	/**
+	 * Listener of the evictions received from the other nodes.
+	 */
+	interface Listener {
+
+		/**
+		 * Called when another node evicted a user record.
+		 *
+		 * @param id User id.
+		 */
+		void onUserEviction(int id);
+
+		/**
+		 * Called when another node purged all user records.
+		 */
+		void onAllUsersEviction();
+	}
+
+
+	/**
+	 * Start receiving evictions from the other nodes.
+	 *
+	 * @param listener Listener to notify about the received evictions. The
+	 * listener is not notified about evictions published by this transport
+	 * instance.
+	 *
+	 * @throws IOException If an I/O error happens starting the transport.
+	 */
+	void start(Listener listener)
+		throws IOException;
+
+	/**
+	 * Broadcast user record eviction to the other nodes.
+	 *
+	 * @param id User id.
+	 */
+	void publishUserEviction(int id);
+
+	/**
+	 * Broadcast purge of all user records to the other nodes.
+	 */
+	void publishAllUsersEviction();
+
+	/**
+	 * Stop the transport and release its resources.
+	 */
+	@Override
+	void close();
+}
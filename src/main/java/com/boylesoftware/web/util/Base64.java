@@ -199,6 +199,86 @@ public final class Base64 {
 		}
 	}
 
+	/**
+	 * Decode Base64 characters in the specified character sequence and write
+	 * the decoded bytes to the specified byte buffer. Unlike
+	 * {@link #decode(CharBuffer, ByteBuffer)}, this method reads the characters
+	 * directly from the sequence, so that a {@link String} does not have to be
+	 * copied into a character buffer first.
+	 *
+	 * @param src Sequence of Base64 characters to decode.
+	 * @param dst Buffer, to which to write the result.
+	 *
+	 * @return Number of bytes written to the output buffer.
+	 *
+	 * @throws IllegalArgumentException If the sequence is not valid Base64 or
+	 * the output buffer does not have enough space for the result.
+	 */
+	public static int decode(final CharSequence src, final ByteBuffer dst) {
+
+		int bits = 0;
+		int shiftto = 18; // position of the first byte of a 4-byte atom
+		final int sl = src.length();
+		int sp = 0;
+		final byte[] da = dst.array();
+		final int dl = dst.arrayOffset() + dst.limit();
+		int dp = dst.arrayOffset() + dst.position();
+		final int dp0 = dp;
+		try {
+			while (sp < sl) {
+				final char c = src.charAt(sp++);
+				final int b = (c < 256 ? FROM_BASE64[c] : -1);
+				if (b < 0) {
+					if (b == -2) { // padding byte
+						if ((shiftto == 6) &&
+								((sp == sl) || (src.charAt(sp++) != '=')) ||
+								(shiftto == 18))
+							throw new IllegalArgumentException("Input byte" +
+								" array has wrong 4-byte ending unit.");
+						break;
+					}
+					throw new IllegalArgumentException(
+							"Illegal base64 character " +
+									Integer.toString(c, 16) + ".");
+				}
+				bits |= (b << shiftto);
+				shiftto -= 6;
+				if (shiftto < 0) {
+					if (dl < dp + 3)
+						throw new IllegalArgumentException(
+								"Output buffer is too small.");
+					da[dp++] = (byte)(bits >> 16);
+					da[dp++] = (byte)(bits >> 8);
+					da[dp++] = (byte)(bits);
+					shiftto = 18;
+					bits = 0;
+				}
+			}
+			if (shiftto == 6) {
+				if (dl - dp < 1)
+					throw new IllegalArgumentException(
+							"Output buffer is too small.");
+				da[dp++] = (byte)(bits >> 16);
+			} else if (shiftto == 0) {
+				if (dl - dp < 2)
+					throw new IllegalArgumentException(
+							"Output buffer is too small.");
+				da[dp++] = (byte)(bits >> 16);
+				da[dp++] = (byte)(bits >> 8);
+			} else if (shiftto == 12) {
+				throw new IllegalArgumentException(
+						"Last unit does not have enough valid bits.");
+			}
+			if (sp < sl)
+				throw new IllegalArgumentException(
+						"Input byte array has incorrect ending byte at " + sp +
+						".");
+			return dp - dp0;
+		} finally {
+			dst.position(dp - dst.arrayOffset());
+		}
+	}
+
 	/*public static void main(String[] args) {
 
 		ByteBuffer from = ByteBuffer.allocate(32);
@@ -0,0 +1,554 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.util.pool;
+
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+/**
+ * Thread-safe variant of {@link FastPool} that does not use the pool instance
+ * monitor. The idle objects are kept in a fixed number of small caches
+ * ("magazines"), roughly one per processor, and each thread uses the magazine
+ * selected by its id, so that concurrent borrow/return operations rarely
+ * contend. A magazine is taken with a single compare-and-set and, if it is
+ * busy, the next one is tried. Full and empty magazines are exchanged with a
+ * lock-free shared stack ("depot"). The magazines are not bound to threads,
+ * so idle objects are never stranded when a thread ends, which makes the pool
+ * suitable for short-lived threads, such as virtual threads. The pooled
+ * objects are still held via soft references while idle, so the pool shrinks
+ * under memory pressure the same way as {@link FastPool} does.
+ *
+ * <p>The unsynchronized {@link #get} and {@link #recycle} methods are
+ * thread-safe in this implementation and are equivalent to {@link #getSync}
+ * and {@link #recycleSync}.
+ *
+ * @param <T> Type of the pooled objects.
+ *
+ * @author Lev Himmelfarb
+ */
+public class ConcurrentFastPool<T extends Poolable>
+	extends FastPool<T> {
+
+	/**
+	 * Number of idle objects in a magazine.
+	 */
+	private static final int MAGAZINE_SIZE = 16;
+
+	/**
+	 * Maximum number of magazines.
+	 */
+	private static final int MAX_MAGAZINES = 64;
+
+	/**
+	 * Number of busy magazines a thread tries to skip before it goes straight
+	 * to the depot.
+	 */
+	private static final int MAX_MAGAZINE_PROBES = 2;
+
+	/**
+	 * Binary logarithm of the number of slots in a slot table chunk.
+	 */
+	private static final int CHUNK_SHIFT = 6;
+
+	/**
+	 * Number of slots in a slot table chunk.
+	 */
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+	/**
+	 * Mask for slot index in a slot table chunk.
+	 */
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+
+	/**
+	 * Pooled object wrapper.
+	 */
+	private static final class PooledObject
+		extends SoftReference<Object> {
+
+		/**
+		 * Updater for the {@code idle} field.
+		 */
+		private static final AtomicIntegerFieldUpdater<PooledObject>
+		IDLE_UPDATER = AtomicIntegerFieldUpdater.newUpdater(
+				PooledObject.class, "idle");
+
+
+		/**
+		 * Index of the pool slot assigned to the object.
+		 */
+		final int slotInd;
+
+		/**
+		 * Non-zero if the object is idle.
+		 */
+		private volatile int idle;
+
+
+		/**
+		 * Create new wrapper for the specified object. The wrapper is marked as
+		 * borrowed.
+		 *
+		 * @param referent Pooled object.
+		 * @param slotInd Index of the pool slot assigned to the object.
+		 */
+		PooledObject(final Object referent, final int slotInd) {
+			super(referent);
+
+			this.slotInd = slotInd;
+		}
+
+
+		/**
+		 * Tell if the pooled object is idle.
+		 *
+		 * @return {@code true} if idle, {@code false} if borrowed.
+		 */
+		boolean isIdle() {
+
+			return (this.idle != 0);
+		}
+
+		/**
+		 * Mark the pooled object as borrowed.
+		 */
+		void markBorrowed() {
+
+			this.idle = 0;
+		}
+
+		/**
+		 * Atomically mark the pooled object as idle.
+		 *
+		 * @return {@code false} if the object is already idle.
+		 */
+		boolean markIdle() {
+
+			return IDLE_UPDATER.compareAndSet(this, 0, 1);
+		}
+	}
+
+	/**
+	 * Cache of idle objects. The magazine contents are accessed only by the
+	 * thread that holds the magazine's lock.
+	 */
+	private static final class Magazine {
+
+		/**
+		 * Updater for the {@code locked} field.
+		 */
+		private static final AtomicIntegerFieldUpdater<Magazine>
+		LOCKED_UPDATER = AtomicIntegerFieldUpdater.newUpdater(
+				Magazine.class, "locked");
+
+
+		/**
+		 * The idle objects.
+		 */
+		final PooledObject[] objs = new PooledObject[MAGAZINE_SIZE];
+
+		/**
+		 * Number of idle objects in the magazine.
+		 */
+		int numObjs;
+
+		/**
+		 * Non-zero if the magazine is locked.
+		 */
+		private volatile int locked;
+
+
+		/**
+		 * Try to lock the magazine.
+		 *
+		 * @return {@code true} if locked, {@code false} if the magazine is
+		 * locked by another thread.
+		 */
+		boolean tryLock() {
+
+			return LOCKED_UPDATER.compareAndSet(this, 0, 1);
+		}
+
+		/**
+		 * Unlock the magazine.
+		 */
+		void unlock() {
+
+			this.locked = 0;
+		}
+	}
+
+	/**
+	 * Depot stack node. Nodes are never reused, which makes the stack immune
+	 * to the ABA problem.
+	 */
+	private static final class DepotNode {
+
+		/**
+		 * Magazine contents, usually full.
+		 */
+		final PooledObject[] objs;
+
+		/**
+		 * Next node in the stack.
+		 */
+		DepotNode next;
+
+
+		/**
+		 * Create new node.
+		 *
+		 * @param objs Magazine contents.
+		 */
+		DepotNode(final PooledObject[] objs) {
+
+			this.objs = objs;
+		}
+	}
+
+
+	/**
+	 * Pooled objects factory.
+	 */
+	private final PoolableObjectFactory<T> factory;
+
+	/**
+	 * The magazines. The number of magazines is a power of two.
+	 */
+	private final Magazine[] magazines;
+
+	/**
+	 * Head of the depot stack.
+	 */
+	private final AtomicReference<DepotNode> depotHead =
+		new AtomicReference<>();
+
+	/**
+	 * Slot table chunks. The slot elements are written only by the thread that
+	 * has exclusive ownership of the slot and read only by the thread that has
+	 * received the pooled object, which establishes the happens-before
+	 * relationship.
+	 */
+	private volatile PooledObject[][] chunks;
+
+	/**
+	 * Number of allocated slots.
+	 */
+	private int numSlots;
+
+	/**
+	 * Lock for allocating new slots.
+	 */
+	private final Object slotsLock = new Object();
+
+
+	/**
+	 * Create new pool.
+	 *
+	 * @param name Pool name for reports and debugging.
+	 * @param factory Pooled objects factory.
+	 */
+	public ConcurrentFastPool(final PoolableObjectFactory<T> factory,
+			final String name) {
+		super(factory, name);
+
+		this.factory = factory;
+
+		int numMagazines = 1;
+		while ((numMagazines < MAX_MAGAZINES) && (numMagazines <
+				Runtime.getRuntime().availableProcessors()))
+			numMagazines <<= 1;
+		this.magazines = new Magazine[numMagazines];
+		for (int i = 0; i < numMagazines; i++)
+			this.magazines[i] = new Magazine();
+
+		this.chunks = new PooledObject[1][];
+		this.chunks[0] = new PooledObject[CHUNK_SIZE];
+		this.numSlots = 0;
+	}
+
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.util.pool.FastPool#get()
+	 */
+	@Override
+	public T get() {
+
+		// get idle object from a magazine, refill it if empty
+		PooledObject pobj = null;
+		final Magazine mag = this.lockMagazine();
+		if (mag != null) {
+			try {
+				if (mag.numObjs == 0) {
+					final DepotNode node = this.popDepot();
+					if (node != null) {
+						mag.numObjs = node.objs.length;
+						System.arraycopy(node.objs, 0, mag.objs, 0,
+								mag.numObjs);
+					}
+				}
+				if (mag.numObjs > 0) {
+					pobj = mag.objs[--mag.numObjs];
+					mag.objs[mag.numObjs] = null;
+				}
+			} finally {
+				mag.unlock();
+			}
+		} else { // all probed magazines are busy, use the depot directly
+			final DepotNode node = this.popDepot();
+			if (node != null) {
+				final int numObjs = node.objs.length;
+				pobj = node.objs[numObjs - 1];
+				if (numObjs > 1)
+					this.pushDepot(new DepotNode(
+							Arrays.copyOf(node.objs, numObjs - 1)));
+			}
+		}
+
+		// create new object if no idle objects
+		if (pobj == null)
+			return this.makeNew(this.allocateSlot(), false);
+
+		// re-create the object in the same slot if it was reclaimed
+		final Object obj = pobj.get();
+		if (obj == null)
+			return this.makeNew(pobj.slotInd, true);
+
+		pobj.markBorrowed();
+
+		this.getStats().countGet();
+
+		return this.cast(obj);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.util.pool.FastPool#getSync()
+	 */
+	@Override
+	public T getSync() {
+
+		return this.get();
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.util.pool.FastPool#recycle(com.boylesoftware.web.util.pool.Poolable)
+	 */
+	@Override
+	public void recycle(final T obj) {
+
+		final int slotInd = obj.getPooledObjectId();
+
+		final PooledObject pobj =
+			this.chunks[slotInd >>> CHUNK_SHIFT][slotInd & CHUNK_MASK];
+		if (!pobj.markIdle())
+			throw new IllegalStateException("The object is already idle.");
+
+		this.getStats().countRecycle();
+
+		// put the object to a magazine, move the magazine to the depot if full
+		final Magazine mag = this.lockMagazine();
+		if (mag == null) {
+			this.pushDepot(new DepotNode(new PooledObject[] { pobj }));
+			return;
+		}
+		try {
+			if (mag.numObjs == MAGAZINE_SIZE) {
+				this.pushDepot(new DepotNode(mag.objs.clone()));
+				Arrays.fill(mag.objs, null);
+				mag.numObjs = 0;
+			}
+			mag.objs[mag.numObjs++] = pobj;
+		} finally {
+			mag.unlock();
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.util.pool.FastPool#recycleSync(com.boylesoftware.web.util.pool.Poolable)
+	 */
+	@Override
+	public void recycleSync(final T obj) {
+
+		this.recycle(obj);
+	}
+
+	/**
+	 * Lock the magazine selected by the current thread's id, or, if it is
+	 * busy, one of the following magazines.
+	 *
+	 * @return Locked magazine, or {@code null} if all probed magazines are
+	 * busy.
+	 */
+	private Magazine lockMagazine() {
+
+		final Magazine[] mags = this.magazines;
+		final int mask = mags.length - 1;
+		final long threadId = Thread.currentThread().getId();
+		int ind = (int) (threadId ^ (threadId >>> 16)) & mask;
+		for (int i = 0; i < MAX_MAGAZINE_PROBES; i++) {
+			final Magazine mag = mags[ind];
+			if (mag.tryLock())
+				return mag;
+			ind = (ind + 1) & mask;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Allocate new slot in the slot table.
+	 *
+	 * @return The slot index.
+	 */
+	private int allocateSlot() {
+
+		synchronized (this.slotsLock) {
+
+			final int slotInd = this.numSlots++;
+
+			final int chunkInd = slotInd >>> CHUNK_SHIFT;
+			final PooledObject[][] chunks = this.chunks;
+			if (chunkInd >= chunks.length) {
+				final PooledObject[][] newChunks =
+					Arrays.copyOf(chunks, chunks.length * 2);
+				for (int i = chunks.length; i < newChunks.length; i++)
+					newChunks[i] = new PooledObject[CHUNK_SIZE];
+				this.chunks = newChunks;
+			}
+
+			return slotInd;
+		}
+	}
+
+	/**
+	 * Create new pooled object in the specified slot. The calling thread must
+	 * have exclusive ownership of the slot.
+	 *
+	 * @param slotInd The slot index.
+	 * @param reclaimed {@code true} if the slot's previous object has been
+	 * reclaimed by the garbage collector.
+	 *
+	 * @return The new object, marked as borrowed.
+	 */
+	private T makeNew(final int slotInd, final boolean reclaimed) {
+
+		final T obj = this.factory.makeNew(this, slotInd);
+
+		this.chunks[slotInd >>> CHUNK_SHIFT][slotInd & CHUNK_MASK] =
+			new PooledObject(obj, slotInd);
+
+		final FastPoolStats stats = this.getStats();
+		if (reclaimed)
+			stats.countReclaim();
+		stats.countGet();
+		stats.countAllocation();
+
+		return obj;
+	}
+
+	/**
+	 * Push magazine contents to the depot.
+	 *
+	 * @param node Depot node with the magazine contents.
+	 */
+	private void pushDepot(final DepotNode node) {
+
+		DepotNode head;
+		do {
+			head = this.depotHead.get();
+			node.next = head;
+		} while (!this.depotHead.compareAndSet(head, node));
+	}
+
+	/**
+	 * Pop magazine contents from the depot.
+	 *
+	 * @return Depot node with the magazine contents, or {@code null} if the
+	 * depot is empty.
+	 */
+	private DepotNode popDepot() {
+
+		DepotNode head;
+		do {
+			head = this.depotHead.get();
+			if (head == null)
+				return null;
+		} while (!this.depotHead.compareAndSet(head, head.next));
+
+		return head;
+	}
+
+	/**
+	 * Cast specified object to the pooled object type.
+	 *
+	 * @param obj Object to cast.
+	 *
+	 * @return The same object but cast to the pooled object type.
+	 */
+	@SuppressWarnings("unchecked")
+	private T cast(final Object obj) {
+
+		return (T) obj;
+	}
+
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.util.pool.FastPool#printStats()
+	 */
+	@Override
+	public String printStats() {
+
+		final StringBuilder sb = new StringBuilder(256);
+
+		final int numSlots;
+		synchronized (this.slotsLock) {
+			numSlots = this.numSlots;
+		}
+		final PooledObject[][] chunks = this.chunks;
+
+		sb.append("ConcurrentFastPool ").append(this.getName())
+			.append(" stats:\n");
+		sb.append("* Pool Size: ").append(numSlots).append('\n');
+		sb.append("* Magazines: ").append(this.magazines.length).append('\n');
+		sb.append("* Pool Slots:\n");
+		for (int i = 0; i < numSlots; i++) {
+			sb.append("    #").append(i).append(": ");
+			final PooledObject pooledObj =
+				chunks[i >>> CHUNK_SHIFT][i & CHUNK_MASK];
+			if (pooledObj == null) {
+				sb.append("null\n");
+			} else {
+				sb.append(pooledObj.isIdle() ? "[idle] " : "[allocated] ");
+				final Object o = pooledObj.get();
+				sb.append(o != null ? o.getClass().getName() : "null")
+					.append('\n');
+			}
+		}
+		int numDepotMagazines = 0;
+		for (DepotNode node = this.depotHead.get(); node != null;
+				node = node.next)
+			numDepotMagazines++;
+		sb.append("* Depot Magazines: ").append(numDepotMagazines)
+			.append('\n');
+		this.getStats().print(sb);
+
+		return sb.toString();
+	}
+}
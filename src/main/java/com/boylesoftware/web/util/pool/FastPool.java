@@ -116,6 +116,11 @@ public class FastPool<T extends Poolable> {
 	 */
 	private final PoolableObjectFactory<T> factory;
 
+	/**
+	 * Pool usage statistics.
+	 */
+	private final FastPoolStats stats;
+
 	/**
 	 * The pool.
 	 */
@@ -157,6 +162,7 @@ public class FastPool<T extends Poolable> {
 
 		this.name = name;
 		this.factory = factory;
+		this.stats = new FastPoolStats(name);
 
 		this.pool = new PooledObject[INIT_SIZE];
 		this.poolSize = 0;
@@ -168,9 +174,31 @@ public class FastPool<T extends Poolable> {
 		synchronized (ALL_POOLS) {
 			ALL_POOLS.put(this, Boolean.TRUE);
 		}
+
+		FastPoolMBeans.poolCreated(this);
 	}
 
 
+	/**
+	 * Get pool name.
+	 *
+	 * @return Pool name.
+	 */
+	public String getName() {
+
+		return this.name;
+	}
+
+	/**
+	 * Get pool usage statistics.
+	 *
+	 * @return Live pool usage statistics.
+	 */
+	public FastPoolStats getStats() {
+
+		return this.stats;
+	}
+
 	/**
 	 * Get an object from the pool.
 	 *
@@ -179,6 +207,7 @@ public class FastPool<T extends Poolable> {
 	public T get() {
 
 		Object obj = null;
+		boolean allocated = false;
 		do {
 
 			if (this.idleObjIndStackHead < 0) {
@@ -199,12 +228,15 @@ public class FastPool<T extends Poolable> {
 
 				this.pool[slotInd] = new PooledObject(obj);
 
+				allocated = true;
+
 			} else {
 
 				int slotInd = this.idleObjIndStack[this.idleObjIndStackHead--];
 				PooledObject pobj = this.pool[slotInd];
 				obj = pobj.get();
 				if (obj == null) {
+					this.stats.countReclaim();
 					this.pool[slotInd] = null;
 					this.freeSlotIndStackHead++;
 					final int stackCapacity = this.freeSlotIndStack.length;
@@ -220,6 +252,10 @@ public class FastPool<T extends Poolable> {
 
 		} while (obj == null);
 
+		this.stats.countGet();
+		if (allocated)
+			this.stats.countAllocation();
+
 		return this.cast(obj);
 	}
 
@@ -250,6 +286,8 @@ public class FastPool<T extends Poolable> {
 
 		pobj.setIdle(true);
 
+		this.stats.countRecycle();
+
 		this.idleObjIndStackHead++;
 		final int stackCapacity = this.idleObjIndStack.length;
 		if (this.idleObjIndStackHead >= stackCapacity)
@@ -314,6 +352,7 @@ public class FastPool<T extends Poolable> {
 		for (int i = this.freeSlotIndStackHead; i >= 0; i--)
 			sb.append(' ').append(this.freeSlotIndStack[i]);
 		sb.append('\n');
+		this.stats.print(sb);
 
 		return sb.toString();
 	}
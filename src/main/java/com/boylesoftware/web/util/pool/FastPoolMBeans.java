@@ -0,0 +1,189 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.util.pool;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+
+/**
+ * Registry of the {@link FastPool} usage statistics MBeans. When enabled, a
+ * {@link FastPoolStatsMBean} is registered with the platform MBean server for
+ * every existing pool and for every pool created afterwards. The MBean names
+ * have the form
+ * {@code com.boylesoftware.web:type=FastPool,application=<app>,name=<pool>}.
+ * If more than one pool share the same name, an {@code instance} key is added
+ * to the names of the subsequent pools. The registry does not keep the pools
+ * from being garbage collected: the MBean of a discarded pool, such as a pool
+ * that belonged to a replaced routing table, is unregistered once the pool is
+ * collected and another pool is registered or the MBeans are disabled.
+ *
+ * @author Lev Himmelfarb
+ */
+public final class FastPoolMBeans {
+
+	/**
+	 * MBean names domain.
+	 */
+	private static final String DOMAIN = "com.boylesoftware.web";
+
+	/**
+	 * The log.
+	 */
+	private static final Log log = LogFactory.getLog(FastPoolMBeans.class);
+
+	/**
+	 * Application name used in the MBean names, or {@code null} if the MBeans
+	 * are disabled.
+	 */
+	private static String application;
+
+	/**
+	 * Names of the registered MBeans by pool. The pools are weakly referenced.
+	 */
+	private static final Map<FastPool<?>, ObjectName> registeredNames =
+		new WeakHashMap<>();
+
+	/**
+	 * Names of all registered MBeans, including the ones for the pools that
+	 * have been garbage collected but not yet unregistered.
+	 */
+	private static final Set<ObjectName> registeredMBeans = new HashSet<>();
+
+
+	/**
+	 * All methods are static.
+	 */
+	private FastPoolMBeans() {}
+
+
+	/**
+	 * Enable pool statistics MBeans and register MBeans for all existing pools.
+	 *
+	 * @param applicationName Application name to use in the MBean names.
+	 */
+	public static synchronized void enable(final String applicationName) {
+
+		if (application != null)
+			return;
+		application = applicationName;
+
+		for (final FastPool<?> pool : FastPool.getAllPools())
+			poolCreated(pool);
+	}
+
+	/**
+	 * Disable pool statistics MBeans and unregister all registered MBeans.
+	 */
+	public static synchronized void disable() {
+
+		if (application == null)
+			return;
+		application = null;
+
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		for (final ObjectName name : registeredMBeans)
+			unregister(server, name);
+		registeredMBeans.clear();
+		registeredNames.clear();
+	}
+
+	/**
+	 * Register MBean for the specified pool if the MBeans are enabled.
+	 *
+	 * @param pool The pool.
+	 */
+	static synchronized void poolCreated(final FastPool<?> pool) {
+
+		if ((application == null) || registeredNames.containsKey(pool))
+			return;
+
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		expungeStale(server);
+		final String baseName = DOMAIN + ":type=FastPool,application=" +
+				ObjectName.quote(application) + ",name=" +
+				ObjectName.quote(pool.getName());
+		try {
+			for (int instance = 1;; instance++) {
+				final ObjectName name = new ObjectName(instance == 1 ?
+						baseName : baseName + ",instance=" + instance);
+				if (registeredMBeans.contains(name))
+					continue;
+				try {
+					server.registerMBean(pool.getStats(), name);
+				} catch (final InstanceAlreadyExistsException e) {
+					continue;
+				}
+				registeredNames.put(pool, name);
+				registeredMBeans.add(name);
+				break;
+			}
+		} catch (final JMException e) {
+			log.warn("error registering pool statistics MBean for pool " +
+					pool.getName(), e);
+		}
+	}
+
+	/**
+	 * Unregister MBeans of the pools that have been garbage collected.
+	 *
+	 * @param server The MBean server.
+	 */
+	private static void expungeStale(final MBeanServer server) {
+
+		if (registeredMBeans.size() == registeredNames.size())
+			return;
+
+		final Set<ObjectName> liveNames = new HashSet<>(
+				registeredNames.values());
+		for (final Iterator<ObjectName> i = registeredMBeans.iterator();
+				i.hasNext();) {
+			final ObjectName name = i.next();
+			if (!liveNames.contains(name)) {
+				unregister(server, name);
+				i.remove();
+			}
+		}
+	}
+
+	/**
+	 * Unregister MBean.
+	 *
+	 * @param server The MBean server.
+	 * @param name MBean name.
+	 */
+	private static void unregister(final MBeanServer server,
+			final ObjectName name) {
+
+		try {
+			server.unregisterMBean(name);
+		} catch (final JMException e) {
+			log.warn("error unregistering pool statistics MBean " + name, e);
+		}
+	}
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.util.pool;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * {@link FastPool} usage statistics. The counters are striped, so updating
+ * them does not introduce contention between threads using the pool.
+ *
+ * @author Lev Himmelfarb
+ */
+public final class FastPoolStats
+	implements FastPoolStatsMBean {
+
+	/**
+	 * Pool name.
+	 */
+	private final String poolName;
+
+	/**
+	 * Number of borrows.
+	 */
+	private final LongAdder gets = new LongAdder();
+
+	/**
+	 * Number of returns.
+	 */
+	private final LongAdder recycles = new LongAdder();
+
+	/**
+	 * Number of created objects.
+	 */
+	private final LongAdder allocations = new LongAdder();
+
+	/**
+	 * Number of reclaimed objects.
+	 */
+	private final LongAdder reclaims = new LongAdder();
+
+	/**
+	 * High-water mark of outstanding objects.
+	 */
+	private final AtomicLong highWaterMark = new AtomicLong();
+
+
+	/**
+	 * Create new statistics object.
+	 *
+	 * @param poolName Pool name.
+	 */
+	FastPoolStats(final String poolName) {
+
+		this.poolName = poolName;
+	}
+
+
+	/**
+	 * Count object borrow.
+	 */
+	void countGet() {
+
+		this.gets.increment();
+	}
+
+	/**
+	 * Count object return.
+	 */
+	void countRecycle() {
+
+		this.recycles.increment();
+	}
+
+	/**
+	 * Count object creation.
+	 */
+	void countAllocation() {
+
+		this.allocations.increment();
+
+		this.updateHighWaterMark();
+	}
+
+	/**
+	 * Count reclaimed object.
+	 */
+	void countReclaim() {
+
+		this.reclaims.increment();
+	}
+
+	/**
+	 * Update the high-water mark with the current number of outstanding
+	 * objects.
+	 *
+	 * @return The current number of outstanding objects.
+	 */
+	private long updateHighWaterMark() {
+
+		// read returns first so that concurrent updates cannot make it negative
+		final long numRecycles = this.recycles.sum();
+		final long numOutstanding = this.gets.sum() - numRecycles;
+		long highWaterMark;
+		do {
+			highWaterMark = this.highWaterMark.get();
+			if (numOutstanding <= highWaterMark)
+				break;
+		} while (!this.highWaterMark.compareAndSet(highWaterMark,
+				numOutstanding));
+
+		return numOutstanding;
+	}
+
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.util.pool.FastPoolStatsMBean#getPoolName()
+	 */
+	@Override
+	public String getPoolName() {
+
+		return this.poolName;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.util.pool.FastPoolStatsMBean#getGets()
+	 */
+	@Override
+	public long getGets() {
+
+		return this.gets.sum();
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.util.pool.FastPoolStatsMBean#getRecycles()
+	 */
+	@Override
+	public long getRecycles() {
+
+		return this.recycles.sum();
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.util.pool.FastPoolStatsMBean#getAllocations()
+	 */
+	@Override
+	public long getAllocations() {
+
+		return this.allocations.sum();
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.util.pool.FastPoolStatsMBean#getReclaims()
+	 */
+	@Override
+	public long getReclaims() {
+
+		return this.reclaims.sum();
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.util.pool.FastPoolStatsMBean#getOutstanding()
+	 */
+	@Override
+	public long getOutstanding() {
+
+		return this.updateHighWaterMark();
+	}
+
+	/* (non-Javadoc)
+	 * @see com.boylesoftware.web.util.pool.FastPoolStatsMBean#getHighWaterMark()
+	 */
+	@Override
+	public long getHighWaterMark() {
+
+		this.updateHighWaterMark();
+
+		return this.highWaterMark.get();
+	}
+
+
+	/**
+	 * Append statistics to a pool stats report.
+	 *
+	 * @param sb Buffer, to which to append the report lines.
+	 */
+	void print(final StringBuilder sb) {
+
+		sb.append("* Gets: ").append(this.getGets()).append('\n');
+		sb.append("* Recycles: ").append(this.getRecycles()).append('\n');
+		sb.append("* Allocations: ").append(this.getAllocations())
+			.append('\n');
+		sb.append("* Reclaims: ").append(this.getReclaims()).append('\n');
+		sb.append("* Outstanding: ").append(this.getOutstanding())
+			.append('\n');
+		sb.append("* High-Water Mark: ").append(this.getHighWaterMark())
+			.append('\n');
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2013 Boyle Software, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.boylesoftware.web.util.pool;
+
+
+/**
+ * Management interface for {@link FastPool} usage statistics.
+ *
+ * @author Lev Himmelfarb
+ */
+public interface FastPoolStatsMBean {
+
+	/**
+	 * Get pool name.
+	 *
+	 * @return Pool name.
+	 */
+	String getPoolName();
+
+	/**
+	 * Get number of times an object was borrowed from the pool.
+	 *
+	 * @return Number of borrows.
+	 */
+	long getGets();
+
+	/**
+	 * Get number of times an object was returned to the pool.
+	 *
+	 * @return Number of returns.
+	 */
+	long getRecycles();
+
+	/**
+	 * Get number of objects created by the pool's object factory. Every
+	 * creation is a pool miss.
+	 *
+	 * @return Number of created objects.
+	 */
+	long getAllocations();
+
+	/**
+	 * Get number of idle objects that were reclaimed by the garbage collector
+	 * under memory pressure and were found missing when the pool tried to
+	 * reuse them.
+	 *
+	 * @return Number of reclaimed objects.
+	 */
+	long getReclaims();
+
+	/**
+	 * Get number of objects currently borrowed from the pool.
+	 *
+	 * @return Number of outstanding objects.
+	 */
+	long getOutstanding();
+
+	/**
+	 * Get the highest number of simultaneously outstanding objects observed.
+	 * The number is sampled when the pool has to create a new object and when
+	 * the statistics are read.
+	 *
+	 * @return High-water mark of outstanding objects.
+	 */
+	long getHighWaterMark();
+}
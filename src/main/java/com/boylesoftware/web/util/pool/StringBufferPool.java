@@ -27,16 +27,17 @@ public final class StringBufferPool {
 	 * The pool.
 	 */
 	private static final FastPool<PooledStringBuffer> pool =
-		new FastPool<>(new PoolableObjectFactory<PooledStringBuffer>() {
+		new ConcurrentFastPool<>(
+				new PoolableObjectFactory<PooledStringBuffer>() {
 
-			@Override
-			public PooledStringBuffer makeNew(
-					final FastPool<PooledStringBuffer> pool,
-					final int pooledObjectId) {
+					@Override
+					public PooledStringBuffer makeNew(
+							final FastPool<PooledStringBuffer> pool,
+							final int pooledObjectId) {
 
-				return new PooledStringBuffer(pool, pooledObjectId);
-			}
-		}, "StringBuffersPool");
+						return new PooledStringBuffer(pool, pooledObjectId);
+					}
+				}, "StringBuffersPool");
 
 
 	/**